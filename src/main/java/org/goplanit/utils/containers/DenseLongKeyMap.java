@@ -0,0 +1,396 @@
+package org.goplanit.utils.containers;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Map with non-negative long keys where the key is used directly as index in an array of values. Intended for keys that are (close to)
+ * contiguous and zero based, such as the ids handed out by the id generator. Holes are tolerated but take up a slot, so memory is
+ * proportional to the largest key rather than the number of entries. Iteration is in ascending key order, similar to a tree map, but
+ * without the tree traversal.
+ * <p>
+ * The primitive {@link #get(long)}, {@link #containsKey(long)} and {@link #remove(long)} avoid boxing, the {@link Map} interface methods
+ * are supported as well so it can be used wherever a {@code Map<Long, V>} is expected. Null values are not supported. Not thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <V> value type
+ */
+public class DenseLongKeyMap<V> extends AbstractMap<Long, V> {
+
+  /** default initial capacity */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** values indexed by key, null for absent keys */
+  private Object[] values;
+
+  /** number of non-null entries */
+  private int size;
+
+  /** one beyond the largest key currently present */
+  private int length;
+
+  /** modification counter to detect concurrent modification during iteration */
+  private int modCount;
+
+  /**
+   * Verify key is within the supported range
+   *
+   * @param key to verify
+   * @return key as index
+   */
+  private static int toIndex(long key) {
+    if (key < 0 || key >= Integer.MAX_VALUE) {
+      throw new PlanItRunTimeException("Key %d outside supported range of dense long key map", key);
+    }
+    return (int) key;
+  }
+
+  /**
+   * Make sure the index can be stored
+   *
+   * @param index to accommodate
+   */
+  private void ensureCapacity(int index) {
+    if (index >= values.length) {
+      int newCapacity = Math.max(values.length << 1, index + 1);
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  /**
+   * Clear the value at the given index
+   *
+   * @param index to clear
+   * @return removed value, null if none
+   */
+  @SuppressWarnings("unchecked")
+  private V removeIndex(int index) {
+    V old = (V) values[index];
+    if (old != null) {
+      values[index] = null;
+      --size;
+      ++modCount;
+      if (index == length - 1) {
+        /* shrink logical length to the new largest key */
+        while (length > 0 && values[length - 1] == null) {
+          --length;
+        }
+      }
+    }
+    return old;
+  }
+
+  /**
+   * Base iterator over occupied indices in ascending order
+   */
+  private abstract class DenseIterator<T> implements Iterator<T> {
+
+    /** next occupied index, length when exhausted */
+    private int next;
+
+    /** last returned index, -1 when none */
+    private int last = -1;
+
+    /** expected modification count */
+    private int expectedModCount = modCount;
+
+    /**
+     * Advance to first occupied index starting at given index
+     *
+     * @param from index to start from
+     * @return first occupied index, or length if none
+     */
+    private int advance(int from) {
+      while (from < length && values[from] == null) {
+        ++from;
+      }
+      return from;
+    }
+
+    /**
+     * Constructor
+     */
+    DenseIterator() {
+      this.next = advance(0);
+    }
+
+    /**
+     * Produce the element for the given index
+     *
+     * @param index to produce for
+     * @return element
+     */
+    protected abstract T produce(int index);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+      return next < length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (next >= length) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = advance(next + 1);
+      return produce(last);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      removeIndex(last);
+      last = -1;
+      expectedModCount = modCount;
+    }
+  }
+
+  /**
+   * Constructor
+   */
+  public DenseLongKeyMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param initialCapacity expected largest key plus one
+   */
+  public DenseLongKeyMap(int initialCapacity) {
+    this.values = new Object[Math.max(initialCapacity, 1)];
+    this.size = 0;
+    this.length = 0;
+  }
+
+  /**
+   * Copy constructor (shallow copy of values), capacity is trimmed to the largest key
+   *
+   * @param other to copy
+   */
+  public DenseLongKeyMap(final DenseLongKeyMap<V> other) {
+    this.values = Arrays.copyOf(other.values, Math.max(other.length, 1));
+    this.size = other.size;
+    this.length = other.length;
+  }
+
+  /**
+   * Collect value for key without boxing
+   *
+   * @param key to collect value for
+   * @return value, null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    return (key >= 0 && key < length) ? (V) values[(int) key] : null;
+  }
+
+  /**
+   * Verify presence of key without boxing
+   *
+   * @param key to verify
+   * @return true when present, false otherwise
+   */
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Register value under key without boxing
+   *
+   * @param key   to use, must be non-negative
+   * @param value to register, may not be null
+   * @return previous value, null if none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new PlanItRunTimeException("Null values not supported by dense long key map, key %d", key);
+    }
+    int index = toIndex(key);
+    ensureCapacity(index);
+    V old = (V) values[index];
+    values[index] = value;
+    if (old == null) {
+      ++size;
+      ++modCount;
+      if (index >= length) {
+        length = index + 1;
+      }
+    }
+    return old;
+  }
+
+  /**
+   * Remove key without boxing
+   *
+   * @param key to remove
+   * @return removed value, null if not present
+   */
+  public V remove(long key) {
+    return (key >= 0 && key < length) ? removeIndex((int) key) : null;
+  }
+
+  /**
+   * Reduce the allocated capacity to the largest present key
+   */
+  public void trimToSize() {
+    if (values.length > length) {
+      values = Arrays.copyOf(values, Math.max(length, 1));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V get(Object key) {
+    return (key instanceof Long) ? get(((Long) key).longValue()) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V put(Long key, V value) {
+    return put(key.longValue(), value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V remove(Object key) {
+    return (key instanceof Long) ? remove(((Long) key).longValue()) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    Arrays.fill(values, 0, length, null);
+    size = 0;
+    length = 0;
+    ++modCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+
+      @Override
+      public Iterator<V> iterator() {
+        return new DenseIterator<V>() {
+          @SuppressWarnings("unchecked")
+          @Override
+          protected V produce(int index) {
+            return (V) values[index];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public boolean contains(Object value) {
+        return containsValue(value);
+      }
+
+      @Override
+      public void clear() {
+        DenseLongKeyMap.this.clear();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<Entry<Long, V>> entrySet() {
+    return new AbstractSet<Entry<Long, V>>() {
+
+      @Override
+      public Iterator<Entry<Long, V>> iterator() {
+        return new DenseIterator<Entry<Long, V>>() {
+          @SuppressWarnings("unchecked")
+          @Override
+          protected Entry<Long, V> produce(int index) {
+            return new SimpleImmutableEntry<>((long) index, (V) values[index]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void clear() {
+        DenseLongKeyMap.this.clear();
+      }
+    };
+  }
+}
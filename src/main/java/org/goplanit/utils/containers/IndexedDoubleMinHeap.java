@@ -0,0 +1,217 @@
+package org.goplanit.utils.containers;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min heap of integer indices in a fixed range {@code [0, capacity)} keyed by a primitive double, supporting decrease-key. Each
+ * index is present at most once, its position in the heap is tracked in an array so no objects are created while in use. Typical use is
+ * the priority queue of a label setting shortest path search where indices are vertex ids.
+ * <p>
+ * Keys can be changed in either direction via {@link #insertOrUpdate(int, double)}, polled indices may be inserted again. Clearing only
+ * touches the indices still present, so the heap can be reused across many searches at a cost proportional to its size. Not thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class IndexedDoubleMinHeap {
+
+  /** indices in heap order */
+  private final int[] heap;
+
+  /** keys in heap order, parallel to indices */
+  private final double[] keys;
+
+  /** position of each index in the heap, -1 when absent */
+  private final int[] positions;
+
+  /** number of indices in the heap */
+  private int size;
+
+  /**
+   * Place index and key at heap position
+   *
+   * @param position to place at
+   * @param index    to place
+   * @param key      of the index
+   */
+  private void place(int position, int index, double key) {
+    heap[position] = index;
+    keys[position] = key;
+    positions[index] = position;
+  }
+
+  /**
+   * Move entry towards the root until the heap property holds
+   *
+   * @param position of the entry
+   * @param index    of the entry
+   * @param key      of the entry
+   */
+  private void siftUp(int position, int index, double key) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (keys[parent] <= key) {
+        break;
+      }
+      place(position, heap[parent], keys[parent]);
+      position = parent;
+    }
+    place(position, index, key);
+  }
+
+  /**
+   * Move entry towards the leaves until the heap property holds
+   *
+   * @param position of the entry
+   * @param index    of the entry
+   * @param key      of the entry
+   */
+  private void siftDown(int position, int index, double key) {
+    final int half = size >>> 1;
+    while (position < half) {
+      int child = (position << 1) + 1;
+      int right = child + 1;
+      if (right < size && keys[right] < keys[child]) {
+        child = right;
+      }
+      if (key <= keys[child]) {
+        break;
+      }
+      place(position, heap[child], keys[child]);
+      position = child;
+    }
+    place(position, index, key);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param capacity number of indices supported, i.e., indices range from zero up to capacity (exclusive)
+   */
+  public IndexedDoubleMinHeap(int capacity) {
+    this.heap = new int[capacity];
+    this.keys = new double[capacity];
+    this.positions = new int[capacity];
+    Arrays.fill(positions, -1);
+    this.size = 0;
+  }
+
+  /**
+   * Insert index with key, or update its key when already present
+   *
+   * @param index to insert or update
+   * @param key   to use
+   */
+  public void insertOrUpdate(int index, double key) {
+    int position = positions[index];
+    if (position < 0) {
+      siftUp(size++, index, key);
+    } else if (key < keys[position]) {
+      siftUp(position, index, key);
+    } else {
+      siftDown(position, index, key);
+    }
+  }
+
+  /**
+   * Remove the index with the smallest key
+   *
+   * @return index with the smallest key
+   */
+  public int poll() {
+    if (size == 0) {
+      throw new NoSuchElementException("Indexed heap is empty");
+    }
+    int minIndex = heap[0];
+    positions[minIndex] = -1;
+    --size;
+    if (size > 0) {
+      siftDown(0, heap[size], keys[size]);
+    }
+    return minIndex;
+  }
+
+  /**
+   * Index with the smallest key without removing it
+   *
+   * @return index with the smallest key
+   */
+  public int peek() {
+    if (size == 0) {
+      throw new NoSuchElementException("Indexed heap is empty");
+    }
+    return heap[0];
+  }
+
+  /**
+   * Smallest key in the heap
+   *
+   * @return smallest key
+   */
+  public double peekKey() {
+    if (size == 0) {
+      throw new NoSuchElementException("Indexed heap is empty");
+    }
+    return keys[0];
+  }
+
+  /**
+   * Verify if index is present
+   *
+   * @param index to verify
+   * @return true when present
+   */
+  public boolean contains(int index) {
+    return positions[index] >= 0;
+  }
+
+  /**
+   * Key of an index present in the heap
+   *
+   * @param index to collect key for
+   * @return key, NaN when absent
+   */
+  public double getKey(int index) {
+    int position = positions[index];
+    return position < 0 ? Double.NaN : keys[position];
+  }
+
+  /**
+   * Number of indices in the heap
+   *
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Verify if the heap is empty
+   *
+   * @return true when empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Number of indices supported
+   *
+   * @return capacity
+   */
+  public int getCapacity() {
+    return positions.length;
+  }
+
+  /**
+   * Remove all indices, only the indices still present are touched
+   */
+  public void clear() {
+    for (int position = 0; position < size; ++position) {
+      positions[heap[position]] = -1;
+    }
+    size = 0;
+  }
+}
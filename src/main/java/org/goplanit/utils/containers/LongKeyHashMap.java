@@ -0,0 +1,307 @@
+package org.goplanit.utils.containers;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys and object values. Collisions are resolved via linear probing and removals
+ * use backward shifting, so no tombstones are needed and lookups never allocate. Null values are not stored, i.e., putting a null value
+ * is identical to removing the key. This makes it suitable for hot lookup paths where a {@code HashMap<Long, V>} would box on every call.
+ * <p>
+ * Occupied slots can be traversed via {@link #nextOccupiedSlot(int)}, {@link #getKeyAt(int)} and {@link #getValueAt(int)} without creating
+ * any intermediate objects. Not thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <V> value type
+ */
+public class LongKeyHashMap<V> {
+
+  /** default initial number of slots */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** maximum fraction of occupied slots before the table grows */
+  private static final float LOAD_FACTOR = 0.6f;
+
+  /** keys per slot, only meaningful when the value in the same slot is not null */
+  private long[] keys;
+
+  /** values per slot, null indicates an empty slot */
+  private Object[] values;
+
+  /** number of registered entries */
+  private int size;
+
+  /** mask to map a hash onto a slot, number of slots minus one */
+  private int mask;
+
+  /** number of entries at which we grow the table */
+  private int resizeThreshold;
+
+  /**
+   * Scramble the key so that structured keys (for example packed id pairs) spread evenly across the slots
+   *
+   * @param key to mix
+   * @return mixed hash
+   */
+  private static int mix(long key) {
+    final long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Smallest power of two number of slots that can hold the expected number of entries within the load factor
+   *
+   * @param expectedSize number of entries
+   * @return number of slots
+   */
+  private static int toCapacity(int expectedSize) {
+    long required = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < required) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Allocate the slot arrays for the given capacity
+   *
+   * @param capacity power of two number of slots
+   */
+  private void allocate(int capacity) {
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+    this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Find the slot of the key
+   *
+   * @param key to find
+   * @return slot index, negative if not present
+   */
+  private int findSlot(long key) {
+    int slot = mix(key) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Double the number of slots and reinsert all entries
+   */
+  private void grow() {
+    final long[] oldKeys = keys;
+    final Object[] oldValues = values;
+    allocate(oldValues.length << 1);
+    for (int index = 0; index < oldValues.length; ++index) {
+      if (oldValues[index] != null) {
+        int slot = mix(oldKeys[index]) & mask;
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[index];
+        values[slot] = oldValues[index];
+      }
+    }
+  }
+
+  /**
+   * Remove the entry in the given slot and shift subsequent entries of the same probe sequence back so lookups remain valid
+   *
+   * @param slot to clear
+   */
+  private void removeAt(int slot) {
+    int gap = slot;
+    int current = (gap + 1) & mask;
+    while (values[current] != null) {
+      int ideal = mix(keys[current]) & mask;
+      /* entry can fill the gap when its ideal slot is not cyclically located between the gap and its current slot */
+      if (((current - ideal) & mask) >= ((current - gap) & mask)) {
+        keys[gap] = keys[current];
+        values[gap] = values[current];
+        gap = current;
+      }
+      current = (current + 1) & mask;
+    }
+    values[gap] = null;
+    --size;
+  }
+
+  /**
+   * Constructor
+   */
+  public LongKeyHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param expectedSize number of entries to accommodate without growing
+   */
+  public LongKeyHashMap(int expectedSize) {
+    allocate(toCapacity(expectedSize));
+    this.size = 0;
+  }
+
+  /**
+   * Copy constructor, shallow copy of the values
+   *
+   * @param other to copy
+   */
+  public LongKeyHashMap(final LongKeyHashMap<V> other) {
+    this.keys = Arrays.copyOf(other.keys, other.keys.length);
+    this.values = Arrays.copyOf(other.values, other.values.length);
+    this.size = other.size;
+    this.mask = other.mask;
+    this.resizeThreshold = other.resizeThreshold;
+  }
+
+  /**
+   * Collect value registered under key
+   *
+   * @param key to collect value for
+   * @return value, null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int slot = findSlot(key);
+    return slot < 0 ? null : (V) values[slot];
+  }
+
+  /**
+   * Verify if key is present
+   *
+   * @param key to verify
+   * @return true when present, false otherwise
+   */
+  public boolean containsKey(long key) {
+    return findSlot(key) >= 0;
+  }
+
+  /**
+   * Register value under key. Null values are not stored, instead any existing entry for the key is removed
+   *
+   * @param key   to use
+   * @param value to register
+   * @return previous value, null if none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      return remove(key);
+    }
+
+    int slot = mix(key) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        V old = (V) values[slot];
+        values[slot] = value;
+        return old;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > resizeThreshold) {
+      grow();
+    }
+    return null;
+  }
+
+  /**
+   * Remove entry for key
+   *
+   * @param key to remove
+   * @return removed value, null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    int slot = findSlot(key);
+    if (slot < 0) {
+      return null;
+    }
+    V old = (V) values[slot];
+    removeAt(slot);
+    return old;
+  }
+
+  /**
+   * Number of entries
+   *
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Verify if empty
+   *
+   * @return true when no entries are present, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Remove all entries, retains the current capacity
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Number of slots in the underlying table, valid slot indices are in the range [0, capacity)
+   *
+   * @return capacity
+   */
+  public int getCapacity() {
+    return values.length;
+  }
+
+  /**
+   * Find the first occupied slot starting at (and including) the given slot
+   *
+   * @param fromSlot to start searching from
+   * @return occupied slot index, -1 when no more occupied slots exist
+   */
+  public int nextOccupiedSlot(int fromSlot) {
+    for (int slot = Math.max(fromSlot, 0); slot < values.length; ++slot) {
+      if (values[slot] != null) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Key in the given slot, only meaningful when the slot is occupied
+   *
+   * @param slot to collect key for
+   * @return key
+   */
+  public long getKeyAt(int slot) {
+    return keys[slot];
+  }
+
+  /**
+   * Value in the given slot
+   *
+   * @param slot to collect value for
+   * @return value, null when the slot is empty
+   */
+  @SuppressWarnings("unchecked")
+  public V getValueAt(int slot) {
+    return (V) values[slot];
+  }
+}
@@ -0,0 +1,236 @@
+package org.goplanit.utils.cumulatives;
+
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Piecewise linear cumulative curve that simplifies itself while points are appended. A point is dropped when the line between the
+ * previously retained point and the newly appended point stays within the count tolerance (vertical deviation) and, when configured, the
+ * time tolerance (horizontal deviation) of every point dropped since. Only a subset of the appended points is retained so the curve remains
+ * monotone, while the number of retained points only grows where the shape of the curve actually changes.
+ * <p>
+ * Each append is O(1): for the open segment we track the interval of slopes that keeps all dropped points within tolerance. The latest
+ * appended point is always retained, so queries at the end of the curve remain exact. The vertical error of the compacted curve with respect
+ * to all appended points is bounded by the count tolerance, and an upper bound on the actually incurred vertical error is tracked and
+ * available via {@link #getMaxCountErrorBound()}.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class CompactingPiecewiseLinearCumulativeCurve extends PiecewiseLinearCumulativeCurve {
+
+  /** maximum allowed vertical deviation of a dropped point in cumulative units */
+  private final double countTolerance;
+
+  /** maximum allowed horizontal deviation of a dropped point in seconds, infinite when not constrained */
+  private final double timeToleranceInSeconds;
+
+  /** lowest slope from the anchor that keeps all dropped points of the open segment within tolerance */
+  private double lowerSlope;
+
+  /** highest slope from the anchor that keeps all dropped points of the open segment within tolerance */
+  private double upperSlope;
+
+  /** upper bound on the signed vertical error (approximation minus actual) of dropped points of the open segment */
+  private double maxSignedErrorBound;
+
+  /** lower bound on the signed vertical error (approximation minus actual) of dropped points of the open segment */
+  private double minSignedErrorBound;
+
+  /** time between the anchor and the latest dropped point of the open segment */
+  private double maxDroppedTimeOffset;
+
+  /** bound on the vertical error across all closed segments */
+  private double closedCountErrorBound;
+
+  /** number of points that were dropped */
+  private long numberOfDroppedPoints;
+
+  /**
+   * Reset the tracking of the open segment
+   */
+  private void resetOpenSegment() {
+    lowerSlope = Double.NEGATIVE_INFINITY;
+    upperSlope = Double.POSITIVE_INFINITY;
+    maxSignedErrorBound = 0;
+    minSignedErrorBound = 0;
+    maxDroppedTimeOffset = 0;
+  }
+
+  /**
+   * Bound on the vertical error of the open segment
+   *
+   * @return error bound
+   */
+  private double getOpenSegmentCountErrorBound() {
+    return Math.min(countTolerance, Math.max(maxSignedErrorBound, -minSignedErrorBound));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param countTolerance maximum vertical deviation (in cumulative units) allowed for a dropped point, must be non-negative
+   */
+  public CompactingPiecewiseLinearCumulativeCurve(double countTolerance) {
+    this(countTolerance, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param countTolerance         maximum vertical deviation (in cumulative units) allowed for a dropped point, must be non-negative
+   * @param timeToleranceInSeconds maximum horizontal deviation (in seconds) allowed for a dropped point, must be non-negative, infinite when
+   *                               only the count tolerance applies
+   */
+  public CompactingPiecewiseLinearCumulativeCurve(double countTolerance, double timeToleranceInSeconds) {
+    super();
+    if (!(countTolerance >= 0) || !(timeToleranceInSeconds >= 0)) {
+      throw new PlanItRunTimeException("Tolerances of compacting cumulative curve must be non-negative, found count tolerance %f and time tolerance %f", countTolerance, timeToleranceInSeconds);
+    }
+    this.countTolerance = countTolerance;
+    this.timeToleranceInSeconds = timeToleranceInSeconds;
+    this.closedCountErrorBound = 0;
+    this.numberOfDroppedPoints = 0;
+    resetOpenSegment();
+  }
+
+  /**
+   * Copy constructor
+   *
+   * @param other to copy
+   */
+  public CompactingPiecewiseLinearCumulativeCurve(final CompactingPiecewiseLinearCumulativeCurve other) {
+    super(other);
+    this.countTolerance = other.countTolerance;
+    this.timeToleranceInSeconds = other.timeToleranceInSeconds;
+    this.lowerSlope = other.lowerSlope;
+    this.upperSlope = other.upperSlope;
+    this.maxSignedErrorBound = other.maxSignedErrorBound;
+    this.minSignedErrorBound = other.minSignedErrorBound;
+    this.maxDroppedTimeOffset = other.maxDroppedTimeOffset;
+    this.closedCountErrorBound = other.closedCountErrorBound;
+    this.numberOfDroppedPoints = other.numberOfDroppedPoints;
+  }
+
+  /**
+   * append a new cumulative point to the curve which must be later than the current latest point given the passed in timeInSecondsEpsilon
+   * and may not have a lower count. The previously latest point is dropped when the curve remains within tolerance without it.
+   *
+   * @param timeInSeconds        reference time of the point
+   * @param cumulativeCount      count of the point
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown if error
+   */
+  @Override
+  public void add(double timeInSeconds, double cumulativeCount, double timeInSecondsEpsilon) throws PlanItException {
+    validateAppend(timeInSeconds, cumulativeCount, timeInSecondsEpsilon);
+
+    final int numberOfPoints = getNumberOfPoints();
+    if (numberOfPoints < 2) {
+      appendUnchecked(timeInSeconds, cumulativeCount);
+      return;
+    }
+
+    /* anchor is the last retained point before the pending (latest) point */
+    final double anchorTime = getReferenceTimeInSeconds(numberOfPoints - 2);
+    final double anchorCount = getCumulativeCount(numberOfPoints - 2);
+    final double pendingTimeOffset = getReferenceTimeInSeconds(numberOfPoints - 1) - anchorTime;
+    final double pendingCountOffset = getCumulativeCount(numberOfPoints - 1) - anchorCount;
+
+    /* slopes for which the pending point would remain within the count tolerance */
+    double newLowerSlope = Math.max(lowerSlope, (pendingCountOffset - countTolerance) / pendingTimeOffset);
+    double newUpperSlope = Math.min(upperSlope, (pendingCountOffset + countTolerance) / pendingTimeOffset);
+    if (timeToleranceInSeconds < Double.POSITIVE_INFINITY) {
+      /* slopes for which the line reaches the pending point's count within the time tolerance */
+      newLowerSlope = Math.max(newLowerSlope, pendingCountOffset / (pendingTimeOffset + timeToleranceInSeconds));
+      if (pendingTimeOffset > timeToleranceInSeconds) {
+        newUpperSlope = Math.min(newUpperSlope, pendingCountOffset / (pendingTimeOffset - timeToleranceInSeconds));
+      }
+    }
+
+    final double slope = (cumulativeCount - anchorCount) / (timeInSeconds - anchorTime);
+    if (slope >= newLowerSlope && slope <= newUpperSlope) {
+      /* drop pending point, update error bounds of earlier dropped points for the change in slope, then add the pending point's exact error */
+      final double slopeChange = slope - (pendingCountOffset / pendingTimeOffset);
+      if (slopeChange > 0) {
+        maxSignedErrorBound += maxDroppedTimeOffset * slopeChange;
+      } else {
+        minSignedErrorBound += maxDroppedTimeOffset * slopeChange;
+      }
+      final double pendingError = slope * pendingTimeOffset - pendingCountOffset;
+      maxSignedErrorBound = Math.max(maxSignedErrorBound, pendingError);
+      minSignedErrorBound = Math.min(minSignedErrorBound, pendingError);
+      maxDroppedTimeOffset = pendingTimeOffset;
+
+      lowerSlope = newLowerSlope;
+      upperSlope = newUpperSlope;
+      replaceLastUnchecked(timeInSeconds, cumulativeCount);
+      ++numberOfDroppedPoints;
+    } else {
+      /* retain pending point, it becomes the anchor of a new open segment */
+      closedCountErrorBound = Math.max(closedCountErrorBound, getOpenSegmentCountErrorBound());
+      resetOpenSegment();
+      appendUnchecked(timeInSeconds, cumulativeCount);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    super.clear();
+    resetOpenSegment();
+    closedCountErrorBound = 0;
+    numberOfDroppedPoints = 0;
+  }
+
+  /**
+   * Upper bound on the vertical deviation between the compacted curve and any of the appended points, never exceeds the count tolerance
+   *
+   * @return maximum count error bound in cumulative units
+   */
+  public double getMaxCountErrorBound() {
+    return Math.max(closedCountErrorBound, getOpenSegmentCountErrorBound());
+  }
+
+  /**
+   * Upper bound on the deviation of {@link #computeSurfaceUnderCurve()} compared to the surface under the curve through all appended points
+   *
+   * @return maximum surface error bound
+   */
+  public double getMaxSurfaceErrorBound() {
+    if (getNumberOfPoints() < 2) {
+      return 0;
+    }
+    return getMaxCountErrorBound() * (getReferenceTimeInSeconds(getNumberOfPoints() - 1) - getReferenceTimeInSeconds(0));
+  }
+
+  /**
+   * Number of appended points that were not retained
+   *
+   * @return number of dropped points
+   */
+  public long getNumberOfDroppedPoints() {
+    return numberOfDroppedPoints;
+  }
+
+  /**
+   * Collect the count tolerance
+   *
+   * @return count tolerance
+   */
+  public double getCountTolerance() {
+    return countTolerance;
+  }
+
+  /**
+   * Collect the time tolerance
+   *
+   * @return time tolerance in seconds, infinite when not constrained
+   */
+  public double getTimeToleranceInSeconds() {
+    return timeToleranceInSeconds;
+  }
+}
@@ -0,0 +1,492 @@
+package org.goplanit.utils.cumulatives;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Columnar set of piecewise linear cumulative curves that share a common time axis, for example one curve per edge segment of a layer
+ * indexed by the edge segment id. Instead of one curve object per edge segment, the counts of all curves are stored in one primitive array
+ * per time step, i.e., appending a time step for all curves writes one contiguous block. Queries on individual curves do a single binary
+ * search on the shared time axis.
+ * <p>
+ * Bulk operations (surfaces, travel times, delays) write their results into a caller provided array indexed by curve and can optionally be
+ * executed in parallel across blocks of curves on the common fork-join pool. Semantics of individual curves are identical to
+ * {@link PiecewiseLinearCumulativeCurve}. Not thread safe for concurrent appends.
+ * </p>
+ * <p>
+ * Since counts are stored per time step, the number of time steps times the number of curves is bounded by the available heap rather than
+ * by the maximum length of a single array.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class CumulativeCurveSet {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(CumulativeCurveSet.class.getCanonicalName());
+
+  /** default initial number of time steps that can be stored without growing */
+  private static final int DEFAULT_TIME_STEP_CAPACITY = 16;
+
+  /** number of curves processed as a single unit of work in bulk operations */
+  private static final int CURVE_BLOCK_SIZE = 4096;
+
+  /** number of curves */
+  private final int numberOfCurves;
+
+  /** shared reference times in seconds per time step */
+  private double[] timesInSeconds;
+
+  /** counts per time step, where the count of curve c at time step i is located at [i][c]. Arrays beyond the number of time steps may be
+   * null or retained for reuse after clearing */
+  private double[][] cumulativeCounts;
+
+  /** number of time steps */
+  private int numberOfTimeSteps;
+
+  /** Consumer of a range of curve indices [from, to) */
+  @FunctionalInterface
+  private static interface CurveRangeConsumer {
+
+    /**
+     * Apply to curve range
+     *
+     * @param fromCurve inclusive
+     * @param toCurve   exclusive
+     */
+    void accept(int fromCurve, int toCurve);
+  }
+
+  /**
+   * Apply consumer to all curves in blocks, either sequentially or in parallel
+   *
+   * @param parallel when true blocks are processed on the common fork-join pool
+   * @param consumer to apply
+   */
+  private void forEachCurveBlock(boolean parallel, CurveRangeConsumer consumer) {
+    int numberOfBlocks = (numberOfCurves + CURVE_BLOCK_SIZE - 1) / CURVE_BLOCK_SIZE;
+    if (!parallel || numberOfBlocks <= 1) {
+      consumer.accept(0, numberOfCurves);
+      return;
+    }
+    IntStream.range(0, numberOfBlocks).parallel().forEach(
+        block -> consumer.accept(block * CURVE_BLOCK_SIZE, Math.min((block + 1) * CURVE_BLOCK_SIZE, numberOfCurves)));
+  }
+
+  /**
+   * Make sure we can store at least the given number of time steps
+   *
+   * @param timeStepCapacity to accommodate
+   */
+  private void ensureCapacity(int timeStepCapacity) {
+    if (timeStepCapacity > timesInSeconds.length) {
+      int newCapacity = Math.max((int) Math.min((long) timesInSeconds.length << 1, Integer.MAX_VALUE - 8), timeStepCapacity);
+      timesInSeconds = Arrays.copyOf(timesInSeconds, newCapacity);
+      cumulativeCounts = Arrays.copyOf(cumulativeCounts, newCapacity);
+    }
+  }
+
+  /**
+   * Counts of the next time step to append, reusing the array retained after clearing when present
+   *
+   * @return counts array of the next time step
+   */
+  private double[] nextTimeStepCounts() {
+    ensureCapacity(numberOfTimeSteps + 1);
+    if (cumulativeCounts[numberOfTimeSteps] == null) {
+      cumulativeCounts[numberOfTimeSteps] = new double[numberOfCurves];
+    }
+    return cumulativeCounts[numberOfTimeSteps];
+  }
+
+  /**
+   * Validate the next time step
+   *
+   * @param timeInSeconds        of the time step
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown when not later than latest time step
+   */
+  private void validateTimeStep(double timeInSeconds, double timeInSecondsEpsilon) throws PlanItException {
+    if (numberOfTimeSteps > 0 && !((timeInSeconds - timeInSecondsEpsilon) > timesInSeconds[numberOfTimeSteps - 1])) {
+      String errorMessage = "new time step does not occur later than last available time step in cumulative curve set, this is not allowed";
+      LOGGER.severe(errorMessage);
+      throw new PlanItException(errorMessage);
+    }
+  }
+
+  /**
+   * Find the index of the last time step with a time smaller or equal than the given time
+   *
+   * @param timeInSeconds to find
+   * @return index, -1 when the time lies before the first time step
+   */
+  private int floorTimeStep(double timeInSeconds) {
+    int index = Arrays.binarySearch(timesInSeconds, 0, numberOfTimeSteps, timeInSeconds);
+    return index >= 0 ? index : (-index - 2);
+  }
+
+  /**
+   * Count of curve at given time, with given floor time step already determined
+   *
+   * @param curveIndex    to use
+   * @param floorTimeStep floor time step of time
+   * @param timeInSeconds to evaluate
+   * @return count
+   */
+  private double getCumulativeAt(int curveIndex, int floorTimeStep, double timeInSeconds) {
+    if (floorTimeStep < 0) {
+      return cumulativeCounts[0][curveIndex];
+    }
+    if (floorTimeStep >= numberOfTimeSteps - 1) {
+      return cumulativeCounts[numberOfTimeSteps - 1][curveIndex];
+    }
+    double t0 = timesInSeconds[floorTimeStep];
+    double c0 = cumulativeCounts[floorTimeStep][curveIndex];
+    double c1 = cumulativeCounts[floorTimeStep + 1][curveIndex];
+    return c0 + (c1 - c0) * ((timeInSeconds - t0) / (timesInSeconds[floorTimeStep + 1] - t0));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param numberOfCurves number of curves, e.g., the number of edge segments in a layer so curves can be indexed by edge segment id
+   */
+  public CumulativeCurveSet(int numberOfCurves) {
+    this(numberOfCurves, DEFAULT_TIME_STEP_CAPACITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param numberOfCurves           number of curves, e.g., the number of edge segments in a layer so curves can be indexed by edge segment id
+   * @param initialTimeStepCapacity number of time steps that can be appended before the time axis needs to grow, counts are allocated per
+   *                                time step when appended
+   */
+  public CumulativeCurveSet(int numberOfCurves, int initialTimeStepCapacity) {
+    if (numberOfCurves < 0) {
+      throw new PlanItRunTimeException("Number of curves in cumulative curve set cannot be negative, found %d", numberOfCurves);
+    }
+    this.numberOfCurves = numberOfCurves;
+    int capacity = Math.max(initialTimeStepCapacity, 1);
+    this.timesInSeconds = new double[capacity];
+    this.cumulativeCounts = new double[capacity][];
+    this.numberOfTimeSteps = 0;
+  }
+
+  /**
+   * Copy constructor, trims the capacity to the number of time steps
+   *
+   * @param other to copy
+   */
+  public CumulativeCurveSet(final CumulativeCurveSet other) {
+    this.numberOfCurves = other.numberOfCurves;
+    this.numberOfTimeSteps = other.numberOfTimeSteps;
+    int capacity = Math.max(other.numberOfTimeSteps, 1);
+    this.timesInSeconds = Arrays.copyOf(other.timesInSeconds, capacity);
+    this.cumulativeCounts = new double[capacity][];
+    for (int timeStep = 0; timeStep < numberOfTimeSteps; ++timeStep) {
+      this.cumulativeCounts[timeStep] = other.cumulativeCounts[timeStep].clone();
+    }
+  }
+
+  /**
+   * Append a time step with the cumulative count of each curve. Counts may not be lower than the counts of the previous time step
+   *
+   * @param timeInSeconds        reference time of the time step
+   * @param countsPerCurve       cumulative count per curve index
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown if error
+   */
+  public void appendTimeStep(double timeInSeconds, final double[] countsPerCurve, double timeInSecondsEpsilon) throws PlanItException {
+    validateTimeStep(timeInSeconds, timeInSecondsEpsilon);
+    if (countsPerCurve.length < numberOfCurves) {
+      throw new PlanItException("Provided counts (%d) do not cover all curves (%d) in cumulative curve set", countsPerCurve.length, numberOfCurves);
+    }
+    if (numberOfTimeSteps > 0) {
+      var previousCounts = cumulativeCounts[numberOfTimeSteps - 1];
+      for (int curve = 0; curve < numberOfCurves; ++curve) {
+        if (countsPerCurve[curve] < previousCounts[curve]) {
+          String errorMessage = String.format("new count of curve %d is lower than its count at the previous time step in cumulative curve set, this is not allowed", curve);
+          LOGGER.severe(errorMessage);
+          throw new PlanItException(errorMessage);
+        }
+      }
+    }
+
+    var counts = nextTimeStepCounts();
+    timesInSeconds[numberOfTimeSteps] = timeInSeconds;
+    System.arraycopy(countsPerCurve, 0, counts, 0, numberOfCurves);
+    ++numberOfTimeSteps;
+  }
+
+  /**
+   * Append a time step where the count of each curve is its previous count plus the given non-negative increment, e.g., the flow
+   * during the time step. For the first time step the increments are the counts
+   *
+   * @param timeInSeconds        reference time of the time step
+   * @param incrementsPerCurve   non-negative increment per curve index
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown if error
+   */
+  public void appendTimeStepIncrements(double timeInSeconds, final double[] incrementsPerCurve, double timeInSecondsEpsilon) throws PlanItException {
+    validateTimeStep(timeInSeconds, timeInSecondsEpsilon);
+    if (incrementsPerCurve.length < numberOfCurves) {
+      throw new PlanItException("Provided increments (%d) do not cover all curves (%d) in cumulative curve set", incrementsPerCurve.length, numberOfCurves);
+    }
+    for (int curve = 0; curve < numberOfCurves; ++curve) {
+      if (incrementsPerCurve[curve] < 0) {
+        String errorMessage = String.format("increment of curve %d is negative in cumulative curve set, this is not allowed", curve);
+        LOGGER.severe(errorMessage);
+        throw new PlanItException(errorMessage);
+      }
+    }
+
+    var counts = nextTimeStepCounts();
+    timesInSeconds[numberOfTimeSteps] = timeInSeconds;
+    if (numberOfTimeSteps == 0) {
+      System.arraycopy(incrementsPerCurve, 0, counts, 0, numberOfCurves);
+    } else {
+      var previousCounts = cumulativeCounts[numberOfTimeSteps - 1];
+      for (int curve = 0; curve < numberOfCurves; ++curve) {
+        counts[curve] = previousCounts[curve] + incrementsPerCurve[curve];
+      }
+    }
+    ++numberOfTimeSteps;
+  }
+
+  /**
+   * Number of curves
+   *
+   * @return number of curves
+   */
+  public int getNumberOfCurves() {
+    return numberOfCurves;
+  }
+
+  /**
+   * Number of time steps
+   *
+   * @return number of time steps
+   */
+  public int getNumberOfTimeSteps() {
+    return numberOfTimeSteps;
+  }
+
+  /**
+   * Reference time of a time step
+   *
+   * @param timeStep to collect time for
+   * @return time in seconds
+   */
+  public double getReferenceTimeInSeconds(int timeStep) {
+    return timesInSeconds[timeStep];
+  }
+
+  /**
+   * Cumulative count of a curve at a time step
+   *
+   * @param curveIndex to collect count for
+   * @param timeStep   to collect count for
+   * @return cumulative count
+   */
+  public double getCumulativeCount(int curveIndex, int timeStep) {
+    return cumulativeCounts[timeStep][curveIndex];
+  }
+
+  /**
+   * Cumulative count of a curve at the given time by linear interpolation, flat before the first and after the last time step
+   *
+   * @param curveIndex    to evaluate
+   * @param timeInSeconds to evaluate
+   * @return cumulative count, NaN when no time steps are present
+   */
+  public double getCumulativeAt(int curveIndex, double timeInSeconds) {
+    if (numberOfTimeSteps == 0) {
+      return Double.NaN;
+    }
+    return getCumulativeAt(curveIndex, floorTimeStep(timeInSeconds), timeInSeconds);
+  }
+
+  /**
+   * Cumulative count of all curves at the given time by linear interpolation, flat before the first and after the last time step
+   *
+   * @param timeInSeconds to evaluate
+   * @param result        to place count per curve index in
+   * @param parallel      when true, evaluate in parallel across curves
+   */
+  public void getCumulativesAt(double timeInSeconds, final double[] result, boolean parallel) {
+    if (numberOfTimeSteps == 0) {
+      Arrays.fill(result, 0, numberOfCurves, Double.NaN);
+      return;
+    }
+    final int floorTimeStep = floorTimeStep(timeInSeconds);
+    forEachCurveBlock(parallel, (from, to) -> {
+      for (int curve = from; curve < to; ++curve) {
+        result[curve] = getCumulativeAt(curve, floorTimeStep, timeInSeconds);
+      }
+    });
+  }
+
+  /**
+   * Earliest time at which the curve reaches the given cumulative count by linear interpolation
+   *
+   * @param curveIndex      to evaluate
+   * @param cumulativeCount to find time for
+   * @return time in seconds, time of the first time step when the count does not exceed its count, NaN when the count is never reached or no
+   *         time steps are present
+   */
+  public double getTimeAt(int curveIndex, double cumulativeCount) {
+    if (numberOfTimeSteps == 0) {
+      return Double.NaN;
+    }
+    int low = 0;
+    int high = numberOfTimeSteps;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulativeCounts[mid][curveIndex] < cumulativeCount) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    if (low == 0) {
+      return timesInSeconds[0];
+    }
+    if (low >= numberOfTimeSteps) {
+      return Double.NaN;
+    }
+    double c0 = cumulativeCounts[low - 1][curveIndex];
+    double t0 = timesInSeconds[low - 1];
+    return t0 + (timesInSeconds[low] - t0) * ((cumulativeCount - c0) / (cumulativeCounts[low][curveIndex] - c0));
+  }
+
+  /**
+   * Total surface under each curve, see {@link PiecewiseLinearCumulativeCurve#computeSurfaceUnderCurve()}
+   *
+   * @param result   to place surface per curve index in
+   * @param parallel when true, compute in parallel across curves
+   */
+  public void computeSurfacesUnderCurves(final double[] result, boolean parallel) {
+    forEachCurveBlock(parallel, (from, to) -> {
+      Arrays.fill(result, from, to, 0);
+      for (int timeStep = 1; timeStep < numberOfTimeSteps; ++timeStep) {
+        double width = timesInSeconds[timeStep] - timesInSeconds[timeStep - 1];
+        var previousCounts = cumulativeCounts[timeStep - 1];
+        var counts = cumulativeCounts[timeStep];
+        for (int curve = from; curve < to; ++curve) {
+          double previousCount = previousCounts[curve];
+          // rectangular surface + triangle surface = total segment surface
+          result[curve] += previousCount * width + Math.abs(counts[curve] - previousCount) * width * 0.5;
+        }
+      }
+    });
+  }
+
+  /**
+   * Create a stand-alone curve for a single curve index in this set
+   *
+   * @param curveIndex to extract
+   * @return created curve
+   */
+  public PiecewiseLinearCumulativeCurve extractCurve(int curveIndex) {
+    var curve = new PiecewiseLinearCumulativeCurve(numberOfTimeSteps);
+    for (int timeStep = 0; timeStep < numberOfTimeSteps; ++timeStep) {
+      curve.appendUnchecked(timesInSeconds[timeStep], cumulativeCounts[timeStep][curveIndex]);
+    }
+    return curve;
+  }
+
+  /**
+   * Remove all time steps, retains the allocated capacity including the count arrays of the removed time steps
+   */
+  public void clear() {
+    numberOfTimeSteps = 0;
+  }
+
+  /**
+   * Reduce the allocated capacity to the number of time steps, releasing count arrays retained beyond it
+   */
+  public void trimToSize() {
+    if (timesInSeconds.length > numberOfTimeSteps) {
+      int capacity = Math.max(numberOfTimeSteps, 1);
+      timesInSeconds = Arrays.copyOf(timesInSeconds, capacity);
+      cumulativeCounts = Arrays.copyOf(cumulativeCounts, capacity);
+      if (numberOfTimeSteps == 0) {
+        cumulativeCounts[0] = null;
+      }
+    }
+  }
+
+  /**
+   * Total travel time (e.g. vehicle seconds) spent between inflow and outflow per curve, i.e., the surface between the cumulative inflow and
+   * outflow curves. Both sets are expected to cover the same time horizon and the same curves
+   *
+   * @param inflowCurves  cumulative inflow curves
+   * @param outflowCurves cumulative outflow curves
+   * @param result        to place total travel time per curve index in
+   * @param parallel      when true, compute in parallel across curves
+   */
+  public static void computeTotalTravelTimes(
+      final CumulativeCurveSet inflowCurves, final CumulativeCurveSet outflowCurves, final double[] result, boolean parallel) {
+    inflowCurves.computeSurfacesUnderCurves(result, parallel);
+    final double[] outflowSurfaces = new double[outflowCurves.numberOfCurves];
+    outflowCurves.computeSurfacesUnderCurves(outflowSurfaces, parallel);
+    inflowCurves.forEachCurveBlock(parallel, (from, to) -> {
+      for (int curve = from; curve < to; ++curve) {
+        result[curve] -= outflowSurfaces[curve];
+      }
+    });
+  }
+
+  /**
+   * Travel time per curve experienced by a unit entering at the given time, assuming first-in-first-out, see
+   * {@link PiecewiseLinearCumulativeCurve#computeTravelTimeByEntryTime(PiecewiseLinearCumulativeCurve, PiecewiseLinearCumulativeCurve, double)}
+   *
+   * @param inflowCurves       cumulative inflow curves
+   * @param outflowCurves      cumulative outflow curves
+   * @param entryTimeInSeconds time of entering
+   * @param result             to place travel time in seconds per curve index in, NaN when the outflow does not (yet) reach the required count
+   * @param parallel           when true, compute in parallel across curves
+   */
+  public static void computeTravelTimesByEntryTime(
+      final CumulativeCurveSet inflowCurves, final CumulativeCurveSet outflowCurves, double entryTimeInSeconds, final double[] result,
+      boolean parallel) {
+    if (inflowCurves.numberOfTimeSteps == 0) {
+      Arrays.fill(result, 0, inflowCurves.numberOfCurves, Double.NaN);
+      return;
+    }
+    final int floorTimeStep = inflowCurves.floorTimeStep(entryTimeInSeconds);
+    inflowCurves.forEachCurveBlock(parallel, (from, to) -> {
+      for (int curve = from; curve < to; ++curve) {
+        double entryCount = inflowCurves.getCumulativeAt(curve, floorTimeStep, entryTimeInSeconds);
+        result[curve] = outflowCurves.getTimeAt(curve, entryCount) - entryTimeInSeconds;
+      }
+    });
+  }
+
+  /**
+   * Delay per curve experienced by a unit entering at the given time, i.e., the first-in-first-out travel time minus the free flow travel time
+   *
+   * @param inflowCurves                 cumulative inflow curves
+   * @param outflowCurves                cumulative outflow curves
+   * @param entryTimeInSeconds           time of entering
+   * @param freeFlowTravelTimesInSeconds free flow travel time per curve index
+   * @param result                       to place delay in seconds per curve index in, NaN when the outflow does not (yet) reach the required count
+   * @param parallel                     when true, compute in parallel across curves
+   */
+  public static void computeDelaysByEntryTime(
+      final CumulativeCurveSet inflowCurves, final CumulativeCurveSet outflowCurves, double entryTimeInSeconds,
+      final double[] freeFlowTravelTimesInSeconds, final double[] result, boolean parallel) {
+    computeTravelTimesByEntryTime(inflowCurves, outflowCurves, entryTimeInSeconds, result, parallel);
+    inflowCurves.forEachCurveBlock(parallel, (from, to) -> {
+      for (int curve = from; curve < to; ++curve) {
+        result[curve] -= freeFlowTravelTimesInSeconds[curve];
+      }
+    });
+  }
+}
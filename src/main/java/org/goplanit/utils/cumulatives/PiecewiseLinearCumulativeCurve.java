@@ -1,13 +1,19 @@
 package org.goplanit.utils.cumulatives;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import org.goplanit.utils.exceptions.PlanItException;
 
 /**
- * Represents a piecewise linear cumulative curve
- * 
+ * Represents a piecewise linear cumulative curve. Points are stored in parallel growable primitive arrays of time (in seconds) and cumulative
+ * count, so appending points and querying the curve do not allocate any objects per point. Times are strictly increasing and counts are
+ * non-decreasing, which allows for logarithmic lookups in both directions.
+ * <p>
+ * Before its first point and after its last point the curve is considered flat, i.e., it retains the count of the first and last point
+ * respectively.
+ * </p>
+ *
  * @author markr
  *
  */
@@ -16,72 +22,374 @@ public class PiecewiseLinearCumulativeCurve {
   /** the logger */
   private static final Logger LOGGER = Logger.getLogger(PiecewiseLinearCumulativeCurve.class.getCanonicalName());
 
-  /** list of consecutive cumulative points */
-  final LinkedList<CumulativePoint> cumulatives = new LinkedList<CumulativePoint>();
+  /** default initial number of points that can be stored without growing */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** reference time in seconds of consecutive cumulative points */
+  private double[] timesInSeconds;
+
+  /** cumulative count of consecutive cumulative points */
+  private double[] cumulativeCounts;
+
+  /** number of points */
+  private int size;
+
+  /**
+   * Make sure we can store at least the given number of points
+   *
+   * @param capacity to accommodate
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity > timesInSeconds.length) {
+      int newCapacity = Math.max(timesInSeconds.length << 1, capacity);
+      timesInSeconds = Arrays.copyOf(timesInSeconds, newCapacity);
+      cumulativeCounts = Arrays.copyOf(cumulativeCounts, newCapacity);
+    }
+  }
+
+  /**
+   * Find the index of the last point with a time smaller or equal than the given time
+   *
+   * @param timeInSeconds to find
+   * @return index, -1 when the time lies before the first point
+   */
+  private int floorIndexByTime(double timeInSeconds) {
+    int index = Arrays.binarySearch(timesInSeconds, 0, size, timeInSeconds);
+    return index >= 0 ? index : (-index - 2);
+  }
+
+  /**
+   * Find the index of the first point with a count greater or equal than the given count
+   *
+   * @param cumulativeCount to find
+   * @return index, size when no such point exists
+   */
+  private int ceilingIndexByCount(double cumulativeCount) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulativeCounts[mid] < cumulativeCount) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * compute the surface between two consecutive points bounded by zero (cumulatives) and the
+   * point's time stamps.
+   *
+   * @param previousTime  time of the earlier point
+   * @param previousCount count of the earlier point
+   * @param currentTime   time of the later point
+   * @param currentCount  count of the later point
+   * @return surface under the segment
+   */
+  private static double computeSurfaceUnderSegment(double previousTime, double previousCount, double currentTime, double currentCount) {
+    // rectangular surface + triangle surface = total segment surface
+    double width = Math.abs(currentTime - previousTime);
+    // 1) rectangular surface
+    double rectangularSurface = previousCount * width;
+    // 2) triangular surface
+    double triangularSurface = Math.abs(currentCount - previousCount) * width * 0.5;
+    // total
+    return rectangularSurface + triangularSurface;
+  }
+
+  /**
+   * Linear interpolation of the count between point index and its successor
+   *
+   * @param index         of the earlier point
+   * @param timeInSeconds to interpolate at, assumed to lie between the two points
+   * @return interpolated count
+   */
+  private double interpolateCount(int index, double timeInSeconds) {
+    double t0 = timesInSeconds[index];
+    double c0 = cumulativeCounts[index];
+    return c0 + (cumulativeCounts[index + 1] - c0) * ((timeInSeconds - t0) / (timesInSeconds[index + 1] - t0));
+  }
+
+  /**
+   * Validate if the point can be appended to the curve
+   *
+   * @param timeInSeconds        of the point
+   * @param cumulativeCount      of the point
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown if point is not valid
+   */
+  protected void validateAppend(double timeInSeconds, double cumulativeCount, double timeInSecondsEpsilon) throws PlanItException {
+    if (size == 0) {
+      return;
+    }
+    if (!((timeInSeconds - timeInSecondsEpsilon) > timesInSeconds[size - 1])) {
+      String errorMessage = "new cumulative point does not occur later than last available cumulative point in cumulative curve, this is not allowed";
+      LOGGER.severe(errorMessage);
+      throw new PlanItException(errorMessage);
+    }
+    if (cumulativeCount < cumulativeCounts[size - 1]) {
+      String errorMessage = "new cumulative point has a lower count than last available cumulative point in cumulative curve, this is not allowed";
+      LOGGER.severe(errorMessage);
+      throw new PlanItException(errorMessage);
+    }
+  }
+
+  /**
+   * Append a point without any validation
+   *
+   * @param timeInSeconds   of the point
+   * @param cumulativeCount of the point
+   */
+  protected void appendUnchecked(double timeInSeconds, double cumulativeCount) {
+    ensureCapacity(size + 1);
+    timesInSeconds[size] = timeInSeconds;
+    cumulativeCounts[size] = cumulativeCount;
+    ++size;
+  }
+
+  /**
+   * Replace the count and time of the last point without any validation
+   *
+   * @param timeInSeconds   of the point
+   * @param cumulativeCount of the point
+   */
+  protected void replaceLastUnchecked(double timeInSeconds, double cumulativeCount) {
+    timesInSeconds[size - 1] = timeInSeconds;
+    cumulativeCounts[size - 1] = cumulativeCount;
+  }
 
   /**
    * Constructor
    */
   public PiecewiseLinearCumulativeCurve() {
+    this(DEFAULT_CAPACITY);
+  }
 
+  /**
+   * Constructor
+   *
+   * @param initialCapacity number of points that can be added before the underlying arrays need to grow
+   */
+  public PiecewiseLinearCumulativeCurve(int initialCapacity) {
+    this.timesInSeconds = new double[Math.max(initialCapacity, 1)];
+    this.cumulativeCounts = new double[Math.max(initialCapacity, 1)];
+    this.size = 0;
+  }
+
+  /**
+   * Copy constructor, trims the capacity to the number of points
+   *
+   * @param other to copy
+   */
+  public PiecewiseLinearCumulativeCurve(final PiecewiseLinearCumulativeCurve other) {
+    this.timesInSeconds = Arrays.copyOf(other.timesInSeconds, Math.max(other.size, 1));
+    this.cumulativeCounts = Arrays.copyOf(other.cumulativeCounts, Math.max(other.size, 1));
+    this.size = other.size;
   }
 
   /**
    * append a new cumulative point to the curve which must be later or equal than the current latest
    * point
    * given the passed in timeInSecondsEpsilon
-   * 
+   *
    * @param cumulativePoint to add
    * @param timeInSecondsEpsilon epsilon
    * @throws PlanItException thrown if error
    */
   public void add(CumulativePoint cumulativePoint, double timeInSecondsEpsilon) throws PlanItException {
-    CumulativePoint currentLast = cumulatives.getLast();
-    if (!cumulativePoint.isLater(currentLast, timeInSecondsEpsilon)) {
-      String errorMessage =
-          "new cumulative point does not occur later than last available cumulative point in cumulative curve, this is not allowed";
-      LOGGER.severe(errorMessage);
-      throw new PlanItException(errorMessage);
+    add(cumulativePoint.getReferenceTimeInSeconds(), cumulativePoint.getCumulativeCount(), timeInSecondsEpsilon);
+  }
+
+  /**
+   * append a new cumulative point to the curve which must be later than the current latest point given the passed in timeInSecondsEpsilon
+   * and may not have a lower count
+   *
+   * @param timeInSeconds        reference time of the point
+   * @param cumulativeCount      count of the point
+   * @param timeInSecondsEpsilon epsilon
+   * @throws PlanItException thrown if error
+   */
+  public void add(double timeInSeconds, double cumulativeCount, double timeInSecondsEpsilon) throws PlanItException {
+    validateAppend(timeInSeconds, cumulativeCount, timeInSecondsEpsilon);
+    appendUnchecked(timeInSeconds, cumulativeCount);
+  }
+
+  /**
+   * Number of points on the curve
+   *
+   * @return number of points
+   */
+  public int getNumberOfPoints() {
+    return size;
+  }
+
+  /**
+   * Verify if the curve has any points
+   *
+   * @return true when empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Reference time of the point at the given index
+   *
+   * @param index of the point
+   * @return time in seconds
+   */
+  public double getReferenceTimeInSeconds(int index) {
+    return timesInSeconds[index];
+  }
+
+  /**
+   * Cumulative count of the point at the given index
+   *
+   * @param index of the point
+   * @return cumulative count
+   */
+  public double getCumulativeCount(int index) {
+    return cumulativeCounts[index];
+  }
+
+  /**
+   * Remove all points, retains the allocated capacity
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Reduce the allocated capacity to the number of points
+   */
+  public void trimToSize() {
+    if (timesInSeconds.length > size) {
+      timesInSeconds = Arrays.copyOf(timesInSeconds, Math.max(size, 1));
+      cumulativeCounts = Arrays.copyOf(cumulativeCounts, Math.max(size, 1));
     }
-    cumulatives.add(cumulativePoint);
+  }
+
+  /**
+   * Cumulative count at the given time by linear interpolation between the surrounding points in O(log n)
+   *
+   * @param timeInSeconds to evaluate
+   * @return cumulative count, NaN when the curve is empty
+   */
+  public double getCumulativeAt(double timeInSeconds) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    int index = floorIndexByTime(timeInSeconds);
+    if (index < 0) {
+      return cumulativeCounts[0];
+    }
+    if (index >= size - 1) {
+      return cumulativeCounts[size - 1];
+    }
+    return interpolateCount(index, timeInSeconds);
+  }
+
+  /**
+   * Earliest time at which the given cumulative count is reached by linear interpolation between the surrounding points in O(log n)
+   *
+   * @param cumulativeCount to find time for
+   * @return time in seconds, time of the first point when the count does not exceed its count, NaN when the count is never reached or the
+   *         curve is empty
+   */
+  public double getTimeAt(double cumulativeCount) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    int index = ceilingIndexByCount(cumulativeCount);
+    if (index == 0) {
+      return timesInSeconds[0];
+    }
+    if (index >= size) {
+      return Double.NaN;
+    }
+    double c0 = cumulativeCounts[index - 1];
+    double t0 = timesInSeconds[index - 1];
+    return t0 + (timesInSeconds[index] - t0) * ((cumulativeCount - c0) / (cumulativeCounts[index] - c0));
   }
 
   /**
    * the total surface under this curve
-   * 
+   *
    * @return total surface under this curve
    */
   public double computeSurfaceUnderCurve() {
     double totalSurfaceUnderCurve = 0;
-    CumulativePoint previousPoint = null;
-    for (CumulativePoint currentPoint : cumulatives) {
-      totalSurfaceUnderCurve += computeSurfaceUnderSegment(previousPoint, currentPoint);
-      previousPoint = currentPoint;
+    for (int index = 1; index < size; ++index) {
+      totalSurfaceUnderCurve += computeSurfaceUnderSegment(timesInSeconds[index - 1], cumulativeCounts[index - 1], timesInSeconds[index],
+          cumulativeCounts[index]);
     }
     return totalSurfaceUnderCurve;
   }
 
   /**
-   * compute the surface between two consecutive points bounded by zero (cumulatives) and the
-   * point's time
-   * stamps. In case the previous point is null, 0 is returned
-   * 
-   * @param previousPoint can be null (0 returned in that case)
-   * @param currentPoint the current point
-   * @return surface under the segment
+   * the surface under this curve within the given time window. The window is clipped to the time span of the curve
+   *
+   * @param fromTimeInSeconds start of window
+   * @param toTimeInSeconds   end of window
+   * @return surface under this curve within window, zero when the window does not overlap with the curve
+   */
+  public double computeSurfaceUnderCurve(double fromTimeInSeconds, double toTimeInSeconds) {
+    if (size < 2) {
+      return 0;
+    }
+    double from = Math.max(fromTimeInSeconds, timesInSeconds[0]);
+    double to = Math.min(toTimeInSeconds, timesInSeconds[size - 1]);
+    if (!(to > from)) {
+      return 0;
+    }
+
+    int fromIndex = floorIndexByTime(from);
+    int toIndex = floorIndexByTime(to);
+    if (fromIndex == toIndex) {
+      /* window within single segment */
+      return computeSurfaceUnderSegment(from, getCumulativeAt(from), to, getCumulativeAt(to));
+    }
+
+    /* partial first segment, full intermediate segments, partial last segment */
+    double surface = computeSurfaceUnderSegment(from, getCumulativeAt(from), timesInSeconds[fromIndex + 1], cumulativeCounts[fromIndex + 1]);
+    for (int index = fromIndex + 2; index <= toIndex; ++index) {
+      surface += computeSurfaceUnderSegment(timesInSeconds[index - 1], cumulativeCounts[index - 1], timesInSeconds[index], cumulativeCounts[index]);
+    }
+    if (to > timesInSeconds[toIndex]) {
+      surface += computeSurfaceUnderSegment(timesInSeconds[toIndex], cumulativeCounts[toIndex], to, getCumulativeAt(to));
+    }
+    return surface;
+  }
+
+  /**
+   * Travel time experienced by a unit entering at the given time, assuming first-in-first-out, i.e., the time at which the outflow curve
+   * reaches the inflow curve's count at the entry time, minus the entry time
+   *
+   * @param inflowCurve            cumulative inflow curve
+   * @param outflowCurve           cumulative outflow curve
+   * @param entryTimeInSeconds     time of entering
+   * @return travel time in seconds, NaN when the outflow curve does not (yet) reach the required count
+   */
+  public static double computeTravelTimeByEntryTime(
+      PiecewiseLinearCumulativeCurve inflowCurve, PiecewiseLinearCumulativeCurve outflowCurve, double entryTimeInSeconds) {
+    double exitTimeInSeconds = outflowCurve.getTimeAt(inflowCurve.getCumulativeAt(entryTimeInSeconds));
+    return exitTimeInSeconds - entryTimeInSeconds;
+  }
+
+  /**
+   * Travel time experienced by a unit exiting at the given time, assuming first-in-first-out, i.e., the exit time minus the time at which
+   * the inflow curve reached the outflow curve's count at the exit time
+   *
+   * @param inflowCurve            cumulative inflow curve
+   * @param outflowCurve           cumulative outflow curve
+   * @param exitTimeInSeconds      time of exiting
+   * @return travel time in seconds, NaN when the inflow curve does not reach the required count
    */
-  private double computeSurfaceUnderSegment(CumulativePoint previousPoint, CumulativePoint currentPoint) {
-    double surfaceUnderSegment = 0;
-    if (previousPoint != null) {
-      // rectangular surface + triangle surface = total segment surface
-      double width = previousPoint.getAbsTimeDifferenceWith(currentPoint);
-      // 1) rectangular surface
-      double rectangularSurface = previousPoint.getCumulativeCount() * width;
-      // double triangular surface
-      double triangularSurface = previousPoint.getAbsCumulativeDifferenceWith(currentPoint) * width * 0.5;
-      // total
-      surfaceUnderSegment = rectangularSurface + triangularSurface;
-    }
-    return surfaceUnderSegment;
+  public static double computeTravelTimeByExitTime(
+      PiecewiseLinearCumulativeCurve inflowCurve, PiecewiseLinearCumulativeCurve outflowCurve, double exitTimeInSeconds) {
+    double entryTimeInSeconds = inflowCurve.getTimeAt(outflowCurve.getCumulativeAt(exitTimeInSeconds));
+    return exitTimeInSeconds - entryTimeInSeconds;
   }
 }
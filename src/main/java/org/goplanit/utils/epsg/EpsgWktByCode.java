@@ -0,0 +1,99 @@
+package org.goplanit.utils.epsg;
+
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+/**
+ * Precomputed well known text (WKT) definitions of the coordinate reference systems listed in {@link EpsgCodesByCountry}, as they would be
+ * decoded from the EPSG database, i.e., including authority codes, EPSG axis order and the default datum shift to WGS84. Allows these CRSs
+ * to be parsed without loading the EPSG database
+ *
+ * @author markr
+ *
+ */
+public class EpsgWktByCode {
+
+  /** logger to use */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(EpsgWktByCode.class.getCanonicalName());
+
+  /** WGS 84, EPSG:4326 */
+  public static final String WORLD_WG84_WKT =
+      "GEOGCS[\"WGS 84\", "
+      + "DATUM[\"World Geodetic System 1984\", SPHEROID[\"WGS 84\", 6378137.0, 298.257223563, AUTHORITY[\"EPSG\",\"7030\"]], AUTHORITY[\"EPSG\",\"6326\"]], "
+      + "PRIMEM[\"Greenwich\", 0.0, AUTHORITY[\"EPSG\",\"8901\"]], "
+      + "UNIT[\"degree\", 0.017453292519943295], "
+      + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST], "
+      + "AUTHORITY[\"EPSG\",\"4326\"]]";
+
+  /** DHDN / 3-degree Gauss-Kruger zone 4, EPSG:31468 */
+  public static final String GERMANY_DHDN_WKT =
+      "PROJCS[\"DHDN / 3-degree Gauss-Kruger zone 4\", "
+      + "GEOGCS[\"DHDN\", "
+      + "DATUM[\"Deutsches Hauptdreiecksnetz\", SPHEROID[\"Bessel 1841\", 6377397.155, 299.1528128, AUTHORITY[\"EPSG\",\"7004\"]], "
+      + "TOWGS84[598.1, 73.7, 418.2, 0.202, 0.045, -2.455, 6.7], AUTHORITY[\"EPSG\",\"6314\"]], "
+      + "PRIMEM[\"Greenwich\", 0.0, AUTHORITY[\"EPSG\",\"8901\"]], "
+      + "UNIT[\"degree\", 0.017453292519943295], "
+      + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST], "
+      + "AUTHORITY[\"EPSG\",\"4314\"]], "
+      + "PROJECTION[\"Transverse_Mercator\", AUTHORITY[\"EPSG\",\"9807\"]], "
+      + "PARAMETER[\"central_meridian\", 12.0], "
+      + "PARAMETER[\"latitude_of_origin\", 0.0], "
+      + "PARAMETER[\"scale_factor\", 1.0], "
+      + "PARAMETER[\"false_easting\", 4500000.0], "
+      + "PARAMETER[\"false_northing\", 0.0], "
+      + "UNIT[\"m\", 1.0], "
+      + "AXIS[\"Northing\", NORTH], AXIS[\"Easting\", EAST], "
+      + "AUTHORITY[\"EPSG\",\"31468\"]]";
+
+  /** GDA94 / Geoscience Australia Lambert, EPSG:3112 */
+  public static final String AUSTRALIA_LAMBERT_WKT =
+      "PROJCS[\"GDA94 / Geoscience Australia Lambert\", "
+      + "GEOGCS[\"GDA94\", "
+      + "DATUM[\"Geocentric Datum of Australia 1994\", SPHEROID[\"GRS 1980\", 6378137.0, 298.257222101, AUTHORITY[\"EPSG\",\"7019\"]], "
+      + "TOWGS84[0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0], AUTHORITY[\"EPSG\",\"6283\"]], "
+      + "PRIMEM[\"Greenwich\", 0.0, AUTHORITY[\"EPSG\",\"8901\"]], "
+      + "UNIT[\"degree\", 0.017453292519943295], "
+      + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST], "
+      + "AUTHORITY[\"EPSG\",\"4283\"]], "
+      + "PROJECTION[\"Lambert_Conformal_Conic_2SP\", AUTHORITY[\"EPSG\",\"9802\"]], "
+      + "PARAMETER[\"central_meridian\", 134.0], "
+      + "PARAMETER[\"latitude_of_origin\", 0.0], "
+      + "PARAMETER[\"standard_parallel_1\", -18.0], "
+      + "PARAMETER[\"standard_parallel_2\", -36.0], "
+      + "PARAMETER[\"false_easting\", 0.0], "
+      + "PARAMETER[\"false_northing\", 0.0], "
+      + "UNIT[\"m\", 1.0], "
+      + "AXIS[\"Easting\", EAST], AXIS[\"Northing\", NORTH], "
+      + "AUTHORITY[\"EPSG\",\"3112\"]]";
+
+  /** mapping of EPSG codes to their WKT definition */
+  protected static final HashMap<String, String> epsgCodeToWkt = new HashMap<String, String>();
+
+  /** add a mapping to the register
+   *
+   * @param epsgCode to use
+   * @param wkt to use
+   */
+  protected static void add(String epsgCode, String wkt) {
+    epsgCodeToWkt.put(epsgCode, wkt);
+  }
+
+  /* populate */
+  static {
+    add(EpsgCodesByCountry.WORLD_WG84, WORLD_WG84_WKT);
+    add(EpsgCodesByCountry.GERMANY_DHDN, GERMANY_DHDN_WKT);
+    add(EpsgCodesByCountry.AUSTRALIA_LAMBERT, AUSTRALIA_LAMBERT_WKT);
+  }
+
+  /** collect the WKT definition of an EPSG code, e.g., "EPSG:4326".
+   * If no definition is bundled null is returned
+   *
+   * @param epsgCode to use
+   * @return WKT definition
+   */
+  public static final String getWkt(String epsgCode) {
+    return epsgCode == null ? null : epsgCodeToWkt.get(epsgCode.trim().toUpperCase());
+  }
+
+}
@@ -16,7 +16,8 @@ import java.util.Set;
 import java.util.logging.Logger;
 
 /**
- * Uitlity class to convert various PLANit entities into spatially indexed quad tree containers
+ * Uitlity class to convert various PLANit entities into spatially indexed quad tree containers. The created containers are not updated
+ * when the entities change, use {@link PlanitLiveSpatialIndex} to keep an index up to date with graph and zoning modifications instead
  */
 public class GeoContainerUtils {
 
@@ -1,9 +1,13 @@
 package org.goplanit.utils.geo;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.referencing.CRS;
+import org.geotools.util.factory.Hints;
+import org.goplanit.utils.epsg.EpsgWktByCode;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /** Utilities for coordinate Reference systems
@@ -15,6 +19,42 @@ public class PlanitCrsUtils {
   
   /** the logger to use */
   private static final Logger LOGGER = Logger.getLogger(PlanitCrsUtils.class.getCanonicalName());
+
+  /** system property used by geotools to force longitude first axis order when decoding EPSG codes */
+  private static final String FORCE_XY_PROPERTY = "org.geotools.referencing.forceXY";
+
+  /**
+   * Verify if geotools decodes EPSG codes with longitude first axis order, either via the system property or the equivalent hint set
+   * programmatically, e.g., {@code Hints.putSystemDefault(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, true)}
+   *
+   * @return true when longitude first axis order is forced, false otherwise
+   */
+  private static boolean isLongitudeFirstAxisOrderForced() {
+    return Boolean.getBoolean(FORCE_XY_PROPERTY) || Boolean.TRUE.equals(Hints.getSystemDefault(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER));
+  }
+
+  /** process wide cache of created coordinate reference systems by code */
+  private static final Map<String, CoordinateReferenceSystem> crsByCode = new ConcurrentHashMap<>();
+
+  /**
+   * Create a coordinate reference system from its bundled WKT definition, if any, so the EPSG database is not loaded. Not used when
+   * longitude first axis order is forced since the bundled definitions follow the EPSG axis order
+   *
+   * @param code for the CRS
+   * @return the created coordinate reference system, null when not bundled
+   */
+  private static CoordinateReferenceSystem createBundledCoordinateReferenceSystem(String code) {
+    String wkt = EpsgWktByCode.getWkt(code);
+    if (wkt == null || isLongitudeFirstAxisOrderForced()) {
+      return null;
+    }
+    try {
+      return CRS.parseWKT(wkt);
+    } catch (Exception e) {
+      LOGGER.fine(String.format("Unable to parse bundled WKT of CRS %s, decoding instead", code));
+      return null;
+    }
+  }
   
   /**
    * make sure we silence the Hsql logging that is used by CRS to collect crs for different countries. Make sure this is called
@@ -35,15 +75,25 @@ public class PlanitCrsUtils {
    * always make sure you lookup the CRS via this method as it ensures the logging of PLANit is not messed up by the geotools-HSQL dependency since we programmatically disallow it
    * to overwrite our logging configuration in the static initialiser of this class.
    * </p>
+   * <p>
+   * Created instances are cached process wide by code, and codes of {@link org.goplanit.utils.epsg.EpsgCodesByCountry} are created from
+   * bundled definitions, see {@link EpsgWktByCode}, so that commonly used CRSs do not require the hsql database to be started.
+   * </p>
    * 
    * @param code for the CRS
    * @return the created coordinate reference system
    */
   public static CoordinateReferenceSystem createCoordinateReferenceSystem(String code) {
+    if (code != null && crsByCode.containsKey(code)) {
+      return crsByCode.get(code);
+    }
     silenceHsqlLogging();
     
     CoordinateReferenceSystem crs = null;
     if (code != null) {
+      crs = createBundledCoordinateReferenceSystem(code);
+    }
+    if (code != null && crs == null) {
       try {
         
         /* decode lookup is performed using the gt hsql database which is loaded as dependency in pom */
@@ -60,6 +110,20 @@ public class PlanitCrsUtils {
         }
       }
     }
+    if (crs != null) {
+      /* concurrent creations of the same code all obtain the first cached instance */
+      var cached = crsByCode.putIfAbsent(code, crs);
+      crs = cached != null ? cached : crs;
+    }
     return crs;
   }
+
+  /**
+   * Clear the process wide caches of created coordinate reference systems and transforms between them, e.g., after changing geotools
+   * axis order hints
+   */
+  public static void clearCaches() {
+    crsByCode.clear();
+    PlanitJtsUtils.clearMathTransformCache();
+  }
 }
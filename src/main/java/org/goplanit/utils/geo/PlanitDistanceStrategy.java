@@ -0,0 +1,35 @@
+package org.goplanit.utils.geo;
+
+/** Strategy used by {@link PlanitJtsCrsUtils} to compute distances in metres between coordinates of a geographic CRS (longitude as x,
+ * latitude as y in decimal degrees). Relative errors are maxima measured against the geodesic distance on the WGS84 ellipsoid. Cartesian
+ * CRSs always use Pythagoras regardless of the strategy.
+ *
+ * @author markr
+ *
+ */
+public enum PlanitDistanceStrategy {
+
+  /** Geodesic distance on the ellipsoid of the CRS via GeoTools, exact but by far the slowest. Also supports projected CRSs. Default */
+  ORTHODROMIC,
+
+  /** Great circle distance on a sphere with the mean earth radius. Maximum relative error 0.56%, for any distance */
+  HAVERSINE,
+
+  /** Flat earth approximation using the ellipsoid's radii of curvature at the mean latitude of each pair of coordinates. Maximum relative
+   * error 0.0004% for distances up to 10km and 0.04% up to 100km, grows beyond that. Suited for segments of network geometries */
+  EQUIRECTANGULAR,
+
+  /** Flat earth approximation using the ellipsoid's radii of curvature at a fixed reference latitude, e.g., the centre of the network, so
+   * no trigonometry is evaluated per pair. The relative error is approximately tan(reference latitude) times the latitude difference (in
+   * radians) between the coordinates and the reference latitude, e.g., below 0.2% within 10km north or south of a reference latitude of 50
+   * degrees. Suited for networks of limited north-south extent */
+  LOCAL_PROJECTION;
+
+  /** Verify if the strategy is an approximation computed without GeoTools
+   *
+   * @return true when approximate, false otherwise
+   */
+  public boolean isApproximate() {
+    return !this.equals(ORTHODROMIC);
+  }
+}
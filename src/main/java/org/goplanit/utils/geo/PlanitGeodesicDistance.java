@@ -0,0 +1,188 @@
+package org.goplanit.utils.geo;
+
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Fast approximations of the distance in metres between geographic coordinates (longitude, latitude in decimal degrees) on the WGS84
+ * ellipsoid, see {@link PlanitDistanceStrategy} for their maximum errors. Besides pairwise distances, lengths of polylines given as
+ * interleaved longitude and latitude values can be computed without creating any coordinates.
+ *
+ * @author markr
+ *
+ */
+public class PlanitGeodesicDistance {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(PlanitGeodesicDistance.class.getCanonicalName());
+
+  /** WGS84 semi-major axis in metres */
+  public static final double WGS84_SEMI_MAJOR_AXIS = 6378137.0;
+
+  /** WGS84 flattening */
+  public static final double WGS84_FLATTENING = 1 / 298.257223563;
+
+  /** WGS84 first eccentricity squared */
+  private static final double WGS84_ECCENTRICITY_SQUARED = WGS84_FLATTENING * (2 - WGS84_FLATTENING);
+
+  /** mean earth radius (IUGG) in metres used by the haversine distance */
+  public static final double MEAN_EARTH_RADIUS = 6371008.8;
+
+  /** Longitude difference normalised to [-180,180] degrees, so pairs across the anti-meridian are handled
+   *
+   * @param longitude1 first longitude
+   * @param longitude2 second longitude
+   * @return difference in degrees
+   */
+  private static double deltaLongitude(double longitude1, double longitude2) {
+    double delta = longitude2 - longitude1;
+    if (delta > 180) {
+      delta -= 360;
+    } else if (delta < -180) {
+      delta += 360;
+    }
+    return delta;
+  }
+
+  /** Great circle distance on a sphere with the mean earth radius
+   *
+   * @param longitude1 of first coordinate
+   * @param latitude1 of first coordinate
+   * @param longitude2 of second coordinate
+   * @param latitude2 of second coordinate
+   * @return distance in metres
+   */
+  public static double haversineInMetres(double longitude1, double latitude1, double longitude2, double latitude2) {
+    double sinHalfDeltaLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+    double sinHalfDeltaLongitude = Math.sin(Math.toRadians(deltaLongitude(longitude1, longitude2)) / 2);
+    double h = sinHalfDeltaLatitude * sinHalfDeltaLatitude
+        + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinHalfDeltaLongitude * sinHalfDeltaLongitude;
+    return 2 * MEAN_EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+  }
+
+  /** Smallest great circle distance, on a sphere with the mean earth radius, between a coordinate and any coordinate within a box bounded by
+   * meridians and parallels. When the longitude lies within the box the closest point is on the same meridian, otherwise it lies on the
+   * meridian edge with the smallest longitude difference, at the foot of the perpendicular great circle clamped to the edge when the edge is
+   * within 90 degrees of longitude, and at one of its corners otherwise
+   *
+   * @param longitude    of the coordinate
+   * @param latitude     of the coordinate
+   * @param minLongitude of the box
+   * @param minLatitude  of the box
+   * @param maxLongitude of the box
+   * @param maxLatitude  of the box
+   * @return distance in metres, zero when the coordinate lies within the box
+   */
+  public static double haversineToBoxInMetres(
+      double longitude, double latitude, double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+    if (longitude >= minLongitude && longitude <= maxLongitude) {
+      if (latitude < minLatitude) {
+        return haversineInMetres(longitude, latitude, longitude, minLatitude);
+      } else if (latitude > maxLatitude) {
+        return haversineInMetres(longitude, latitude, longitude, maxLatitude);
+      }
+      return 0;
+    }
+
+    double deltaToMin = Math.abs(deltaLongitude(longitude, minLongitude));
+    double deltaToMax = Math.abs(deltaLongitude(longitude, maxLongitude));
+    double edgeLongitude = deltaToMin <= deltaToMax ? minLongitude : maxLongitude;
+    double cosDelta = Math.cos(Math.toRadians(Math.min(deltaToMin, deltaToMax)));
+    if (cosDelta > 0) {
+      double footLatitude = Math.toDegrees(Math.atan(Math.tan(Math.toRadians(latitude)) / cosDelta));
+      footLatitude = Math.max(minLatitude, Math.min(footLatitude, maxLatitude));
+      return haversineInMetres(longitude, latitude, edgeLongitude, footLatitude);
+    }
+    /* beyond 90 degrees the distance along the meridian has a maximum rather than a minimum, so the closest point is a corner */
+    return Math.min(haversineInMetres(longitude, latitude, edgeLongitude, minLatitude),
+        haversineInMetres(longitude, latitude, edgeLongitude, maxLatitude));
+  }
+
+  /** Metres per degree of longitude (x) and latitude (y) at the given latitude on the WGS84 ellipsoid, i.e., the radii of curvature in the
+   * prime vertical (times the cosine of the latitude) and in the meridian
+   *
+   * @param latitude to compute for
+   * @return metres per degree, longitude first
+   */
+  public static double[] createMetresPerDegree(double latitude) {
+    double sinLatitude = Math.sin(Math.toRadians(latitude));
+    double w = 1 - WGS84_ECCENTRICITY_SQUARED * sinLatitude * sinLatitude;
+    double primeVerticalRadius = WGS84_SEMI_MAJOR_AXIS / Math.sqrt(w);
+    double meridionalRadius = WGS84_SEMI_MAJOR_AXIS * (1 - WGS84_ECCENTRICITY_SQUARED) / (w * Math.sqrt(w));
+    return new double[] { Math.toRadians(primeVerticalRadius * Math.cos(Math.toRadians(latitude))), Math.toRadians(meridionalRadius) };
+  }
+
+  /** Flat earth distance using the radii of curvature at the mean latitude of the coordinates
+   *
+   * @param longitude1 of first coordinate
+   * @param latitude1 of first coordinate
+   * @param longitude2 of second coordinate
+   * @param latitude2 of second coordinate
+   * @return distance in metres
+   */
+  public static double equirectangularInMetres(double longitude1, double latitude1, double longitude2, double latitude2) {
+    double sinLatitude = Math.sin(Math.toRadians((latitude1 + latitude2) / 2));
+    double cosLatitude = Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+    double w = 1 - WGS84_ECCENTRICITY_SQUARED * sinLatitude * sinLatitude;
+    double dx = Math.toRadians(deltaLongitude(longitude1, longitude2)) * WGS84_SEMI_MAJOR_AXIS / Math.sqrt(w) * cosLatitude;
+    double dy = Math.toRadians(latitude2 - latitude1) * WGS84_SEMI_MAJOR_AXIS * (1 - WGS84_ECCENTRICITY_SQUARED) / (w * Math.sqrt(w));
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /** Flat earth distance using fixed scales, see {@link #createMetresPerDegree(double)}
+   *
+   * @param longitude1 of first coordinate
+   * @param latitude1 of first coordinate
+   * @param longitude2 of second coordinate
+   * @param latitude2 of second coordinate
+   * @param metresPerDegree at the reference latitude, longitude first
+   * @return distance in metres
+   */
+  public static double locallyProjectedInMetres(double longitude1, double latitude1, double longitude2, double latitude2, final double[] metresPerDegree) {
+    double dx = deltaLongitude(longitude1, longitude2) * metresPerDegree[0];
+    double dy = (latitude2 - latitude1) * metresPerDegree[1];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /** Distance with an approximate strategy
+   *
+   * @param strategy to apply, not {@link PlanitDistanceStrategy#ORTHODROMIC}
+   * @param longitude1 of first coordinate
+   * @param latitude1 of first coordinate
+   * @param longitude2 of second coordinate
+   * @param latitude2 of second coordinate
+   * @param metresPerDegree at the reference latitude, only used by {@link PlanitDistanceStrategy#LOCAL_PROJECTION}
+   * @return distance in metres
+   */
+  public static double distanceInMetres(
+      PlanitDistanceStrategy strategy, double longitude1, double latitude1, double longitude2, double latitude2, final double[] metresPerDegree) {
+    switch (strategy) {
+    case HAVERSINE:
+      return haversineInMetres(longitude1, latitude1, longitude2, latitude2);
+    case EQUIRECTANGULAR:
+      return equirectangularInMetres(longitude1, latitude1, longitude2, latitude2);
+    case LOCAL_PROJECTION:
+      return locallyProjectedInMetres(longitude1, latitude1, longitude2, latitude2, metresPerDegree);
+    default:
+      throw new PlanItRunTimeException("Distance strategy %s is not an approximation", strategy);
+    }
+  }
+
+  /** Length of a polyline with an approximate strategy
+   *
+   * @param strategy to apply, not {@link PlanitDistanceStrategy#ORTHODROMIC}
+   * @param interleavedLongitudeLatitude longitude and latitude per point
+   * @param metresPerDegree at the reference latitude, only used by {@link PlanitDistanceStrategy#LOCAL_PROJECTION}
+   * @return length in metres
+   */
+  public static double lengthInMetres(PlanitDistanceStrategy strategy, final double[] interleavedLongitudeLatitude, final double[] metresPerDegree) {
+    double length = 0;
+    for (int index = 2; index + 1 < interleavedLongitudeLatitude.length; index += 2) {
+      length += distanceInMetres(strategy, interleavedLongitudeLatitude[index - 2], interleavedLongitudeLatitude[index - 1],
+          interleavedLongitudeLatitude[index], interleavedLongitudeLatitude[index + 1], metresPerDegree);
+    }
+    return length;
+  }
+}
@@ -363,6 +363,56 @@ public class PlanitGraphGeoUtils {
     result.remove(minEntry.first());
 
     return Pair.of(minEntry.first(), new TreeSet<Edge>(result.keySet()));
+  }
+
+  /** Create a spatial index over the edges to speed up repeated closest edge searches, see {@link PlanitPackedRTree}
+   *
+   * @param <T> type of edge
+   * @param edges to index
+   * @param geoUtils used to compute distances
+   * @return spatial index
+   */
+  public static <T extends Edge> PlanitPackedRTree<T> createEdgeIndex(Collection<? extends T> edges, PlanitJtsCrsUtils geoUtils){
+    return PlanitPackedRTree.ofEdges(edges, geoUtils);
+  }
+
+  /** Same as {@link #findEdgesWithinClosestDistanceDeltaToGeometry(Geometry, Collection, double, PlanitJtsCrsUtils)} except that only the edges
+   * of the spatial index near the geometry are examined rather than all edges
+   *
+   * @param <T> type of edge
+   * @param geometry to find closest link for
+   * @param edgeIndex spatial index of the edges to check against
+   * @param bufferDistanceMeters margin used to collect all edges with distance smaller or equal to buffer (distance to closest edge + this margin)
+   * @return edges found with their distances to the geometry in order of increasing distance, empty if none
+   */
+  public static <T extends Edge> Map<T, Double> findEdgesWithinClosestDistanceDeltaToGeometry(Geometry geometry, PlanitPackedRTree<T> edgeIndex, double bufferDistanceMeters){
+    if(geometry instanceof Point || geometry instanceof LineString) {
+      return edgeIndex.findWithinClosestDistanceDelta(geometry, bufferDistanceMeters);
+    }else if(geometry instanceof Polygon) {
+      return edgeIndex.findWithinClosestDistanceDelta(((Polygon)geometry).getExteriorRing(), bufferDistanceMeters);
+    }
+    throw new PlanItRunTimeException("Unsupported geometry encountered when finding edges closest to geometry");
+  }
+
+  /** Same as {@link #findEdgesClosestToGeometry(Geometry, Collection, double, PlanitJtsCrsUtils)} except that only the edges
+   * of the spatial index near the geometry are examined rather than all edges
+   *
+   * @param <T> type of edge
+   * @param geometry to find closest link for
+   * @param edgeIndex spatial index of the edges to check against
+   * @param bufferDistanceMeters margin used to collect all edges with distance smaller or equal to buffer (distance to closest edge + this margin)
+   * @return closest edge found and all other edges within the given margin, null if the index is empty
+   */
+  public static <T extends Edge> Pair<T,Set<? extends Edge>> findEdgesClosestToGeometry(Geometry geometry, PlanitPackedRTree<T> edgeIndex, double bufferDistanceMeters){
+    var result = findEdgesWithinClosestDistanceDeltaToGeometry(geometry, edgeIndex, bufferDistanceMeters);
+    if(result.isEmpty()) {
+      return null;
+    }
+
+    /* first entry is the closest, it is returned separately */
+    var closest = result.keySet().iterator().next();
+    result.remove(closest);
+    return Pair.of(closest, new TreeSet<Edge>(result.keySet()));
   }   
 
   /** Extract the JTS line segment from the edge segment that is closest to the reference geometry in its intended direction.
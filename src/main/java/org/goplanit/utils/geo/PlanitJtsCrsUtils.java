@@ -4,6 +4,7 @@ import java.awt.geom.Point2D;
 import java.util.logging.Logger;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.referencing.CRS;
 import org.geotools.referencing.GeodeticCalculator;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.factory.epsg.CartesianAuthorityFactory;
@@ -13,6 +14,7 @@ import org.goplanit.utils.graph.Vertex;
 import org.goplanit.utils.math.Precision;
 import org.goplanit.utils.network.layer.physical.LinkSegment;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -27,6 +29,7 @@ import org.locationtech.jts.linearref.LocationIndexedLine;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.geometry.coordinate.Position;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 
@@ -59,6 +62,21 @@ public class PlanitJtsCrsUtils {
   /** geodetic calculator to use in tandem with the used CRS */
   protected final GeodeticCalculator geoCalculator;  
 
+  /** true when the crs is cartesian in metres */
+  protected final boolean cartesian;
+
+  /** true when the crs is geographic with latitude as first axis, i.e., x coordinates are latitudes */
+  protected final boolean latitudeFirst;
+
+  /** strategy used to compute distances between coordinates of a geographic crs */
+  protected PlanitDistanceStrategy distanceStrategy = PlanitDistanceStrategy.ORTHODROMIC;
+
+  /** metres per degree of longitude and latitude at the reference latitude of the local projection, null when not set */
+  protected double[] metresPerDegree = null;
+
+  /** relative margin around the haversine distance within which the exact distance is computed to decide on a distance threshold */
+  private static final double HAVERSINE_FILTER_MARGIN = 0.01;
+
   /** jts geometry factory, jts geometry differs from opengis implementation by not carrying the crs and being more lightweight */
   protected static final GeometryFactory jtsGeometryFactory = JTSFactoryFinder.getGeometryFactory();
     
@@ -90,6 +108,71 @@ public class PlanitJtsCrsUtils {
     this.crs = coordinateReferenceSystem;
     /* viable only if non-cartesian based */
     geoCalculator = (!(coordinateReferenceSystem.equals(CARTESIANCRS))) ? new GeodeticCalculator(getCoordinateReferenceSystem()) : null;
+    this.cartesian = coordinateReferenceSystem.equals(CARTESIANCRS);
+    this.latitudeFirst = coordinateReferenceSystem instanceof GeographicCRS && CRS.getAxisOrder(coordinateReferenceSystem) == CRS.AxisOrder.NORTH_EAST;
+  }
+
+  /** Distance in metres between two coordinates given by their x and y values with the approximate distance strategy
+   *
+   * @param x1 of first coordinate
+   * @param y1 of first coordinate
+   * @param x2 of second coordinate
+   * @param y2 of second coordinate
+   * @return distance in metres
+   */
+  private double getApproximateDistanceInMetres(double x1, double y1, double x2, double y2) {
+    return latitudeFirst ? PlanitGeodesicDistance.distanceInMetres(distanceStrategy, y1, x1, y2, x2, metresPerDegree) :
+        PlanitGeodesicDistance.distanceInMetres(distanceStrategy, x1, y1, x2, y2, metresPerDegree);
+  }
+
+  /** Distance in metres between two coordinates given by their x and y values without creating coordinates where possible
+   *
+   * @param x1 of first coordinate
+   * @param y1 of first coordinate
+   * @param x2 of second coordinate
+   * @param y2 of second coordinate
+   * @return distance in metres
+   */
+  private double getDistanceInMetres(double x1, double y1, double x2, double y2) {
+    if (cartesian) {
+      return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    } else if (distanceStrategy.isApproximate()) {
+      return getApproximateDistanceInMetres(x1, y1, x2, y2);
+    }
+    return getDistanceInMetres(new Coordinate(x1, y1), new Coordinate(x2, y2));
+  }
+
+  /** Select the strategy to compute distances between coordinates of a geographic crs with, see {@link PlanitDistanceStrategy} for the
+   * accuracy of each. Has no effect on cartesian crs
+   *
+   * @param distanceStrategy to use
+   */
+  public void setDistanceStrategy(PlanitDistanceStrategy distanceStrategy) {
+    if (distanceStrategy.isApproximate() && !cartesian && !(crs instanceof GeographicCRS)) {
+      throw new PlanItRunTimeException("Distance strategy %s requires a geographic crs, found %s", distanceStrategy, crs.getName());
+    }
+    if (distanceStrategy == PlanitDistanceStrategy.LOCAL_PROJECTION && metresPerDegree == null) {
+      throw new PlanItRunTimeException("Distance strategy %s requires a reference latitude, use useLocalProjection instead", distanceStrategy);
+    }
+    this.distanceStrategy = distanceStrategy;
+  }
+
+  /** Compute distances with {@link PlanitDistanceStrategy#LOCAL_PROJECTION} around the given reference latitude, e.g., the centre of the
+   * network's bounding box
+   *
+   * @param referenceLatitude in decimal degrees
+   */
+  public void useLocalProjection(double referenceLatitude) {
+    this.metresPerDegree = PlanitGeodesicDistance.createMetresPerDegree(referenceLatitude);
+    setDistanceStrategy(PlanitDistanceStrategy.LOCAL_PROJECTION);
+  }
+
+  /** Collect the strategy used to compute distances between coordinates of a geographic crs
+   *
+   * @return distance strategy
+   */
+  public PlanitDistanceStrategy getDistanceStrategy() {
+    return distanceStrategy;
   }
 
   /** find the distance between the closest coordinate on the geometry's coordinates. Note that this is likely NOT
@@ -413,11 +496,13 @@ public class PlanitJtsCrsUtils {
       throw new PlanItRunTimeException("End coordinate is null when computing distance in meters between two Positions in JtsUtils");
     }
     try {
-      if (crs.equals(CARTESIANCRS)) {
+      if (cartesian) {
         // cartesian in meters
         double deltaCoordinate0 = startCoordinate.x - endCoordinate.x;
         double deltaCoordinate1 = startCoordinate.y - endCoordinate.y;
-        return Math.sqrt(Math.pow(deltaCoordinate0, 2) + Math.pow(deltaCoordinate1, 2));
+        return Math.sqrt(deltaCoordinate0 * deltaCoordinate0 + deltaCoordinate1 * deltaCoordinate1);
+      } else if (distanceStrategy.isApproximate()) {
+        return getApproximateDistanceInMetres(startCoordinate.x, startCoordinate.y, endCoordinate.x, endCoordinate.y);
       } else {
         return JTS.orthodromicDistance(startCoordinate, endCoordinate, crs);
       }
@@ -436,6 +521,17 @@ public class PlanitJtsCrsUtils {
    * @return true when distance in metres between the points is smaller, false otherwise
    */
   public boolean isDistanceWithinMetres(Coordinate startCoordinate, Coordinate endCoordinate, double maxDistanceMeters){
+    if(!cartesian && !distanceStrategy.isApproximate() && crs instanceof GeographicCRS && startCoordinate != null && endCoordinate != null) {
+      /* the haversine distance is within 0.56% of the geodesic distance, only compute the latter when close to the threshold */
+      double haversine = latitudeFirst ?
+          PlanitGeodesicDistance.haversineInMetres(startCoordinate.y, startCoordinate.x, endCoordinate.y, endCoordinate.x) :
+          PlanitGeodesicDistance.haversineInMetres(startCoordinate.x, startCoordinate.y, endCoordinate.x, endCoordinate.y);
+      if(haversine < maxDistanceMeters * (1 - HAVERSINE_FILTER_MARGIN)) {
+        return true;
+      }else if(haversine > maxDistanceMeters * (1 + HAVERSINE_FILTER_MARGIN)) {
+        return false;
+      }
+    }
     return getDistanceInMetres(startCoordinate,endCoordinate) < maxDistanceMeters;
   }
 
@@ -448,7 +544,42 @@ public class PlanitJtsCrsUtils {
    * @return true when distance in metres between the points is smaller, false otherwise
    */
   public boolean isDistanceWithinMetres(Point startPosition, Point endPosition, double maxDistanceMeters){
-    return getDistanceInMetres(startPosition,endPosition) < maxDistanceMeters;
+    return isDistanceWithinMetres(startPosition.getCoordinate(), endPosition.getCoordinate(), maxDistanceMeters);
+  }
+
+  /**
+   * Compute the distance in metres between pairs of coordinates given as interleaved x and y values, assuming the same crs as registered on
+   * this class instance. Does not create any coordinates unless the {@link PlanitDistanceStrategy#ORTHODROMIC} strategy applies
+   *
+   * @param fromXy x and y value per first coordinate of each pair
+   * @param toXy x and y value per second coordinate of each pair
+   * @param distancesInMetres to populate with the distance per pair, at least half the length of the coordinate arrays
+   */
+  public void computeDistancesInMetres(final double[] fromXy, final double[] toXy, final double[] distancesInMetres){
+    if(fromXy.length != toXy.length || fromXy.length % 2 != 0 || distancesInMetres.length < fromXy.length / 2) {
+      throw new PlanItRunTimeException("Incompatible array lengths %d, %d, %d when computing distances", fromXy.length, toXy.length, distancesInMetres.length);
+    }
+    for(int index = 0; index < distancesInMetres.length && 2 * index < fromXy.length; ++index) {
+      distancesInMetres[index] = getDistanceInMetres(fromXy[2 * index], fromXy[2 * index + 1], toXy[2 * index], toXy[2 * index + 1]);
+    }
+  }
+
+  /**
+   * Compute the length in metres of the polyline given as interleaved x and y values, assuming the same crs as registered on this class instance.
+   * Does not create any coordinates unless the {@link PlanitDistanceStrategy#ORTHODROMIC} strategy applies
+   *
+   * @param xy x and y value per point of the polyline
+   * @return length in metres
+   */
+  public double getLengthInMetres(final double[] xy){
+    if(xy.length % 2 != 0) {
+      throw new PlanItRunTimeException("Interleaved x and y values expected, found odd number of values %d", xy.length);
+    }
+    double lengthInMetres = 0;
+    for(int index = 2; index < xy.length; index += 2) {
+      lengthInMetres += getDistanceInMetres(xy[index - 2], xy[index - 1], xy[index], xy[index + 1]);
+    }
+    return lengthInMetres;
   }
 
   /**
@@ -549,23 +680,31 @@ public class PlanitJtsCrsUtils {
   }
 
   /**
-   * Compute the length of the line string by traversing all nodes and computing the segment by segment distances TODO: find out if a faster way is possible
+   * Compute the length of the line string by traversing all nodes and computing the segment by segment distances. Unless the
+   * {@link PlanitDistanceStrategy#ORTHODROMIC} strategy applies, the coordinate sequence is traversed directly without creating coordinates
    * 
    * @param geometry to extract length from
    * @return length in km
    */
   public double getDistanceInKilometres(LineString geometry){
-    Coordinate[] coordinates = geometry.getCoordinates();
-    int numberOfCoords = coordinates.length;
+    int numberOfCoords = geometry.getNumPoints();
 
     if (numberOfCoords > 1) {
 
       double computedLengthInMetres = 0;
-      Coordinate previousCoordinate = coordinates[0];
-      for (int index = 1; index < numberOfCoords; ++index) {
-        Coordinate currentCoordinate = coordinates[index];
-        computedLengthInMetres += getDistanceInMetres(previousCoordinate, currentCoordinate);
-        previousCoordinate = currentCoordinate;
+      if(cartesian || distanceStrategy.isApproximate()) {
+        CoordinateSequence coordinates = geometry.getCoordinateSequence();
+        for (int index = 1; index < numberOfCoords; ++index) {
+          computedLengthInMetres += getDistanceInMetres(coordinates.getX(index - 1), coordinates.getY(index - 1), coordinates.getX(index), coordinates.getY(index));
+        }
+      }else {
+        Coordinate[] coordinates = geometry.getCoordinates();
+        Coordinate previousCoordinate = coordinates[0];
+        for (int index = 1; index < numberOfCoords; ++index) {
+          Coordinate currentCoordinate = coordinates[index];
+          computedLengthInMetres += getDistanceInMetres(previousCoordinate, currentCoordinate);
+          previousCoordinate = currentCoordinate;
+        }
       }
 
       return computedLengthInMetres / 1000.0;
@@ -628,6 +767,24 @@ public class PlanitJtsCrsUtils {
     return crs;
   }
 
+  /**
+   * Verify if the crs used by this instance is geographic, i.e., coordinates are longitudes and latitudes in decimal degrees
+   *
+   * @return true when geographic, false otherwise
+   */
+  public boolean isGeographic() {
+    return crs instanceof GeographicCRS;
+  }
+
+  /**
+   * Verify if the crs used by this instance is geographic with latitude as first axis, i.e., x coordinates are latitudes
+   *
+   * @return true when latitude first, false otherwise
+   */
+  public boolean isLatitudeFirst() {
+    return latitudeFirst;
+  }
+
   /**
    *  Collect the azimuth heading between the two coordinates (lat/long) in decimal degrees
    *  
@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -41,9 +43,20 @@ public class PlanitJtsUtils {
 
   /** jts geometry factory, jts geometry differs from opengis implementation by not carrying the crs and being more lightweight */
   protected static final GeometryFactory jtsGeometryFactory = JTSFactoryFinder.getGeometryFactory();
+
+  /** process wide cache of transforms by source and destination crs, transforms are immutable and thread safe */
+  private static final Map<Pair<CoordinateReferenceSystem, CoordinateReferenceSystem>, MathTransform> mathTransformCache = new ConcurrentHashMap<>();
+
+  /**
+   * Clear the cache of transforms, see {@link PlanitCrsUtils#clearCaches()}
+   */
+  static void clearMathTransformCache() {
+    mathTransformCache.clear();
+  }
    
   /**
-   * Convenience method that wraps the CRS.findMathTransform by catching exceptions and producing a planit excepion only as well as allowing for lenient transformer
+   * Convenience method that wraps the CRS.findMathTransform by catching exceptions and producing a planit excepion only as well as allowing for lenient transformer.
+   * Transforms are cached process wide by source and destination CRS
    * 
    * @param sourceCRS      the source
    * @param destinationCRS the destination
@@ -52,12 +65,19 @@ public class PlanitJtsUtils {
   public static MathTransform findMathTransform(CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem destinationCRS){
     PlanItRunTimeException.throwIfNull(sourceCRS, "source coordinate reference system null when creating math transform");
     PlanItRunTimeException.throwIfNull(destinationCRS, "destination coordinate reference system null when creating math transform");
+    var key = Pair.of(sourceCRS, destinationCRS);
+    var cached = mathTransformCache.get(key);
+    if(cached != null) {
+      return cached;
+    }
     PlanitCrsUtils.silenceHsqlLogging();
 
     try {
       /* allows for some lenience in transformation due to different datums */
       boolean lenient = true;
-      return CRS.findMathTransform(sourceCRS, destinationCRS, lenient);
+      var transform = CRS.findMathTransform(sourceCRS, destinationCRS, lenient);
+      cached = mathTransformCache.putIfAbsent(key, transform);
+      return cached != null ? cached : transform;
     } catch (Exception e) {
       throw new PlanItRunTimeException(String.format("error during creation of transformer from CRS %s to CRS %s", sourceCRS.toString(), destinationCRS.toString()), e);
     }
@@ -0,0 +1,436 @@
+package org.goplanit.utils.geo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.Edge;
+import org.goplanit.utils.graph.GraphEntity;
+import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.graph.modifier.event.GraphEntitiesModificationEvent;
+import org.goplanit.utils.graph.modifier.event.GraphModificationEvent;
+import org.goplanit.utils.graph.modifier.event.GraphModifierEventProducer;
+import org.goplanit.utils.graph.modifier.event.GraphModifierEventType;
+import org.goplanit.utils.graph.modifier.event.GraphModifierListener;
+import org.goplanit.utils.zoning.Zone;
+import org.goplanit.utils.zoning.modifier.event.ZoningModificationEvent;
+import org.goplanit.utils.zoning.modifier.event.ZoningModifierEventProducer;
+import org.goplanit.utils.zoning.modifier.event.ZoningModifierEventType;
+import org.goplanit.utils.zoning.modifier.event.ZoningModifierListener;
+import org.goplanit.utils.zoning.modifier.event.ZonesModificationEvent;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.quadtree.Quadtree;
+
+/**
+ * Spatial index of edges, vertices and zones that is kept up to date incrementally rather than rebuilt, see
+ * {@link GeoContainerUtils#toGeoIndexed(org.goplanit.utils.zoning.Zones)} for the one-off alternative. Entities are inserted, removed or
+ * re-indexed after a geometry change either explicitly or by registering the index as listener on a graph or zoning modifier, in which
+ * case it applies every {@link GraphEntitiesModificationEvent} and {@link ZonesModificationEvent} it receives. Other events are ignored.
+ * <p>
+ * The envelope under which each entity was indexed is retained, so an entity can be removed or re-indexed correctly after its geometry has
+ * already changed. Queries filter candidates on their actual geometry, consistent with {@link GeoContainerUtils#queryEdgeQuadtree(Quadtree, Envelope)}.
+ * Like the modifiers it listens to, the index is not thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitLiveSpatialIndex implements GraphModifierListener, ZoningModifierListener {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(PlanitLiveSpatialIndex.class.getCanonicalName());
+
+  /** indexed edges */
+  private final Quadtree edges = new Quadtree();
+
+  /** indexed vertices */
+  private final Quadtree vertices = new Quadtree();
+
+  /** indexed zones */
+  private final Quadtree zones = new Quadtree();
+
+  /** envelope under which each indexed entity is stored */
+  private final Map<Object, Envelope> indexedEnvelopes = new IdentityHashMap<>();
+
+  /**
+   * Insert entity under its current envelope unless already indexed or without spatial features
+   *
+   * @param tree     to insert in
+   * @param entity   to insert
+   * @param envelope current envelope, may be null
+   * @return true when inserted
+   */
+  private boolean insert(final Quadtree tree, final Object entity, final Envelope envelope) {
+    if (envelope == null || indexedEnvelopes.containsKey(entity)) {
+      return false;
+    }
+    /* copy since entities may expose an envelope that changes along with their geometry */
+    var indexedEnvelope = new Envelope(envelope);
+    tree.insert(indexedEnvelope, entity);
+    indexedEnvelopes.put(entity, indexedEnvelope);
+    return true;
+  }
+
+  /**
+   * Remove entity using the envelope it was indexed under
+   *
+   * @param tree   to remove from
+   * @param entity to remove
+   * @return true when removed
+   */
+  private boolean remove(final Quadtree tree, final Object entity) {
+    var indexedEnvelope = indexedEnvelopes.remove(entity);
+    return indexedEnvelope != null && tree.remove(indexedEnvelope, entity);
+  }
+
+  /**
+   * Current envelope of an edge
+   *
+   * @param edge to collect for
+   * @return envelope, null when without geometry
+   */
+  private static Envelope envelopeOf(final Edge edge) {
+    return edge.hasGeometry() ? edge.getGeometry().getEnvelopeInternal() : null;
+  }
+
+  /**
+   * Current envelope of a vertex
+   *
+   * @param vertex to collect for
+   * @return envelope, null when without position
+   */
+  private static Envelope envelopeOf(final Vertex vertex) {
+    return vertex.hasPosition() ? vertex.getPosition().getEnvelopeInternal() : null;
+  }
+
+  /**
+   * Query a tree and filter candidates on their actual geometry
+   *
+   * @param <T>         type of entity
+   * @param tree        to query
+   * @param boundingBox to query
+   * @param visitor     filtering on geometry
+   * @return entities intersecting the bounding box
+   */
+  private static <T> Collection<T> query(final Quadtree tree, final Envelope boundingBox, final PlanitJtsItemVisitor<T> visitor) {
+    tree.query(boundingBox, visitor);
+    return visitor.getResult();
+  }
+
+  /**
+   * Apply an entity change reported by a graph modification
+   *
+   * @param entities to apply to
+   * @param remove   when true remove entities from the index
+   * @param insert   when true insert entities in the index
+   */
+  private void apply(final Collection<? extends GraphEntity> entities, boolean remove, boolean insert) {
+    for (var entity : entities) {
+      if (entity instanceof Edge) {
+        if (remove) {
+          remove((Edge) entity);
+        }
+        if (insert) {
+          insert((Edge) entity);
+        }
+      } else if (entity instanceof Vertex) {
+        if (remove) {
+          remove((Vertex) entity);
+        }
+        if (insert) {
+          insert((Vertex) entity);
+        }
+      }
+    }
+  }
+
+  /**
+   * Default constructor, creating an empty index
+   */
+  public PlanitLiveSpatialIndex() {
+  }
+
+  /**
+   * Index the edges, those without geometry are ignored
+   *
+   * @param edgesToIndex to index
+   */
+  public void addEdges(final Iterable<? extends Edge> edgesToIndex) {
+    edgesToIndex.forEach(this::insert);
+  }
+
+  /**
+   * Index the vertices, those without position are ignored
+   *
+   * @param verticesToIndex to index
+   */
+  public void addVertices(final Iterable<? extends Vertex> verticesToIndex) {
+    verticesToIndex.forEach(this::insert);
+  }
+
+  /**
+   * Index the zones, those without geometry or centroid position are ignored
+   *
+   * @param zonesToIndex to index
+   */
+  public void addZones(final Iterable<? extends Zone> zonesToIndex) {
+    for (var zone : zonesToIndex) {
+      if (!insert(zone) && !contains(zone)) {
+        LOGGER.warning(String.format("Unable to spatially index %s %s, unknown spatial features, ignored", zone.getClass().getName(), zone.getXmlId()));
+      }
+    }
+  }
+
+  /**
+   * Insert an edge
+   *
+   * @param edge to insert
+   * @return true when inserted, false when already indexed or without geometry
+   */
+  public boolean insert(final Edge edge) {
+    return insert(edges, edge, envelopeOf(edge));
+  }
+
+  /**
+   * Insert a vertex
+   *
+   * @param vertex to insert
+   * @return true when inserted, false when already indexed or without position
+   */
+  public boolean insert(final Vertex vertex) {
+    return insert(vertices, vertex, envelopeOf(vertex));
+  }
+
+  /**
+   * Insert a zone
+   *
+   * @param zone to insert
+   * @return true when inserted, false when already indexed or without spatial features
+   */
+  public boolean insert(final Zone zone) {
+    return insert(zones, zone, zone.getEnvelope());
+  }
+
+  /**
+   * Remove an edge, also when its geometry changed after it was indexed
+   *
+   * @param edge to remove
+   * @return true when removed, false when not indexed
+   */
+  public boolean remove(final Edge edge) {
+    return remove(edges, edge);
+  }
+
+  /**
+   * Remove a vertex, also when its position changed after it was indexed
+   *
+   * @param vertex to remove
+   * @return true when removed, false when not indexed
+   */
+  public boolean remove(final Vertex vertex) {
+    return remove(vertices, vertex);
+  }
+
+  /**
+   * Remove a zone, also when its geometry changed after it was indexed
+   *
+   * @param zone to remove
+   * @return true when removed, false when not indexed
+   */
+  public boolean remove(final Zone zone) {
+    return remove(zones, zone);
+  }
+
+  /**
+   * Re-index an edge after its geometry changed, inserting it when not yet indexed
+   *
+   * @param edge to update
+   * @return true when indexed afterwards, false when it no longer has a geometry
+   */
+  public boolean update(final Edge edge) {
+    remove(edge);
+    return insert(edge);
+  }
+
+  /**
+   * Re-index a vertex after its position changed, inserting it when not yet indexed
+   *
+   * @param vertex to update
+   * @return true when indexed afterwards, false when it no longer has a position
+   */
+  public boolean update(final Vertex vertex) {
+    remove(vertex);
+    return insert(vertex);
+  }
+
+  /**
+   * Re-index a zone after its geometry changed, inserting it when not yet indexed
+   *
+   * @param zone to update
+   * @return true when indexed afterwards, false when it no longer has spatial features
+   */
+  public boolean update(final Zone zone) {
+    remove(zone);
+    return insert(zone);
+  }
+
+  /**
+   * Verify if an entity is indexed
+   *
+   * @param entity to verify
+   * @return true when indexed
+   */
+  public boolean contains(final Object entity) {
+    return indexedEnvelopes.containsKey(entity);
+  }
+
+  /**
+   * Edges whose geometry intersects the bounding box
+   *
+   * @param <T>         type of edge
+   * @param boundingBox to query
+   * @return edges found
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Edge> Collection<T> queryEdges(final Envelope boundingBox) {
+    return (Collection<T>) query(edges, boundingBox, new PlanitJtsIntersectEdgeVisitor<>(PlanitJtsUtils.create2DPolygon(boundingBox), new ArrayList<>()));
+  }
+
+  /**
+   * Vertices positioned within the bounding box
+   *
+   * @param <T>         type of vertex
+   * @param boundingBox to query
+   * @return vertices found
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Vertex> Collection<T> queryVertices(final Envelope boundingBox) {
+    var result = new ArrayList<T>();
+    vertices.query(boundingBox, item -> {
+      if (boundingBox.contains(((Vertex) item).getPosition().getCoordinate())) {
+        result.add((T) item);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Zones whose geometry, or centroid position when without geometry, intersects the bounding box
+   *
+   * @param <T>         type of zone
+   * @param boundingBox to query
+   * @return zones found
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Zone> Collection<T> queryZones(final Envelope boundingBox) {
+    var filter = PlanitJtsUtils.create2DPolygon(boundingBox);
+    var result = new ArrayList<T>();
+    zones.query(boundingBox, item -> {
+      Geometry geometry = ((Zone) item).getGeometry(true);
+      if (geometry != null && geometry.intersects(filter)) {
+        result.add((T) item);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Number of indexed edges
+   *
+   * @return number of edges
+   */
+  public int getNumberOfEdges() {
+    return edges.size();
+  }
+
+  /**
+   * Number of indexed vertices
+   *
+   * @return number of vertices
+   */
+  public int getNumberOfVertices() {
+    return vertices.size();
+  }
+
+  /**
+   * Number of indexed zones
+   *
+   * @return number of zones
+   */
+  public int getNumberOfZones() {
+    return zones.size();
+  }
+
+  /**
+   * Register this index on a graph modifier for the given event types. The index cannot know which event types a modifier raises, so at
+   * least one type is required. The modifier's events should implement {@link GraphEntitiesModificationEvent} to be applied
+   *
+   * @param producer   to listen to
+   * @param eventTypes to listen to, at least one
+   */
+  public void listenTo(final GraphModifierEventProducer producer, final GraphModifierEventType... eventTypes) {
+    if (eventTypes.length == 0) {
+      throw new PlanItRunTimeException("Spatial index requires explicit graph modifier event types to listen to");
+    }
+    for (var eventType : eventTypes) {
+      producer.addListener(this, eventType);
+    }
+  }
+
+  /**
+   * Register this index on a zoning modifier for the given event types. The index cannot know which event types a modifier raises, so at
+   * least one type is required. The modifier's events should implement {@link ZonesModificationEvent} to be applied
+   *
+   * @param producer   to listen to
+   * @param eventTypes to listen to, at least one
+   */
+  public void listenTo(final ZoningModifierEventProducer producer, final ZoningModifierEventType... eventTypes) {
+    if (eventTypes.length == 0) {
+      throw new PlanItRunTimeException("Spatial index requires explicit zoning modifier event types to listen to");
+    }
+    for (var eventType : eventTypes) {
+      producer.addListener(this, eventType);
+    }
+  }
+
+  /**
+   * Remove all entities from the index
+   */
+  public void clear() {
+    for (var entry : indexedEnvelopes.entrySet()) {
+      var entity = entry.getKey();
+      (entity instanceof Edge ? edges : entity instanceof Vertex ? vertices : zones).remove(entry.getValue(), entity);
+    }
+    indexedEnvelopes.clear();
+  }
+
+  /**
+   * Apply the removed, added and geometry changed entities of the event, in that order
+   */
+  @Override
+  public void onGraphModificationEvent(final GraphModificationEvent event) {
+    if (event instanceof GraphEntitiesModificationEvent) {
+      var entitiesEvent = (GraphEntitiesModificationEvent) event;
+      apply(entitiesEvent.getRemovedEntities(), true, false);
+      apply(entitiesEvent.getAddedEntities(), false, true);
+      apply(entitiesEvent.getGeometryChangedEntities(), true, true);
+    }
+  }
+
+  /**
+   * Apply the removed, added and geometry changed zones of the event, in that order
+   */
+  @Override
+  public void onZoningModifierEvent(final ZoningModificationEvent event) {
+    if (event instanceof ZonesModificationEvent) {
+      var zonesEvent = (ZonesModificationEvent) event;
+      zonesEvent.getRemovedZones().forEach(this::remove);
+      zonesEvent.getAddedZones().forEach(this::insert);
+      zonesEvent.getGeometryChangedZones().forEach(this::update);
+    }
+  }
+}
@@ -0,0 +1,503 @@
+package org.goplanit.utils.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleBiFunction;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.Edge;
+import org.goplanit.utils.graph.GraphLocalityOrdering;
+import org.goplanit.utils.misc.Pair;
+import org.goplanit.utils.zoning.Zone;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Static (bulk loaded) packed R-tree over PLANit entities with a geometry, supporting k-nearest and within-distance queries in metres.
+ * Entities are sorted along the Hilbert curve of their envelope centres and grouped bottom up into nodes of fixed capacity, stored in flat
+ * arrays. Queries are best-first: nodes and entities are visited in order of a lower bound on their distance derived from their envelope, the
+ * exact distance to an entity geometry is only computed once its lower bound is the most promising, and the search stops as soon as no lower
+ * bound can improve the result. Finding the closest edge to a point therefore touches a logarithmic number of nodes rather than all edges.
+ * <p>
+ * Lower bounds are exact for cartesian coordinates. For geographic coordinates the lower bound is the great circle distance to the nearest
+ * point of the envelope, see {@link PlanitGeodesicDistance#haversineToBoxInMetres(double, double, double, double, double, double)}, reduced
+ * by a relative margin covering the difference between the sphere and the ellipsoid, so it holds for envelopes of any extent. For projected
+ * (non cartesian) coordinates the distance to the nearest point of the envelope is reduced by the same margin, which only remains a lower
+ * bound while the scale of the projection varies less than this margin across an envelope, as is the case for projections local to a
+ * network. With an approximate distance strategy, see {@link PlanitDistanceStrategy}, bounds hold while its error remains below the same
+ * margin. The tree is immutable and safe for concurrent queries.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <T> entity type
+ */
+public class PlanitPackedRTree<T> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(PlanitPackedRTree.class.getCanonicalName());
+
+  /** number of children per node */
+  private static final int NODE_CAPACITY = 16;
+
+  /** relative margin applied to envelope distances to guarantee a lower bound for non cartesian coordinates, exceeds the maximum relative
+   * difference (0.56%) between the great circle distance on a sphere with the mean earth radius and the geodesic on the ellipsoid */
+  private static final double LOWER_BOUND_MARGIN = 0.01;
+
+  /** entities in tree order */
+  private final Object[] entities;
+
+  /** envelope bounds per entity in tree order, minX, minY, maxX, maxY */
+  private final double[] entityBounds;
+
+  /** envelope bounds per node, minX, minY, maxX, maxY */
+  private final double[] nodeBounds;
+
+  /** first child per node, an entity index for leaf nodes and a node index otherwise */
+  private final int[] firstChildren;
+
+  /** number of children per node */
+  private final int[] childCounts;
+
+  /** number of leaf nodes, leaf nodes are stored first */
+  private final int numberOfLeafNodes;
+
+  /** exact distance in metres between a coordinate and an entity */
+  private final ToDoubleBiFunction<Coordinate, T> distanceFunction;
+
+  /** used to compute distances between coordinates */
+  private final PlanitJtsCrsUtils geoUtils;
+
+  /** whether coordinates are cartesian, in which case envelope distances are exact lower bounds */
+  private final boolean cartesian;
+
+  /** whether coordinates are geographic, in which case lower bounds are great circle distances to the envelope */
+  private final boolean geographic;
+
+  /** whether geographic coordinates have latitude as x */
+  private final boolean latitudeFirst;
+
+  /**
+   * Min heap of candidates keyed by distance, a candidate is a node (non-negative) or an entity whose distance is either a lower bound or
+   * exact. Reusable across queries by one thread at a time
+   */
+  static final class CandidateQueue {
+
+    /** keys in heap order */
+    private double[] keys = new double[64];
+
+    /** candidates in heap order */
+    private int[] candidates = new int[64];
+
+    /** number of queued candidates */
+    private int size = 0;
+
+    /**
+     * Add a candidate
+     *
+     * @param candidate to add
+     * @param key       to order by
+     */
+    void add(int candidate, double key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size << 1);
+        candidates = Arrays.copyOf(candidates, size << 1);
+      }
+      int position = size++;
+      while (position > 0) {
+        int parent = (position - 1) >>> 1;
+        if (keys[parent] <= key) {
+          break;
+        }
+        keys[position] = keys[parent];
+        candidates[position] = candidates[parent];
+        position = parent;
+      }
+      keys[position] = key;
+      candidates[position] = candidate;
+    }
+
+    /**
+     * Lowest key
+     *
+     * @return lowest key
+     */
+    double peekKey() {
+      return keys[0];
+    }
+
+    /**
+     * Remove candidate with lowest key
+     *
+     * @return candidate
+     */
+    int poll() {
+      int top = candidates[0];
+      --size;
+      double key = keys[size];
+      int candidate = candidates[size];
+      int position = 0;
+      while (true) {
+        int child = 2 * position + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keys[child + 1] < keys[child]) {
+          ++child;
+        }
+        if (key <= keys[child]) {
+          break;
+        }
+        keys[position] = keys[child];
+        candidates[position] = candidates[child];
+        position = child;
+      }
+      keys[position] = key;
+      candidates[position] = candidate;
+      return top;
+    }
+
+    /**
+     * Verify if empty
+     *
+     * @return true when empty
+     */
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    /**
+     * Remove all candidates, retaining capacity
+     */
+    void clear() {
+      size = 0;
+    }
+  }
+
+  /**
+   * Encode an entity as candidate
+   *
+   * @param entityIndex to encode
+   * @param exact       whether the key is the exact distance rather than a lower bound
+   * @return candidate
+   */
+  private static int encodeEntity(int entityIndex, boolean exact) {
+    return -(2 * entityIndex + (exact ? 2 : 1));
+  }
+
+  /**
+   * Lower bound on the distance in metres between the reference and a bounding box
+   *
+   * @param reference to compute for
+   * @param bounds    bounds array
+   * @param offset    of the box in the bounds array
+   * @return lower bound
+   */
+  private double computeLowerBound(final Coordinate reference, final double[] bounds, int offset) {
+    if (geographic) {
+      double distance = latitudeFirst ?
+          PlanitGeodesicDistance.haversineToBoxInMetres(reference.y, reference.x, bounds[offset + 1], bounds[offset], bounds[offset + 3], bounds[offset + 2]) :
+          PlanitGeodesicDistance.haversineToBoxInMetres(reference.x, reference.y, bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3]);
+      return distance * (1 - LOWER_BOUND_MARGIN);
+    }
+    double x = Math.max(bounds[offset], Math.min(reference.x, bounds[offset + 2]));
+    double y = Math.max(bounds[offset + 1], Math.min(reference.y, bounds[offset + 3]));
+    if (x == reference.x && y == reference.y) {
+      return 0;
+    }
+    double distance = geoUtils.getDistanceInMetres(reference, new Coordinate(x, y));
+    return cartesian ? distance : distance * (1 - LOWER_BOUND_MARGIN);
+  }
+
+  /**
+   * Queue the children of a node
+   *
+   * @param reference to compute lower bounds for
+   * @param node      to expand
+   * @param queue     to add children to
+   * @param maxDistance children beyond this distance are not queued
+   */
+  private void expand(final Coordinate reference, int node, final CandidateQueue queue, double maxDistance) {
+    int first = firstChildren[node];
+    int end = first + childCounts[node];
+    boolean leaf = node < numberOfLeafNodes;
+    for (int child = first; child < end; ++child) {
+      double lowerBound = computeLowerBound(reference, leaf ? entityBounds : nodeBounds, 4 * child);
+      if (lowerBound <= maxDistance) {
+        queue.add(leaf ? encodeEntity(child, false) : child, lowerBound);
+      }
+    }
+  }
+
+  /**
+   * Best first search collecting entities in order of increasing distance
+   *
+   * @param reference    to search from
+   * @param maxResults   maximum number of entities to collect
+   * @param maxDistance  maximum distance in metres
+   * @param queue        to use, cleared before use
+   * @param resultAction invoked for each result in order of increasing distance
+   */
+  @SuppressWarnings("unchecked")
+  void search(final Coordinate reference, int maxResults, double maxDistance, final CandidateQueue queue, final ObjDoubleConsumer<T> resultAction) {
+    queue.clear();
+    if (entities.length == 0 || maxResults <= 0) {
+      return;
+    }
+    queue.add(nodeBounds.length / 4 - 1, computeLowerBound(reference, nodeBounds, nodeBounds.length - 4));
+    int found = 0;
+    while (!queue.isEmpty() && queue.peekKey() <= maxDistance) {
+      double key = queue.peekKey();
+      int candidate = queue.poll();
+      if (candidate >= 0) {
+        expand(reference, candidate, queue, maxDistance);
+      } else if ((-candidate) % 2 == 1) {
+        int entityIndex = (-candidate - 1) / 2;
+        double distance = distanceFunction.applyAsDouble(reference, (T) entities[entityIndex]);
+        if (distance <= maxDistance) {
+          queue.add(encodeEntity(entityIndex, true), Math.max(distance, key));
+        }
+      } else {
+        int entityIndex = (-candidate - 2) / 2;
+        resultAction.accept((T) entities[entityIndex], key);
+        if (++found == maxResults) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param entities         to index, entities without geometry are ignored
+   * @param geometryFunction to collect the geometry of an entity
+   * @param distanceFunction exact distance in metres between a coordinate and an entity
+   * @param geoUtils         to compute distances with
+   */
+  public PlanitPackedRTree(final Collection<? extends T> entities, final Function<? super T, ? extends Geometry> geometryFunction,
+      final ToDoubleBiFunction<Coordinate, T> distanceFunction, final PlanitJtsCrsUtils geoUtils) {
+    this.distanceFunction = distanceFunction;
+    this.geoUtils = geoUtils;
+    this.cartesian = PlanitJtsCrsUtils.CARTESIANCRS.equals(geoUtils.getCoordinateReferenceSystem());
+    this.geographic = geoUtils.isGeographic();
+    this.latitudeFirst = geoUtils.isLatitudeFirst();
+
+    var indexed = new ArrayList<T>(entities.size());
+    var envelopes = new ArrayList<Envelope>(entities.size());
+    var totalEnvelope = new Envelope();
+    for (var entity : entities) {
+      var geometry = geometryFunction.apply(entity);
+      if (geometry != null && !geometry.isEmpty()) {
+        indexed.add(entity);
+        envelopes.add(geometry.getEnvelopeInternal());
+        totalEnvelope.expandToInclude(geometry.getEnvelopeInternal());
+      }
+    }
+
+    /* sort along the Hilbert curve of the envelope centres */
+    final int numberOfEntities = indexed.size();
+    if (numberOfEntities >= (1 << 23)) {
+      throw new PlanItRunTimeException("Packed R-tree supports at most %d entities, found %d", 1 << 23, numberOfEntities);
+    }
+    final double cells = (1 << 20) - 1;
+    final double scaleX = totalEnvelope.getWidth() > 0 ? cells / totalEnvelope.getWidth() : 0;
+    final double scaleY = totalEnvelope.getHeight() > 0 ? cells / totalEnvelope.getHeight() : 0;
+    var order = new long[numberOfEntities];
+    for (int index = 0; index < numberOfEntities; ++index) {
+      var centre = envelopes.get(index).centre();
+      long hilbert = GraphLocalityOrdering.computeHilbertIndex((int) ((centre.x - totalEnvelope.getMinX()) * scaleX),
+          (int) ((centre.y - totalEnvelope.getMinY()) * scaleY));
+      order[index] = (hilbert << 23) | index;
+    }
+    Arrays.sort(order);
+
+    this.entities = new Object[numberOfEntities];
+    this.entityBounds = new double[4 * numberOfEntities];
+    for (int position = 0; position < numberOfEntities; ++position) {
+      int index = (int) (order[position] & ((1 << 23) - 1));
+      this.entities[position] = indexed.get(index);
+      var envelope = envelopes.get(index);
+      entityBounds[4 * position] = envelope.getMinX();
+      entityBounds[4 * position + 1] = envelope.getMinY();
+      entityBounds[4 * position + 2] = envelope.getMaxX();
+      entityBounds[4 * position + 3] = envelope.getMaxY();
+    }
+
+    /* build levels bottom up, the root is the last node */
+    int numberOfNodes = 0;
+    for (int count = numberOfEntities; count > 0;) {
+      count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+      numberOfNodes += count;
+      if (count == 1) {
+        break;
+      }
+    }
+    this.nodeBounds = new double[4 * numberOfNodes];
+    this.firstChildren = new int[numberOfNodes];
+    this.childCounts = new int[numberOfNodes];
+    this.numberOfLeafNodes = (numberOfEntities + NODE_CAPACITY - 1) / NODE_CAPACITY;
+
+    int levelStart = 0;
+    int levelCount = numberOfEntities;
+    double[] childBounds = entityBounds;
+    int childOffset = 0;
+    int node = 0;
+    while (node < numberOfNodes) {
+      int nextLevelStart = node;
+      for (int child = 0; child < levelCount; child += NODE_CAPACITY) {
+        firstChildren[node] = childOffset + child;
+        childCounts[node] = Math.min(NODE_CAPACITY, levelCount - child);
+        nodeBounds[4 * node] = Double.POSITIVE_INFINITY;
+        nodeBounds[4 * node + 1] = Double.POSITIVE_INFINITY;
+        nodeBounds[4 * node + 2] = Double.NEGATIVE_INFINITY;
+        nodeBounds[4 * node + 3] = Double.NEGATIVE_INFINITY;
+        for (int index = firstChildren[node]; index < firstChildren[node] + childCounts[node]; ++index) {
+          nodeBounds[4 * node] = Math.min(nodeBounds[4 * node], childBounds[4 * index]);
+          nodeBounds[4 * node + 1] = Math.min(nodeBounds[4 * node + 1], childBounds[4 * index + 1]);
+          nodeBounds[4 * node + 2] = Math.max(nodeBounds[4 * node + 2], childBounds[4 * index + 2]);
+          nodeBounds[4 * node + 3] = Math.max(nodeBounds[4 * node + 3], childBounds[4 * index + 3]);
+        }
+        ++node;
+      }
+      levelStart = nextLevelStart;
+      levelCount = node - levelStart;
+      childBounds = nodeBounds;
+      childOffset = levelStart;
+    }
+  }
+
+  /**
+   * Create index over edges by their geometry, distances are the projected distance to the edge geometry
+   *
+   * @param <E>      type of edge
+   * @param edges    to index
+   * @param geoUtils to compute distances with
+   * @return index
+   */
+  public static <E extends Edge> PlanitPackedRTree<E> ofEdges(final Collection<? extends E> edges, final PlanitJtsCrsUtils geoUtils) {
+    return new PlanitPackedRTree<>(edges, Edge::getGeometry,
+        (reference, edge) -> geoUtils.getClosestProjectedDistanceInMetersToLineString(reference, edge.getGeometry()), geoUtils);
+  }
+
+  /**
+   * Create index over zones by their geometry, distances are the closest distance to the zone geometry (boundary)
+   *
+   * @param <Z>      type of zone
+   * @param zones    to index
+   * @param geoUtils to compute distances with
+   * @return index
+   */
+  public static <Z extends Zone> PlanitPackedRTree<Z> ofZones(final Collection<? extends Z> zones, final PlanitJtsCrsUtils geoUtils) {
+    return new PlanitPackedRTree<>(zones, Zone::getGeometry, (reference, zone) -> geoUtils.getClosestDistanceInMeters(reference, zone.getGeometry()),
+        geoUtils);
+  }
+
+  /**
+   * Number of indexed entities
+   *
+   * @return number of entities
+   */
+  public int size() {
+    return entities.length;
+  }
+
+  /**
+   * Verify if empty
+   *
+   * @return true when no entities are indexed
+   */
+  public boolean isEmpty() {
+    return entities.length == 0;
+  }
+
+  /**
+   * Geo utilities used to compute distances
+   *
+   * @return geo utilities
+   */
+  public PlanitJtsCrsUtils getGeoUtils() {
+    return geoUtils;
+  }
+
+  /**
+   * Find the entity closest to the reference
+   *
+   * @param reference to search from
+   * @return closest entity and its distance in metres, null when empty
+   */
+  public Pair<T, Double> findNearest(final Coordinate reference) {
+    var nearest = findNearest(reference, 1, Double.POSITIVE_INFINITY);
+    return nearest.isEmpty() ? null : nearest.get(0);
+  }
+
+  /**
+   * Find the k entities closest to the reference, up to a maximum distance
+   *
+   * @param reference         to search from
+   * @param k                 maximum number of entities
+   * @param maxDistanceMeters maximum distance
+   * @return entities with their distance in metres, in order of increasing distance
+   */
+  public List<Pair<T, Double>> findNearest(final Coordinate reference, int k, double maxDistanceMeters) {
+    var result = new ArrayList<Pair<T, Double>>(Math.min(k, 16));
+    search(reference, k, maxDistanceMeters, new CandidateQueue(), (entity, distance) -> result.add(Pair.of(entity, distance)));
+    return result;
+  }
+
+  /**
+   * Find all entities within a distance of the reference
+   *
+   * @param reference         to search from
+   * @param maxDistanceMeters maximum distance
+   * @return entities with their distance in metres, in order of increasing distance
+   */
+  public Map<T, Double> findWithinDistance(final Coordinate reference, double maxDistanceMeters) {
+    var result = new LinkedHashMap<T, Double>();
+    search(reference, Integer.MAX_VALUE, maxDistanceMeters, new CandidateQueue(), result::put);
+    return result;
+  }
+
+  /**
+   * Find the entities closest to any coordinate of the geometry and all entities within the buffer distance of that closest distance, where
+   * the distance of an entity is its smallest distance to any coordinate of the geometry, consistent with
+   * {@link PlanitGraphGeoUtils#findEdgesWithinClosestDistanceDeltaToGeometry(Geometry, Collection, double, PlanitJtsCrsUtils)}
+   *
+   * @param geometry             to search from
+   * @param bufferDistanceMeters margin beyond the closest distance
+   * @return entities with their distance in metres, in order of increasing distance, empty when no entities are indexed
+   */
+  public Map<T, Double> findWithinClosestDistanceDelta(final Geometry geometry, double bufferDistanceMeters) {
+    final Coordinate[] coordinates = geometry.getCoordinates();
+    double closest = Double.POSITIVE_INFINITY;
+    for (var coordinate : coordinates) {
+      var nearest = findNearest(coordinate, 1, closest);
+      if (!nearest.isEmpty()) {
+        closest = Math.min(closest, nearest.get(0).second());
+      }
+    }
+    if (closest == Double.POSITIVE_INFINITY) {
+      return new LinkedHashMap<>();
+    }
+
+    var distances = new LinkedHashMap<T, Double>();
+    for (var coordinate : coordinates) {
+      findWithinDistance(coordinate, closest + bufferDistanceMeters).forEach((entity, distance) -> distances.merge(entity, distance, Math::min));
+    }
+    var sorted = new ArrayList<>(distances.entrySet());
+    sorted.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+    var result = new LinkedHashMap<T, Double>();
+    sorted.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+    return result;
+  }
+}
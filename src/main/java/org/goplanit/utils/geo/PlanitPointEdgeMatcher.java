@@ -0,0 +1,213 @@
+package org.goplanit.utils.geo;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.Edge;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.linearref.LinearLocation;
+
+/**
+ * Matches many points to their closest edge of a spatial index concurrently on a fork-join pool, e.g., to snap stops, detectors or probe
+ * positions to the network in bulk. Per point the closest edge, the projected linear location on its geometry and the distance are
+ * collected, see {@link PlanitPointEdgeMatches}.
+ * <p>
+ * Points are processed in blocks, each block borrows scratch state (search queue, reference coordinate) from a pool of idle scratch
+ * states so no state is allocated per point. Results are written by point index and each point is matched independently, so results are
+ * identical regardless of the number of threads or the order in which blocks complete.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <T> type of edge
+ */
+public class PlanitPointEdgeMatcher<T extends Edge> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(PlanitPointEdgeMatcher.class.getCanonicalName());
+
+  /** number of points per block */
+  private static final int BLOCK_SIZE = 256;
+
+  /** spatial index of the edges to match to */
+  private final PlanitPackedRTree<T> edgeIndex;
+
+  /** pool to execute on, null for the common pool */
+  private final ForkJoinPool pool;
+
+  /** scratch states not in use */
+  private final ConcurrentLinkedQueue<Scratch<T>> idleScratches;
+
+  /**
+   * Reusable per worker state
+   *
+   * @param <T> type of edge
+   */
+  private static final class Scratch<T> {
+
+    /** search queue */
+    final PlanitPackedRTree.CandidateQueue queue = new PlanitPackedRTree.CandidateQueue();
+
+    /** reference coordinate for interleaved input */
+    final Coordinate reference = new Coordinate();
+
+    /** closest entity found by the last search */
+    T closest;
+
+    /** distance of the closest entity found by the last search */
+    double distance;
+  }
+
+  /**
+   * Borrow an idle scratch state, or create one when none is available
+   *
+   * @return scratch
+   */
+  private Scratch<T> borrowScratch() {
+    var scratch = idleScratches.poll();
+    return scratch != null ? scratch : new Scratch<>();
+  }
+
+  /**
+   * Run the task on the configured pool
+   *
+   * @param task to run
+   */
+  private void runOnPool(Runnable task) {
+    if (pool == null) {
+      task.run();
+    } else {
+      pool.submit(task).join();
+    }
+  }
+
+  /** Functional access to the coordinate of a point */
+  @FunctionalInterface
+  private static interface PointAccessor {
+
+    /**
+     * Collect the coordinate of a point
+     *
+     * @param pointIndex position of the point
+     * @param scratch    scratch coordinate that may be populated and returned
+     * @return coordinate
+     */
+    public abstract Coordinate get(int pointIndex, Coordinate scratch);
+  }
+
+  /**
+   * Match all points
+   *
+   * @param numberOfPoints    to match
+   * @param points            access to the coordinates of the points
+   * @param maxDistanceMeters points without an edge within this distance remain unmatched
+   * @return matches
+   */
+  @SuppressWarnings("unchecked")
+  private PlanitPointEdgeMatches<T> match(int numberOfPoints, final PointAccessor points, double maxDistanceMeters) {
+    final T[] edges = (T[]) Array.newInstance(Edge.class, numberOfPoints);
+    final var locations = new LinearLocation[numberOfPoints];
+    final var distances = new double[numberOfPoints];
+    final var geoUtils = edgeIndex.getGeoUtils();
+
+    final int numberOfBlocks = (numberOfPoints + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    runOnPool(() -> IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+      var scratch = borrowScratch();
+      try {
+        for (int pointIndex = block * BLOCK_SIZE; pointIndex < Math.min(numberOfPoints, (block + 1) * BLOCK_SIZE); ++pointIndex) {
+          var reference = points.get(pointIndex, scratch.reference);
+          scratch.closest = null;
+          scratch.distance = Double.POSITIVE_INFINITY;
+          edgeIndex.search(reference, 1, maxDistanceMeters, scratch.queue, (edge, distance) -> {
+            scratch.closest = edge;
+            scratch.distance = distance;
+          });
+          if (scratch.closest != null) {
+            edges[pointIndex] = scratch.closest;
+            locations[pointIndex] = geoUtils.getClosestProjectedLinearLocationOnLineString(reference, scratch.closest.getGeometry());
+          }
+          distances[pointIndex] = scratch.distance;
+        }
+      } finally {
+        scratch.closest = null;
+        idleScratches.offer(scratch);
+      }
+    }));
+    return new PlanitPointEdgeMatches<>(edges, locations, distances);
+  }
+
+  /**
+   * Constructor, executes on the common fork-join pool
+   *
+   * @param edgeIndex spatial index of the edges to match to
+   */
+  public PlanitPointEdgeMatcher(final PlanitPackedRTree<T> edgeIndex) {
+    this(edgeIndex, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param edgeIndex spatial index of the edges to match to, e.g., {@link PlanitGraphGeoUtils#createEdgeIndex(java.util.Collection, PlanitJtsCrsUtils)}
+   * @param pool      to execute on, null for the common fork-join pool
+   */
+  public PlanitPointEdgeMatcher(final PlanitPackedRTree<T> edgeIndex, final ForkJoinPool pool) {
+    this.edgeIndex = edgeIndex;
+    this.pool = pool;
+    this.idleScratches = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Match each coordinate to its closest edge
+   *
+   * @param coordinates to match
+   * @return matches by coordinate index
+   */
+  public PlanitPointEdgeMatches<T> match(final Coordinate[] coordinates) {
+    return match(coordinates, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Match each coordinate to its closest edge within a maximum distance
+   *
+   * @param coordinates       to match
+   * @param maxDistanceMeters coordinates without an edge within this distance remain unmatched
+   * @return matches by coordinate index
+   */
+  public PlanitPointEdgeMatches<T> match(final Coordinate[] coordinates, double maxDistanceMeters) {
+    return match(coordinates.length, (pointIndex, scratch) -> coordinates[pointIndex], maxDistanceMeters);
+  }
+
+  /**
+   * Match each point, given as interleaved x and y values, to its closest edge within a maximum distance. Avoids creating a coordinate per
+   * point for large inputs
+   *
+   * @param xy                interleaved x and y value per point
+   * @param maxDistanceMeters points without an edge within this distance remain unmatched
+   * @return matches by point index
+   */
+  public PlanitPointEdgeMatches<T> match(final double[] xy, double maxDistanceMeters) {
+    if (xy.length % 2 != 0) {
+      throw new PlanItRunTimeException("Interleaved x and y values expected, found odd number of values %d", xy.length);
+    }
+    return match(xy.length / 2, (pointIndex, scratch) -> {
+      scratch.x = xy[2 * pointIndex];
+      scratch.y = xy[2 * pointIndex + 1];
+      return scratch;
+    }, maxDistanceMeters);
+  }
+
+  /**
+   * Spatial index of the edges matched to
+   *
+   * @return edge index
+   */
+  public PlanitPackedRTree<T> getEdgeIndex() {
+    return edgeIndex;
+  }
+}
@@ -0,0 +1,116 @@
+package org.goplanit.utils.geo;
+
+import java.util.logging.Logger;
+
+import org.goplanit.utils.graph.Edge;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.linearref.LinearLocation;
+
+/**
+ * Result of matching points to their closest edge, indexed by the position of the point in the matched input. Points without an edge within
+ * the maximum distance are unmatched. Created by {@link PlanitPointEdgeMatcher}.
+ *
+ * @author markr
+ *
+ * @param <T> type of edge
+ */
+public class PlanitPointEdgeMatches<T extends Edge> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(PlanitPointEdgeMatches.class.getCanonicalName());
+
+  /** closest edge per point, null when unmatched */
+  private final T[] edges;
+
+  /** projected location on the geometry of the closest edge per point, null when unmatched */
+  private final LinearLocation[] locations;
+
+  /** distance in metres to the closest edge per point, positive infinity when unmatched */
+  private final double[] distances;
+
+  /**
+   * Constructor
+   *
+   * @param edges     closest edge per point, null when unmatched
+   * @param locations projected location per point, null when unmatched
+   * @param distances distance in metres per point, positive infinity when unmatched
+   */
+  PlanitPointEdgeMatches(final T[] edges, final LinearLocation[] locations, final double[] distances) {
+    this.edges = edges;
+    this.locations = locations;
+    this.distances = distances;
+  }
+
+  /**
+   * Number of matched points, including unmatched ones
+   *
+   * @return number of points
+   */
+  public int size() {
+    return edges.length;
+  }
+
+  /**
+   * Verify if a point is matched to an edge
+   *
+   * @param pointIndex position of the point
+   * @return true when matched
+   */
+  public boolean isMatched(int pointIndex) {
+    return edges[pointIndex] != null;
+  }
+
+  /**
+   * Number of points matched to an edge
+   *
+   * @return number of matched points
+   */
+  public int getNumberOfMatched() {
+    int matched = 0;
+    for (var edge : edges) {
+      matched += edge != null ? 1 : 0;
+    }
+    return matched;
+  }
+
+  /**
+   * Closest edge of a point
+   *
+   * @param pointIndex position of the point
+   * @return closest edge, null when unmatched
+   */
+  public T getEdge(int pointIndex) {
+    return edges[pointIndex];
+  }
+
+  /**
+   * Projection of a point onto the geometry of its closest edge
+   *
+   * @param pointIndex position of the point
+   * @return linear location on the edge geometry, null when unmatched
+   */
+  public LinearLocation getLinearLocation(int pointIndex) {
+    return locations[pointIndex];
+  }
+
+  /**
+   * Projected coordinate of a point on its closest edge
+   *
+   * @param pointIndex position of the point
+   * @return projected coordinate, null when unmatched
+   */
+  public Coordinate getProjectedCoordinate(int pointIndex) {
+    return edges[pointIndex] != null ? locations[pointIndex].getCoordinate(edges[pointIndex].getGeometry()) : null;
+  }
+
+  /**
+   * Distance between a point and its closest edge
+   *
+   * @param pointIndex position of the point
+   * @return distance in metres, positive infinity when unmatched
+   */
+  public double getDistance(int pointIndex) {
+    return distances[pointIndex];
+  }
+}
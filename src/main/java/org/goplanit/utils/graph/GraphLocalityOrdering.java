@@ -0,0 +1,260 @@
+package org.goplanit.utils.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.id.ManagedId;
+import org.goplanit.utils.id.ManagedIdEntities;
+
+/**
+ * Orderings of graph entities that improve locality of id indexed arrays when used to recreate managed ids, see
+ * {@link ManagedIdEntities#recreateIds(boolean, Comparator)}. Vertices can be ordered along a space filling curve (Hilbert or Z-order) of
+ * their position or by Cuthill-McKee, i.e., breadth first from a low degree vertex visiting neighbours by increasing degree. Edges and edge
+ * segments are subsequently ordered by the ids of their vertices, so after renumbering the vertices first, edge segments leaving nearby
+ * vertices obtain nearby ids as well.
+ * <p>
+ * Vertex orderings are computed up front by the current vertex id and must therefore be applied before any vertex id changes.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class GraphLocalityOrdering {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(GraphLocalityOrdering.class.getCanonicalName());
+
+  /** number of bits per axis used to quantise positions on the space filling curves */
+  private static final int CURVE_ORDER = 20;
+
+  /** number of cells per axis on the space filling curves */
+  private static final int CURVE_CELLS = 1 << CURVE_ORDER;
+
+  /** Edges ordered by their lowest vertex id, then their highest vertex id, then their own id */
+  public static final Comparator<Edge> EDGE_ORDER = Comparator.<Edge> comparingLong(e -> Math.min(vertexId(e.getVertexA()), vertexId(e.getVertexB())))
+      .thenComparingLong(e -> Math.max(vertexId(e.getVertexA()), vertexId(e.getVertexB()))).thenComparingLong(Edge::getId);
+
+  /** Edge segments ordered by their upstream vertex id, then their downstream vertex id, then their own id */
+  public static final Comparator<EdgeSegment> EDGE_SEGMENT_ORDER = Comparator.<EdgeSegment> comparingLong(es -> vertexId(es.getUpstreamVertex()))
+      .thenComparingLong(es -> vertexId(es.getDownstreamVertex())).thenComparingLong(EdgeSegment::getId);
+
+  /**
+   * Id of vertex, absent vertices go last
+   *
+   * @param vertex to collect id for
+   * @return id
+   */
+  private static long vertexId(final Vertex vertex) {
+    return vertex == null ? Long.MAX_VALUE : vertex.getId();
+  }
+
+  /**
+   * Size of an array indexed by vertex id covering all vertices
+   *
+   * @param vertices to cover
+   * @return number of vertex ids
+   */
+  private static int numberOfVertexIds(final Iterable<? extends Vertex> vertices) {
+    long maxId = -1;
+    for (var vertex : vertices) {
+      maxId = Math.max(maxId, vertex.getId());
+    }
+    if (maxId >= Integer.MAX_VALUE) {
+      throw new PlanItRunTimeException("Vertex id %d too large for locality ordering", maxId);
+    }
+    return (int) (maxId + 1);
+  }
+
+  /**
+   * Create comparator on precomputed keys by vertex id, ties and vertices without a key are ordered by id
+   *
+   * @param keys by vertex id
+   * @return comparator
+   */
+  private static Comparator<Vertex> createKeyOrder(final long[] keys) {
+    return Comparator.<Vertex> comparingLong(v -> v.getId() >= 0 && v.getId() < keys.length ? keys[(int) v.getId()] : Long.MAX_VALUE)
+        .thenComparingLong(Vertex::getId);
+  }
+
+  /**
+   * Compute curve keys of vertices by id, vertices without a position go last
+   *
+   * @param vertices to compute keys for
+   * @param hilbert  when true Hilbert curve, otherwise Z-order curve
+   * @return keys by vertex id
+   */
+  private static long[] createCurveKeys(final Iterable<? extends Vertex> vertices, boolean hilbert) {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (var vertex : vertices) {
+      if (vertex.hasPosition()) {
+        minX = Math.min(minX, vertex.getPosition().getX());
+        minY = Math.min(minY, vertex.getPosition().getY());
+        maxX = Math.max(maxX, vertex.getPosition().getX());
+        maxY = Math.max(maxY, vertex.getPosition().getY());
+      }
+    }
+    double scaleX = maxX > minX ? (CURVE_CELLS - 1) / (maxX - minX) : 0;
+    double scaleY = maxY > minY ? (CURVE_CELLS - 1) / (maxY - minY) : 0;
+
+    var keys = new long[numberOfVertexIds(vertices)];
+    Arrays.fill(keys, Long.MAX_VALUE);
+    for (var vertex : vertices) {
+      if (vertex.hasPosition()) {
+        int x = (int) ((vertex.getPosition().getX() - minX) * scaleX);
+        int y = (int) ((vertex.getPosition().getY() - minY) * scaleY);
+        keys[(int) vertex.getId()] = hilbert ? computeHilbertIndex(x, y) : computeMortonIndex(x, y);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Position of a cell along the Hilbert curve covering a grid of 2^20 by 2^20 cells
+   *
+   * @param x cell column
+   * @param y cell row
+   * @return index along the curve
+   */
+  public static long computeHilbertIndex(int x, int y) {
+    long index = 0;
+    for (int cells = CURVE_CELLS >>> 1; cells > 0; cells >>>= 1) {
+      int rx = (x & cells) > 0 ? 1 : 0;
+      int ry = (y & cells) > 0 ? 1 : 0;
+      index += (long) cells * cells * ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = CURVE_CELLS - 1 - x;
+          y = CURVE_CELLS - 1 - y;
+        }
+        int swap = x;
+        x = y;
+        y = swap;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Position of a cell along the Z-order (Morton) curve, i.e., the interleaved bits of its column and row
+   *
+   * @param x cell column
+   * @param y cell row
+   * @return index along the curve
+   */
+  public static long computeMortonIndex(int x, int y) {
+    long index = 0;
+    for (int bit = 0; bit < CURVE_ORDER; ++bit) {
+      index |= ((long) (x >>> bit) & 1L) << (2 * bit);
+      index |= ((long) (y >>> bit) & 1L) << (2 * bit + 1);
+    }
+    return index;
+  }
+
+  /**
+   * Create an ordering of the vertices along the Hilbert curve of their positions
+   *
+   * @param vertices to order
+   * @return comparator to recreate the vertex ids with
+   */
+  public static Comparator<Vertex> createHilbertOrder(final Iterable<? extends Vertex> vertices) {
+    return createKeyOrder(createCurveKeys(vertices, true));
+  }
+
+  /**
+   * Create an ordering of the vertices along the Z-order curve of their positions
+   *
+   * @param vertices to order
+   * @return comparator to recreate the vertex ids with
+   */
+  public static Comparator<Vertex> createZOrder(final Iterable<? extends Vertex> vertices) {
+    return createKeyOrder(createCurveKeys(vertices, false));
+  }
+
+  /**
+   * Create a Cuthill-McKee ordering of the vertices: each connected component is traversed breadth first from its lowest degree vertex,
+   * visiting neighbours in order of increasing degree. Does not require positions
+   *
+   * @param vertices to order
+   * @return comparator to recreate the vertex ids with
+   */
+  public static Comparator<Vertex> createCuthillMcKeeOrder(final Iterable<? extends Vertex> vertices) {
+    var keys = new long[numberOfVertexIds(vertices)];
+    Arrays.fill(keys, -1);
+
+    var byDegree = new ArrayList<Vertex>();
+    vertices.forEach(byDegree::add);
+    final Comparator<Vertex> degreeOrder = Comparator.comparingInt(Vertex::getNumberOfEdges).thenComparingLong(Vertex::getId);
+    byDegree.sort(degreeOrder);
+
+    var queue = new Vertex[keys.length];
+    var neighbours = new ArrayList<Vertex>();
+    long nextKey = 0;
+    for (var start : byDegree) {
+      if (keys[(int) start.getId()] >= 0) {
+        continue;
+      }
+      int head = 0;
+      int tail = 0;
+      keys[(int) start.getId()] = nextKey++;
+      queue[tail++] = start;
+      while (head < tail) {
+        var vertex = queue[head++];
+        neighbours.clear();
+        for (var edge : vertex.getEdges()) {
+          var other = edge.getVertexA() == vertex ? edge.getVertexB() : edge.getVertexA();
+          if (other != null && other.getId() < keys.length && keys[(int) other.getId()] < 0) {
+            keys[(int) other.getId()] = Long.MAX_VALUE; // mark as queued, key assigned below in degree order
+            neighbours.add(other);
+          }
+        }
+        neighbours.sort(degreeOrder);
+        for (var neighbour : neighbours) {
+          keys[(int) neighbour.getId()] = nextKey++;
+          queue[tail++] = neighbour;
+        }
+      }
+    }
+    return createKeyOrder(keys);
+  }
+
+  /**
+   * Recreate the ids of a managed id container in the given order
+   *
+   * @param <E>       type of entity
+   * @param container to recreate ids for
+   * @param order     to assign ids in
+   */
+  @SuppressWarnings("unchecked")
+  private static <E extends ManagedId> void recreateIds(final Object container, final Comparator<? super E> order) {
+    ((ManagedIdEntities<E>) container).recreateIds(true, order);
+  }
+
+  /**
+   * Recreate the managed ids of the vertices, edges and edge segments of the graph in an order that improves locality: vertices in the
+   * given order, then edges and edge segments by their (renumbered) vertex ids. As with {@code GraphModifier.recreateManagedEntitiesIds()}
+   * this only applies when the graph's containers are the primary managed id containers, callers remain responsible for notifying any
+   * listeners of the recreated ids
+   *
+   * @param graph       to renumber
+   * @param vertexOrder to assign vertex ids in, e.g., {@link #createHilbertOrder(Iterable)}
+   * @return true when ids were recreated, false when the graph does not manage its entity ids
+   */
+  public static boolean recreateManagedIds(final UntypedDirectedGraph<?, ?, ?> graph, final Comparator<Vertex> vertexOrder) {
+    if (!(graph.getVertices() instanceof ManagedIdEntities) || !(graph.getEdges() instanceof ManagedIdEntities)
+        || !(graph.getEdgeSegments() instanceof ManagedIdEntities)) {
+      LOGGER.warning("Graph entities are not managed id containers, unable to recreate ids by locality");
+      return false;
+    }
+    recreateIds(graph.getVertices(), vertexOrder);
+    recreateIds(graph.getEdges(), EDGE_ORDER);
+    recreateIds(graph.getEdgeSegments(), EDGE_SEGMENT_ORDER);
+    return true;
+  }
+}
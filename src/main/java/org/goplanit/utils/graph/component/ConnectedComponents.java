@@ -0,0 +1,183 @@
+package org.goplanit.utils.graph.component;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Result of a connected component analysis: a component label per vertex id and the size of each component, all available up front so
+ * that selecting which components to remove requires no further graph exploration. Created by {@link ConnectedComponentsAnalysis}.
+ *
+ * @author markr
+ *
+ */
+public class ConnectedComponents {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ConnectedComponents.class.getCanonicalName());
+
+  /** component by vertex id, -1 for absent vertex ids */
+  private final int[] componentByVertexId;
+
+  /** number of vertices per component */
+  private final int[] componentSizes;
+
+  /** component with the most vertices, lowest label on a tie, -1 when there are no components */
+  private final int largestComponent;
+
+  /** offsets of each component in the grouped vertex ids, created on first use */
+  private int[] componentOffsets;
+
+  /** vertex ids grouped by component in ascending id order, created on first use */
+  private int[] groupedVertexIds;
+
+  /**
+   * Group the vertex ids by component
+   */
+  private void groupVertexIds() {
+    var offsets = new int[componentSizes.length + 1];
+    for (int component = 0; component < componentSizes.length; ++component) {
+      offsets[component + 1] = offsets[component] + componentSizes[component];
+    }
+    var next = Arrays.copyOf(offsets, componentSizes.length);
+    var grouped = new int[offsets[componentSizes.length]];
+    for (int vertexId = 0; vertexId < componentByVertexId.length; ++vertexId) {
+      if (componentByVertexId[vertexId] >= 0) {
+        grouped[next[componentByVertexId[vertexId]]++] = vertexId;
+      }
+    }
+    groupedVertexIds = grouped;
+    componentOffsets = offsets;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param componentByVertexId component by vertex id, -1 for absent vertex ids, labels contiguous from zero
+   * @param componentSizes      number of vertices per component
+   */
+  ConnectedComponents(final int[] componentByVertexId, final int[] componentSizes) {
+    this.componentByVertexId = componentByVertexId;
+    this.componentSizes = componentSizes;
+    int largest = -1;
+    for (int component = 0; component < componentSizes.length; ++component) {
+      if (largest < 0 || componentSizes[component] > componentSizes[largest]) {
+        largest = component;
+      }
+    }
+    this.largestComponent = largest;
+  }
+
+  /**
+   * Number of components
+   *
+   * @return number of components
+   */
+  public int getNumberOfComponents() {
+    return componentSizes.length;
+  }
+
+  /**
+   * Component of a vertex
+   *
+   * @param vertexId to collect for
+   * @return component, -1 when the vertex id is not present
+   */
+  public int getComponent(int vertexId) {
+    return vertexId >= 0 && vertexId < componentByVertexId.length ? componentByVertexId[vertexId] : -1;
+  }
+
+  /**
+   * Verify if two vertices are in the same component
+   *
+   * @param vertexId      first vertex
+   * @param otherVertexId second vertex
+   * @return true when both are present and in the same component
+   */
+  public boolean isConnected(int vertexId, int otherVertexId) {
+    int component = getComponent(vertexId);
+    return component >= 0 && component == getComponent(otherVertexId);
+  }
+
+  /**
+   * Number of vertices in a component
+   *
+   * @param component to collect for
+   * @return number of vertices
+   */
+  public int getSize(int component) {
+    return componentSizes[component];
+  }
+
+  /**
+   * Number of vertices per component, not to be modified
+   *
+   * @return sizes by component
+   */
+  public int[] getComponentSizes() {
+    return componentSizes;
+  }
+
+  /**
+   * Component with the most vertices, the lowest label on a tie
+   *
+   * @return largest component, -1 when there are no components
+   */
+  public int getLargestComponent() {
+    return largestComponent;
+  }
+
+  /**
+   * Vertex ids of a component in ascending order
+   *
+   * @param component to collect for
+   * @return vertex ids
+   */
+  public int[] getVertexIds(int component) {
+    if (groupedVertexIds == null) {
+      groupVertexIds();
+    }
+    return Arrays.copyOfRange(groupedVertexIds, componentOffsets[component], componentOffsets[component + 1]);
+  }
+
+  /**
+   * Verify if a component qualifies as dangling under the same criteria as {@code GraphModifier.removeDanglingSubGraphs}
+   *
+   * @param component         to verify
+   * @param belowSize         components below this size are dangling
+   * @param aboveSize         components above this size are dangling
+   * @param alwaysKeepLargest when true the largest component is never dangling
+   * @return true when dangling
+   */
+  public boolean isDangling(int component, int belowSize, int aboveSize, boolean alwaysKeepLargest) {
+    if (alwaysKeepLargest && component == largestComponent) {
+      return false;
+    }
+    return componentSizes[component] < belowSize || componentSizes[component] > aboveSize;
+  }
+
+  /**
+   * Collect the vertex ids of all dangling components in a single pass, see {@link #isDangling(int, int, int, boolean)}
+   *
+   * @param belowSize         components below this size are dangling
+   * @param aboveSize         components above this size are dangling
+   * @param alwaysKeepLargest when true the largest component is always kept
+   * @return vertex ids to remove in ascending order
+   */
+  public int[] collectDanglingVertexIds(int belowSize, int aboveSize, boolean alwaysKeepLargest) {
+    var dangling = new boolean[componentSizes.length];
+    int numberOfVertices = 0;
+    for (int component = 0; component < componentSizes.length; ++component) {
+      dangling[component] = isDangling(component, belowSize, aboveSize, alwaysKeepLargest);
+      numberOfVertices += dangling[component] ? componentSizes[component] : 0;
+    }
+    var vertexIds = new int[numberOfVertices];
+    int count = 0;
+    for (int vertexId = 0; vertexId < componentByVertexId.length; ++vertexId) {
+      if (componentByVertexId[vertexId] >= 0 && dangling[componentByVertexId[vertexId]]) {
+        vertexIds[count++] = vertexId;
+      }
+    }
+    return vertexIds;
+  }
+}
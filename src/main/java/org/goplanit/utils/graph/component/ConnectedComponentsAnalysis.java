@@ -0,0 +1,302 @@
+package org.goplanit.utils.graph.component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.Edge;
+import org.goplanit.utils.graph.UntypedGraph;
+import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+
+/**
+ * Computes weakly and strongly connected components over primitive arrays in linear time, so that, for example, removing dangling sub
+ * graphs requires a single pass rather than exploring the sub graph of each vertex in turn.
+ * <p>
+ * Weak components use union-find with path halving where each root is the lowest vertex id of its component, which makes the labels
+ * deterministic: components are labelled in order of their lowest vertex id regardless of whether the parallel variant was used. The
+ * parallel variant performs the unions lock free. Strong components use an iterative Tarjan search on a {@link DirectedGraphStar}, labelled
+ * in order of completion, i.e., reverse topological order of the condensed graph.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ConnectedComponentsAnalysis {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ConnectedComponentsAnalysis.class.getCanonicalName());
+
+  /**
+   * Find the root of a vertex, halving the path on the way
+   *
+   * @param parents parent by vertex id
+   * @param vertex  to find root for
+   * @return root
+   */
+  private static int find(final int[] parents, int vertex) {
+    while (parents[vertex] != vertex) {
+      parents[vertex] = parents[parents[vertex]];
+      vertex = parents[vertex];
+    }
+    return vertex;
+  }
+
+  /**
+   * Find the root of a vertex, halving the path on the way, safe for concurrent use
+   *
+   * @param parents parent by vertex id
+   * @param vertex  to find root for
+   * @return root
+   */
+  private static int find(final AtomicIntegerArray parents, int vertex) {
+    int parent;
+    while ((parent = parents.get(vertex)) != vertex) {
+      int grandParent = parents.get(parent);
+      if (grandParent != parent) {
+        parents.compareAndSet(vertex, parent, grandParent);
+      }
+      vertex = grandParent;
+    }
+    return vertex;
+  }
+
+  /**
+   * Join the components of two vertices, the higher root is linked to the lower root, safe for concurrent use
+   *
+   * @param parents parent by vertex id
+   * @param vertexA first vertex
+   * @param vertexB second vertex
+   */
+  private static void union(final AtomicIntegerArray parents, int vertexA, int vertexB) {
+    while (true) {
+      int rootA = find(parents, vertexA);
+      int rootB = find(parents, vertexB);
+      if (rootA == rootB) {
+        return;
+      }
+      if (rootA < rootB) {
+        int swap = rootA;
+        rootA = rootB;
+        rootB = swap;
+      }
+      if (parents.compareAndSet(rootA, rootA, rootB)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Label components given the root of each present vertex, where each root is the lowest vertex id of its component
+   *
+   * @param roots root by vertex id, -1 for absent vertex ids, replaced by the component label
+   * @return components
+   */
+  private static ConnectedComponents label(final int[] roots) {
+    int numberOfComponents = 0;
+    for (int vertexId = 0; vertexId < roots.length; ++vertexId) {
+      if (roots[vertexId] == vertexId) {
+        roots[vertexId] = numberOfComponents++;
+      } else if (roots[vertexId] >= 0) {
+        /* root is lower and therefore already replaced by its label */
+        roots[vertexId] = roots[roots[vertexId]];
+      }
+    }
+    var sizes = new int[numberOfComponents];
+    for (int component : roots) {
+      if (component >= 0) {
+        ++sizes[component];
+      }
+    }
+    return new ConnectedComponents(roots, sizes);
+  }
+
+  /**
+   * Convert id to index
+   *
+   * @param id to convert
+   * @return index
+   */
+  private static int toIndex(long id) {
+    if (id < 0 || id >= Integer.MAX_VALUE) {
+      throw new PlanItRunTimeException("Vertex id %d not supported by connected component analysis", id);
+    }
+    return (int) id;
+  }
+
+  /**
+   * Verify an endpoint is either absent (-1) or a present vertex id
+   *
+   * @param presentVertices whether each vertex id is present
+   * @param vertexId        endpoint to verify
+   * @return true when valid
+   */
+  private static boolean isPresent(final boolean[] presentVertices, int vertexId) {
+    return vertexId < 0 || (vertexId < presentVertices.length && presentVertices[vertexId]);
+  }
+
+  /**
+   * Compute weakly connected components, i.e., ignoring direction
+   *
+   * @param presentVertices  whether each vertex id is present
+   * @param endpointsA       first vertex id of each connection
+   * @param endpointsB       second vertex id of each connection, -1 entries in either are ignored, others must be present
+   * @param numberOfEndpoints number of connections in the endpoint arrays
+   * @param parallel         when true unions and root finding are executed in parallel on the common fork-join pool, labelling is sequential
+   * @return components
+   */
+  public static ConnectedComponents computeWeak(final boolean[] presentVertices, final int[] endpointsA, final int[] endpointsB,
+      int numberOfEndpoints, boolean parallel) {
+    final int numberOfVertexIds = presentVertices.length;
+    final int[] roots = new int[numberOfVertexIds];
+    if (parallel) {
+      var parents = new AtomicIntegerArray(numberOfVertexIds);
+      IntStream.range(0, numberOfVertexIds).parallel().forEach(vertexId -> parents.set(vertexId, vertexId));
+      IntStream.range(0, numberOfEndpoints).parallel().filter(index -> endpointsA[index] >= 0 && endpointsB[index] >= 0)
+          .forEach(index -> union(parents, endpointsA[index], endpointsB[index]));
+      IntStream.range(0, numberOfVertexIds).parallel()
+          .forEach(vertexId -> roots[vertexId] = presentVertices[vertexId] ? find(parents, vertexId) : -1);
+    } else {
+      var parents = new int[numberOfVertexIds];
+      for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+        parents[vertexId] = vertexId;
+      }
+      for (int index = 0; index < numberOfEndpoints; ++index) {
+        if (endpointsA[index] < 0 || endpointsB[index] < 0) {
+          continue;
+        }
+        int rootA = find(parents, endpointsA[index]);
+        int rootB = find(parents, endpointsB[index]);
+        if (rootA != rootB) {
+          parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+      }
+      for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+        roots[vertexId] = presentVertices[vertexId] ? find(parents, vertexId) : -1;
+      }
+    }
+    return label(roots);
+  }
+
+  /**
+   * Compute weakly connected components of a graph by the ids of its vertices
+   *
+   * @param graph    to analyse
+   * @param parallel when true unions and root finding are executed in parallel on the common fork-join pool
+   * @return components
+   */
+  public static ConnectedComponents computeWeak(final UntypedGraph<? extends Vertex, ? extends Edge> graph, boolean parallel) {
+    int numberOfVertexIds = 0;
+    for (var vertex : graph.getVertices()) {
+      numberOfVertexIds = Math.max(numberOfVertexIds, toIndex(vertex.getId()) + 1);
+    }
+    var presentVertices = new boolean[numberOfVertexIds];
+    for (var vertex : graph.getVertices()) {
+      presentVertices[(int) vertex.getId()] = true;
+    }
+
+    var endpointsA = new int[graph.getEdges().size()];
+    var endpointsB = new int[endpointsA.length];
+    int numberOfEndpoints = 0;
+    for (var edge : graph.getEdges()) {
+      endpointsA[numberOfEndpoints] = edge.getVertexA() != null ? toIndex(edge.getVertexA().getId()) : -1;
+      endpointsB[numberOfEndpoints] = edge.getVertexB() != null ? toIndex(edge.getVertexB().getId()) : -1;
+      if (!isPresent(presentVertices, endpointsA[numberOfEndpoints]) || !isPresent(presentVertices, endpointsB[numberOfEndpoints])) {
+        throw new PlanItRunTimeException("Edge %d connects to vertex not registered on graph, unable to compute connected components", edge.getId());
+      }
+      ++numberOfEndpoints;
+    }
+    return computeWeak(presentVertices, endpointsA, endpointsB, numberOfEndpoints, parallel);
+  }
+
+  /**
+   * Compute weakly connected components of a directed graph snapshot
+   *
+   * @param graphStar to analyse
+   * @param parallel  when true unions and root finding are executed in parallel on the common fork-join pool
+   * @return components
+   */
+  public static ConnectedComponents computeWeak(final DirectedGraphStar graphStar, boolean parallel) {
+    var presentVertices = new boolean[graphStar.getNumberOfVertexIds()];
+    for (int vertexId = 0; vertexId < presentVertices.length; ++vertexId) {
+      presentVertices[vertexId] = graphStar.hasVertex(vertexId);
+    }
+    return computeWeak(presentVertices, graphStar.getUpstreamVertexIds(), graphStar.getDownstreamVertexIds(),
+        graphStar.getNumberOfEdgeSegmentIds(), parallel);
+  }
+
+  /**
+   * Compute strongly connected components of a directed graph snapshot with an iterative Tarjan search, so arbitrarily long paths do not
+   * exhaust the call stack
+   *
+   * @param graphStar to analyse
+   * @return components, labelled in reverse topological order of the condensed graph
+   */
+  public static ConnectedComponents computeStrong(final DirectedGraphStar graphStar) {
+    final int numberOfVertexIds = graphStar.getNumberOfVertexIds();
+    final int[] offsets = graphStar.getForwardOffsets();
+    final int[] heads = graphStar.getForwardHeads();
+
+    /* discovery index per vertex, 0 when not yet discovered, -1 once assigned to a component */
+    final int[] discovery = new int[numberOfVertexIds];
+    final int[] lowLinks = new int[numberOfVertexIds];
+    final int[] components = new int[numberOfVertexIds];
+    final int[] tarjanStack = new int[numberOfVertexIds];
+    final int[] callStack = new int[numberOfVertexIds];
+    final int[] nextArc = new int[numberOfVertexIds];
+    var sizes = new int[Math.max(1, numberOfVertexIds)];
+    int tarjanSize = 0;
+    int numberOfComponents = 0;
+    int nextDiscovery = 1;
+
+    for (int start = 0; start < numberOfVertexIds; ++start) {
+      components[start] = -1;
+    }
+    for (int start = 0; start < numberOfVertexIds; ++start) {
+      if (discovery[start] != 0 || !graphStar.hasVertex(start)) {
+        continue;
+      }
+      int callSize = 0;
+      callStack[callSize++] = start;
+      discovery[start] = lowLinks[start] = nextDiscovery++;
+      nextArc[start] = offsets[start];
+      tarjanStack[tarjanSize++] = start;
+
+      while (callSize > 0) {
+        int vertex = callStack[callSize - 1];
+        if (nextArc[vertex] < offsets[vertex + 1]) {
+          int head = heads[nextArc[vertex]++];
+          if (discovery[head] == 0) {
+            discovery[head] = lowLinks[head] = nextDiscovery++;
+            nextArc[head] = offsets[head];
+            tarjanStack[tarjanSize++] = head;
+            callStack[callSize++] = head;
+          } else if (discovery[head] > 0) {
+            lowLinks[vertex] = Math.min(lowLinks[vertex], discovery[head]);
+          }
+          continue;
+        }
+
+        --callSize;
+        if (callSize > 0) {
+          int parent = callStack[callSize - 1];
+          lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[vertex]);
+        }
+        if (lowLinks[vertex] == discovery[vertex]) {
+          int member;
+          do {
+            member = tarjanStack[--tarjanSize];
+            discovery[member] = -1;
+            components[member] = numberOfComponents;
+            ++sizes[numberOfComponents];
+          } while (member != vertex);
+          ++numberOfComponents;
+        }
+      }
+    }
+    return new ConnectedComponents(components, Arrays.copyOf(sizes, numberOfComponents));
+  }
+}
@@ -0,0 +1,339 @@
+package org.goplanit.utils.graph.directed;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdAbleImpl;
+import org.goplanit.utils.id.IdGroupingToken;
+
+/**
+ * Compact directed sub graph that registers its edge segments as bits keyed by edge segment id and keeps the number of entry and exit sub
+ * graph edge segments per vertex up to date as edge segments are added and removed. Vertex and edge segment ids are resolved via a
+ * {@link DirectedGraphStar} of the parent graph which can be shared by any number of sub graphs, so each sub graph only holds one bit per
+ * parent edge segment and two shorts per parent vertex, and membership and degree lookups are constant time without hashing.
+ * <p>
+ * Edge segments must be present in the shared index, i.e., the parent graph is not to be modified while its sub graphs are in use.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <V> vertex type
+ * @param <E> edge segment type
+ */
+public class BitSetDirectedSubGraph<V extends DirectedVertex, E extends EdgeSegment> extends IdAbleImpl implements DirectedSubGraph<V, E> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(BitSetDirectedSubGraph.class.getCanonicalName());
+
+  /** shared index of the parent graph */
+  private final DirectedGraphStar parentIndex;
+
+  /** membership bits by edge segment id */
+  private final long[] edgeSegmentBits;
+
+  /** number of exit sub graph edge segments by vertex id */
+  private final short[] outDegrees;
+
+  /** number of entry sub graph edge segments by vertex id */
+  private final short[] inDegrees;
+
+  /** number of registered edge segments */
+  private int numberOfEdgeSegments;
+
+  /** number of vertices with at least one registered edge segment */
+  private int numberOfVertices;
+
+  /**
+   * Verify the degrees of the parent graph fit the per vertex counters
+   *
+   * @param parentIndex to verify
+   */
+  private static void validateDegrees(final DirectedGraphStar parentIndex) {
+    for (int vertexId = 0; vertexId < parentIndex.getNumberOfVertexIds(); ++vertexId) {
+      if (parentIndex.getOutDegree(vertexId) > Short.MAX_VALUE || parentIndex.getInDegree(vertexId) > Short.MAX_VALUE) {
+        throw new PlanItRunTimeException("Vertex %d has more than %d entry or exit edge segments, not supported by bit set sub graph", vertexId,
+            Short.MAX_VALUE);
+      }
+    }
+  }
+
+  /**
+   * Verify the edge segment id is part of the parent index
+   *
+   * @param edgeSegmentId to verify
+   */
+  private void validateEdgeSegmentId(long edgeSegmentId) {
+    if (edgeSegmentId < 0 || edgeSegmentId >= parentIndex.getNumberOfEdgeSegmentIds() || !parentIndex.hasEdgeSegment((int) edgeSegmentId)) {
+      throw new PlanItRunTimeException("Edge segment %d not present in parent graph index of sub graph %d", edgeSegmentId, getId());
+    }
+  }
+
+  /**
+   * Collect the edge segment id and verify it is part of the parent index
+   *
+   * @param edgeSegment to collect for
+   * @return edge segment id
+   */
+  private int toEdgeSegmentId(final E edgeSegment) {
+    long id = edgeSegment.getId();
+    validateEdgeSegmentId(id);
+    return (int) id;
+  }
+
+  /**
+   * Update the vertex count when a vertex gains or loses its last registered edge segment
+   *
+   * @param vertexId         to update for
+   * @param previouslyActive whether the vertex had registered edge segments before the change
+   */
+  private void updateVertexCount(int vertexId, boolean previouslyActive) {
+    boolean active = outDegrees[vertexId] > 0 || inDegrees[vertexId] > 0;
+    if (active != previouslyActive) {
+      numberOfVertices += active ? 1 : -1;
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param groupId     to generate id with
+   * @param parentIndex shared index of the parent graph
+   */
+  public BitSetDirectedSubGraph(final IdGroupingToken groupId, final DirectedGraphStar parentIndex) {
+    super(generateId(groupId, BitSetDirectedSubGraph.class));
+    validateDegrees(parentIndex);
+    this.parentIndex = parentIndex;
+    this.edgeSegmentBits = new long[(parentIndex.getNumberOfEdgeSegmentIds() + 63) >>> 6];
+    this.outDegrees = new short[parentIndex.getNumberOfVertexIds()];
+    this.inDegrees = new short[parentIndex.getNumberOfVertexIds()];
+    this.numberOfEdgeSegments = 0;
+    this.numberOfVertices = 0;
+  }
+
+  /**
+   * Copy constructor, the parent index remains shared
+   *
+   * @param other to copy
+   */
+  public BitSetDirectedSubGraph(final BitSetDirectedSubGraph<V, E> other) {
+    super(other);
+    this.parentIndex = other.parentIndex;
+    this.edgeSegmentBits = other.edgeSegmentBits.clone();
+    this.outDegrees = other.outDegrees.clone();
+    this.inDegrees = other.inDegrees.clone();
+    this.numberOfEdgeSegments = other.numberOfEdgeSegments;
+    this.numberOfVertices = other.numberOfVertices;
+  }
+
+  /**
+   * Register an edge segment by its id, the id must be present in the parent index
+   *
+   * @param edgeSegmentId to add
+   * @return true when added, false when already present
+   */
+  public boolean addEdgeSegment(int edgeSegmentId) {
+    validateEdgeSegmentId(edgeSegmentId);
+    final long mask = 1L << edgeSegmentId;
+    final int word = edgeSegmentId >>> 6;
+    if ((edgeSegmentBits[word] & mask) != 0) {
+      return false;
+    }
+    edgeSegmentBits[word] |= mask;
+    ++numberOfEdgeSegments;
+
+    int tail = parentIndex.getUpstreamVertexId(edgeSegmentId);
+    boolean tailActive = outDegrees[tail] > 0 || inDegrees[tail] > 0;
+    ++outDegrees[tail];
+    updateVertexCount(tail, tailActive);
+    int head = parentIndex.getDownstreamVertexId(edgeSegmentId);
+    boolean headActive = outDegrees[head] > 0 || inDegrees[head] > 0;
+    ++inDegrees[head];
+    updateVertexCount(head, headActive);
+    return true;
+  }
+
+  /**
+   * Remove an edge segment by its id
+   *
+   * @param edgeSegmentId to remove
+   * @return true when removed, false when not present
+   */
+  public boolean removeEdgeSegment(int edgeSegmentId) {
+    if (!containsEdgeSegment(edgeSegmentId)) {
+      return false;
+    }
+    final long mask = 1L << edgeSegmentId;
+    final int word = edgeSegmentId >>> 6;
+    edgeSegmentBits[word] &= ~mask;
+    --numberOfEdgeSegments;
+
+    int tail = parentIndex.getUpstreamVertexId(edgeSegmentId);
+    --outDegrees[tail];
+    updateVertexCount(tail, true);
+    int head = parentIndex.getDownstreamVertexId(edgeSegmentId);
+    --inDegrees[head];
+    updateVertexCount(head, true);
+    return true;
+  }
+
+  /**
+   * Verify if an edge segment id is registered
+   *
+   * @param edgeSegmentId to verify
+   * @return true when registered, false otherwise
+   */
+  public boolean containsEdgeSegment(int edgeSegmentId) {
+    return edgeSegmentId >= 0 && (edgeSegmentId >>> 6) < edgeSegmentBits.length
+        && (edgeSegmentBits[edgeSegmentId >>> 6] & (1L << edgeSegmentId)) != 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addEdgeSegment(final E edgeSegment) {
+    addEdgeSegment(toEdgeSegmentId(edgeSegment));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeEdgeSegment(final E edgeSegment) {
+    removeEdgeSegment(toEdgeSegmentId(edgeSegment));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsEdgeSegment(final E edgeSegment) {
+    long id = edgeSegment.getId();
+    return id < Integer.MAX_VALUE && containsEdgeSegment((int) id);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getNumberOfVertices() {
+    return numberOfVertices;
+  }
+
+  /**
+   * Number of registered edge segments
+   *
+   * @return number of edge segments
+   */
+  public int getNumberOfEdgeSegments() {
+    return numberOfEdgeSegments;
+  }
+
+  /**
+   * Collect the number of exit or entry sub graph edge segments of a vertex by its id
+   *
+   * @param vertexId     to collect for
+   * @param exitSegments when true exit segments, when false entry segments
+   * @return number of sub graph entry or exit edge segments
+   */
+  public int getNumberOfEdgeSegments(int vertexId, boolean exitSegments) {
+    if (vertexId < 0 || vertexId >= outDegrees.length) {
+      return 0;
+    }
+    return exitSegments ? outDegrees[vertexId] : inDegrees[vertexId];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumberOfEdgeSegments(final V vertex, boolean exitSegments) {
+    long id = vertex.getId();
+    return id < Integer.MAX_VALUE ? getNumberOfEdgeSegments((int) id, exitSegments) : 0;
+  }
+
+  /**
+   * Verify if a vertex has at least one registered entry or exit edge segment
+   *
+   * @param vertexId to verify
+   * @return true when part of the sub graph, false otherwise
+   */
+  public boolean containsVertex(int vertexId) {
+    return getNumberOfEdgeSegments(vertexId, true) > 0 || getNumberOfEdgeSegments(vertexId, false) > 0;
+  }
+
+  /**
+   * Find the first registered edge segment id at or after the given id, in the same way as {@link java.util.BitSet#nextSetBit(int)}
+   *
+   * @param fromEdgeSegmentId to start from (inclusive)
+   * @return registered edge segment id, -1 when none
+   */
+  public int nextEdgeSegmentId(int fromEdgeSegmentId) {
+    int word = fromEdgeSegmentId >>> 6;
+    if (fromEdgeSegmentId < 0 || word >= edgeSegmentBits.length) {
+      return -1;
+    }
+    long bits = edgeSegmentBits[word] & (-1L << fromEdgeSegmentId);
+    while (bits == 0) {
+      if (++word == edgeSegmentBits.length) {
+        return -1;
+      }
+      bits = edgeSegmentBits[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Apply the consumer to each registered edge segment id in ascending order
+   *
+   * @param consumer to apply
+   */
+  public void forEachEdgeSegmentId(final IntConsumer consumer) {
+    for (int word = 0; word < edgeSegmentBits.length; ++word) {
+      long bits = edgeSegmentBits[word];
+      while (bits != 0) {
+        consumer.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1;
+      }
+    }
+  }
+
+  /**
+   * Shared index of the parent graph
+   *
+   * @return parent index
+   */
+  public DirectedGraphStar getParentIndex() {
+    return parentIndex;
+  }
+
+  /**
+   * Remove all registered edge segments
+   */
+  public void clear() {
+    Arrays.fill(edgeSegmentBits, 0);
+    Arrays.fill(outDegrees, (short) 0);
+    Arrays.fill(inDegrees, (short) 0);
+    numberOfEdgeSegments = 0;
+    numberOfVertices = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public BitSetDirectedSubGraph<V, E> shallowClone() {
+    return new BitSetDirectedSubGraph<>(this);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public BitSetDirectedSubGraph<V, E> deepClone() {
+    return shallowClone(); // same as shallow clone, state is primitive and the parent index is shared by design
+  }
+}
@@ -0,0 +1,276 @@
+package org.goplanit.utils.graph.directed;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Implicit conjugate (turn based) view of a directed graph derived on the fly from a {@link DirectedGraphStar}, without materialising
+ * conjugate vertices, edges and edge segments. Each edge segment of the original graph is a conjugate vertex, identified by its edge segment
+ * id, and each turn from an entry edge segment to an exit edge segment of the same vertex is a conjugate arc, identified by a turn id.
+ * <p>
+ * Turn ids of an entry edge segment are contiguous and follow the order of the exit edge segments in the forward star of its downstream
+ * vertex, so the only memory required is one offset per edge segment id. Turn costs and turn bans are optional and only allocated once the
+ * first cost or ban is registered, by default turns are free and allowed, including u-turns.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ConjugateGraphView {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ConjugateGraphView.class.getCanonicalName());
+
+  /** original graph */
+  private final DirectedGraphStar graphStar;
+
+  /** first turn id by entry edge segment id, with a trailing entry holding the number of turns */
+  private final int[] turnOffsets;
+
+  /** cost per turn id, null when all turns are free */
+  private double[] turnCosts;
+
+  /** banned turn ids as bits, null when no turn is banned */
+  private long[] bannedTurns;
+
+  /**
+   * Verify turn id is valid
+   *
+   * @param turnId to verify
+   */
+  private void validateTurn(int turnId) {
+    if (turnId < 0 || turnId >= getNumberOfTurns()) {
+      throw new PlanItRunTimeException("Turn %d outside of conjugate graph view with %d turns", turnId, getNumberOfTurns());
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param graphStar original graph to derive conjugate view from
+   */
+  public ConjugateGraphView(final DirectedGraphStar graphStar) {
+    this.graphStar = graphStar;
+    int numberOfEdgeSegmentIds = graphStar.getNumberOfEdgeSegmentIds();
+    this.turnOffsets = new int[numberOfEdgeSegmentIds + 1];
+    long numberOfTurns = 0;
+    for (int edgeSegmentId = 0; edgeSegmentId < numberOfEdgeSegmentIds; ++edgeSegmentId) {
+      turnOffsets[edgeSegmentId] = (int) numberOfTurns;
+      if (graphStar.hasEdgeSegment(edgeSegmentId)) {
+        numberOfTurns += graphStar.getOutDegree(graphStar.getDownstreamVertexId(edgeSegmentId));
+      }
+      if (numberOfTurns > Integer.MAX_VALUE) {
+        throw new PlanItRunTimeException("Number of turns exceeds %d, not supported by conjugate graph view", Integer.MAX_VALUE);
+      }
+    }
+    turnOffsets[numberOfEdgeSegmentIds] = (int) numberOfTurns;
+  }
+
+  /**
+   * Original graph
+   *
+   * @return graph star
+   */
+  public DirectedGraphStar getGraphStar() {
+    return graphStar;
+  }
+
+  /**
+   * Number of conjugate vertex ids, i.e., the number of original edge segment ids
+   *
+   * @return number of conjugate vertex ids
+   */
+  public int getNumberOfConjugateVertexIds() {
+    return turnOffsets.length - 1;
+  }
+
+  /**
+   * Number of turns, i.e., conjugate arcs
+   *
+   * @return number of turns
+   */
+  public int getNumberOfTurns() {
+    return turnOffsets[turnOffsets.length - 1];
+  }
+
+  /**
+   * First turn id of an entry edge segment
+   *
+   * @param entryEdgeSegmentId to collect for
+   * @return first turn id
+   */
+  public int getFirstTurn(int entryEdgeSegmentId) {
+    return turnOffsets[entryEdgeSegmentId];
+  }
+
+  /**
+   * Turn id after the last turn of an entry edge segment
+   *
+   * @param entryEdgeSegmentId to collect for
+   * @return end turn id (exclusive)
+   */
+  public int getEndTurn(int entryEdgeSegmentId) {
+    return turnOffsets[entryEdgeSegmentId + 1];
+  }
+
+  /**
+   * Exit edge segment of a turn
+   *
+   * @param entryEdgeSegmentId entry edge segment of the turn
+   * @param turnId             turn of the entry edge segment
+   * @return exit edge segment id
+   */
+  public int getExitEdgeSegmentId(int entryEdgeSegmentId, int turnId) {
+    int vertexId = graphStar.getDownstreamVertexId(entryEdgeSegmentId);
+    return graphStar.getForwardEdgeSegments()[graphStar.getForwardOffsets()[vertexId] + turnId - turnOffsets[entryEdgeSegmentId]];
+  }
+
+  /**
+   * Turn between two edge segments
+   *
+   * @param entryEdgeSegmentId entry edge segment
+   * @param exitEdgeSegmentId  exit edge segment
+   * @return turn id, -1 when the edge segments are not adjacent
+   */
+  public int getTurnId(int entryEdgeSegmentId, int exitEdgeSegmentId) {
+    for (int turnId = getFirstTurn(entryEdgeSegmentId); turnId < getEndTurn(entryEdgeSegmentId); ++turnId) {
+      if (getExitEdgeSegmentId(entryEdgeSegmentId, turnId) == exitEdgeSegmentId) {
+        return turnId;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Cost of a turn
+   *
+   * @param turnId to collect for
+   * @return cost, zero unless registered otherwise
+   */
+  public double getTurnCost(int turnId) {
+    return turnCosts == null ? 0 : turnCosts[turnId];
+  }
+
+  /**
+   * Register the cost of a turn
+   *
+   * @param turnId to register for
+   * @param cost   of the turn, positive infinity makes the turn unavailable
+   */
+  public void setTurnCost(int turnId, double cost) {
+    validateTurn(turnId);
+    if (turnCosts == null) {
+      turnCosts = new double[getNumberOfTurns()];
+    }
+    turnCosts[turnId] = cost;
+  }
+
+  /**
+   * Register the cost of all turns at once
+   *
+   * @param costs by turn id, null to make all turns free
+   */
+  public void setTurnCosts(final double[] costs) {
+    if (costs != null && costs.length != getNumberOfTurns()) {
+      throw new PlanItRunTimeException("Turn costs cover %d turns, expected %d", costs.length, getNumberOfTurns());
+    }
+    this.turnCosts = costs;
+  }
+
+  /**
+   * Ban a turn
+   *
+   * @param turnId to ban
+   */
+  public void banTurn(int turnId) {
+    validateTurn(turnId);
+    if (bannedTurns == null) {
+      bannedTurns = new long[(getNumberOfTurns() + 63) >>> 6];
+    }
+    bannedTurns[turnId >>> 6] |= 1L << turnId;
+  }
+
+  /**
+   * Lift the ban on a turn
+   *
+   * @param turnId to allow
+   */
+  public void allowTurn(int turnId) {
+    validateTurn(turnId);
+    if (bannedTurns != null) {
+      bannedTurns[turnId >>> 6] &= ~(1L << turnId);
+    }
+  }
+
+  /**
+   * Verify if a turn is banned
+   *
+   * @param turnId to verify
+   * @return true when banned
+   */
+  public boolean isBanned(int turnId) {
+    return bannedTurns != null && (bannedTurns[turnId >>> 6] & (1L << turnId)) != 0;
+  }
+
+  /**
+   * Verify if a turn can be used, i.e., it is not banned and its cost is finite
+   *
+   * @param turnId to verify
+   * @return true when available
+   */
+  public boolean isAvailable(int turnId) {
+    return !isBanned(turnId) && getTurnCost(turnId) != Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Ban all u-turns, i.e., turns where the exit edge segment shares its parent edge with the entry edge segment
+   *
+   * @return number of u-turns banned
+   */
+  public int banUTurns() {
+    int numberOfBanned = 0;
+    for (int entryEdgeSegmentId = 0; entryEdgeSegmentId < getNumberOfConjugateVertexIds(); ++entryEdgeSegmentId) {
+      var entryEdgeSegment = graphStar.getEdgeSegment(entryEdgeSegmentId);
+      if (entryEdgeSegment == null || entryEdgeSegment.getParent() == null) {
+        continue;
+      }
+      for (int turnId = getFirstTurn(entryEdgeSegmentId); turnId < getEndTurn(entryEdgeSegmentId); ++turnId) {
+        var exitEdgeSegment = graphStar.getEdgeSegment(getExitEdgeSegmentId(entryEdgeSegmentId, turnId));
+        if (exitEdgeSegment.getParent() == entryEdgeSegment.getParent() && !isBanned(turnId)) {
+          banTurn(turnId);
+          ++numberOfBanned;
+        }
+      }
+    }
+    return numberOfBanned;
+  }
+
+  /**
+   * Remove all turn costs and bans
+   */
+  public void reset() {
+    turnCosts = null;
+    bannedTurns = null;
+  }
+
+  /**
+   * Turn offsets by entry edge segment id, with a trailing entry holding the number of turns, not to be modified
+   *
+   * @return turn offsets
+   */
+  public int[] getTurnOffsets() {
+    return turnOffsets;
+  }
+
+  /**
+   * Create a copy of the registered turn costs
+   *
+   * @return turn costs by turn id, all zero when none registered
+   */
+  public double[] createTurnCosts() {
+    return turnCosts == null ? new double[getNumberOfTurns()] : Arrays.copyOf(turnCosts, turnCosts.length);
+  }
+}
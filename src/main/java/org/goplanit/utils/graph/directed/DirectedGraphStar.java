@@ -0,0 +1,390 @@
+package org.goplanit.utils.graph.directed;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.UntypedDirectedGraph;
+
+/**
+ * Frozen compressed sparse row snapshot of the topology of a directed graph, i.e., its forward star and backward star as primitive arrays,
+ * for traversal loops that would otherwise go through the vertex and edge segment objects for every arc.
+ * <p>
+ * Vertices and edge segments are indexed by their id. The exit edge segments of vertex {@code v} are found at positions
+ * {@code forwardOffsets[v]} (inclusive) up to {@code forwardOffsets[v+1]} (exclusive) of {@link #getForwardEdgeSegments()}, with the
+ * downstream vertex of each at the same position in {@link #getForwardHeads()}. The backward star is organised likewise for entry edge
+ * segments and their upstream vertices. Within a vertex, edge segments are ordered by ascending id so the snapshot is deterministic. The
+ * original objects remain available via {@link #getVertex(int)} and {@link #getEdgeSegment(int)}.
+ * </p>
+ * <p>
+ * Ids need not be contiguous, array sizes are based on the largest id present, ids without a vertex or edge segment are simply empty.
+ * The snapshot does not track changes to the graph, create a new one after modifying it. Arrays are exposed directly for performance and
+ * must not be modified.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class DirectedGraphStar {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(DirectedGraphStar.class.getCanonicalName());
+
+  /** vertices by id, null for ids without vertex */
+  private final DirectedVertex[] vertices;
+
+  /** edge segments by id, null for ids without edge segment */
+  private final EdgeSegment[] edgeSegments;
+
+  /** upstream vertex id by edge segment id, -1 for ids without edge segment */
+  private final int[] segmentTails;
+
+  /** downstream vertex id by edge segment id, -1 for ids without edge segment */
+  private final int[] segmentHeads;
+
+  /** offsets into the forward star by vertex id, one more entry than vertex ids */
+  private final int[] forwardOffsets;
+
+  /** exit edge segment ids grouped by upstream vertex */
+  private final int[] forwardEdgeSegments;
+
+  /** downstream vertex ids parallel to the forward edge segments */
+  private final int[] forwardHeads;
+
+  /** offsets into the backward star by vertex id, one more entry than vertex ids */
+  private final int[] backwardOffsets;
+
+  /** entry edge segment ids grouped by downstream vertex */
+  private final int[] backwardEdgeSegments;
+
+  /** upstream vertex ids parallel to the backward edge segments */
+  private final int[] backwardTails;
+
+  /** number of edge segments in the snapshot */
+  private final int numberOfEdgeSegments;
+
+  /**
+   * Convert id to array index
+   *
+   * @param id     to convert
+   * @param entity for logging
+   * @return index
+   */
+  private static int toIndex(long id, Object entity) {
+    if (id < 0 || id >= Integer.MAX_VALUE) {
+      throw new PlanItRunTimeException("Id %d of %s unsupported in directed graph star", id, entity);
+    }
+    return (int) id;
+  }
+
+  /**
+   * Collect the edge segments by their id
+   *
+   * @param edgeSegments to collect
+   * @return array with edge segments at the position of their id
+   */
+  private static EdgeSegment[] collectEdgeSegments(Iterable<? extends EdgeSegment> edgeSegments) {
+    int maxId = -1;
+    for (var edgeSegment : edgeSegments) {
+      maxId = Math.max(maxId, toIndex(edgeSegment.getId(), edgeSegment));
+    }
+    var edgeSegmentsById = new EdgeSegment[maxId + 1];
+    for (var edgeSegment : edgeSegments) {
+      if (edgeSegmentsById[(int) edgeSegment.getId()] != null) {
+        throw new PlanItRunTimeException("Duplicate edge segment id %d in directed graph star", edgeSegment.getId());
+      }
+      edgeSegmentsById[(int) edgeSegment.getId()] = edgeSegment;
+    }
+    return edgeSegmentsById;
+  }
+
+  /**
+   * Fill one star via counting sort of the edge segments by their from vertex, edge segments are visited in ascending id order
+   *
+   * @param fromVertices from vertex id by edge segment id, -1 when absent
+   * @param toVertices   to vertex id by edge segment id, -1 when absent
+   * @param offsets      to populate, sized to the number of vertex ids plus one
+   * @param starSegments to populate with edge segment ids
+   * @param starVertices to populate with to vertex ids
+   */
+  private static void fillStar(int[] fromVertices, int[] toVertices, int[] offsets, int[] starSegments, int[] starVertices) {
+    for (int fromVertex : fromVertices) {
+      if (fromVertex >= 0) {
+        ++offsets[fromVertex + 1];
+      }
+    }
+    for (int vertex = 0; vertex < offsets.length - 1; ++vertex) {
+      offsets[vertex + 1] += offsets[vertex];
+    }
+    var positions = Arrays.copyOf(offsets, offsets.length - 1);
+    for (int segment = 0; segment < fromVertices.length; ++segment) {
+      int fromVertex = fromVertices[segment];
+      if (fromVertex >= 0) {
+        int position = positions[fromVertex]++;
+        starSegments[position] = segment;
+        starVertices[position] = toVertices[segment];
+      }
+    }
+  }
+
+  /**
+   * Create snapshot of the vertices and edge segments of a graph
+   *
+   * @param graph to create snapshot of
+   * @return snapshot
+   */
+  public static DirectedGraphStar of(final UntypedDirectedGraph<?, ?, ?> graph) {
+    return new DirectedGraphStar(graph.getVertices(), graph.getEdgeSegments());
+  }
+
+  /**
+   * Constructor, creates snapshot of the given edge segments and the vertices they connect
+   *
+   * @param edgeSegments to include
+   */
+  public DirectedGraphStar(final Iterable<? extends EdgeSegment> edgeSegments) {
+    this(null, edgeSegments);
+  }
+
+  /**
+   * Constructor, creates snapshot of the given vertices, edge segments and the vertices they connect
+   *
+   * @param vertices     to include in addition to the ones connected by the edge segments, e.g., isolated vertices, may be null
+   * @param edgeSegments to include
+   */
+  public DirectedGraphStar(final Iterable<? extends DirectedVertex> vertices, final Iterable<? extends EdgeSegment> edgeSegments) {
+    this.edgeSegments = collectEdgeSegments(edgeSegments);
+    this.segmentTails = new int[this.edgeSegments.length];
+    this.segmentHeads = new int[this.edgeSegments.length];
+
+    int maxVertexId = -1;
+    int count = 0;
+    for (int segment = 0; segment < this.edgeSegments.length; ++segment) {
+      var edgeSegment = this.edgeSegments[segment];
+      if (edgeSegment == null) {
+        segmentTails[segment] = -1;
+        segmentHeads[segment] = -1;
+        continue;
+      }
+      var upstream = edgeSegment.getUpstreamVertex();
+      var downstream = edgeSegment.getDownstreamVertex();
+      if (upstream == null || downstream == null) {
+        throw new PlanItRunTimeException("Edge segment %d without upstream or downstream vertex, unable to create directed graph star",
+            edgeSegment.getId());
+      }
+      segmentTails[segment] = toIndex(upstream.getId(), upstream);
+      segmentHeads[segment] = toIndex(downstream.getId(), downstream);
+      maxVertexId = Math.max(maxVertexId, Math.max(segmentTails[segment], segmentHeads[segment]));
+      ++count;
+    }
+    this.numberOfEdgeSegments = count;
+
+    if (vertices != null) {
+      for (var vertex : vertices) {
+        maxVertexId = Math.max(maxVertexId, toIndex(vertex.getId(), vertex));
+      }
+    }
+    this.vertices = new DirectedVertex[maxVertexId + 1];
+    if (vertices != null) {
+      for (var vertex : vertices) {
+        this.vertices[(int) vertex.getId()] = vertex;
+      }
+    }
+    for (int segment = 0; segment < this.edgeSegments.length; ++segment) {
+      if (this.edgeSegments[segment] != null) {
+        this.vertices[segmentTails[segment]] = this.edgeSegments[segment].getUpstreamVertex();
+        this.vertices[segmentHeads[segment]] = this.edgeSegments[segment].getDownstreamVertex();
+      }
+    }
+
+    this.forwardOffsets = new int[this.vertices.length + 1];
+    this.forwardEdgeSegments = new int[numberOfEdgeSegments];
+    this.forwardHeads = new int[numberOfEdgeSegments];
+    fillStar(segmentTails, segmentHeads, forwardOffsets, forwardEdgeSegments, forwardHeads);
+
+    this.backwardOffsets = new int[this.vertices.length + 1];
+    this.backwardEdgeSegments = new int[numberOfEdgeSegments];
+    this.backwardTails = new int[numberOfEdgeSegments];
+    fillStar(segmentHeads, segmentTails, backwardOffsets, backwardEdgeSegments, backwardTails);
+  }
+
+  /**
+   * Number of vertex ids covered, i.e., largest vertex id plus one
+   *
+   * @return number of vertex ids
+   */
+  public int getNumberOfVertexIds() {
+    return vertices.length;
+  }
+
+  /**
+   * Number of edge segment ids covered, i.e., largest edge segment id plus one
+   *
+   * @return number of edge segment ids
+   */
+  public int getNumberOfEdgeSegmentIds() {
+    return edgeSegments.length;
+  }
+
+  /**
+   * Number of edge segments in the snapshot
+   *
+   * @return number of edge segments
+   */
+  public int getNumberOfEdgeSegments() {
+    return numberOfEdgeSegments;
+  }
+
+  /**
+   * Vertex by id
+   *
+   * @param vertexId to collect
+   * @return vertex, null if not present
+   */
+  public DirectedVertex getVertex(int vertexId) {
+    return vertexId >= 0 && vertexId < vertices.length ? vertices[vertexId] : null;
+  }
+
+  /**
+   * Edge segment by id
+   *
+   * @param edgeSegmentId to collect
+   * @return edge segment, null if not present
+   */
+  public EdgeSegment getEdgeSegment(int edgeSegmentId) {
+    return edgeSegmentId >= 0 && edgeSegmentId < edgeSegments.length ? edgeSegments[edgeSegmentId] : null;
+  }
+
+  /**
+   * Verify if the vertex id is present in the snapshot
+   *
+   * @param vertexId to verify
+   * @return true when present
+   */
+  public boolean hasVertex(int vertexId) {
+    return getVertex(vertexId) != null;
+  }
+
+  /**
+   * Verify if the edge segment id is present in the snapshot
+   *
+   * @param edgeSegmentId to verify
+   * @return true when present
+   */
+  public boolean hasEdgeSegment(int edgeSegmentId) {
+    return getEdgeSegment(edgeSegmentId) != null;
+  }
+
+  /**
+   * Upstream vertex id of an edge segment
+   *
+   * @param edgeSegmentId to collect for
+   * @return upstream vertex id, -1 if edge segment not present
+   */
+  public int getUpstreamVertexId(int edgeSegmentId) {
+    return segmentTails[edgeSegmentId];
+  }
+
+  /**
+   * Downstream vertex id of an edge segment
+   *
+   * @param edgeSegmentId to collect for
+   * @return downstream vertex id, -1 if edge segment not present
+   */
+  public int getDownstreamVertexId(int edgeSegmentId) {
+    return segmentHeads[edgeSegmentId];
+  }
+
+  /**
+   * Number of exit edge segments of a vertex
+   *
+   * @param vertexId to collect for
+   * @return out degree
+   */
+  public int getOutDegree(int vertexId) {
+    return forwardOffsets[vertexId + 1] - forwardOffsets[vertexId];
+  }
+
+  /**
+   * Number of entry edge segments of a vertex
+   *
+   * @param vertexId to collect for
+   * @return in degree
+   */
+  public int getInDegree(int vertexId) {
+    return backwardOffsets[vertexId + 1] - backwardOffsets[vertexId];
+  }
+
+  /**
+   * Upstream vertex ids by edge segment id, -1 for ids without edge segment. Not to be modified
+   *
+   * @return upstream vertex ids
+   */
+  public int[] getUpstreamVertexIds() {
+    return segmentTails;
+  }
+
+  /**
+   * Downstream vertex ids by edge segment id, -1 for ids without edge segment. Not to be modified
+   *
+   * @return downstream vertex ids
+   */
+  public int[] getDownstreamVertexIds() {
+    return segmentHeads;
+  }
+
+  /**
+   * Offsets of the forward star by vertex id, with one more entry than there are vertex ids. Not to be modified
+   *
+   * @return forward offsets
+   */
+  public int[] getForwardOffsets() {
+    return forwardOffsets;
+  }
+
+  /**
+   * Exit edge segment ids grouped by upstream vertex, see {@link #getForwardOffsets()}. Not to be modified
+   *
+   * @return forward edge segment ids
+   */
+  public int[] getForwardEdgeSegments() {
+    return forwardEdgeSegments;
+  }
+
+  /**
+   * Downstream vertex ids parallel to {@link #getForwardEdgeSegments()}. Not to be modified
+   *
+   * @return forward heads
+   */
+  public int[] getForwardHeads() {
+    return forwardHeads;
+  }
+
+  /**
+   * Offsets of the backward star by vertex id, with one more entry than there are vertex ids. Not to be modified
+   *
+   * @return backward offsets
+   */
+  public int[] getBackwardOffsets() {
+    return backwardOffsets;
+  }
+
+  /**
+   * Entry edge segment ids grouped by downstream vertex, see {@link #getBackwardOffsets()}. Not to be modified
+   *
+   * @return backward edge segment ids
+   */
+  public int[] getBackwardEdgeSegments() {
+    return backwardEdgeSegments;
+  }
+
+  /**
+   * Upstream vertex ids parallel to {@link #getBackwardEdgeSegments()}. Not to be modified
+   *
+   * @return backward tails
+   */
+  public int[] getBackwardTails() {
+    return backwardTails;
+  }
+}
@@ -0,0 +1,597 @@
+package org.goplanit.utils.graph.directed.acyclic;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+
+/**
+ * Topological order of the vertices of an acyclic sub graph that is maintained incrementally as edge segments are added and removed,
+ * following Pearce and Kelly. Adding an edge segment that agrees with the current order costs nothing, otherwise only the vertices between
+ * its end points in the order that are reachable from its head or reach its tail are visited and reordered among their own positions. When
+ * such an addition would create a cycle this is detected during that same visit and the edge segment is rejected, leaving the order intact.
+ * Removing an edge segment never invalidates the order.
+ * <p>
+ * Implementations of {@link UntypedACyclicSubGraph} can register their edge segments here and serve {@code getTopologicalIterator} from
+ * {@link #iterator(boolean)} rather than sorting the whole sub graph after each change. The order is kept in a primitive array by position,
+ * vertices and edge segments are indexed by their id. Not thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ * @param <V> vertex type
+ * @param <E> edge segment type
+ */
+public class IncrementalTopologicalOrder<V extends DirectedVertex, E extends EdgeSegment> implements Iterable<V> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(IncrementalTopologicalOrder.class.getCanonicalName());
+
+  /** initial capacity of arrays indexed by id and of adjacency lists */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** vertices by id */
+  private Object[] vertices;
+
+  /** position in the order by vertex id, -1 when absent */
+  private int[] positions;
+
+  /** vertex id by position in the order */
+  private int[] order;
+
+  /** number of vertices in the order */
+  private int size;
+
+  /** tail vertex id by edge segment id, -1 when absent */
+  private int[] edgeTails;
+
+  /** head vertex id by edge segment id, -1 when absent */
+  private int[] edgeHeads;
+
+  /** outgoing edge segment ids per vertex id */
+  private int[][] outEdges;
+
+  /** number of outgoing edge segments per vertex id */
+  private int[] outSizes;
+
+  /** incoming edge segment ids per vertex id */
+  private int[][] inEdges;
+
+  /** number of incoming edge segments per vertex id */
+  private int[] inSizes;
+
+  /** number of registered edge segments */
+  private int numberOfEdgeSegments;
+
+  /** visit stamp per vertex id */
+  private int[] stamps;
+
+  /** current visit stamp */
+  private int currentStamp;
+
+  /** depth first search stack */
+  private int[] stack;
+
+  /** vertices found by the forward search during the latest insertion */
+  private int[] forwardFound;
+
+  /** number of vertices found by the forward search */
+  private int forwardFoundSize;
+
+  /** vertices found by the backward search during the latest insertion */
+  private int[] backwardFound;
+
+  /** number of vertices found by the backward search */
+  private int backwardFoundSize;
+
+  /**
+   * Capacity that covers the index, at least doubling
+   *
+   * @param current capacity
+   * @param index   to cover
+   * @return new capacity
+   */
+  private static int grow(int current, int index) {
+    return Math.max(index + 1, Math.max(INITIAL_CAPACITY, current << 1));
+  }
+
+  /**
+   * Remove a value from an adjacency list by swapping in the last entry
+   *
+   * @param lists  adjacency lists
+   * @param sizes  of the lists
+   * @param vertex owning the list
+   * @param value  to remove
+   */
+  private static void removeFromList(int[][] lists, int[] sizes, int vertex, int value) {
+    final int[] list = lists[vertex];
+    for (int index = 0; index < sizes[vertex]; ++index) {
+      if (list[index] == value) {
+        list[index] = list[--sizes[vertex]];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Append a value to an adjacency list
+   *
+   * @param lists  adjacency lists
+   * @param sizes  of the lists
+   * @param vertex owning the list
+   * @param value  to append
+   */
+  private static void appendToList(int[][] lists, int[] sizes, int vertex, int value) {
+    if (lists[vertex] == null) {
+      lists[vertex] = new int[4];
+    } else if (sizes[vertex] == lists[vertex].length) {
+      lists[vertex] = Arrays.copyOf(lists[vertex], sizes[vertex] << 1);
+    }
+    lists[vertex][sizes[vertex]++] = value;
+  }
+
+  /**
+   * Ensure arrays indexed by vertex id cover the id
+   *
+   * @param vertexId to cover
+   */
+  private void ensureVertexCapacity(int vertexId) {
+    if (vertexId < positions.length) {
+      return;
+    }
+    int capacity = grow(positions.length, vertexId);
+    int oldLength = positions.length;
+    vertices = Arrays.copyOf(vertices, capacity);
+    positions = Arrays.copyOf(positions, capacity);
+    Arrays.fill(positions, oldLength, capacity, -1);
+    outEdges = Arrays.copyOf(outEdges, capacity);
+    outSizes = Arrays.copyOf(outSizes, capacity);
+    inEdges = Arrays.copyOf(inEdges, capacity);
+    inSizes = Arrays.copyOf(inSizes, capacity);
+    stamps = Arrays.copyOf(stamps, capacity);
+    order = Arrays.copyOf(order, capacity);
+    stack = Arrays.copyOf(stack, capacity);
+    forwardFound = Arrays.copyOf(forwardFound, capacity);
+    backwardFound = Arrays.copyOf(backwardFound, capacity);
+  }
+
+  /**
+   * Ensure arrays indexed by edge segment id cover the id
+   *
+   * @param edgeSegmentId to cover
+   */
+  private void ensureEdgeSegmentCapacity(int edgeSegmentId) {
+    if (edgeSegmentId < edgeTails.length) {
+      return;
+    }
+    int capacity = grow(edgeTails.length, edgeSegmentId);
+    int oldLength = edgeTails.length;
+    edgeTails = Arrays.copyOf(edgeTails, capacity);
+    edgeHeads = Arrays.copyOf(edgeHeads, capacity);
+    Arrays.fill(edgeTails, oldLength, capacity, -1);
+    Arrays.fill(edgeHeads, oldLength, capacity, -1);
+  }
+
+  /**
+   * Convert id to index
+   *
+   * @param id to convert
+   * @return index
+   */
+  private static int toIndex(long id) {
+    if (id < 0 || id >= Integer.MAX_VALUE) {
+      throw new PlanItRunTimeException("Id %d not supported by incremental topological order", id);
+    }
+    return (int) id;
+  }
+
+  /**
+   * Register vertex at the end of the order when not yet present
+   *
+   * @param vertex to register
+   * @return vertex id
+   */
+  private int registerVertex(V vertex) {
+    int vertexId = toIndex(vertex.getId());
+    ensureVertexCapacity(vertexId);
+    if (positions[vertexId] < 0) {
+      vertices[vertexId] = vertex;
+      positions[vertexId] = size;
+      order[size++] = vertexId;
+    }
+    return vertexId;
+  }
+
+  /**
+   * Start a new visit
+   */
+  private void newStamp() {
+    if (++currentStamp == Integer.MAX_VALUE) {
+      Arrays.fill(stamps, 0);
+      currentStamp = 1;
+    }
+  }
+
+  /**
+   * Depth first search along outgoing edge segments from the start, restricted to vertices positioned at or before the upper bound
+   *
+   * @param start      to search from
+   * @param upperBound position (inclusive) beyond which vertices are not visited
+   * @param target     vertex whose discovery indicates a cycle
+   * @return false when the target was found, true otherwise
+   */
+  private boolean searchForward(int start, int upperBound, int target) {
+    forwardFoundSize = 0;
+    int stackSize = 0;
+    stack[stackSize++] = start;
+    stamps[start] = currentStamp;
+    while (stackSize > 0) {
+      int vertex = stack[--stackSize];
+      forwardFound[forwardFoundSize++] = vertex;
+      for (int index = 0; index < outSizes[vertex]; ++index) {
+        int head = edgeHeads[outEdges[vertex][index]];
+        if (head == target) {
+          return false;
+        }
+        if (stamps[head] != currentStamp && positions[head] <= upperBound) {
+          stamps[head] = currentStamp;
+          stack[stackSize++] = head;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Depth first search along incoming edge segments from the start, restricted to vertices positioned at or after the lower bound
+   *
+   * @param start      to search from
+   * @param lowerBound position (inclusive) before which vertices are not visited
+   */
+  private void searchBackward(int start, int lowerBound) {
+    backwardFoundSize = 0;
+    int stackSize = 0;
+    stack[stackSize++] = start;
+    stamps[start] = currentStamp;
+    while (stackSize > 0) {
+      int vertex = stack[--stackSize];
+      backwardFound[backwardFoundSize++] = vertex;
+      for (int index = 0; index < inSizes[vertex]; ++index) {
+        int tail = edgeTails[inEdges[vertex][index]];
+        if (stamps[tail] != currentStamp && positions[tail] >= lowerBound) {
+          stamps[tail] = currentStamp;
+          stack[stackSize++] = tail;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sort found vertices by their current position
+   *
+   * @param found vertices
+   * @param count number of found vertices
+   * @return sorted keys, position in the upper and vertex id in the lower half
+   */
+  private long[] sortByPosition(int[] found, int count) {
+    var keys = new long[count];
+    for (int index = 0; index < count; ++index) {
+      keys[index] = ((long) positions[found[index]] << 32) | found[index];
+    }
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Reassign the positions of the found vertices among themselves, vertices reaching the tail go before vertices reachable from the head,
+   * each group keeping its relative order
+   */
+  private void reorder() {
+    var backward = sortByPosition(backwardFound, backwardFoundSize);
+    var forward = sortByPosition(forwardFound, forwardFoundSize);
+    var availablePositions = new int[backward.length + forward.length];
+    int count = 0;
+    for (long key : backward) {
+      availablePositions[count++] = (int) (key >>> 32);
+    }
+    for (long key : forward) {
+      availablePositions[count++] = (int) (key >>> 32);
+    }
+    Arrays.sort(availablePositions);
+    count = 0;
+    for (long key : backward) {
+      int vertex = (int) key;
+      positions[vertex] = availablePositions[count];
+      order[availablePositions[count++]] = vertex;
+    }
+    for (long key : forward) {
+      int vertex = (int) key;
+      positions[vertex] = availablePositions[count];
+      order[availablePositions[count++]] = vertex;
+    }
+  }
+
+  /**
+   * Verify if the vertex id is part of the order
+   *
+   * @param vertexId to verify
+   * @return true when present
+   */
+  private boolean isRegistered(int vertexId) {
+    return vertexId < positions.length && positions[vertexId] >= 0;
+  }
+
+  /**
+   * Update the order such that the tail precedes the head, unless the head reaches the tail in which case the order is left intact
+   *
+   * @param tail of the edge segment to accommodate
+   * @param head of the edge segment to accommodate
+   * @return true when the order was valid or restored, false when the edge segment would create a cycle
+   */
+  private boolean restoreOrder(int tail, int head) {
+    int lowerBound = positions[head];
+    int upperBound = positions[tail];
+    if (lowerBound < upperBound) {
+      newStamp();
+      if (!searchForward(head, upperBound, tail)) {
+        return false;
+      }
+      searchBackward(tail, lowerBound);
+      reorder();
+    }
+    return true;
+  }
+
+  /**
+   * Constructor
+   */
+  public IncrementalTopologicalOrder() {
+    this.vertices = new Object[0];
+    this.positions = new int[0];
+    this.order = new int[0];
+    this.outEdges = new int[0][];
+    this.outSizes = new int[0];
+    this.inEdges = new int[0][];
+    this.inSizes = new int[0];
+    this.stamps = new int[0];
+    this.stack = new int[0];
+    this.forwardFound = new int[0];
+    this.backwardFound = new int[0];
+    this.edgeTails = new int[0];
+    this.edgeHeads = new int[0];
+    this.size = 0;
+    this.numberOfEdgeSegments = 0;
+    this.currentStamp = 0;
+  }
+
+  /**
+   * Add a vertex without any edge segments, it is placed at the end of the order
+   *
+   * @param vertex to add
+   */
+  public void addVertex(V vertex) {
+    registerVertex(vertex);
+  }
+
+  /**
+   * Add an edge segment, updating the order when required. The edge segment is rejected when it would create a cycle
+   *
+   * @param edgeSegment to add
+   * @return true when added or already present, false when rejected because it would create a cycle
+   */
+  @SuppressWarnings("unchecked")
+  public boolean addEdgeSegment(E edgeSegment) {
+    int edgeSegmentId = toIndex(edgeSegment.getId());
+    ensureEdgeSegmentCapacity(edgeSegmentId);
+    if (edgeTails[edgeSegmentId] >= 0) {
+      return true;
+    }
+    var tailVertex = (V) edgeSegment.getUpstreamVertex();
+    var headVertex = (V) edgeSegment.getDownstreamVertex();
+    int tail = toIndex(tailVertex.getId());
+    int head = toIndex(headVertex.getId());
+    if (tail == head) {
+      return false;
+    }
+
+    /* only an edge segment between vertices that are both already in the order can close a cycle, detect it before registering anything */
+    if (isRegistered(tail) && isRegistered(head) && !restoreOrder(tail, head)) {
+      return false;
+    }
+    registerVertex(tailVertex);
+    registerVertex(headVertex);
+    /* a newly registered vertex has no edge segments yet, so this can only reorder, never detect a cycle */
+    restoreOrder(tail, head);
+
+    edgeTails[edgeSegmentId] = tail;
+    edgeHeads[edgeSegmentId] = head;
+    appendToList(outEdges, outSizes, tail, edgeSegmentId);
+    appendToList(inEdges, inSizes, head, edgeSegmentId);
+    ++numberOfEdgeSegments;
+    return true;
+  }
+
+  /**
+   * Remove an edge segment, the order remains valid. Its vertices remain part of the order
+   *
+   * @param edgeSegment to remove
+   * @return true when removed, false when not present
+   */
+  public boolean removeEdgeSegment(E edgeSegment) {
+    long id = edgeSegment.getId();
+    if (id < 0 || id >= edgeTails.length || edgeTails[(int) id] < 0) {
+      return false;
+    }
+    int edgeSegmentId = (int) id;
+    removeFromList(outEdges, outSizes, edgeTails[edgeSegmentId], edgeSegmentId);
+    removeFromList(inEdges, inSizes, edgeHeads[edgeSegmentId], edgeSegmentId);
+    edgeTails[edgeSegmentId] = -1;
+    edgeHeads[edgeSegmentId] = -1;
+    --numberOfEdgeSegments;
+    return true;
+  }
+
+  /**
+   * Remove a vertex without any remaining edge segments from the order
+   *
+   * @param vertex to remove
+   * @return true when removed, false when not present or still connected
+   */
+  public boolean removeVertex(V vertex) {
+    long id = vertex.getId();
+    if (id < 0 || id >= positions.length || positions[(int) id] < 0) {
+      return false;
+    }
+    int vertexId = (int) id;
+    if (outSizes[vertexId] > 0 || inSizes[vertexId] > 0) {
+      return false;
+    }
+    int position = positions[vertexId];
+    System.arraycopy(order, position + 1, order, position, size - position - 1);
+    --size;
+    for (int index = position; index < size; ++index) {
+      positions[order[index]] = index;
+    }
+    positions[vertexId] = -1;
+    vertices[vertexId] = null;
+    return true;
+  }
+
+  /**
+   * Verify if the edge segment is registered
+   *
+   * @param edgeSegment to verify
+   * @return true when registered
+   */
+  public boolean containsEdgeSegment(E edgeSegment) {
+    long id = edgeSegment.getId();
+    return id >= 0 && id < edgeTails.length && edgeTails[(int) id] >= 0;
+  }
+
+  /**
+   * Verify if the vertex is part of the order
+   *
+   * @param vertex to verify
+   * @return true when present
+   */
+  public boolean containsVertex(V vertex) {
+    long id = vertex.getId();
+    return id >= 0 && id < positions.length && positions[(int) id] >= 0;
+  }
+
+  /**
+   * Position of the vertex in the order
+   *
+   * @param vertex to collect for
+   * @return position, -1 when absent
+   */
+  public int getPosition(V vertex) {
+    return containsVertex(vertex) ? positions[(int) vertex.getId()] : -1;
+  }
+
+  /**
+   * Vertex at the given position in the order
+   *
+   * @param position to collect for
+   * @return vertex
+   */
+  @SuppressWarnings("unchecked")
+  public V getVertexAt(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException(String.format("Position %d outside of topological order of size %d", position, size));
+    }
+    return (V) vertices[order[position]];
+  }
+
+  /**
+   * Number of vertices in the order
+   *
+   * @return number of vertices
+   */
+  public int getNumberOfVertices() {
+    return size;
+  }
+
+  /**
+   * Number of registered edge segments
+   *
+   * @return number of edge segments
+   */
+  public int getNumberOfEdgeSegments() {
+    return numberOfEdgeSegments;
+  }
+
+  /**
+   * Remove all vertices and edge segments, capacity is retained
+   */
+  public void clear() {
+    for (int position = 0; position < size; ++position) {
+      int vertexId = order[position];
+      positions[vertexId] = -1;
+      vertices[vertexId] = null;
+      outSizes[vertexId] = 0;
+      inSizes[vertexId] = 0;
+    }
+    Arrays.fill(edgeTails, -1);
+    Arrays.fill(edgeHeads, -1);
+    size = 0;
+    numberOfEdgeSegments = 0;
+  }
+
+  /**
+   * Iterator over the vertices in topological order, directly on the underlying array. The order must not change while iterating
+   *
+   * @param descending when true, the order is reversed
+   * @return iterator
+   */
+  public Iterator<V> iterator(boolean descending) {
+    return new Iterator<V>() {
+
+      /** next position */
+      private int position = descending ? size - 1 : 0;
+
+      @Override
+      public boolean hasNext() {
+        return descending ? position >= 0 : position < size;
+      }
+
+      @Override
+      public V next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("No more vertices in topological order");
+        }
+        V vertex = getVertexAt(position);
+        position += descending ? -1 : 1;
+        return vertex;
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<V> iterator() {
+    return iterator(false);
+  }
+
+  /**
+   * Create a deque of the vertices in topological order, compatible with {@link UntypedACyclicSubGraph#topologicalSort(boolean)}
+   *
+   * @return vertices in topological order
+   */
+  public Deque<V> toDeque() {
+    Deque<V> sorted = new ArrayDeque<>(size);
+    for (int position = 0; position < size; ++position) {
+      sorted.addLast(getVertexAt(position));
+    }
+    return sorted;
+  }
+}
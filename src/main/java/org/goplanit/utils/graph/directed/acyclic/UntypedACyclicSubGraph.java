@@ -67,7 +67,8 @@ public interface UntypedACyclicSubGraph<V extends DirectedVertex, E extends Edge
   }
 
   /**
-   * Collect iterator over topologically sorted vertices
+   * Collect iterator over topologically sorted vertices. Implementations that maintain their order incrementally, see
+   * {@link IncrementalTopologicalOrder}, may override this to iterate over that order directly without sorting
    * 
    * @param update             when true the topological sort is conducted based on the current state of the subgraph, when false the most recent (if any) result is returned
    * @param descendingIterator when true, iterator direction is reversed, when false it is not
@@ -0,0 +1,327 @@
+package org.goplanit.utils.graph.directed.partition;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+
+/**
+ * Partitions a directed graph into a given number of parts of balanced size with few cut edge segments, e.g., to load or route on parts of
+ * a large network concurrently. Vertices are split by recursive coordinate bisection of their positions, each time along the widest axis
+ * at the weighted median, where a vertex weighs one plus its number of exit edge segments so that both vertex and edge segment counts are
+ * balanced. Vertices without a position join the partition of a nearby vertex. The cut is subsequently reduced by greedy boundary
+ * refinement: boundary vertices move to the neighbouring partition they are most connected to, as long as the balance remains within the
+ * tolerance.
+ *
+ * @author markr
+ *
+ */
+public class GeometricGraphPartitioner {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(GeometricGraphPartitioner.class.getCanonicalName());
+
+  /** default allowed relative deviation of a partition's weight from the average */
+  public static final double DEFAULT_IMBALANCE_TOLERANCE = 0.03;
+
+  /** default number of refinement passes */
+  public static final int DEFAULT_REFINEMENT_PASSES = 4;
+
+  /** graph to partition */
+  private final DirectedGraphStar graphStar;
+
+  /** allowed relative deviation of a partition's weight from the average */
+  private double imbalanceTolerance;
+
+  /** maximum number of refinement passes */
+  private int refinementPasses;
+
+  /** x coordinate by vertex id, NaN when without position */
+  private final double[] xCoordinates;
+
+  /** y coordinate by vertex id, NaN when without position */
+  private final double[] yCoordinates;
+
+  /** weight by vertex id, zero for absent vertex ids */
+  private final int[] weights;
+
+  /**
+   * Recursively bisect the vertices in the range along the widest axis at the weighted median
+   *
+   * @param vertexIds      to bisect, the range is reordered
+   * @param from           start of range (inclusive)
+   * @param to             end of range (exclusive)
+   * @param firstPartition first partition available to the range
+   * @param parts          number of partitions available to the range
+   * @param partitions     partition by vertex id to populate
+   */
+  private void bisect(int[] vertexIds, int from, int to, int firstPartition, int parts, int[] partitions) {
+    if (parts == 1 || to - from <= 1) {
+      for (int index = from; index < to; ++index) {
+        partitions[vertexIds[index]] = firstPartition;
+      }
+      return;
+    }
+
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    long totalWeight = 0;
+    for (int index = from; index < to; ++index) {
+      int vertexId = vertexIds[index];
+      minX = Math.min(minX, xCoordinates[vertexId]);
+      maxX = Math.max(maxX, xCoordinates[vertexId]);
+      minY = Math.min(minY, yCoordinates[vertexId]);
+      maxY = Math.max(maxY, yCoordinates[vertexId]);
+      totalWeight += weights[vertexId];
+    }
+    final boolean alongX = maxX - minX >= maxY - minY;
+    final double min = alongX ? minX : minY;
+    final double range = alongX ? maxX - minX : maxY - minY;
+    final double[] coordinates = alongX ? xCoordinates : yCoordinates;
+
+    /* sort by coordinate quantised to 31 bits, packed with the position in the range */
+    var keys = new long[to - from];
+    for (int index = from; index < to; ++index) {
+      long quantised = range > 0 ? (long) ((coordinates[vertexIds[index]] - min) / range * Integer.MAX_VALUE) : 0;
+      keys[index - from] = (quantised << 32) | (index - from);
+    }
+    Arrays.sort(keys);
+    var sorted = new int[keys.length];
+    for (int index = 0; index < keys.length; ++index) {
+      sorted[index] = vertexIds[from + (int) keys[index]];
+    }
+    System.arraycopy(sorted, 0, vertexIds, from, sorted.length);
+
+    int leftParts = parts / 2;
+    double targetWeight = (double) totalWeight * leftParts / parts;
+    long prefixWeight = 0;
+    int split = from;
+    while (split < to && prefixWeight + weights[vertexIds[split]] / 2.0 < targetWeight) {
+      prefixWeight += weights[vertexIds[split++]];
+    }
+    bisect(vertexIds, from, split, firstPartition, leftParts, partitions);
+    bisect(vertexIds, split, to, firstPartition + leftParts, parts - leftParts, partitions);
+  }
+
+  /**
+   * Assign vertices without a position to the partition of the nearest assigned vertex in terms of hops, remaining vertices (not connected
+   * to any assigned vertex) go to the lightest partition
+   *
+   * @param partitions       partition by vertex id to complete
+   * @param partitionWeights weight by partition to update
+   */
+  private void assignUnpositioned(int[] partitions, long[] partitionWeights) {
+    final int numberOfVertexIds = graphStar.getNumberOfVertexIds();
+    var queue = new int[numberOfVertexIds];
+    int head = 0;
+    int tail = 0;
+    for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+      if (partitions[vertexId] >= 0) {
+        queue[tail++] = vertexId;
+      }
+    }
+    final int[] forwardOffsets = graphStar.getForwardOffsets();
+    final int[] heads = graphStar.getForwardHeads();
+    final int[] backwardOffsets = graphStar.getBackwardOffsets();
+    final int[] tails = graphStar.getBackwardTails();
+    while (head < tail) {
+      int vertexId = queue[head++];
+      for (int arc = forwardOffsets[vertexId]; arc < forwardOffsets[vertexId + 1]; ++arc) {
+        if (partitions[heads[arc]] < 0) {
+          partitions[heads[arc]] = partitions[vertexId];
+          queue[tail++] = heads[arc];
+        }
+      }
+      for (int arc = backwardOffsets[vertexId]; arc < backwardOffsets[vertexId + 1]; ++arc) {
+        if (partitions[tails[arc]] < 0) {
+          partitions[tails[arc]] = partitions[vertexId];
+          queue[tail++] = tails[arc];
+        }
+      }
+    }
+
+    for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+      if (partitions[vertexId] >= 0) {
+        partitionWeights[partitions[vertexId]] += weights[vertexId];
+      }
+    }
+    for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+      if (weights[vertexId] > 0 && partitions[vertexId] < 0) {
+        int lightest = 0;
+        for (int partition = 1; partition < partitionWeights.length; ++partition) {
+          lightest = partitionWeights[partition] < partitionWeights[lightest] ? partition : lightest;
+        }
+        partitions[vertexId] = lightest;
+        partitionWeights[lightest] += weights[vertexId];
+      }
+    }
+  }
+
+  /**
+   * Greedily move boundary vertices to the neighbouring partition they are most connected to while the balance permits
+   *
+   * @param partitions       partition by vertex id to refine
+   * @param partitionWeights weight by partition to update
+   */
+  private void refine(int[] partitions, long[] partitionWeights) {
+    final int numberOfPartitions = partitionWeights.length;
+    long totalWeight = 0;
+    for (long partitionWeight : partitionWeights) {
+      totalWeight += partitionWeight;
+    }
+    final double averageWeight = (double) totalWeight / numberOfPartitions;
+    final long maxWeight = (long) Math.ceil(averageWeight * (1 + imbalanceTolerance));
+    final long minWeight = (long) Math.floor(averageWeight * (1 - imbalanceTolerance));
+
+    final int[] forwardOffsets = graphStar.getForwardOffsets();
+    final int[] heads = graphStar.getForwardHeads();
+    final int[] backwardOffsets = graphStar.getBackwardOffsets();
+    final int[] tails = graphStar.getBackwardTails();
+    var connections = new int[numberOfPartitions];
+    var touched = new int[numberOfPartitions];
+
+    for (int pass = 0; pass < refinementPasses; ++pass) {
+      int moved = 0;
+      for (int vertexId = 0; vertexId < partitions.length; ++vertexId) {
+        if (weights[vertexId] == 0) {
+          continue;
+        }
+        int numberOfTouched = 0;
+        for (int arc = forwardOffsets[vertexId]; arc < forwardOffsets[vertexId + 1]; ++arc) {
+          if (connections[partitions[heads[arc]]]++ == 0) {
+            touched[numberOfTouched++] = partitions[heads[arc]];
+          }
+        }
+        for (int arc = backwardOffsets[vertexId]; arc < backwardOffsets[vertexId + 1]; ++arc) {
+          if (connections[partitions[tails[arc]]]++ == 0) {
+            touched[numberOfTouched++] = partitions[tails[arc]];
+          }
+        }
+
+        final int own = partitions[vertexId];
+        int best = own;
+        for (int index = 0; index < numberOfTouched; ++index) {
+          int candidate = touched[index];
+          if (connections[candidate] > connections[best] && partitionWeights[candidate] + weights[vertexId] <= maxWeight
+              && partitionWeights[own] - weights[vertexId] >= minWeight) {
+            best = candidate;
+          }
+        }
+        for (int index = 0; index < numberOfTouched; ++index) {
+          connections[touched[index]] = 0;
+        }
+
+        if (best != own) {
+          partitions[vertexId] = best;
+          partitionWeights[own] -= weights[vertexId];
+          partitionWeights[best] += weights[vertexId];
+          ++moved;
+        }
+      }
+      if (moved == 0) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param graphStar to partition, positions are taken from its vertices
+   */
+  public GeometricGraphPartitioner(final DirectedGraphStar graphStar) {
+    this.graphStar = graphStar;
+    this.imbalanceTolerance = DEFAULT_IMBALANCE_TOLERANCE;
+    this.refinementPasses = DEFAULT_REFINEMENT_PASSES;
+
+    final int numberOfVertexIds = graphStar.getNumberOfVertexIds();
+    this.xCoordinates = new double[numberOfVertexIds];
+    this.yCoordinates = new double[numberOfVertexIds];
+    this.weights = new int[numberOfVertexIds];
+    for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+      var vertex = graphStar.getVertex(vertexId);
+      xCoordinates[vertexId] = Double.NaN;
+      yCoordinates[vertexId] = Double.NaN;
+      if (vertex == null) {
+        continue;
+      }
+      weights[vertexId] = 1 + graphStar.getOutDegree(vertexId);
+      if (vertex.hasPosition()) {
+        xCoordinates[vertexId] = vertex.getPosition().getX();
+        yCoordinates[vertexId] = vertex.getPosition().getY();
+      }
+    }
+  }
+
+  /**
+   * Partition the graph
+   *
+   * @param numberOfPartitions to create
+   * @return partitioning
+   */
+  public GraphPartitioning partition(int numberOfPartitions) {
+    if (numberOfPartitions < 1) {
+      throw new PlanItRunTimeException("Number of partitions must be positive, found %d", numberOfPartitions);
+    }
+    final int numberOfVertexIds = graphStar.getNumberOfVertexIds();
+    var partitions = new int[numberOfVertexIds];
+    Arrays.fill(partitions, -1);
+
+    var positioned = new int[numberOfVertexIds];
+    int numberOfPositioned = 0;
+    for (int vertexId = 0; vertexId < numberOfVertexIds; ++vertexId) {
+      if (weights[vertexId] > 0 && !Double.isNaN(xCoordinates[vertexId])) {
+        positioned[numberOfPositioned++] = vertexId;
+      }
+    }
+    bisect(positioned, 0, numberOfPositioned, 0, numberOfPartitions, partitions);
+
+    var partitionWeights = new long[numberOfPartitions];
+    assignUnpositioned(partitions, partitionWeights);
+    refine(partitions, partitionWeights);
+    return new GraphPartitioning(graphStar, partitions, numberOfPartitions);
+  }
+
+  /**
+   * Allowed relative deviation of a partition's weight from the average during refinement
+   *
+   * @return imbalance tolerance
+   */
+  public double getImbalanceTolerance() {
+    return imbalanceTolerance;
+  }
+
+  /**
+   * Set the allowed relative deviation of a partition's weight from the average during refinement
+   *
+   * @param imbalanceTolerance to use, e.g., 0.03 for three percent
+   */
+  public void setImbalanceTolerance(double imbalanceTolerance) {
+    if (imbalanceTolerance < 0) {
+      throw new PlanItRunTimeException("Imbalance tolerance must not be negative, found %.3f", imbalanceTolerance);
+    }
+    this.imbalanceTolerance = imbalanceTolerance;
+  }
+
+  /**
+   * Maximum number of refinement passes
+   *
+   * @return refinement passes
+   */
+  public int getRefinementPasses() {
+    return refinementPasses;
+  }
+
+  /**
+   * Set the maximum number of refinement passes, zero disables refinement
+   *
+   * @param refinementPasses to use
+   */
+  public void setRefinementPasses(int refinementPasses) {
+    this.refinementPasses = Math.max(0, refinementPasses);
+  }
+}
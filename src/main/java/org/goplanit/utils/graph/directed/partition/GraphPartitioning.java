@@ -0,0 +1,229 @@
+package org.goplanit.utils.graph.directed.partition;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.graph.directed.BitSetDirectedSubGraph;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.id.IdGroupingToken;
+
+/**
+ * Assignment of the vertices of a directed graph to partitions. Each edge segment belongs to the partition of its upstream vertex, edge
+ * segments whose downstream vertex lies in another partition are cut edge segments and their end points are boundary vertices. Created by
+ * {@link GeometricGraphPartitioner}.
+ *
+ * @author markr
+ *
+ */
+public class GraphPartitioning {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(GraphPartitioning.class.getCanonicalName());
+
+  /** partitioned graph */
+  private final DirectedGraphStar graphStar;
+
+  /** partition by vertex id, -1 for absent vertex ids */
+  private final int[] partitionByVertexId;
+
+  /** number of partitions */
+  private final int numberOfPartitions;
+
+  /** number of vertices per partition */
+  private final int[] vertexCounts;
+
+  /** number of edge segments per partition */
+  private final int[] edgeSegmentCounts;
+
+  /** number of cut edge segments */
+  private final int numberOfCutEdgeSegments;
+
+  /**
+   * Constructor
+   *
+   * @param graphStar           partitioned graph
+   * @param partitionByVertexId partition by vertex id, -1 for absent vertex ids
+   * @param numberOfPartitions  number of partitions
+   */
+  GraphPartitioning(final DirectedGraphStar graphStar, final int[] partitionByVertexId, int numberOfPartitions) {
+    this.graphStar = graphStar;
+    this.partitionByVertexId = partitionByVertexId;
+    this.numberOfPartitions = numberOfPartitions;
+    this.vertexCounts = new int[numberOfPartitions];
+    this.edgeSegmentCounts = new int[numberOfPartitions];
+    for (int partition : partitionByVertexId) {
+      if (partition >= 0) {
+        ++vertexCounts[partition];
+      }
+    }
+    int cut = 0;
+    for (int edgeSegmentId = 0; edgeSegmentId < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegmentId) {
+      if (graphStar.hasEdgeSegment(edgeSegmentId)) {
+        ++edgeSegmentCounts[partitionByVertexId[graphStar.getUpstreamVertexId(edgeSegmentId)]];
+        cut += isCut(edgeSegmentId) ? 1 : 0;
+      }
+    }
+    this.numberOfCutEdgeSegments = cut;
+  }
+
+  /**
+   * Partitioned graph
+   *
+   * @return graph star
+   */
+  public DirectedGraphStar getGraphStar() {
+    return graphStar;
+  }
+
+  /**
+   * Number of partitions
+   *
+   * @return number of partitions
+   */
+  public int getNumberOfPartitions() {
+    return numberOfPartitions;
+  }
+
+  /**
+   * Partition of a vertex
+   *
+   * @param vertexId to collect for
+   * @return partition, -1 when the vertex id is not present
+   */
+  public int getPartition(int vertexId) {
+    return vertexId >= 0 && vertexId < partitionByVertexId.length ? partitionByVertexId[vertexId] : -1;
+  }
+
+  /**
+   * Partition by vertex id, not to be modified
+   *
+   * @return partition by vertex id, -1 for absent vertex ids
+   */
+  public int[] getPartitionByVertexId() {
+    return partitionByVertexId;
+  }
+
+  /**
+   * Number of vertices in a partition
+   *
+   * @param partition to collect for
+   * @return number of vertices
+   */
+  public int getNumberOfVertices(int partition) {
+    return vertexCounts[partition];
+  }
+
+  /**
+   * Number of edge segments in a partition, i.e., with their upstream vertex in the partition
+   *
+   * @param partition to collect for
+   * @return number of edge segments
+   */
+  public int getNumberOfEdgeSegments(int partition) {
+    return edgeSegmentCounts[partition];
+  }
+
+  /**
+   * Verify if an edge segment connects two partitions
+   *
+   * @param edgeSegmentId to verify
+   * @return true when its end points are in different partitions
+   */
+  public boolean isCut(int edgeSegmentId) {
+    return partitionByVertexId[graphStar.getUpstreamVertexId(edgeSegmentId)] != partitionByVertexId[graphStar.getDownstreamVertexId(edgeSegmentId)];
+  }
+
+  /**
+   * Number of edge segments connecting two partitions
+   *
+   * @return number of cut edge segments
+   */
+  public int getNumberOfCutEdgeSegments() {
+    return numberOfCutEdgeSegments;
+  }
+
+  /**
+   * Verify if a vertex has an entry or exit edge segment connecting it to another partition
+   *
+   * @param vertexId to verify
+   * @return true when a boundary vertex
+   */
+  public boolean isBoundaryVertex(int vertexId) {
+    int partition = getPartition(vertexId);
+    if (partition < 0) {
+      return false;
+    }
+    final int[] forwardOffsets = graphStar.getForwardOffsets();
+    final int[] heads = graphStar.getForwardHeads();
+    for (int arc = forwardOffsets[vertexId]; arc < forwardOffsets[vertexId + 1]; ++arc) {
+      if (partitionByVertexId[heads[arc]] != partition) {
+        return true;
+      }
+    }
+    final int[] backwardOffsets = graphStar.getBackwardOffsets();
+    final int[] tails = graphStar.getBackwardTails();
+    for (int arc = backwardOffsets[vertexId]; arc < backwardOffsets[vertexId + 1]; ++arc) {
+      if (partitionByVertexId[tails[arc]] != partition) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Boundary vertices of a partition
+   *
+   * @param partition to collect for
+   * @return boundary vertex ids in ascending order
+   */
+  public int[] getBoundaryVertexIds(int partition) {
+    var boundary = new int[vertexCounts[partition]];
+    int count = 0;
+    for (int vertexId = 0; vertexId < partitionByVertexId.length; ++vertexId) {
+      if (partitionByVertexId[vertexId] == partition && isBoundaryVertex(vertexId)) {
+        boundary[count++] = vertexId;
+      }
+    }
+    return Arrays.copyOf(boundary, count);
+  }
+
+  /**
+   * Vertices of a partition
+   *
+   * @param partition to collect for
+   * @return vertex ids in ascending order
+   */
+  public int[] getVertexIds(int partition) {
+    var vertexIds = new int[vertexCounts[partition]];
+    int count = 0;
+    for (int vertexId = 0; vertexId < partitionByVertexId.length; ++vertexId) {
+      if (partitionByVertexId[vertexId] == partition) {
+        vertexIds[count++] = vertexId;
+      }
+    }
+    return vertexIds;
+  }
+
+  /**
+   * Create a sub graph view of a partition holding all its edge segments, including the cut edge segments leaving it. All views share the
+   * graph star as their parent index
+   *
+   * @param <V>       vertex type
+   * @param <E>       edge segment type
+   * @param groupId   to generate the sub graph id with
+   * @param partition to create view for
+   * @return sub graph
+   */
+  public <V extends DirectedVertex, E extends EdgeSegment> BitSetDirectedSubGraph<V, E> createSubGraph(final IdGroupingToken groupId, int partition) {
+    var subGraph = new BitSetDirectedSubGraph<V, E>(groupId, graphStar);
+    for (int edgeSegmentId = 0; edgeSegmentId < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegmentId) {
+      if (graphStar.hasEdgeSegment(edgeSegmentId) && partitionByVertexId[graphStar.getUpstreamVertexId(edgeSegmentId)] == partition) {
+        subGraph.addEdgeSegment(edgeSegmentId);
+      }
+    }
+    return subGraph;
+  }
+}
@@ -0,0 +1,459 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+
+/**
+ * Contraction hierarchy of a directed graph for a fixed set of edge segment costs, answering exact shortest path queries by searching only
+ * towards more important vertices from both ends, see {@link ContractionHierarchyQuery}. The hierarchy consists of the original arcs plus
+ * shortcuts, each shortcut replacing a path of two arcs via a less important vertex, so any shortest path can be unpacked into its edge
+ * segments.
+ * <p>
+ * Creating the hierarchy is costly, it is meant to be created once per topology and set of costs and then reused for many queries, across
+ * runs via {@link #save(Path)} and {@link #load(Path, DirectedGraphStar)}. The hierarchy is immutable and can be shared between threads,
+ * each thread using its own query.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ContractionHierarchy {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ContractionHierarchy.class.getCanonicalName());
+
+  /** default maximum number of vertices settled per witness search during contraction */
+  public static final int DEFAULT_WITNESS_SETTLE_LIMIT = 500;
+
+  /** marker at the start of each file to recognise the format */
+  private static final int FILE_MAGIC = 0x50434831;
+
+  /** version of the file format */
+  private static final int FILE_VERSION = 1;
+
+  /** number of vertex ids covered */
+  private final int numberOfVertices;
+
+  /** number of edge segment ids of the graph the hierarchy was created for */
+  private final int numberOfEdgeSegmentIds;
+
+  /** contraction order per vertex, higher is more important */
+  private final int[] ranks;
+
+  /** tail vertex per arc */
+  private final int[] arcTails;
+
+  /** head vertex per arc */
+  private final int[] arcHeads;
+
+  /** cost per arc */
+  private final double[] arcCosts;
+
+  /** first arc a shortcut consists of, -1 for original arcs */
+  private final int[] arcFirstChildren;
+
+  /** second arc a shortcut consists of, -1 for original arcs */
+  private final int[] arcSecondChildren;
+
+  /** edge segment id of original arcs, -1 for shortcuts */
+  private final int[] arcEdgeSegments;
+
+  /** offsets per vertex into the upward arcs leaving the vertex */
+  private final int[] upwardOffsets;
+
+  /** arcs towards a more important head, grouped by tail */
+  private final int[] upwardArcs;
+
+  /** offsets per vertex into the upward arcs entering the vertex in reverse */
+  private final int[] downwardOffsets;
+
+  /** arcs from a more important tail, grouped by head, to be traversed in reverse */
+  private final int[] downwardArcs;
+
+  /**
+   * Group arcs in compressed sparse row format by one of their end points
+   *
+   * @param selected flag per arc indicating it is to be included
+   * @param groupBy  vertex per arc to group by
+   * @param offsets  to populate, one more entry than vertices
+   * @return grouped arcs
+   */
+  private static int[] groupArcs(boolean[] selected, int[] groupBy, int[] offsets) {
+    int count = 0;
+    for (int arc = 0; arc < selected.length; ++arc) {
+      if (selected[arc]) {
+        ++offsets[groupBy[arc] + 1];
+        ++count;
+      }
+    }
+    for (int vertex = 0; vertex < offsets.length - 1; ++vertex) {
+      offsets[vertex + 1] += offsets[vertex];
+    }
+    var positions = Arrays.copyOf(offsets, offsets.length - 1);
+    var grouped = new int[count];
+    for (int arc = 0; arc < selected.length; ++arc) {
+      if (selected[arc]) {
+        grouped[positions[groupBy[arc]]++] = arc;
+      }
+    }
+    return grouped;
+  }
+
+  /**
+   * Verify a loaded arc refers to existing vertices, edge segments and arcs, so a corrupt file is rejected on load rather than failing during
+   * queries. A shortcut must consist of a path of two arcs via a vertex less important than both its end points, so the via vertex rank
+   * strictly decreases while unpacking and unpacking always terminates
+   *
+   * @param file                   loaded from
+   * @param arc                    to verify
+   * @param numberOfEdgeSegmentIds number of edge segment ids
+   * @param ranks                  rank per vertex, already verified
+   * @param arcTails               tail vertex per arc
+   * @param arcHeads               head vertex per arc
+   * @param arcCosts               cost per arc
+   * @param arcFirstChildren       first arc per shortcut
+   * @param arcSecondChildren      second arc per shortcut
+   * @param arcEdgeSegments        edge segment id per original arc
+   */
+  private static void validateArc(Path file, int arc, int numberOfEdgeSegmentIds, int[] ranks, int[] arcTails, int[] arcHeads,
+      double[] arcCosts, int[] arcFirstChildren, int[] arcSecondChildren, int[] arcEdgeSegments) {
+    final int numberOfVertices = ranks.length;
+    final int numberOfArcs = arcTails.length;
+    final int tail = arcTails[arc];
+    final int head = arcHeads[arc];
+    if (tail < 0 || tail >= numberOfVertices || head < 0 || head >= numberOfVertices) {
+      throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, arc %d (%d,%d) refers to unknown vertex", file, arc, tail, head);
+    }
+    if (!(arcCosts[arc] >= 0)) {
+      throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, arc %d has invalid cost %f", file, arc, arcCosts[arc]);
+    }
+    final int firstChild = arcFirstChildren[arc];
+    final int secondChild = arcSecondChildren[arc];
+    if (arcEdgeSegments[arc] >= 0) {
+      if (arcEdgeSegments[arc] >= numberOfEdgeSegmentIds || firstChild != -1 || secondChild != -1) {
+        throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, original arc %d refers to invalid edge segment or children",
+            file, arc);
+      }
+      return;
+    }
+    if (arcEdgeSegments[arc] != -1 || firstChild < 0 || firstChild >= numberOfArcs || secondChild < 0 || secondChild >= numberOfArcs) {
+      throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, shortcut %d refers to unknown children (%d,%d)", file, arc,
+          firstChild, secondChild);
+    }
+    final int via = arcHeads[firstChild];
+    if (arcTails[firstChild] != tail || arcTails[secondChild] != via || arcHeads[secondChild] != head || ranks[via] >= ranks[tail]
+        || ranks[via] >= ranks[head]) {
+      throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, children (%d,%d) of shortcut %d do not form a path via a less important vertex",
+          file, firstChild, secondChild, arc);
+    }
+  }
+
+  /**
+   * Create the hierarchy for the given graph and costs with the default witness settle limit
+   *
+   * @param graphStar        to create hierarchy for
+   * @param edgeSegmentCosts cost per edge segment id, non-negative, infinite costs exclude edge segments
+   * @return contraction hierarchy
+   */
+  public static ContractionHierarchy create(final DirectedGraphStar graphStar, final double[] edgeSegmentCosts) {
+    return create(graphStar, edgeSegmentCosts, DEFAULT_WITNESS_SETTLE_LIMIT);
+  }
+
+  /**
+   * Create the hierarchy for the given graph and costs
+   *
+   * @param graphStar          to create hierarchy for
+   * @param edgeSegmentCosts   cost per edge segment id, non-negative, infinite costs exclude edge segments
+   * @param witnessSettleLimit maximum number of vertices settled per witness search, lower is faster to create but may add more shortcuts
+   * @return contraction hierarchy
+   */
+  public static ContractionHierarchy create(final DirectedGraphStar graphStar, final double[] edgeSegmentCosts, int witnessSettleLimit) {
+    return new ContractionHierarchyBuilder(graphStar, edgeSegmentCosts, witnessSettleLimit).build(graphStar.getNumberOfEdgeSegmentIds());
+  }
+
+  /**
+   * Load a hierarchy saved earlier. The graph must be the same graph it was created for, only its dimensions can be verified
+   *
+   * @param file      to load from
+   * @param graphStar the hierarchy was created for
+   * @return contraction hierarchy
+   */
+  public static ContractionHierarchy load(final Path file, final DirectedGraphStar graphStar) {
+    try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != FILE_MAGIC) {
+        throw new PlanItRunTimeException("File %s does not contain a contraction hierarchy", file);
+      }
+      int version = input.readInt();
+      if (version != FILE_VERSION) {
+        throw new PlanItRunTimeException("Unsupported version %d of contraction hierarchy file %s", version, file);
+      }
+      int numberOfVertices = input.readInt();
+      int numberOfEdgeSegmentIds = input.readInt();
+      if (numberOfVertices != graphStar.getNumberOfVertexIds() || numberOfEdgeSegmentIds != graphStar.getNumberOfEdgeSegmentIds()) {
+        throw new PlanItRunTimeException("Contraction hierarchy in %s created for another graph (%d vertex ids, %d edge segment ids)", file,
+            numberOfVertices, numberOfEdgeSegmentIds);
+      }
+      var ranks = new int[numberOfVertices];
+      for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+        ranks[vertex] = input.readInt();
+        if (ranks[vertex] < 0 || ranks[vertex] >= numberOfVertices) {
+          throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, rank %d of vertex %d out of bounds", file, ranks[vertex], vertex);
+        }
+      }
+      int numberOfArcs = input.readInt();
+      if (numberOfArcs < 0) {
+        throw new PlanItRunTimeException("Corrupt contraction hierarchy file %s, negative number of arcs %d", file, numberOfArcs);
+      }
+      var arcTails = new int[numberOfArcs];
+      var arcHeads = new int[numberOfArcs];
+      var arcCosts = new double[numberOfArcs];
+      var arcFirstChildren = new int[numberOfArcs];
+      var arcSecondChildren = new int[numberOfArcs];
+      var arcEdgeSegments = new int[numberOfArcs];
+      for (int arc = 0; arc < numberOfArcs; ++arc) {
+        arcTails[arc] = input.readInt();
+        arcHeads[arc] = input.readInt();
+        arcCosts[arc] = input.readDouble();
+        arcFirstChildren[arc] = input.readInt();
+        arcSecondChildren[arc] = input.readInt();
+        arcEdgeSegments[arc] = input.readInt();
+      }
+      for (int arc = 0; arc < numberOfArcs; ++arc) {
+        validateArc(file, arc, numberOfEdgeSegmentIds, ranks, arcTails, arcHeads, arcCosts, arcFirstChildren, arcSecondChildren,
+            arcEdgeSegments);
+      }
+      return new ContractionHierarchy(numberOfVertices, numberOfEdgeSegmentIds, ranks, arcTails, arcHeads, arcCosts, arcFirstChildren,
+          arcSecondChildren, arcEdgeSegments);
+    } catch (IOException e) {
+      throw new PlanItRunTimeException("Unable to load contraction hierarchy from %s", e, file);
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param numberOfVertices       number of vertex ids covered
+   * @param numberOfEdgeSegmentIds number of edge segment ids of the graph
+   * @param ranks                  contraction order per vertex
+   * @param arcTails               tail vertex per arc
+   * @param arcHeads               head vertex per arc
+   * @param arcCosts               cost per arc
+   * @param arcFirstChildren       first arc per shortcut, -1 for original arcs
+   * @param arcSecondChildren      second arc per shortcut, -1 for original arcs
+   * @param arcEdgeSegments        edge segment id per original arc, -1 for shortcuts
+   */
+  ContractionHierarchy(int numberOfVertices, int numberOfEdgeSegmentIds, int[] ranks, int[] arcTails, int[] arcHeads, double[] arcCosts,
+      int[] arcFirstChildren, int[] arcSecondChildren, int[] arcEdgeSegments) {
+    this.numberOfVertices = numberOfVertices;
+    this.numberOfEdgeSegmentIds = numberOfEdgeSegmentIds;
+    this.ranks = ranks;
+    this.arcTails = arcTails;
+    this.arcHeads = arcHeads;
+    this.arcCosts = arcCosts;
+    this.arcFirstChildren = arcFirstChildren;
+    this.arcSecondChildren = arcSecondChildren;
+    this.arcEdgeSegments = arcEdgeSegments;
+
+    var upward = new boolean[arcTails.length];
+    var downward = new boolean[arcTails.length];
+    for (int arc = 0; arc < arcTails.length; ++arc) {
+      upward[arc] = ranks[arcHeads[arc]] > ranks[arcTails[arc]];
+      downward[arc] = !upward[arc];
+    }
+    this.upwardOffsets = new int[numberOfVertices + 1];
+    this.upwardArcs = groupArcs(upward, arcTails, upwardOffsets);
+    this.downwardOffsets = new int[numberOfVertices + 1];
+    this.downwardArcs = groupArcs(downward, arcHeads, downwardOffsets);
+  }
+
+  /**
+   * Save the hierarchy to file
+   *
+   * @param file to save to, overwritten when it exists
+   */
+  public void save(final Path file) {
+    try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(FILE_MAGIC);
+      output.writeInt(FILE_VERSION);
+      output.writeInt(numberOfVertices);
+      output.writeInt(numberOfEdgeSegmentIds);
+      for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+        output.writeInt(ranks[vertex]);
+      }
+      output.writeInt(arcTails.length);
+      for (int arc = 0; arc < arcTails.length; ++arc) {
+        output.writeInt(arcTails[arc]);
+        output.writeInt(arcHeads[arc]);
+        output.writeDouble(arcCosts[arc]);
+        output.writeInt(arcFirstChildren[arc]);
+        output.writeInt(arcSecondChildren[arc]);
+        output.writeInt(arcEdgeSegments[arc]);
+      }
+    } catch (IOException e) {
+      throw new PlanItRunTimeException("Unable to save contraction hierarchy to %s", e, file);
+    }
+  }
+
+  /**
+   * Unpack an arc into the edge segments it represents, in path order
+   *
+   * @param arc      to unpack
+   * @param consumer of the edge segment ids
+   */
+  public void unpack(int arc, IntConsumer consumer) {
+    var stack = new int[16];
+    int size = 0;
+    stack[size++] = arc;
+    while (size > 0) {
+      int current = stack[--size];
+      if (arcEdgeSegments[current] >= 0) {
+        consumer.accept(arcEdgeSegments[current]);
+        continue;
+      }
+      if (size + 2 > stack.length) {
+        stack = Arrays.copyOf(stack, stack.length << 1);
+      }
+      /* second child first, so the first child is unpacked first */
+      stack[size++] = arcSecondChildren[current];
+      stack[size++] = arcFirstChildren[current];
+    }
+  }
+
+  /**
+   * Number of vertex ids covered
+   *
+   * @return number of vertex ids
+   */
+  public int getNumberOfVertexIds() {
+    return numberOfVertices;
+  }
+
+  /**
+   * Number of arcs, original and shortcuts
+   *
+   * @return number of arcs
+   */
+  public int getNumberOfArcs() {
+    return arcTails.length;
+  }
+
+  /**
+   * Number of shortcuts
+   *
+   * @return number of shortcuts
+   */
+  public int getNumberOfShortcuts() {
+    int shortcuts = 0;
+    for (int edgeSegment : arcEdgeSegments) {
+      if (edgeSegment < 0) {
+        ++shortcuts;
+      }
+    }
+    return shortcuts;
+  }
+
+  /**
+   * Contraction order of a vertex, higher is more important
+   *
+   * @param vertexId to collect for
+   * @return rank
+   */
+  public int getRank(int vertexId) {
+    return ranks[vertexId];
+  }
+
+  /**
+   * Tail vertex of an arc
+   *
+   * @param arc to collect for
+   * @return tail vertex id
+   */
+  int getArcTail(int arc) {
+    return arcTails[arc];
+  }
+
+  /**
+   * Head vertex of an arc
+   *
+   * @param arc to collect for
+   * @return head vertex id
+   */
+  int getArcHead(int arc) {
+    return arcHeads[arc];
+  }
+
+  /**
+   * Arc costs, not to be modified
+   *
+   * @return cost per arc
+   */
+  double[] getArcCosts() {
+    return arcCosts;
+  }
+
+  /**
+   * Arc tails, not to be modified
+   *
+   * @return tail per arc
+   */
+  int[] getArcTails() {
+    return arcTails;
+  }
+
+  /**
+   * Arc heads, not to be modified
+   *
+   * @return head per arc
+   */
+  int[] getArcHeads() {
+    return arcHeads;
+  }
+
+  /**
+   * Offsets into the upward arcs, not to be modified
+   *
+   * @return offsets per vertex
+   */
+  int[] getUpwardOffsets() {
+    return upwardOffsets;
+  }
+
+  /**
+   * Arcs towards more important vertices grouped by tail, not to be modified
+   *
+   * @return upward arcs
+   */
+  int[] getUpwardArcs() {
+    return upwardArcs;
+  }
+
+  /**
+   * Offsets into the downward arcs, not to be modified
+   *
+   * @return offsets per vertex
+   */
+  int[] getDownwardOffsets() {
+    return downwardOffsets;
+  }
+
+  /**
+   * Arcs from more important vertices grouped by head, not to be modified
+   *
+   * @return downward arcs
+   */
+  int[] getDownwardArcs() {
+    return downwardArcs;
+  }
+}
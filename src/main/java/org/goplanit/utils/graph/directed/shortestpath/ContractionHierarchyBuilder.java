@@ -0,0 +1,368 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.containers.IndexedDoubleMinHeap;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+
+/**
+ * Contracts the vertices of a directed graph one by one in order of importance to create a {@link ContractionHierarchy}. The importance of a
+ * vertex is its edge difference, i.e., the number of shortcuts its contraction requires minus the number of arcs it removes, plus its number
+ * of already contracted neighbours to spread contraction evenly across the graph. Priorities are updated lazily and for the neighbours of
+ * each contracted vertex.
+ * <p>
+ * A shortcut is only added when a local witness search, which avoids the vertex being contracted and is limited in the number of settled
+ * vertices, finds no path that is at most as costly. A limited witness search may add superfluous shortcuts but never misses one, so
+ * queries remain exact.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+class ContractionHierarchyBuilder {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(ContractionHierarchyBuilder.class.getCanonicalName());
+
+  /** initial capacity of the adjacency list of a vertex */
+  private static final int INITIAL_ADJACENCY_CAPACITY = 4;
+
+  /** number of vertex ids */
+  private final int numberOfVertices;
+
+  /** maximum number of vertices settled per witness search */
+  private final int witnessSettleLimit;
+
+  /** number of arcs, original and shortcuts */
+  private int numberOfArcs;
+
+  /** tail vertex per arc */
+  private int[] arcTails;
+
+  /** head vertex per arc */
+  private int[] arcHeads;
+
+  /** cost per arc */
+  private double[] arcCosts;
+
+  /** first arc a shortcut consists of, -1 for original arcs */
+  private int[] arcFirstChildren;
+
+  /** second arc a shortcut consists of, -1 for original arcs */
+  private int[] arcSecondChildren;
+
+  /** edge segment id of original arcs, -1 for shortcuts */
+  private int[] arcEdgeSegments;
+
+  /** outgoing arcs per vertex */
+  private final int[][] outArcs;
+
+  /** number of outgoing arcs per vertex */
+  private final int[] outSizes;
+
+  /** incoming arcs per vertex */
+  private final int[][] inArcs;
+
+  /** number of incoming arcs per vertex */
+  private final int[] inSizes;
+
+  /** flag per vertex indicating it has been contracted */
+  private final boolean[] contracted;
+
+  /** number of contracted neighbours per vertex */
+  private final int[] contractedNeighbours;
+
+  /** cost per vertex in the witness search, valid when stamped */
+  private final double[] witnessCosts;
+
+  /** stamp per vertex indicating it was reached in the current witness search */
+  private final int[] witnessStamps;
+
+  /** current witness search stamp */
+  private int witnessStamp;
+
+  /** queue of the witness search */
+  private final IndexedDoubleMinHeap witnessQueue;
+
+  /**
+   * Append value to adjacency list
+   *
+   * @param lists  adjacency lists
+   * @param sizes  sizes of the lists
+   * @param vertex to append to
+   * @param arc    to append
+   */
+  private static void append(int[][] lists, int[] sizes, int vertex, int arc) {
+    if (lists[vertex] == null) {
+      lists[vertex] = new int[INITIAL_ADJACENCY_CAPACITY];
+    } else if (sizes[vertex] == lists[vertex].length) {
+      lists[vertex] = Arrays.copyOf(lists[vertex], sizes[vertex] << 1);
+    }
+    lists[vertex][sizes[vertex]++] = arc;
+  }
+
+  /**
+   * Add an arc, or lower the cost of the existing arc between the same vertices when cheaper. An existing arc is only ever replaced while
+   * both its end points are uncontracted, so it cannot yet be part of any shortcut
+   *
+   * @param tail         of arc
+   * @param head         of arc
+   * @param cost         of arc
+   * @param firstChild   of shortcut, -1 for original arcs
+   * @param secondChild  of shortcut, -1 for original arcs
+   * @param edgeSegment  of original arc, -1 for shortcuts
+   */
+  private void addArc(int tail, int head, double cost, int firstChild, int secondChild, int edgeSegment) {
+    for (int index = 0; index < outSizes[tail]; ++index) {
+      int arc = outArcs[tail][index];
+      if (arcHeads[arc] == head) {
+        if (cost < arcCosts[arc]) {
+          arcCosts[arc] = cost;
+          arcFirstChildren[arc] = firstChild;
+          arcSecondChildren[arc] = secondChild;
+          arcEdgeSegments[arc] = edgeSegment;
+        }
+        return;
+      }
+    }
+    if (numberOfArcs == arcTails.length) {
+      int capacity = Math.max(16, numberOfArcs << 1);
+      arcTails = Arrays.copyOf(arcTails, capacity);
+      arcHeads = Arrays.copyOf(arcHeads, capacity);
+      arcCosts = Arrays.copyOf(arcCosts, capacity);
+      arcFirstChildren = Arrays.copyOf(arcFirstChildren, capacity);
+      arcSecondChildren = Arrays.copyOf(arcSecondChildren, capacity);
+      arcEdgeSegments = Arrays.copyOf(arcEdgeSegments, capacity);
+    }
+    int arc = numberOfArcs++;
+    arcTails[arc] = tail;
+    arcHeads[arc] = head;
+    arcCosts[arc] = cost;
+    arcFirstChildren[arc] = firstChild;
+    arcSecondChildren[arc] = secondChild;
+    arcEdgeSegments[arc] = edgeSegment;
+    append(outArcs, outSizes, tail, arc);
+    append(inArcs, inSizes, head, arc);
+  }
+
+  /**
+   * Local search from the source among uncontracted vertices, avoiding the vertex being contracted, up to the maximum cost or the settle
+   * limit. Afterwards costs of reached vertices are upper bounds on their shortest path cost avoiding the excluded vertex
+   *
+   * @param source         to search from
+   * @param excludedVertex to avoid
+   * @param maxCost        beyond which the search stops
+   */
+  private void witnessSearch(int source, int excludedVertex, double maxCost) {
+    if (++witnessStamp == Integer.MAX_VALUE) {
+      Arrays.fill(witnessStamps, 0);
+      witnessStamp = 1;
+    }
+    witnessQueue.clear();
+    witnessStamps[source] = witnessStamp;
+    witnessCosts[source] = 0;
+    witnessQueue.insertOrUpdate(source, 0);
+    int settled = 0;
+    while (!witnessQueue.isEmpty() && settled < witnessSettleLimit) {
+      if (witnessQueue.peekKey() > maxCost) {
+        break;
+      }
+      int vertex = witnessQueue.poll();
+      ++settled;
+      double vertexCost = witnessCosts[vertex];
+      for (int index = 0; index < outSizes[vertex]; ++index) {
+        int arc = outArcs[vertex][index];
+        int head = arcHeads[arc];
+        if (contracted[head] || head == excludedVertex) {
+          continue;
+        }
+        double newCost = vertexCost + arcCosts[arc];
+        if (witnessStamps[head] != witnessStamp || newCost < witnessCosts[head]) {
+          witnessStamps[head] = witnessStamp;
+          witnessCosts[head] = newCost;
+          witnessQueue.insertOrUpdate(head, newCost);
+        }
+      }
+    }
+  }
+
+  /**
+   * Contract a vertex, or only count the shortcuts its contraction requires
+   *
+   * @param vertex   to contract
+   * @param simulate when true no shortcuts are added
+   * @return number of shortcuts required
+   */
+  private int contract(int vertex, boolean simulate) {
+    int shortcuts = 0;
+    /* sizes are fixed upfront, shortcuts never start or end at the vertex being contracted */
+    final int numberOfIn = inSizes[vertex];
+    final int numberOfOut = outSizes[vertex];
+    for (int inIndex = 0; inIndex < numberOfIn; ++inIndex) {
+      int inArc = inArcs[vertex][inIndex];
+      int tail = arcTails[inArc];
+      if (contracted[tail]) {
+        continue;
+      }
+      double maxCost = Double.NEGATIVE_INFINITY;
+      for (int outIndex = 0; outIndex < numberOfOut; ++outIndex) {
+        int outArc = outArcs[vertex][outIndex];
+        int head = arcHeads[outArc];
+        if (!contracted[head] && head != tail) {
+          maxCost = Math.max(maxCost, arcCosts[inArc] + arcCosts[outArc]);
+        }
+      }
+      if (maxCost == Double.NEGATIVE_INFINITY) {
+        continue;
+      }
+      witnessSearch(tail, vertex, maxCost);
+      for (int outIndex = 0; outIndex < numberOfOut; ++outIndex) {
+        int outArc = outArcs[vertex][outIndex];
+        int head = arcHeads[outArc];
+        if (contracted[head] || head == tail) {
+          continue;
+        }
+        double viaCost = arcCosts[inArc] + arcCosts[outArc];
+        if (witnessStamps[head] == witnessStamp && witnessCosts[head] <= viaCost) {
+          continue;
+        }
+        ++shortcuts;
+        if (!simulate) {
+          addArc(tail, head, viaCost, inArc, outArc, -1);
+        }
+      }
+    }
+    return shortcuts;
+  }
+
+  /**
+   * Number of arcs of the vertex to or from uncontracted vertices
+   *
+   * @param vertex to count for
+   * @return remaining degree
+   */
+  private int computeRemainingDegree(int vertex) {
+    int degree = 0;
+    for (int index = 0; index < outSizes[vertex]; ++index) {
+      if (!contracted[arcHeads[outArcs[vertex][index]]]) {
+        ++degree;
+      }
+    }
+    for (int index = 0; index < inSizes[vertex]; ++index) {
+      if (!contracted[arcTails[inArcs[vertex][index]]]) {
+        ++degree;
+      }
+    }
+    return degree;
+  }
+
+  /**
+   * Priority of a vertex, lower is contracted earlier
+   *
+   * @param vertex to compute for
+   * @return priority
+   */
+  private double computePriority(int vertex) {
+    return contract(vertex, true) - computeRemainingDegree(vertex) + contractedNeighbours[vertex];
+  }
+
+  /**
+   * Constructor, registers the original arcs
+   *
+   * @param graphStar          to contract
+   * @param edgeSegmentCosts   cost per edge segment id, infinite costs are excluded
+   * @param witnessSettleLimit maximum number of vertices settled per witness search
+   */
+  ContractionHierarchyBuilder(DirectedGraphStar graphStar, double[] edgeSegmentCosts, int witnessSettleLimit) {
+    if (edgeSegmentCosts.length < graphStar.getNumberOfEdgeSegmentIds()) {
+      throw new PlanItRunTimeException("Edge segment costs cover %d ids, expected %d", edgeSegmentCosts.length,
+          graphStar.getNumberOfEdgeSegmentIds());
+    }
+    this.numberOfVertices = graphStar.getNumberOfVertexIds();
+    this.witnessSettleLimit = witnessSettleLimit;
+    int initialCapacity = Math.max(16, graphStar.getNumberOfEdgeSegments() * 2);
+    this.arcTails = new int[initialCapacity];
+    this.arcHeads = new int[initialCapacity];
+    this.arcCosts = new double[initialCapacity];
+    this.arcFirstChildren = new int[initialCapacity];
+    this.arcSecondChildren = new int[initialCapacity];
+    this.arcEdgeSegments = new int[initialCapacity];
+    this.outArcs = new int[numberOfVertices][];
+    this.outSizes = new int[numberOfVertices];
+    this.inArcs = new int[numberOfVertices][];
+    this.inSizes = new int[numberOfVertices];
+    this.contracted = new boolean[numberOfVertices];
+    this.contractedNeighbours = new int[numberOfVertices];
+    this.witnessCosts = new double[numberOfVertices];
+    this.witnessStamps = new int[numberOfVertices];
+    this.witnessQueue = new IndexedDoubleMinHeap(numberOfVertices);
+
+    for (int edgeSegmentId = 0; edgeSegmentId < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegmentId) {
+      if (!graphStar.hasEdgeSegment(edgeSegmentId)) {
+        continue;
+      }
+      double cost = edgeSegmentCosts[edgeSegmentId];
+      if (cost < 0 || Double.isNaN(cost)) {
+        throw new PlanItRunTimeException("Edge segment %d has invalid cost %f for contraction hierarchy", edgeSegmentId, cost);
+      }
+      int tail = graphStar.getUpstreamVertexId(edgeSegmentId);
+      int head = graphStar.getDownstreamVertexId(edgeSegmentId);
+      if (tail != head && cost != Double.POSITIVE_INFINITY) {
+        addArc(tail, head, cost, -1, -1, edgeSegmentId);
+      }
+    }
+  }
+
+  /**
+   * Contract all vertices and create the hierarchy
+   *
+   * @param numberOfEdgeSegmentIds of the graph, for validation when loading
+   * @return contraction hierarchy
+   */
+  ContractionHierarchy build(int numberOfEdgeSegmentIds) {
+    final int numberOfOriginalArcs = numberOfArcs;
+    final var queue = new IndexedDoubleMinHeap(numberOfVertices);
+    for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+      queue.insertOrUpdate(vertex, computePriority(vertex));
+    }
+
+    final int[] ranks = new int[numberOfVertices];
+    int rank = 0;
+    while (!queue.isEmpty()) {
+      int vertex = queue.poll();
+      /* lazy update: priorities may have gone up since they were computed, postpone when no longer the least important */
+      double priority = computePriority(vertex);
+      if (!queue.isEmpty() && priority > queue.peekKey()) {
+        queue.insertOrUpdate(vertex, priority);
+        continue;
+      }
+
+      contract(vertex, false);
+      contracted[vertex] = true;
+      ranks[vertex] = rank++;
+
+      for (int index = 0; index < outSizes[vertex]; ++index) {
+        int head = arcHeads[outArcs[vertex][index]];
+        if (!contracted[head]) {
+          ++contractedNeighbours[head];
+          queue.insertOrUpdate(head, computePriority(head));
+        }
+      }
+      for (int index = 0; index < inSizes[vertex]; ++index) {
+        int tail = arcTails[inArcs[vertex][index]];
+        if (!contracted[tail]) {
+          ++contractedNeighbours[tail];
+          queue.insertOrUpdate(tail, computePriority(tail));
+        }
+      }
+    }
+    LOGGER.fine(String.format("Contraction hierarchy created with %d original arcs and %d shortcuts", numberOfOriginalArcs,
+        numberOfArcs - numberOfOriginalArcs));
+
+    return new ContractionHierarchy(numberOfVertices, numberOfEdgeSegmentIds, ranks, Arrays.copyOf(arcTails, numberOfArcs),
+        Arrays.copyOf(arcHeads, numberOfArcs), Arrays.copyOf(arcCosts, numberOfArcs), Arrays.copyOf(arcFirstChildren, numberOfArcs),
+        Arrays.copyOf(arcSecondChildren, numberOfArcs), Arrays.copyOf(arcEdgeSegments, numberOfArcs));
+  }
+}
@@ -0,0 +1,261 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.containers.IndexedDoubleMinHeap;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.path.DirectedPathFactory;
+import org.goplanit.utils.path.SimpleDirectedPath;
+
+/**
+ * Exact point-to-point shortest path query on a {@link ContractionHierarchy}: a forward search from the origin and a backward search from
+ * the destination, both only towards more important vertices, meet at the most important vertex of the shortest path. The search stops as
+ * soon as neither queue can improve the best meeting cost found so far.
+ * <p>
+ * Search state is allocated once and reused across queries. The path of the latest query can be unpacked into its edge segments. Not thread
+ * safe, the hierarchy may be shared but use one query instance per thread.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ContractionHierarchyQuery {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ContractionHierarchyQuery.class.getCanonicalName());
+
+  /** hierarchy to query */
+  private final ContractionHierarchy hierarchy;
+
+  /** graph the hierarchy was created for, used to map edge segment ids back to edge segments */
+  private final DirectedGraphStar graphStar;
+
+  /** costs of the forward search, valid when stamped */
+  private final double[] forwardCosts;
+
+  /** incoming arc of the forward search, valid when stamped */
+  private final int[] forwardArcs;
+
+  /** stamp per vertex indicating it was reached by the forward search */
+  private final int[] forwardStamps;
+
+  /** costs of the backward search, valid when stamped */
+  private final double[] backwardCosts;
+
+  /** outgoing arc of the backward search, valid when stamped */
+  private final int[] backwardArcs;
+
+  /** stamp per vertex indicating it was reached by the backward search */
+  private final int[] backwardStamps;
+
+  /** queue of the forward search */
+  private final IndexedDoubleMinHeap forwardQueue;
+
+  /** queue of the backward search */
+  private final IndexedDoubleMinHeap backwardQueue;
+
+  /** current stamp */
+  private int currentStamp;
+
+  /** vertex where both searches meet on the shortest path of the latest query, -1 when unreachable */
+  private int meetingVertex;
+
+  /** cost of the latest query */
+  private double bestCost;
+
+  /**
+   * Settle the next vertex of one of the searches and relax its arcs
+   *
+   * @param queue         of the search
+   * @param costs         of the search
+   * @param arcs          recorded by the search
+   * @param stamps        of the search
+   * @param otherCosts    of the opposite search
+   * @param otherStamps   of the opposite search
+   * @param offsets       of the arcs to relax
+   * @param groupedArcs   arcs to relax
+   * @param arcNextVertex vertex reached via each arc, head for forward, tail for backward
+   */
+  private void settleNext(IndexedDoubleMinHeap queue, double[] costs, int[] arcs, int[] stamps, double[] otherCosts, int[] otherStamps,
+      int[] offsets, int[] groupedArcs, int[] arcNextVertex) {
+    final double[] arcCosts = hierarchy.getArcCosts();
+    final int vertex = queue.poll();
+    final double vertexCost = costs[vertex];
+    if (otherStamps[vertex] == currentStamp && vertexCost + otherCosts[vertex] < bestCost) {
+      bestCost = vertexCost + otherCosts[vertex];
+      meetingVertex = vertex;
+    }
+    for (int index = offsets[vertex]; index < offsets[vertex + 1]; ++index) {
+      final int arc = groupedArcs[index];
+      final int next = arcNextVertex[arc];
+      final double newCost = vertexCost + arcCosts[arc];
+      if (stamps[next] != currentStamp || newCost < costs[next]) {
+        stamps[next] = currentStamp;
+        costs[next] = newCost;
+        arcs[next] = arc;
+        queue.insertOrUpdate(next, newCost);
+        if (otherStamps[next] == currentStamp && newCost + otherCosts[next] < bestCost) {
+          bestCost = newCost + otherCosts[next];
+          meetingVertex = next;
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param hierarchy to query
+   * @param graphStar the hierarchy was created for
+   */
+  public ContractionHierarchyQuery(final ContractionHierarchy hierarchy, final DirectedGraphStar graphStar) {
+    this.hierarchy = hierarchy;
+    this.graphStar = graphStar;
+    int numberOfVertices = hierarchy.getNumberOfVertexIds();
+    this.forwardCosts = new double[numberOfVertices];
+    this.forwardArcs = new int[numberOfVertices];
+    this.forwardStamps = new int[numberOfVertices];
+    this.backwardCosts = new double[numberOfVertices];
+    this.backwardArcs = new int[numberOfVertices];
+    this.backwardStamps = new int[numberOfVertices];
+    this.forwardQueue = new IndexedDoubleMinHeap(numberOfVertices);
+    this.backwardQueue = new IndexedDoubleMinHeap(numberOfVertices);
+    this.currentStamp = 0;
+    this.meetingVertex = -1;
+    this.bestCost = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Compute the cost of the shortest path between two vertices
+   *
+   * @param originVertexId      to start from
+   * @param destinationVertexId to reach
+   * @return cost of the shortest path, positive infinity when unreachable
+   */
+  public double computeCost(int originVertexId, int destinationVertexId) {
+    if (++currentStamp == Integer.MAX_VALUE) {
+      Arrays.fill(forwardStamps, 0);
+      Arrays.fill(backwardStamps, 0);
+      currentStamp = 1;
+    }
+    forwardQueue.clear();
+    backwardQueue.clear();
+    bestCost = Double.POSITIVE_INFINITY;
+    meetingVertex = -1;
+
+    forwardStamps[originVertexId] = currentStamp;
+    forwardCosts[originVertexId] = 0;
+    forwardArcs[originVertexId] = -1;
+    forwardQueue.insertOrUpdate(originVertexId, 0);
+    backwardStamps[destinationVertexId] = currentStamp;
+    backwardCosts[destinationVertexId] = 0;
+    backwardArcs[destinationVertexId] = -1;
+    backwardQueue.insertOrUpdate(destinationVertexId, 0);
+    if (originVertexId == destinationVertexId) {
+      bestCost = 0;
+      meetingVertex = originVertexId;
+      return bestCost;
+    }
+
+    while (true) {
+      double forwardMin = forwardQueue.isEmpty() ? Double.POSITIVE_INFINITY : forwardQueue.peekKey();
+      double backwardMin = backwardQueue.isEmpty() ? Double.POSITIVE_INFINITY : backwardQueue.peekKey();
+      if (Math.min(forwardMin, backwardMin) >= bestCost) {
+        break;
+      }
+      if (forwardMin <= backwardMin) {
+        settleNext(forwardQueue, forwardCosts, forwardArcs, forwardStamps, backwardCosts, backwardStamps, hierarchy.getUpwardOffsets(),
+            hierarchy.getUpwardArcs(), hierarchy.getArcHeads());
+      } else {
+        settleNext(backwardQueue, backwardCosts, backwardArcs, backwardStamps, forwardCosts, forwardStamps, hierarchy.getDownwardOffsets(),
+            hierarchy.getDownwardArcs(), hierarchy.getArcTails());
+      }
+    }
+    return bestCost;
+  }
+
+  /**
+   * Cost of the latest query
+   *
+   * @return cost, positive infinity when unreachable
+   */
+  public double getCost() {
+    return bestCost;
+  }
+
+  /**
+   * Edge segment ids of the shortest path of the latest query
+   *
+   * @return edge segment ids in path order, null when unreachable
+   */
+  public int[] createEdgeSegmentIdPath() {
+    if (meetingVertex < 0) {
+      return null;
+    }
+    var arcs = new int[16];
+    int numberOfArcs = 0;
+    for (int vertex = meetingVertex; forwardArcs[vertex] >= 0; vertex = hierarchy.getArcTail(forwardArcs[vertex])) {
+      if (numberOfArcs == arcs.length) {
+        arcs = Arrays.copyOf(arcs, arcs.length << 1);
+      }
+      arcs[numberOfArcs++] = forwardArcs[vertex];
+    }
+    /* forward arcs are collected from the meeting vertex back to the origin, reverse them into path order */
+    for (int left = 0, right = numberOfArcs - 1; left < right; ++left, --right) {
+      int arc = arcs[left];
+      arcs[left] = arcs[right];
+      arcs[right] = arc;
+    }
+    for (int vertex = meetingVertex; backwardArcs[vertex] >= 0; vertex = hierarchy.getArcHead(backwardArcs[vertex])) {
+      if (numberOfArcs == arcs.length) {
+        arcs = Arrays.copyOf(arcs, arcs.length << 1);
+      }
+      arcs[numberOfArcs++] = backwardArcs[vertex];
+    }
+    var edgeSegmentIds = IntStream.builder();
+    for (int index = 0; index < numberOfArcs; ++index) {
+      hierarchy.unpack(arcs[index], edgeSegmentIds::add);
+    }
+    return edgeSegmentIds.build().toArray();
+  }
+
+  /**
+   * Create the shortest path of the latest query
+   *
+   * @param <T>         type of path
+   * @param pathFactory to create the path with
+   * @return path, null when unreachable
+   */
+  public <T extends SimpleDirectedPath> T createPath(DirectedPathFactory<T> pathFactory) {
+    var edgeSegmentIds = createEdgeSegmentIdPath();
+    if (edgeSegmentIds == null) {
+      return null;
+    }
+    Deque<EdgeSegment> edgeSegments = new ArrayDeque<>(edgeSegmentIds.length);
+    for (int edgeSegmentId : edgeSegmentIds) {
+      edgeSegments.addLast(graphStar.getEdgeSegment(edgeSegmentId));
+    }
+    return pathFactory.createNew(edgeSegments);
+  }
+
+  /**
+   * Compute the shortest path between two vertices and create it
+   *
+   * @param <T>         type of path
+   * @param origin      to start from
+   * @param destination to reach
+   * @param pathFactory to create the path with
+   * @return path, null when unreachable
+   */
+  public <T extends SimpleDirectedPath> T computePath(DirectedVertex origin, DirectedVertex destination, DirectedPathFactory<T> pathFactory) {
+    computeCost((int) origin.getId(), (int) destination.getId());
+    return createPath(pathFactory);
+  }
+}
@@ -0,0 +1,24 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+/**
+ * Estimate of the remaining cost from a vertex to the destination of an A* search. To guarantee shortest paths the estimate must be
+ * admissible, i.e., never exceed the actual remaining cost.
+ *
+ * @author markr
+ *
+ */
+@FunctionalInterface
+public interface ShortestPathHeuristic {
+
+  /** heuristic without any estimate, turns A* into Dijkstra */
+  public static final ShortestPathHeuristic NONE = (vertexId, destinationVertexId) -> 0;
+
+  /**
+   * Estimate the remaining cost
+   *
+   * @param vertexId            to estimate from
+   * @param destinationVertexId to estimate to
+   * @return estimated cost, not exceeding the actual cost
+   */
+  public abstract double estimateCost(int vertexId, int destinationVertexId);
+}
@@ -0,0 +1,331 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.containers.IndexedDoubleMinHeap;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.path.DirectedPathFactory;
+import org.goplanit.utils.path.SimpleDirectedPath;
+
+/**
+ * Label setting shortest path search (Dijkstra, or A* when a heuristic is provided) over a {@link DirectedGraphStar} with costs per edge
+ * segment provided as a primitive array indexed by edge segment id. Edge segments with an infinite cost are treated as unavailable, costs
+ * must not be negative.
+ * <p>
+ * All search state, i.e., costs, incoming edge segments and the priority queue, is allocated once and reused across searches, a stamp per
+ * vertex marks which labels belong to the current search so nothing needs to be cleared in between. Results of the latest search remain
+ * available until the next search, either per vertex, as a predecessor array, or as a path created via a {@link DirectedPathFactory}.
+ * </p>
+ * <p>
+ * Not thread safe, the graph star may be shared but use one search instance per thread.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ShortestPathSearch {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ShortestPathSearch.class.getCanonicalName());
+
+  /** graph to search */
+  private final DirectedGraphStar graphStar;
+
+  /** cost to reach each vertex by id, valid when stamped */
+  private final double[] vertexCosts;
+
+  /** incoming edge segment id on the shortest path to each vertex by id, -1 for the origin, valid when stamped */
+  private final int[] incomingEdgeSegments;
+
+  /** stamp per vertex id indicating it has been reached in the current search */
+  private final int[] stamps;
+
+  /** priority queue of vertex ids */
+  private final IndexedDoubleMinHeap queue;
+
+  /** current stamp */
+  private int currentStamp;
+
+  /** origin vertex id of the latest search, -1 when none */
+  private int originVertexId;
+
+  /** number of vertices polled from the queue in the latest search */
+  private int numberOfPolledVertices;
+
+  /**
+   * Prepare state for a new search from the given origin
+   *
+   * @param originVertexId     to start from
+   * @param edgeSegmentCosts   to use
+   */
+  private void initialise(int originVertexId, double[] edgeSegmentCosts) {
+    if (!graphStar.hasVertex(originVertexId)) {
+      throw new PlanItRunTimeException("Origin vertex %d unknown to shortest path search", originVertexId);
+    }
+    if (edgeSegmentCosts.length < graphStar.getNumberOfEdgeSegmentIds()) {
+      throw new PlanItRunTimeException("Edge segment costs cover %d ids, expected %d", edgeSegmentCosts.length,
+          graphStar.getNumberOfEdgeSegmentIds());
+    }
+    if (++currentStamp == Integer.MAX_VALUE) {
+      Arrays.fill(stamps, 0);
+      currentStamp = 1;
+    }
+    queue.clear();
+    this.originVertexId = originVertexId;
+    this.numberOfPolledVertices = 0;
+    stamps[originVertexId] = currentStamp;
+    vertexCosts[originVertexId] = 0;
+    incomingEdgeSegments[originVertexId] = -1;
+  }
+
+  /**
+   * Run the search from the initialised origin
+   *
+   * @param edgeSegmentCosts    to use
+   * @param destinationVertexId to stop at once settled, -1 to settle all reachable vertices
+   * @param maxCost             vertices with a higher cost are not expanded
+   * @param heuristic           to guide the search towards the destination, null for Dijkstra
+   */
+  private void search(double[] edgeSegmentCosts, int destinationVertexId, double maxCost, ShortestPathHeuristic heuristic) {
+    final int[] offsets = graphStar.getForwardOffsets();
+    final int[] segments = graphStar.getForwardEdgeSegments();
+    final int[] heads = graphStar.getForwardHeads();
+
+    queue.insertOrUpdate(originVertexId, heuristic == null ? 0 : heuristic.estimateCost(originVertexId, destinationVertexId));
+    while (!queue.isEmpty()) {
+      final int vertex = queue.poll();
+      ++numberOfPolledVertices;
+      if (vertex == destinationVertexId) {
+        return;
+      }
+      final double vertexCost = vertexCosts[vertex];
+      for (int arc = offsets[vertex]; arc < offsets[vertex + 1]; ++arc) {
+        final double newCost = vertexCost + edgeSegmentCosts[segments[arc]];
+        if (newCost > maxCost || newCost == Double.POSITIVE_INFINITY) {
+          continue;
+        }
+        final int head = heads[arc];
+        if (stamps[head] != currentStamp || newCost < vertexCosts[head]) {
+          stamps[head] = currentStamp;
+          vertexCosts[head] = newCost;
+          incomingEdgeSegments[head] = segments[arc];
+          /* with an admissible but inconsistent heuristic an already polled vertex can improve, it is then simply queued again */
+          queue.insertOrUpdate(head, heuristic == null ? newCost : newCost + heuristic.estimateCost(head, destinationVertexId));
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param graphStar to search
+   */
+  public ShortestPathSearch(final DirectedGraphStar graphStar) {
+    this.graphStar = graphStar;
+    int numberOfVertexIds = graphStar.getNumberOfVertexIds();
+    this.vertexCosts = new double[numberOfVertexIds];
+    this.incomingEdgeSegments = new int[numberOfVertexIds];
+    this.stamps = new int[numberOfVertexIds];
+    this.queue = new IndexedDoubleMinHeap(numberOfVertexIds);
+    this.currentStamp = 0;
+    this.originVertexId = -1;
+  }
+
+  /**
+   * Compute the shortest paths from the origin to all reachable vertices
+   *
+   * @param originVertexId   to start from
+   * @param edgeSegmentCosts cost per edge segment id
+   */
+  public void executeOneToAll(int originVertexId, double[] edgeSegmentCosts) {
+    executeOneToAll(originVertexId, edgeSegmentCosts, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Compute the shortest paths from the origin to all vertices reachable within the given cost
+   *
+   * @param originVertexId   to start from
+   * @param edgeSegmentCosts cost per edge segment id
+   * @param maxCost          vertices beyond this cost are not reached
+   */
+  public void executeOneToAll(int originVertexId, double[] edgeSegmentCosts, double maxCost) {
+    initialise(originVertexId, edgeSegmentCosts);
+    search(edgeSegmentCosts, -1, maxCost, null);
+  }
+
+  /**
+   * Compute the shortest path from the origin to the destination with Dijkstra, stopping as soon as the destination is settled
+   *
+   * @param originVertexId      to start from
+   * @param destinationVertexId to reach
+   * @param edgeSegmentCosts    cost per edge segment id
+   * @return cost of the shortest path, positive infinity when unreachable
+   */
+  public double executeOneToOne(int originVertexId, int destinationVertexId, double[] edgeSegmentCosts) {
+    return executeOneToOne(originVertexId, destinationVertexId, edgeSegmentCosts, null);
+  }
+
+  /**
+   * Compute the shortest path from the origin to the destination with A*, stopping as soon as the destination is settled
+   *
+   * @param originVertexId      to start from
+   * @param destinationVertexId to reach
+   * @param edgeSegmentCosts    cost per edge segment id
+   * @param heuristic           admissible estimate of the remaining cost, e.g., {@link StraightLineHeuristic}, null for Dijkstra
+   * @return cost of the shortest path, positive infinity when unreachable
+   */
+  public double executeOneToOne(int originVertexId, int destinationVertexId, double[] edgeSegmentCosts, ShortestPathHeuristic heuristic) {
+    if (!graphStar.hasVertex(destinationVertexId)) {
+      throw new PlanItRunTimeException("Destination vertex %d unknown to shortest path search", destinationVertexId);
+    }
+    initialise(originVertexId, edgeSegmentCosts);
+    search(edgeSegmentCosts, destinationVertexId, Double.POSITIVE_INFINITY, heuristic);
+    return getCost(destinationVertexId);
+  }
+
+  /**
+   * Compute the shortest path between two vertices and create it with the given factory
+   *
+   * @param <T>              type of path
+   * @param origin           to start from
+   * @param destination      to reach
+   * @param edgeSegmentCosts cost per edge segment id
+   * @param heuristic        admissible estimate of the remaining cost, null for Dijkstra
+   * @param pathFactory      to create the path with
+   * @return shortest path, null when unreachable
+   */
+  public <T extends SimpleDirectedPath> T executeOneToOne(DirectedVertex origin, DirectedVertex destination, double[] edgeSegmentCosts,
+      ShortestPathHeuristic heuristic, DirectedPathFactory<T> pathFactory) {
+    executeOneToOne((int) origin.getId(), (int) destination.getId(), edgeSegmentCosts, heuristic);
+    return createPath((int) destination.getId(), pathFactory);
+  }
+
+  /**
+   * Verify if the vertex was reached in the latest search
+   *
+   * @param vertexId to verify
+   * @return true when reached
+   */
+  public boolean isReached(int vertexId) {
+    return vertexId >= 0 && vertexId < stamps.length && stamps[vertexId] == currentStamp && originVertexId >= 0;
+  }
+
+  /**
+   * Cost to reach the vertex in the latest search. For one-to-one searches only the cost of the destination and vertices settled before
+   * it are guaranteed to be minimal
+   *
+   * @param vertexId to collect for
+   * @return cost, positive infinity when not reached
+   */
+  public double getCost(int vertexId) {
+    return isReached(vertexId) ? vertexCosts[vertexId] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Incoming edge segment on the shortest path to the vertex in the latest search
+   *
+   * @param vertexId to collect for
+   * @return edge segment id, -1 when not reached or the origin
+   */
+  public int getIncomingEdgeSegmentId(int vertexId) {
+    return isReached(vertexId) ? incomingEdgeSegments[vertexId] : -1;
+  }
+
+  /**
+   * Origin of the latest search
+   *
+   * @return origin vertex id, -1 when no search took place
+   */
+  public int getOriginVertexId() {
+    return originVertexId;
+  }
+
+  /**
+   * Number of vertices polled from the queue in the latest search, a measure of the search effort
+   *
+   * @return number of polled vertices
+   */
+  public int getNumberOfPolledVertices() {
+    return numberOfPolledVertices;
+  }
+
+  /**
+   * Graph searched
+   *
+   * @return graph star
+   */
+  public DirectedGraphStar getGraphStar() {
+    return graphStar;
+  }
+
+  /**
+   * Copy the incoming edge segment ids by vertex id of the latest search into the given array, -1 for vertices not reached and the
+   * origin
+   *
+   * @param predecessors to populate, at least the number of vertex ids in length
+   * @return populated array
+   */
+  public int[] copyIncomingEdgeSegmentIds(int[] predecessors) {
+    for (int vertexId = 0; vertexId < stamps.length; ++vertexId) {
+      predecessors[vertexId] = getIncomingEdgeSegmentId(vertexId);
+    }
+    return predecessors;
+  }
+
+  /**
+   * Create array with the incoming edge segment ids by vertex id of the latest search, -1 for vertices not reached and the origin
+   *
+   * @return predecessor array
+   */
+  public int[] createIncomingEdgeSegmentIds() {
+    return copyIncomingEdgeSegmentIds(new int[stamps.length]);
+  }
+
+  /**
+   * Edge segment ids on the shortest path from the origin to the vertex in the latest search
+   *
+   * @param destinationVertexId to collect path for
+   * @return edge segment ids in path order, empty when the destination is the origin, null when not reached
+   */
+  public int[] createEdgeSegmentIdPath(int destinationVertexId) {
+    if (!isReached(destinationVertexId)) {
+      return null;
+    }
+    int length = 0;
+    for (int vertex = destinationVertexId; incomingEdgeSegments[vertex] >= 0; vertex = graphStar.getUpstreamVertexId(incomingEdgeSegments[vertex])) {
+      ++length;
+    }
+    var path = new int[length];
+    for (int vertex = destinationVertexId; incomingEdgeSegments[vertex] >= 0; vertex = graphStar.getUpstreamVertexId(incomingEdgeSegments[vertex])) {
+      path[--length] = incomingEdgeSegments[vertex];
+    }
+    return path;
+  }
+
+  /**
+   * Create the shortest path from the origin to the vertex in the latest search
+   *
+   * @param <T>                 type of path
+   * @param destinationVertexId to create path for
+   * @param pathFactory         to create the path with
+   * @return path, null when not reached
+   */
+  public <T extends SimpleDirectedPath> T createPath(int destinationVertexId, DirectedPathFactory<T> pathFactory) {
+    if (!isReached(destinationVertexId)) {
+      return null;
+    }
+    Deque<EdgeSegment> edgeSegments = new ArrayDeque<>();
+    for (int vertex = destinationVertexId; incomingEdgeSegments[vertex] >= 0; vertex = graphStar.getUpstreamVertexId(incomingEdgeSegments[vertex])) {
+      edgeSegments.addFirst(graphStar.getEdgeSegment(incomingEdgeSegments[vertex]));
+    }
+    return pathFactory.createNew(edgeSegments);
+  }
+}
@@ -0,0 +1,221 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.network.virtual.CentroidVertex;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdDoubleMatrix;
+
+/**
+ * Computes one shortest path tree per origin over the same graph and costs, concurrently on a fork-join pool. Each worker borrows a
+ * {@link ShortestPathSearch} from a pool of idle search states, so at most as many search states exist as there are concurrently active
+ * workers and their arrays are reused across origins.
+ * <p>
+ * Results are streamed: the consumer is handed each tree as soon as it is complete, on the worker thread that computed it, and must extract
+ * what it needs before returning since the search state is reused afterwards. This keeps memory bounded by the number of workers rather
+ * than the number of origins. When all trees are required at once, {@link #computeIncomingEdgeSegmentIds(int[], double[])} materialises
+ * them, at a cost of one predecessor array per origin.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class ShortestPathTreeBatch {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(ShortestPathTreeBatch.class.getCanonicalName());
+
+  /** Consumer of a completed shortest path tree */
+  @FunctionalInterface
+  public static interface ShortestPathTreeConsumer {
+
+    /**
+     * Consume the tree, invoked concurrently from worker threads. The search is only valid for the duration of the call
+     *
+     * @param originIndex position of the origin in the provided origins
+     * @param tree        search holding the completed tree of the origin
+     */
+    public abstract void accept(int originIndex, ShortestPathSearch tree);
+  }
+
+  /** graph to search */
+  private final DirectedGraphStar graphStar;
+
+  /** pool to execute on, null for the common pool */
+  private final ForkJoinPool pool;
+
+  /** search states not in use */
+  private final ConcurrentLinkedQueue<ShortestPathSearch> idleSearches;
+
+  /** number of search states created */
+  private final AtomicInteger numberOfSearches;
+
+  /**
+   * Borrow an idle search, or create one when none is available
+   *
+   * @return search
+   */
+  private ShortestPathSearch borrowSearch() {
+    var search = idleSearches.poll();
+    if (search == null) {
+      numberOfSearches.incrementAndGet();
+      search = new ShortestPathSearch(graphStar);
+    }
+    return search;
+  }
+
+  /**
+   * Run the task on the configured pool
+   *
+   * @param task to run
+   */
+  private void runOnPool(Runnable task) {
+    if (pool == null) {
+      task.run();
+    } else {
+      pool.submit(task).join();
+    }
+  }
+
+  /**
+   * Constructor, executes on the common fork-join pool
+   *
+   * @param graphStar to search
+   */
+  public ShortestPathTreeBatch(final DirectedGraphStar graphStar) {
+    this(graphStar, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param graphStar to search
+   * @param pool      to execute on, null for the common fork-join pool
+   */
+  public ShortestPathTreeBatch(final DirectedGraphStar graphStar, final ForkJoinPool pool) {
+    this.graphStar = graphStar;
+    this.pool = pool;
+    this.idleSearches = new ConcurrentLinkedQueue<>();
+    this.numberOfSearches = new AtomicInteger(0);
+  }
+
+  /**
+   * Compute the shortest path tree of each origin concurrently and hand each to the consumer as soon as it is complete
+   *
+   * @param originVertexIds  to compute trees for
+   * @param edgeSegmentCosts cost per edge segment id, shared by all trees and not to be modified during execution
+   * @param consumer         of each completed tree, invoked concurrently
+   */
+  public void execute(final int[] originVertexIds, final double[] edgeSegmentCosts, final ShortestPathTreeConsumer consumer) {
+    execute(originVertexIds, edgeSegmentCosts, Double.POSITIVE_INFINITY, consumer);
+  }
+
+  /**
+   * Compute the shortest path tree of each origin, up to a maximum cost, concurrently and hand each to the consumer as soon as it is
+   * complete
+   *
+   * @param originVertexIds  to compute trees for
+   * @param edgeSegmentCosts cost per edge segment id, shared by all trees and not to be modified during execution
+   * @param maxCost          vertices beyond this cost are not reached
+   * @param consumer         of each completed tree, invoked concurrently
+   */
+  public void execute(final int[] originVertexIds, final double[] edgeSegmentCosts, double maxCost, final ShortestPathTreeConsumer consumer) {
+    runOnPool(() -> IntStream.range(0, originVertexIds.length).parallel().forEach(originIndex -> {
+      var search = borrowSearch();
+      try {
+        search.executeOneToAll(originVertexIds[originIndex], edgeSegmentCosts, maxCost);
+        consumer.accept(originIndex, search);
+      } finally {
+        idleSearches.offer(search);
+      }
+    }));
+  }
+
+  /**
+   * Compute the shortest path tree of each origin and collect all of them as predecessor arrays. Memory grows with the number of origins,
+   * prefer {@link #execute(int[], double[], ShortestPathTreeConsumer)} for many origins on large graphs
+   *
+   * @param originVertexIds  to compute trees for
+   * @param edgeSegmentCosts cost per edge segment id
+   * @return incoming edge segment ids by vertex id, per origin index
+   */
+  public int[][] computeIncomingEdgeSegmentIds(final int[] originVertexIds, final double[] edgeSegmentCosts) {
+    final int[][] predecessors = new int[originVertexIds.length][];
+    execute(originVertexIds, edgeSegmentCosts, (originIndex, tree) -> predecessors[originIndex] = tree.createIncomingEdgeSegmentIds());
+    return predecessors;
+  }
+
+  /**
+   * Compute the shortest path costs between all origin and destination centroid vertices and register them on the skim data, by the
+   * parent zone of each centroid. Unreachable destinations get a cost of positive infinity. Rows are written as trees complete, concurrently
+   * for an {@link OdDoubleMatrix} and one row at a time for other od data
+   *
+   * @param origins          to compute trees for
+   * @param destinations     to collect costs for
+   * @param edgeSegmentCosts cost per edge segment id
+   * @param skims            to register costs on
+   */
+  public void computeSkims(final List<? extends CentroidVertex> origins, final List<? extends CentroidVertex> destinations,
+      final double[] edgeSegmentCosts, final OdData<Double> skims) {
+    final int[] originVertexIds = origins.stream().mapToInt(origin -> (int) origin.getId()).toArray();
+    final int[] destinationVertexIds = destinations.stream().mapToInt(destination -> (int) destination.getId()).toArray();
+    for (var centroidVertex : origins) {
+      if (centroidVertex.getParent() == null || centroidVertex.getParent().getParentZone() == null) {
+        throw new PlanItRunTimeException("Centroid vertex %d without parent zone, unable to compute skims", centroidVertex.getId());
+      }
+    }
+    for (var centroidVertex : destinations) {
+      if (centroidVertex.getParent() == null || centroidVertex.getParent().getParentZone() == null) {
+        throw new PlanItRunTimeException("Centroid vertex %d without parent zone, unable to compute skims", centroidVertex.getId());
+      }
+    }
+
+    final boolean isDoubleMatrix = skims instanceof OdDoubleMatrix;
+    execute(originVertexIds, edgeSegmentCosts, (originIndex, tree) -> {
+      final var originZone = origins.get(originIndex).getParent().getParentZone();
+      final double[] row = new double[destinationVertexIds.length];
+      for (int destinationIndex = 0; destinationIndex < row.length; ++destinationIndex) {
+        row[destinationIndex] = tree.getCost(destinationVertexIds[destinationIndex]);
+      }
+      if (isDoubleMatrix) {
+        /* distinct origins write distinct cells of the flat array, so no synchronisation is required */
+        var matrix = (OdDoubleMatrix) skims;
+        for (int destinationIndex = 0; destinationIndex < row.length; ++destinationIndex) {
+          matrix.setDouble(originZone, destinations.get(destinationIndex).getParent().getParentZone(), row[destinationIndex]);
+        }
+      } else {
+        synchronized (skims) {
+          for (int destinationIndex = 0; destinationIndex < row.length; ++destinationIndex) {
+            skims.setValue(originZone, destinations.get(destinationIndex).getParent().getParentZone(), row[destinationIndex]);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Number of search states currently held, bounded by the maximum number of concurrently active workers
+   *
+   * @return number of search states
+   */
+  public int getNumberOfSearchStates() {
+    return numberOfSearches.get();
+  }
+
+  /**
+   * Release all idle search states, e.g., once the batch is no longer used for a while
+   */
+  public void releaseSearchStates() {
+    while (idleSearches.poll() != null) {
+      numberOfSearches.decrementAndGet();
+    }
+  }
+}
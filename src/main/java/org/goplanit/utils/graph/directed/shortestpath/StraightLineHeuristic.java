@@ -0,0 +1,149 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitJtsCrsUtils;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * A* heuristic based on the straight line distance between the positions of two vertices, as computed by {@link PlanitJtsCrsUtils}, times a
+ * lower bound on the cost per metre. With the lower bound from {@link #computeMinimumCostPerMetre(DirectedGraphStar, double[],
+ * PlanitJtsCrsUtils)} the heuristic is admissible by the triangle inequality, regardless of the lengths registered on the edges. That
+ * bound is only established when all end points of edge segments are positioned, otherwise it is zero and A* reduces to Dijkstra.
+ * <p>
+ * Distances towards the current destination are cached per vertex, since A* tends to estimate the same vertex more than once. Vertices
+ * without a position are estimated at zero. When providing a cost per metre explicitly on a graph with unpositioned vertices, it must also
+ * bound the cost of paths through those vertices. Not thread safe, use one instance per search.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class StraightLineHeuristic implements ShortestPathHeuristic {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(StraightLineHeuristic.class.getCanonicalName());
+
+  /** geo utilities to compute distances with */
+  private final PlanitJtsCrsUtils geoUtils;
+
+  /** position of each vertex by id, null when absent */
+  private final Coordinate[] coordinates;
+
+  /** cost per metre, not exceeding the actual cost per metre of straight line distance of any edge segment */
+  private final double costPerMetre;
+
+  /** cached estimates by vertex id, valid for the current destination when stamped */
+  private final double[] estimates;
+
+  /** stamp per vertex id indicating the estimate is valid for the current destination */
+  private final int[] stamps;
+
+  /** current stamp */
+  private int currentStamp;
+
+  /** destination the cached estimates relate to */
+  private int currentDestinationVertexId;
+
+  /**
+   * Collect coordinates of vertices by their id
+   *
+   * @param graphStar to collect for
+   * @return coordinates by vertex id
+   */
+  private static Coordinate[] collectCoordinates(DirectedGraphStar graphStar) {
+    var coordinates = new Coordinate[graphStar.getNumberOfVertexIds()];
+    for (int vertexId = 0; vertexId < coordinates.length; ++vertexId) {
+      var vertex = graphStar.getVertex(vertexId);
+      if (vertex != null && vertex.hasPosition()) {
+        coordinates[vertexId] = vertex.getPosition().getCoordinate();
+      }
+    }
+    return coordinates;
+  }
+
+  /**
+   * Lower bound on the cost per metre of straight line distance across all edge segments, such that the resulting heuristic is admissible
+   * for the given costs. Edge segments whose end points coincide are ignored. A path through a vertex without position may cost less than
+   * any positioned edge segment suggests, so no bound is established when an edge segment has an end point without position
+   *
+   * @param graphStar         to use
+   * @param edgeSegmentCosts  by edge segment id
+   * @param geoUtils          to compute distances with
+   * @return minimum cost per metre, zero when no bound can be established
+   */
+  public static double computeMinimumCostPerMetre(DirectedGraphStar graphStar, double[] edgeSegmentCosts, PlanitJtsCrsUtils geoUtils) {
+    var coordinates = collectCoordinates(graphStar);
+    double minimumCostPerMetre = Double.POSITIVE_INFINITY;
+    for (int edgeSegmentId = 0; edgeSegmentId < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegmentId) {
+      if (!graphStar.hasEdgeSegment(edgeSegmentId)) {
+        continue;
+      }
+      var upstream = coordinates[graphStar.getUpstreamVertexId(edgeSegmentId)];
+      var downstream = coordinates[graphStar.getDownstreamVertexId(edgeSegmentId)];
+      if (upstream == null || downstream == null) {
+        return 0;
+      }
+      double distanceMetres = geoUtils.getDistanceInMetres(upstream, downstream);
+      if (distanceMetres > 0) {
+        minimumCostPerMetre = Math.min(minimumCostPerMetre, Math.max(0, edgeSegmentCosts[edgeSegmentId]) / distanceMetres);
+      }
+    }
+    return Double.isInfinite(minimumCostPerMetre) ? 0 : minimumCostPerMetre;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param graphStar    to estimate for
+   * @param geoUtils     to compute distances with, using the crs of the vertex positions
+   * @param costPerMetre lower bound on the cost per metre of straight line distance, e.g., the inverse of the maximum speed for travel
+   *                     times, or the result of {@link #computeMinimumCostPerMetre(DirectedGraphStar, double[], PlanitJtsCrsUtils)}
+   */
+  public StraightLineHeuristic(DirectedGraphStar graphStar, PlanitJtsCrsUtils geoUtils, double costPerMetre) {
+    if (costPerMetre < 0 || Double.isNaN(costPerMetre)) {
+      throw new PlanItRunTimeException("Cost per metre of straight line heuristic must be non-negative, found %f", costPerMetre);
+    }
+    this.geoUtils = geoUtils;
+    this.coordinates = collectCoordinates(graphStar);
+    this.costPerMetre = costPerMetre;
+    this.estimates = new double[coordinates.length];
+    this.stamps = new int[coordinates.length];
+    this.currentStamp = 0;
+    this.currentDestinationVertexId = -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double estimateCost(int vertexId, int destinationVertexId) {
+    if (destinationVertexId != currentDestinationVertexId) {
+      currentDestinationVertexId = destinationVertexId;
+      if (++currentStamp == Integer.MAX_VALUE) {
+        Arrays.fill(stamps, 0);
+        currentStamp = 1;
+      }
+    }
+    if (stamps[vertexId] != currentStamp) {
+      var from = coordinates[vertexId];
+      var to = coordinates[destinationVertexId];
+      estimates[vertexId] = (from == null || to == null || costPerMetre == 0) ? 0 : geoUtils.getDistanceInMetres(from, to) * costPerMetre;
+      stamps[vertexId] = currentStamp;
+    }
+    return estimates[vertexId];
+  }
+
+  /**
+   * Cost per metre used
+   *
+   * @return cost per metre
+   */
+  public double getCostPerMetre() {
+    return costPerMetre;
+  }
+}
@@ -0,0 +1,278 @@
+package org.goplanit.utils.graph.directed.shortestpath;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.containers.IndexedDoubleMinHeap;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.ConjugateGraphView;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.path.DirectedPathFactory;
+import org.goplanit.utils.path.SimpleDirectedPath;
+
+/**
+ * Turn aware label setting shortest path search (Dijkstra) on a {@link ConjugateGraphView}, i.e., labels are kept per edge segment rather
+ * than per vertex so turn costs and turn bans are respected without building the conjugate graph. The cost of an edge segment label is the
+ * cost of arriving at its downstream vertex via that edge segment, the cost of a vertex is the lowest cost over its entry edge segments.
+ * <p>
+ * As with {@link ShortestPathSearch} all state is allocated once and reused across searches. Not thread safe, the view may be shared but
+ * use one search instance per thread.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class TurnAwareShortestPathSearch {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(TurnAwareShortestPathSearch.class.getCanonicalName());
+
+  /** conjugate view to search */
+  private final ConjugateGraphView conjugateView;
+
+  /** original graph of the view */
+  private final DirectedGraphStar graphStar;
+
+  /** cost of arriving at the end of each edge segment, valid when stamped */
+  private final double[] edgeSegmentLabels;
+
+  /** preceding edge segment id on the shortest path to each edge segment, -1 for the first, valid when stamped */
+  private final int[] precedingEdgeSegments;
+
+  /** stamp per edge segment id indicating it has been reached in the current search */
+  private final int[] stamps;
+
+  /** priority queue of edge segment ids */
+  private final IndexedDoubleMinHeap queue;
+
+  /** current stamp */
+  private int currentStamp;
+
+  /** origin vertex id of the latest search, -1 when none */
+  private int originVertexId;
+
+  /**
+   * Prepare state for a new search and queue the exit edge segments of the origin
+   *
+   * @param originVertexId   to start from
+   * @param edgeSegmentCosts to use
+   */
+  private void initialise(int originVertexId, double[] edgeSegmentCosts) {
+    if (!graphStar.hasVertex(originVertexId)) {
+      throw new PlanItRunTimeException("Origin vertex %d unknown to turn aware shortest path search", originVertexId);
+    }
+    if (edgeSegmentCosts.length < graphStar.getNumberOfEdgeSegmentIds()) {
+      throw new PlanItRunTimeException("Edge segment costs cover %d ids, expected %d", edgeSegmentCosts.length,
+          graphStar.getNumberOfEdgeSegmentIds());
+    }
+    if (++currentStamp == Integer.MAX_VALUE) {
+      Arrays.fill(stamps, 0);
+      currentStamp = 1;
+    }
+    queue.clear();
+    this.originVertexId = originVertexId;
+
+    final int[] offsets = graphStar.getForwardOffsets();
+    final int[] segments = graphStar.getForwardEdgeSegments();
+    for (int arc = offsets[originVertexId]; arc < offsets[originVertexId + 1]; ++arc) {
+      final int edgeSegmentId = segments[arc];
+      if (edgeSegmentCosts[edgeSegmentId] != Double.POSITIVE_INFINITY) {
+        stamps[edgeSegmentId] = currentStamp;
+        edgeSegmentLabels[edgeSegmentId] = edgeSegmentCosts[edgeSegmentId];
+        precedingEdgeSegments[edgeSegmentId] = -1;
+        queue.insertOrUpdate(edgeSegmentId, edgeSegmentCosts[edgeSegmentId]);
+      }
+    }
+  }
+
+  /**
+   * Run the search from the initialised origin
+   *
+   * @param edgeSegmentCosts    to use
+   * @param destinationVertexId to stop at once an entry edge segment is settled, -1 to settle all reachable edge segments
+   * @return edge segment settled at the destination, -1 when not applicable or not reached
+   */
+  private int search(double[] edgeSegmentCosts, int destinationVertexId) {
+    while (!queue.isEmpty()) {
+      final int entryEdgeSegmentId = queue.poll();
+      if (graphStar.getDownstreamVertexId(entryEdgeSegmentId) == destinationVertexId) {
+        return entryEdgeSegmentId;
+      }
+      final double entryCost = edgeSegmentLabels[entryEdgeSegmentId];
+      for (int turnId = conjugateView.getFirstTurn(entryEdgeSegmentId); turnId < conjugateView.getEndTurn(entryEdgeSegmentId); ++turnId) {
+        if (conjugateView.isBanned(turnId)) {
+          continue;
+        }
+        final int exitEdgeSegmentId = conjugateView.getExitEdgeSegmentId(entryEdgeSegmentId, turnId);
+        final double newCost = entryCost + conjugateView.getTurnCost(turnId) + edgeSegmentCosts[exitEdgeSegmentId];
+        if (newCost == Double.POSITIVE_INFINITY) {
+          continue;
+        }
+        if (stamps[exitEdgeSegmentId] != currentStamp || newCost < edgeSegmentLabels[exitEdgeSegmentId]) {
+          stamps[exitEdgeSegmentId] = currentStamp;
+          edgeSegmentLabels[exitEdgeSegmentId] = newCost;
+          precedingEdgeSegments[exitEdgeSegmentId] = entryEdgeSegmentId;
+          queue.insertOrUpdate(exitEdgeSegmentId, newCost);
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Entry edge segment of the vertex with the lowest cost in the latest search
+   *
+   * @param vertexId to collect for
+   * @return edge segment id, -1 when not reached via any entry edge segment
+   */
+  private int findBestEntryEdgeSegment(int vertexId) {
+    final int[] offsets = graphStar.getBackwardOffsets();
+    final int[] segments = graphStar.getBackwardEdgeSegments();
+    int best = -1;
+    for (int arc = offsets[vertexId]; arc < offsets[vertexId + 1]; ++arc) {
+      final int edgeSegmentId = segments[arc];
+      if (isReachedVia(edgeSegmentId) && (best < 0 || edgeSegmentLabels[edgeSegmentId] < edgeSegmentLabels[best])) {
+        best = edgeSegmentId;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param conjugateView to search
+   */
+  public TurnAwareShortestPathSearch(final ConjugateGraphView conjugateView) {
+    this.conjugateView = conjugateView;
+    this.graphStar = conjugateView.getGraphStar();
+    int numberOfEdgeSegmentIds = graphStar.getNumberOfEdgeSegmentIds();
+    this.edgeSegmentLabels = new double[numberOfEdgeSegmentIds];
+    this.precedingEdgeSegments = new int[numberOfEdgeSegmentIds];
+    this.stamps = new int[numberOfEdgeSegmentIds];
+    this.queue = new IndexedDoubleMinHeap(numberOfEdgeSegmentIds);
+    this.currentStamp = 0;
+    this.originVertexId = -1;
+  }
+
+  /**
+   * Compute the turn aware shortest path tree from the origin to all reachable edge segments
+   *
+   * @param originVertexId   to start from
+   * @param edgeSegmentCosts cost per edge segment id, positive infinity for unavailable edge segments
+   */
+  public void executeOneToAll(int originVertexId, double[] edgeSegmentCosts) {
+    initialise(originVertexId, edgeSegmentCosts);
+    search(edgeSegmentCosts, -1);
+  }
+
+  /**
+   * Compute the turn aware shortest path from origin to destination, stopping as soon as the destination is reached
+   *
+   * @param originVertexId      to start from
+   * @param destinationVertexId to reach
+   * @param edgeSegmentCosts    cost per edge segment id, positive infinity for unavailable edge segments
+   * @return cost to reach the destination, positive infinity when unreachable
+   */
+  public double executeOneToOne(int originVertexId, int destinationVertexId, double[] edgeSegmentCosts) {
+    initialise(originVertexId, edgeSegmentCosts);
+    if (originVertexId == destinationVertexId) {
+      return 0;
+    }
+    int entryEdgeSegmentId = search(edgeSegmentCosts, destinationVertexId);
+    return entryEdgeSegmentId < 0 ? Double.POSITIVE_INFINITY : edgeSegmentLabels[entryEdgeSegmentId];
+  }
+
+  /**
+   * Verify if the end of the edge segment was reached in the latest search
+   *
+   * @param edgeSegmentId to verify
+   * @return true when reached
+   */
+  public boolean isReachedVia(int edgeSegmentId) {
+    return stamps[edgeSegmentId] == currentStamp;
+  }
+
+  /**
+   * Cost of arriving at the end of the edge segment in the latest search
+   *
+   * @param edgeSegmentId to collect for
+   * @return cost, positive infinity when not reached
+   */
+  public double getEdgeSegmentCost(int edgeSegmentId) {
+    return isReachedVia(edgeSegmentId) ? edgeSegmentLabels[edgeSegmentId] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Cost of reaching the vertex in the latest search, i.e., the lowest cost over its entry edge segments. For one-to-one searches this is
+   * only exact for the destination
+   *
+   * @param vertexId to collect for
+   * @return cost, positive infinity when not reached
+   */
+  public double getCost(int vertexId) {
+    if (vertexId == originVertexId) {
+      return 0;
+    }
+    int entryEdgeSegmentId = findBestEntryEdgeSegment(vertexId);
+    return entryEdgeSegmentId < 0 ? Double.POSITIVE_INFINITY : edgeSegmentLabels[entryEdgeSegmentId];
+  }
+
+  /**
+   * Origin vertex id of the latest search
+   *
+   * @return origin vertex id, -1 when no search executed yet
+   */
+  public int getOriginVertexId() {
+    return originVertexId;
+  }
+
+  /**
+   * Edge segment ids on the turn aware shortest path from the origin to the vertex in the latest search
+   *
+   * @param destinationVertexId to collect path for
+   * @return edge segment ids in path order, empty when the destination is the origin, null when not reached
+   */
+  public int[] createEdgeSegmentIdPath(int destinationVertexId) {
+    if (destinationVertexId == originVertexId) {
+      return new int[0];
+    }
+    int lastEdgeSegmentId = findBestEntryEdgeSegment(destinationVertexId);
+    if (lastEdgeSegmentId < 0) {
+      return null;
+    }
+    int length = 0;
+    for (int edgeSegmentId = lastEdgeSegmentId; edgeSegmentId >= 0; edgeSegmentId = precedingEdgeSegments[edgeSegmentId]) {
+      ++length;
+    }
+    var path = new int[length];
+    for (int edgeSegmentId = lastEdgeSegmentId; edgeSegmentId >= 0; edgeSegmentId = precedingEdgeSegments[edgeSegmentId]) {
+      path[--length] = edgeSegmentId;
+    }
+    return path;
+  }
+
+  /**
+   * Create the turn aware shortest path from the origin to the vertex in the latest search
+   *
+   * @param <T>                 type of path
+   * @param destinationVertexId to create path for
+   * @param pathFactory         to create the path with
+   * @return path, null when not reached
+   */
+  public <T extends SimpleDirectedPath> T createPath(int destinationVertexId, DirectedPathFactory<T> pathFactory) {
+    var edgeSegmentIds = createEdgeSegmentIdPath(destinationVertexId);
+    if (edgeSegmentIds == null) {
+      return null;
+    }
+    Deque<EdgeSegment> edgeSegments = new ArrayDeque<>(edgeSegmentIds.length);
+    for (int edgeSegmentId : edgeSegmentIds) {
+      edgeSegments.addLast(graphStar.getEdgeSegment(edgeSegmentId));
+    }
+    return pathFactory.createNew(edgeSegments);
+  }
+}
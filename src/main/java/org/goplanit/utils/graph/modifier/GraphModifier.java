@@ -8,6 +8,7 @@ import org.goplanit.utils.exceptions.PlanItException;
 import org.goplanit.utils.geo.PlanitJtsCrsUtils;
 import org.goplanit.utils.graph.Edge;
 import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.graph.component.ConnectedComponentsAnalysis;
 import org.goplanit.utils.graph.modifier.event.GraphModifierEventProducer;
 import org.goplanit.utils.misc.Pair;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -37,7 +38,8 @@ public interface GraphModifier<V extends Vertex, E extends Edge> extends GraphMo
   public abstract void removeEdge(E edge);
 
   /**
-   * remove any dangling subgraphs below a given size from the graph if they exist and subsequently reorder the internal ids if needed
+   * remove any dangling subgraphs below a given size from the graph if they exist and subsequently reorder the internal ids if needed. The subgraphs
+   * to remove can be identified in a single pass via {@link ConnectedComponentsAnalysis#computeWeak(org.goplanit.utils.graph.UntypedGraph, boolean)}
    * 
    * @param belowSize         remove subgraphs below the given size
    * @param aboveSize         remove subgraphs above the given size (typically set to maximum value)
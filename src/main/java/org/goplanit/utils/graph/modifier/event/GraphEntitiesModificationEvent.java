@@ -0,0 +1,40 @@
+package org.goplanit.utils.graph.modifier.event;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.goplanit.utils.graph.GraphEntity;
+
+/** Graph modification event that exposes the graph entities it added, removed or whose geometry it changed, e.g., breaking an edge
+ * changes the geometry of the original edge and adds a vertex and an edge. Allows listeners that mirror the graph, such as a spatial index,
+ * to update incrementally regardless of the concrete modification
+ *
+ * @author markr
+ *
+ */
+public interface GraphEntitiesModificationEvent extends GraphModificationEvent {
+
+  /** Entities added to the graph by the modification
+   *
+   * @return added entities
+   */
+  public default Collection<? extends GraphEntity> getAddedEntities(){
+    return Collections.emptyList();
+  }
+
+  /** Entities removed from the graph by the modification
+   *
+   * @return removed entities
+   */
+  public default Collection<? extends GraphEntity> getRemovedEntities(){
+    return Collections.emptyList();
+  }
+
+  /** Entities that remain in the graph but whose geometry (edge) or position (vertex) was changed by the modification
+   *
+   * @return entities with changed geometry
+   */
+  public default Collection<? extends GraphEntity> getGeometryChangedEntities(){
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,70 @@
+package org.goplanit.utils.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Thread safe counter generating the ids for a single class within a single id group. Ids are generated starting at zero and in an
+ * incremental consecutive fashion. A counter is obtained via {@link IdGenerator#getIdCounter(IdGroupingToken, Class)} and can be retained by
+ * the caller, in which case generating an id is a single atomic increment. Resetting the id generation for its class or token via the
+ * {@link IdGenerator} releases the counter, so a retained counter must be collected again after a reset.
+ *
+ * @author markr
+ *
+ */
+public final class IdCounter {
+
+  /** value used to indicate no id has been generated yet */
+  private static final long NONE_GENERATED = -1;
+
+  /** the latest generated id */
+  private final AtomicLong latestId = new AtomicLong(NONE_GENERATED);
+
+  /**
+   * Constructor
+   */
+  IdCounter() {
+  }
+
+  /**
+   * Generate the next id
+   *
+   * @return the generated id
+   */
+  public long generateId() {
+    return latestId.incrementAndGet();
+  }
+
+  /**
+   * Reserve a block of consecutive ids at once, the caller can hand out the ids in the range [first id, first id + count) without
+   * touching the shared counter. Useful when many entities are created on a single worker thread.
+   *
+   * @param count number of ids to reserve, must be positive
+   * @return first id of the reserved block
+   */
+  public long reserveIds(int count) {
+    if (count <= 0) {
+      throw new PlanItRunTimeException("Number of ids to reserve must be positive, found %d", count);
+    }
+    return latestId.getAndAdd(count) + 1;
+  }
+
+  /**
+   * Collect the latest generated id
+   *
+   * @return latest generated id, -1 when no id has been generated yet
+   */
+  public long getLatestGeneratedId() {
+    return latestId.get();
+  }
+
+  /**
+   * Reset the counter such that the latest generated id is the offset
+   *
+   * @param offset to use
+   */
+  void resetTo(long offset) {
+    latestId.set(offset);
+  }
+}
@@ -1,7 +1,7 @@
 package org.goplanit.utils.id;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -9,6 +9,11 @@ import java.util.logging.Logger;
  * use a generator for their id members. Ids are generated starting at zero and in an incremental
  * consecutive fashion. They are unique to their parent though, so if the same class is registered twice with different parents, then their ids will be unique per parent
  * but not across parents.
+ * <p>
+ * Id generation is thread safe. Each token and class combination has its own atomic {@link IdCounter}, so threads generating ids for different
+ * classes or tokens do not contend. Callers that generate many ids can retain the counter via {@link #getIdCounter(IdGroupingToken, Class)}
+ * (until the next reset) to reduce each id to a single atomic increment, or reserve a block of ids at once via {@link #reserveIds(IdGroupingToken, Class, int)}.
+ * </p>
  * 
  * @author markr
  *
@@ -19,21 +24,35 @@ public final class IdGenerator {
   private static final Logger LOGGER = Logger.getLogger(IdGenerator.class.getCanonicalName());
   
   /** track unique id's per group and specific class */
-  private static Map<IdGroupingToken, LocalIdGenerator> idGroups = new HashMap<IdGroupingToken,LocalIdGenerator>();
+  private static final Map<IdGroupingToken, LocalIdGenerator> idGroups = new ConcurrentHashMap<IdGroupingToken,LocalIdGenerator>();
    
   /**
    * Create new idGenerators for this group such that we track unique id's within
-   * this group
+   * this group, if it does not yet exist
    * 
    * @param token the group for which ids will be generated
-   * @return created IdGenerator
+   * @return created (or already existing) IdGenerator
    */
   protected static LocalIdGenerator createIdGeneratorForParent(IdGroupingToken token) {
-    LocalIdGenerator idGenerator = new LocalIdGenerator();
-    idGroups.put(token, idGenerator);
-    LOGGER.fine("created id group for" + token.toString());
-    return idGroups.get(token);
+    return idGroups.computeIfAbsent(token, t -> {
+      LOGGER.fine("created id group for" + t.toString());
+      return new LocalIdGenerator();
+    });
   }  
+
+  /**
+   * Collect the id generator for this group, create it when not yet present
+   * 
+   * @param token the group for which ids will be generated
+   * @return IdGenerator of the group
+   */
+  private static LocalIdGenerator getIdGeneratorForParent(IdGroupingToken token) {
+    LocalIdGenerator idGeneratorForGroup = idGroups.get(token);
+    if (idGeneratorForGroup == null) {
+      idGeneratorForGroup = createIdGeneratorForParent(token);
+    }
+    return idGeneratorForGroup;
+  }
   
   /**
    * Generate a unique id for the chosen class
@@ -43,13 +62,32 @@ public final class IdGenerator {
    * @return the generated id
    */
   public static long generateId(IdGroupingToken token, Class<? extends Object> theClass) {
-    LocalIdGenerator idGeneratorForGroup = null;
-    if (!idGroups.containsKey(token)) {
-      idGeneratorForGroup = createIdGeneratorForParent(token);
-    } else {
-      idGeneratorForGroup = idGroups.get(token);
-    }
-    return idGeneratorForGroup.generateId(theClass);
+    return getIdGeneratorForParent(token).generateId(theClass);
+  }
+
+  /**
+   * Reserve a block of consecutive unique ids for the chosen class, i.e., ids in the range [first id, first id + count) are
+   * reserved for the caller and will not be generated for anyone else (until a reset)
+   * 
+   * @param token the group for which the ids are reserved
+   * @param theClass the class for which the ids are being reserved
+   * @param count the number of ids to reserve, must be positive
+   * @return the first id of the reserved block
+   */
+  public static long reserveIds(IdGroupingToken token, Class<? extends Object> theClass, int count) {
+    return getIdGeneratorForParent(token).reserveIds(theClass, count);
+  }
+
+  /**
+   * Collect the counter used to generate ids for the chosen class within the group. The counter can be retained to generate ids
+   * without any lookups until the id generation of its class or token is reset, after which it must be collected again
+   * 
+   * @param token the group for which the ids are generated
+   * @param theClass the class for which the ids are being generated
+   * @return the counter
+   */
+  public static IdCounter getIdCounter(IdGroupingToken token, Class<? extends Object> theClass) {
+    return getIdGeneratorForParent(token).getIdCounter(theClass);
   }
   
   /**
@@ -65,8 +103,9 @@ public final class IdGenerator {
    * @param groupId to reset
    */
   public static void reset(IdGroupingToken groupId) {
-    if(idGroups.containsKey(groupId)) {
-      idGroups.get(groupId).reset();
+    LocalIdGenerator idGeneratorForGroup = idGroups.get(groupId);
+    if(idGeneratorForGroup != null) {
+      idGeneratorForGroup.reset();
     }
   }  
   
@@ -77,8 +116,9 @@ public final class IdGenerator {
    * @param theClass to reset
    */
   public static void reset(IdGroupingToken groupId, Class<? extends Object> theClass ) {
-    if( idGroups.containsKey(groupId)) {
-        idGroups.get(groupId).reset(theClass);
+    LocalIdGenerator idGeneratorForGroup = idGroups.get(groupId);
+    if(idGeneratorForGroup != null) {
+      idGeneratorForGroup.reset(theClass);
     }
   } 
   
@@ -90,9 +130,10 @@ public final class IdGenerator {
    * @param offset to use
    */  
   public static void resetTo(IdGroupingToken groupId, Class<? extends Object> theClass, long offset) {
-    if( idGroups.containsKey(groupId)) {
-      idGroups.get(groupId).resetTo(theClass, offset);
-  }
+    LocalIdGenerator idGeneratorForGroup = idGroups.get(groupId);
+    if(idGeneratorForGroup != null) {
+      idGeneratorForGroup.resetTo(theClass, offset);
+    }
   }  
   
   /** Factory method to create a new id grouping token
@@ -120,11 +161,9 @@ public final class IdGenerator {
    * @return latest generated id, -1 if not available
    */
   public static long getLatestIdForToken(IdGroupingToken token, Class<? extends Object> theClass) {
-    if (idGroups.containsKey(token)) {
-      LocalIdGenerator idGeneratorForGroup = idGroups.get(token);
-      if(idGeneratorForGroup != null) {
-        return idGeneratorForGroup.getLatestGeneratedId(theClass);
-      }
+    LocalIdGenerator idGeneratorForGroup = idGroups.get(token);
+    if(idGeneratorForGroup != null) {
+      return idGeneratorForGroup.getLatestGeneratedId(theClass);
     }
     return -1;
   }
@@ -1,63 +1,69 @@
 package org.goplanit.utils.id;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Convenience class to track unique ids across different classes that decide to
  * use a generator for their id members. Ids are generated starting at zero and in an incremental
  * consecutive fashion
- * allowing the placement of objects in raw arrays and indexing them by their id
- * 
+ * allowing the placement of objects in raw arrays and indexing them by their id.
+ *
+ * Thread safe, each class has its own atomic counter.
+ *
  * @author markr
  *
  */
 final class LocalIdGenerator {
 
   /** track unique id's per specific class */
-  private HashMap<Class<? extends Object>, Long> idTypes = new HashMap<Class<? extends Object>, Long>();
+  private final Map<Class<? extends Object>, IdCounter> idTypes = new ConcurrentHashMap<Class<? extends Object>, IdCounter>();
 
   /**
-   * Create a new idGenerator for this type such that we track unique id's within
+   * Collect the counter for this type, create it when it does not yet exist such that we track unique id's within
    * this class
-   * 
+   *
    * @param theClass
    *          the class for which the id is being generated
+   * @return counter for the class
    */
-  protected void createNewIdType(Class<? extends Object> theClass) {
-    Long initialId = 0l; // choose 0 as this way we can use each id as an index in an array
-                         // without
-                         // additional effort
-    idTypes.put(theClass, initialId);
+  protected IdCounter getIdCounter(Class<? extends Object> theClass) {
+    IdCounter counter = idTypes.get(theClass);
+    if (counter == null) {
+      counter = idTypes.computeIfAbsent(theClass, c -> new IdCounter());
+    }
+    return counter;
   }
 
   /**
    * Generate a unique id for the chosen class
-   * 
+   *
    * @param theClass
    *          the class for which the id is being generated
    * @return the generated id
    */
   public long generateId(Class<? extends Object> theClass) {
-    if (!idTypes.containsKey(theClass)) {
-      createNewIdType(theClass);
-    } else {
-      Long id = idTypes.get(theClass);
-      id++;
-      idTypes.put(theClass, id);
-    }
-    return idTypes.get(theClass);
+    return getIdCounter(theClass).generateId();
   }
-  
+
+  /**
+   * Reserve a block of consecutive unique ids for the chosen class
+   *
+   * @param theClass the class for which the ids are being reserved
+   * @param count number of ids to reserve
+   * @return first id of the reserved block
+   */
+  public long reserveIds(Class<? extends Object> theClass, int count) {
+    return getIdCounter(theClass).reserveIds(count);
+  }
+
   /** Collect the latest generated if for the given class (if any)
    * @param theClass for which the id was generated
    * @return latest generated id, -1 when no id has been generated yet for the class
    */
   public long getLatestGeneratedId(Class<? extends Object> theClass) {
-    if (idTypes.containsKey(theClass)) {
-      return idTypes.get(theClass);
-    }else {
-      return -1;
-    }
+    IdCounter counter = idTypes.get(theClass);
+    return counter != null ? counter.getLatestGeneratedId() : -1;
   }
 
   /**
@@ -69,7 +75,7 @@ final class LocalIdGenerator {
 
   /**
    * Reset the id generation for the given class
-   * 
+   *
    * @param theClass to reset
    */
   public void reset(Class<? extends Object> theClass) {
@@ -78,11 +84,11 @@ final class LocalIdGenerator {
 
   /**
    * Reset the id for class to the given offset
-   * 
+   *
    * @param theClass to reset
    * @param offset to use
-   */    
+   */
   public void resetTo(Class<? extends Object> theClass, long offset) {
-    idTypes.put(theClass, offset);
+    getIdCounter(theClass).resetTo(offset);
   }
 }
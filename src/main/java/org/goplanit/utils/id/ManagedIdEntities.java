@@ -1,5 +1,6 @@
 package org.goplanit.utils.id;
 
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
 import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegmentType;
 import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegmentTypes;
 import org.goplanit.utils.service.routed.RoutedTripSchedule;
@@ -39,6 +40,21 @@ public interface ManagedIdEntities<E extends ManagedId> extends LongMapWrapper<E
    *                            starting with the next available id without resetting
    */
   public abstract void recreateIds(boolean resetManagedIdClass);
+
+  /**
+   * Recreate the ids for all registered entities, assigning them in the given order rather than the current (insertion) order, for
+   * example to improve locality of id indexed arrays. Child managed ids are recreated per entity as in {@link #recreateIds(boolean)}
+   *
+   * @param resetManagedIdClass when true we reset the managedId's counter to zero (via its id class) before recreating the ids, otherwise we simply recreate the managed id by
+   *                            starting with the next available id without resetting
+   * @param order               to assign the new ids in, evaluated on the entities before any id is changed, null to retain the current order
+   */
+  public default void recreateIds(boolean resetManagedIdClass, Comparator<? super E> order) {
+    if (order != null) {
+      throw new PlanItRunTimeException("%s does not support recreating ids in a given order", getClass().getSimpleName());
+    }
+    recreateIds(resetManagedIdClass);
+  }
     
   /**
    * Shallow clone implementation
@@ -1,10 +1,13 @@
 package org.goplanit.utils.id;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
+import org.goplanit.utils.containers.DenseLongKeyMap;
 import org.goplanit.utils.id.IdGenerator;
 import org.goplanit.utils.time.TimePeriod;
 import org.goplanit.utils.wrapper.LongMapWrapperImpl;
@@ -20,6 +23,16 @@ public abstract class ManagedIdEntitiesImpl<E extends ManagedId> extends LongMap
   
   /** the class signature used for generating the managed id within the group defined by the token */
   protected final Class<? extends ManagedId> managedIdClass;
+
+  /** Create the underlying map to wrap
+   * 
+   * @param <EE> type of managed id entity
+   * @param denseIdStorage when true an array indexed by id is used, otherwise a tree map
+   * @return created map
+   */
+  private static <EE> Map<Long, EE> createMap(boolean denseIdStorage){
+    return denseIdStorage ? new DenseLongKeyMap<>() : new TreeMap<>();
+  }
   
   /**
    * Constructor
@@ -29,7 +42,20 @@ public abstract class ManagedIdEntitiesImpl<E extends ManagedId> extends LongMap
    * of this container
    */
   protected ManagedIdEntitiesImpl(final Function<E, Long> valueToKey, final Class<? extends ManagedId> managedIdClass) {
-    super(new TreeMap<>(), valueToKey);
+    this(valueToKey, managedIdClass, false);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param valueToKey the mapping from key to value of the graph entity
+   * @param managedIdClass should reflect the class signature used for generating the managed id of this class when creating it via the factory
+   * of this container
+   * @param denseIdStorage when true, entities are stored in an array indexed by their id rather than in a tree map. Recommended when ids are generated
+   * contiguously (the default for managed ids) as it provides constant time unboxed access, holes are tolerated and removed upon {@link #recreateIds(boolean)}
+   */
+  protected ManagedIdEntitiesImpl(final Function<E, Long> valueToKey, final Class<? extends ManagedId> managedIdClass, boolean denseIdStorage) {
+    super(createMap(denseIdStorage), valueToKey);
     this.managedIdClass = managedIdClass;
   }
   
@@ -70,10 +96,14 @@ public abstract class ManagedIdEntitiesImpl<E extends ManagedId> extends LongMap
   /**
    * updates the container keys based on currently presiding ids. Only to be used when an external force has changed already registered entity their ids
    */
+  @SuppressWarnings("unchecked")
   protected void updateIdMapping() {
     /* redo mapping */
     Map<Long, E> updatedMap = createEmptyInstance(getMap());
     getMap().forEach((oldId, entity) -> updatedMap.put(getValueToKey().apply(entity), entity));
+    if(updatedMap instanceof DenseLongKeyMap) {
+      ((DenseLongKeyMap<E>) updatedMap).trimToSize();
+    }
     getMap().clear();
     setMap(updatedMap);
   }
@@ -91,13 +121,30 @@ public abstract class ManagedIdEntitiesImpl<E extends ManagedId> extends LongMap
    */
   @Override
   public void recreateIds(boolean resetManagedIdClass) {
+    recreateIds(resetManagedIdClass, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void recreateIds(boolean resetManagedIdClass, Comparator<? super E> order) {
     if(resetManagedIdClass == true && managedIdClass!=null) {
       IdGenerator.reset(getFactory().getIdGroupingToken(), getManagedIdClass() /* e.g. managed id class */);
     }
     
     if (!isEmpty()) {
+      Iterable<E> entities = this;
+      if(order != null) {
+        /* sort up front, the order may depend on the ids about to be recreated */
+        var orderedEntities = new ArrayList<E>(size());
+        forEach(orderedEntities::add);
+        orderedEntities.sort(order);
+        entities = orderedEntities;
+      }
+
       /* remove gaps by simply resetting and recreating all entity ids */            
-      for(var entity : this){
+      for(var entity : entities){
         entity.recreateManagedIds(getFactory().getIdGroupingToken());
       }
       updateIdMapping();
@@ -1,5 +1,9 @@
 package org.goplanit.utils.od;
 
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
 import org.goplanit.utils.id.IdAble;
 import org.goplanit.utils.zoning.Zone;
 
@@ -53,6 +57,62 @@ public interface OdData<T> extends IdAble, Iterable<T> {
    */
   public OdDataIterator<T> iterator();
 
+  /**
+   * Returns an iterator through the origin-destination cells of the origins within the given range of origin indices (zone ids) only.
+   * Default implementation filters a full iteration, implementations are expected to override this with a direct restriction
+   * 
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @return iterator through the origin-destination cells of the origin range
+   */
+  public default OdDataIterator<T> iterator(int fromOriginIndex, int toOriginIndex) {
+    return new OdFilteredDataIterator<>(iterator(), fromOriginIndex, toOriginIndex, false);
+  }
+
+  /**
+   * Returns an iterator through the non-empty origin-destination cells, i.e., cells that are neither null nor numerically zero, of the
+   * origins within the given range of origin indices (zone ids) only. Default implementation filters a full iteration, implementations
+   * that can skip empty cells more efficiently are expected to override this
+   * 
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @return iterator through the non-empty origin-destination cells of the origin range
+   */
+  public default OdDataIterator<T> nonEmptyIterator(int fromOriginIndex, int toOriginIndex) {
+    return new OdFilteredDataIterator<>(iterator(fromOriginIndex, toOriginIndex), fromOriginIndex, toOriginIndex, true);
+  }
+
+  /**
+   * Returns an iterator through all non-empty origin-destination cells, i.e., cells that are neither null nor numerically zero
+   * 
+   * @return iterator through the non-empty origin-destination cells
+   */
+  public default OdDataIterator<T> nonEmptyIterator() {
+    return nonEmptyIterator(0, getNumberOfOdZones());
+  }
+
+  /**
+   * Partition the cells in blocks of consecutive origins and provide an iterator per block. Blocks are independent and the stream can be
+   * made parallel by the caller, e.g., {@code streamByOriginBlock(64, true).parallel().forEach(...)}, as long as the data is not
+   * modified while iterating. Each iterator is to be consumed by a single thread
+   * 
+   * @param originsPerBlock number of origins per block
+   * @param nonEmptyOnly    when true, only non-empty cells are visited
+   * @return stream of iterators, one per origin block, in origin order
+   */
+  public default Stream<OdDataIterator<T>> streamByOriginBlock(int originsPerBlock, boolean nonEmptyOnly) {
+    if (originsPerBlock <= 0) {
+      throw new PlanItRunTimeException("Number of origins per block must be positive, found %d", originsPerBlock);
+    }
+    final int numberOfZones = getNumberOfOdZones();
+    final int numberOfBlocks = (numberOfZones + originsPerBlock - 1) / originsPerBlock;
+    return IntStream.range(0, numberOfBlocks).mapToObj(block -> {
+      int fromOriginIndex = block * originsPerBlock;
+      int toOriginIndex = Math.min(fromOriginIndex + originsPerBlock, numberOfZones);
+      return nonEmptyOnly ? nonEmptyIterator(fromOriginIndex, toOriginIndex) : iterator(fromOriginIndex, toOriginIndex);
+    });
+  }
+
   /**
    * Shallow copy
    * @return shallow copy
@@ -0,0 +1,381 @@
+package org.goplanit.utils.od;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdAble;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.zoning.OdZones;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Od matrix specialised for double values, stored unboxed in a single flat array in origin-destination order. Next to the boxed
+ * {@link OdData} methods it offers unboxed access via {@link #getDouble(long, long)} and {@link #setDouble(long, long, double)}, and in-place
+ * bulk kernels. Kernels on large matrices are executed in parallel across origins on the common fork-join pool, results are deterministic
+ * regardless.
+ *
+ * @author markr
+ *
+ */
+public abstract class OdDoubleMatrix extends OdMatrixImpl<Double, double[]> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(OdDoubleMatrix.class.getCanonicalName());
+
+  /** number of cells from which kernels are executed in parallel across origins */
+  protected static final int PARALLEL_CELL_THRESHOLD = 1 << 18;
+
+  /** number of origins processed per unit of work in parallel reductions across origins */
+  private static final int ORIGIN_BLOCK_SIZE = 64;
+
+  /** number of od zones (rows and columns) */
+  protected final int numberOfZones;
+
+  /** Consumer for a single origin (row) */
+  @FunctionalInterface
+  private static interface OriginConsumer {
+
+    /**
+     * Apply to origin
+     *
+     * @param originIndex index of origin (row)
+     * @param rowOffset   offset of the row in the matrix contents
+     */
+    void accept(int originIndex, int rowOffset);
+  }
+
+  /**
+   * Create contents for given zones
+   *
+   * @param zones to use
+   * @return contents of appropriate size
+   */
+  private static double[] createContents(OdZones zones) {
+    try {
+      return new double[Math.multiplyExact(zones.size(), zones.size())];
+    } catch (ArithmeticException e) {
+      throw new PlanItRunTimeException("Number of od zones %d too large for dense double od matrix", zones.size());
+    }
+  }
+
+  /**
+   * Verify other matrix is compatible in size
+   *
+   * @param other to verify
+   */
+  private void validateCompatible(OdDoubleMatrix other) {
+    if (other.numberOfZones != numberOfZones) {
+      throw new PlanItRunTimeException("Od matrix sizes differ (%d vs %d), unable to combine", numberOfZones, other.numberOfZones);
+    }
+  }
+
+  /**
+   * Apply consumer to each origin, in parallel when the matrix is large enough
+   *
+   * @param consumer to apply
+   */
+  private void forEachOrigin(OriginConsumer consumer) {
+    IntStream origins = IntStream.range(0, numberOfZones);
+    if (isParallel()) {
+      origins = origins.parallel();
+    }
+    origins.forEach(origin -> consumer.accept(origin, origin * numberOfZones));
+  }
+
+  /**
+   * Index of the cell in the contents
+   *
+   * @param originId      of cell
+   * @param destinationId of cell
+   * @return index
+   */
+  protected int indexOf(long originId, long destinationId) {
+    return (int) originId * numberOfZones + (int) destinationId;
+  }
+
+  /**
+   * Verify if kernels run in parallel across origins
+   *
+   * @return true when the number of cells exceeds the parallel threshold
+   */
+  protected boolean isParallel() {
+    return matrixContents.length >= PARALLEL_CELL_THRESHOLD;
+  }
+
+  /**
+   * Constructor, all cells are initialised to zero
+   *
+   * @param idTokenClass to use for id generation
+   * @param idToken      to use for the matrix id
+   * @param zones        holder for zones considered in the matrix
+   */
+  public OdDoubleMatrix(Class<? extends IdAble> idTokenClass, IdGroupingToken idToken, OdZones zones) {
+    super(idTokenClass, idToken, zones, createContents(zones));
+    this.numberOfZones = zones.size();
+  }
+
+  /**
+   * Copy Constructor, the contents are copied
+   *
+   * @param other to copy
+   */
+  public OdDoubleMatrix(OdDoubleMatrix other) {
+    super(other);
+    this.numberOfZones = other.numberOfZones;
+    this.matrixContents = Arrays.copyOf(other.matrixContents, other.matrixContents.length);
+  }
+
+  /**
+   * Unboxed value for a specified origin and destination by their internal id
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @return value at the specified cell
+   */
+  public double getDouble(long originId, long destinationId) {
+    return matrixContents[indexOf(originId, destinationId)];
+  }
+
+  /**
+   * Unboxed value for a specified origin and destination
+   *
+   * @param origin      specified origin
+   * @param destination specified destination
+   * @return value at the specified cell
+   */
+  public double getDouble(Zone origin, Zone destination) {
+    return getDouble(origin.getId(), destination.getId());
+  }
+
+  /**
+   * Set unboxed value for a specified origin and destination by their internal id
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @param value         value at the specified cell
+   */
+  public void setDouble(long originId, long destinationId, double value) {
+    matrixContents[indexOf(originId, destinationId)] = value;
+  }
+
+  /**
+   * Set unboxed value for a specified origin and destination
+   *
+   * @param origin      specified origin
+   * @param destination specified destination
+   * @param value       value at the specified cell
+   */
+  public void setDouble(Zone origin, Zone destination, double value) {
+    setDouble(origin.getId(), destination.getId(), value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(Zone origin, Zone destination) {
+    return getDouble(origin.getId(), destination.getId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(long originId, long destinationId) {
+    return getDouble(originId, destinationId);
+  }
+
+  /**
+   * Sets the value for a specified origin and destination, null is treated as zero
+   *
+   * @param origin      specified origin
+   * @param destination specified destination
+   * @param value       value at the specified cell
+   */
+  @Override
+  public void setValue(Zone origin, Zone destination, Double value) {
+    setDouble(origin.getId(), destination.getId(), value == null ? 0 : value);
+  }
+
+  /**
+   * Set all cells to the given value
+   *
+   * @param value to use
+   */
+  public void fill(double value) {
+    forEachOrigin((origin, rowOffset) -> Arrays.fill(matrixContents, rowOffset, rowOffset + numberOfZones, value));
+  }
+
+  /**
+   * Add other matrix cell by cell to this matrix
+   *
+   * @param other to add
+   */
+  public void add(OdDoubleMatrix other) {
+    validateCompatible(other);
+    final double[] otherContents = other.matrixContents;
+    forEachOrigin((origin, rowOffset) -> {
+      for (int index = rowOffset; index < rowOffset + numberOfZones; ++index) {
+        matrixContents[index] += otherContents[index];
+      }
+    });
+  }
+
+  /**
+   * Add other matrix multiplied by a factor cell by cell to this matrix
+   *
+   * @param other  to add
+   * @param factor to multiply other's cells with
+   */
+  public void addScaled(OdDoubleMatrix other, double factor) {
+    validateCompatible(other);
+    final double[] otherContents = other.matrixContents;
+    forEachOrigin((origin, rowOffset) -> {
+      for (int index = rowOffset; index < rowOffset + numberOfZones; ++index) {
+        matrixContents[index] += otherContents[index] * factor;
+      }
+    });
+  }
+
+  /**
+   * Multiply each cell with the given factor
+   *
+   * @param factor to apply
+   */
+  public void scale(double factor) {
+    forEachOrigin((origin, rowOffset) -> {
+      for (int index = rowOffset; index < rowOffset + numberOfZones; ++index) {
+        matrixContents[index] *= factor;
+      }
+    });
+  }
+
+  /**
+   * Multiply each cell with the corresponding cell of the other matrix (Hadamard product)
+   *
+   * @param other to multiply with
+   */
+  public void multiplyElementWise(OdDoubleMatrix other) {
+    validateCompatible(other);
+    final double[] otherContents = other.matrixContents;
+    forEachOrigin((origin, rowOffset) -> {
+      for (int index = rowOffset; index < rowOffset + numberOfZones; ++index) {
+        matrixContents[index] *= otherContents[index];
+      }
+    });
+  }
+
+  /**
+   * Sum of each row, i.e., total per origin
+   *
+   * @return row sums indexed by origin id
+   */
+  public double[] computeRowSums() {
+    final double[] rowSums = new double[numberOfZones];
+    forEachOrigin((origin, rowOffset) -> {
+      double sum = 0;
+      for (int index = rowOffset; index < rowOffset + numberOfZones; ++index) {
+        sum += matrixContents[index];
+      }
+      rowSums[origin] = sum;
+    });
+    return rowSums;
+  }
+
+  /**
+   * Sum of each column, i.e., total per destination
+   *
+   * @return column sums indexed by destination id
+   */
+  public double[] computeColumnSums() {
+    final int numberOfBlocks = (numberOfZones + ORIGIN_BLOCK_SIZE - 1) / ORIGIN_BLOCK_SIZE;
+    final double[][] partialSums = new double[numberOfBlocks][];
+    IntStream blocks = IntStream.range(0, numberOfBlocks);
+    if (isParallel()) {
+      blocks = blocks.parallel();
+    }
+    blocks.forEach(block -> {
+      final double[] partial = new double[numberOfZones];
+      final int toOrigin = Math.min((block + 1) * ORIGIN_BLOCK_SIZE, numberOfZones);
+      for (int origin = block * ORIGIN_BLOCK_SIZE; origin < toOrigin; ++origin) {
+        final int rowOffset = origin * numberOfZones;
+        for (int destination = 0; destination < numberOfZones; ++destination) {
+          partial[destination] += matrixContents[rowOffset + destination];
+        }
+      }
+      partialSums[block] = partial;
+    });
+
+    /* combine in fixed order so the result does not depend on scheduling */
+    final double[] columnSums = new double[numberOfZones];
+    for (double[] partial : partialSums) {
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        columnSums[destination] += partial[destination];
+      }
+    }
+    return columnSums;
+  }
+
+  /**
+   * Sum of all cells
+   *
+   * @return total
+   */
+  public double computeTotal() {
+    double total = 0;
+    for (double rowSum : computeRowSums()) {
+      total += rowSum;
+    }
+    return total;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdDoubleMatrixIterator iterator() {
+    return new OdDoubleMatrixIterator(matrixContents, getOdZones());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdDoubleMatrixIterator iterator(int fromOriginIndex, int toOriginIndex) {
+    OdDoubleMatrixIterator iterator = iterator();
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
+  /**
+   * Returns an iterator which scans the primitive contents directly and only visits the non-zero cells of the origin range
+   *
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @return iterator through the non-zero origin-destination cells of the origin range
+   */
+  @Override
+  public OdDoubleMatrixIterator nonEmptyIterator(int fromOriginIndex, int toOriginIndex) {
+    OdDoubleMatrixIterator iterator = new OdDoubleMatrixIterator(matrixContents, getOdZones(), true);
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public abstract OdDoubleMatrix shallowClone();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdDoubleMatrix deepClone() {
+    /* for a primitive matrix the deep clone is the same as a shallow copy since contents are copied and immutable */
+    return shallowClone();
+  }
+}
@@ -0,0 +1,90 @@
+package org.goplanit.utils.od;
+
+import org.goplanit.utils.zoning.OdZones;
+
+/**
+ * Iterator of OdMatrix with doubles stored as a flat raw array in origin-destination order
+ *
+ * @author markr
+ *
+ */
+public class OdDoubleMatrixIterator extends OdMatrixIterator<Double, double[]> {
+
+  /** when true, cells with a value of zero are skipped */
+  private final boolean skipZeros;
+
+  /**
+   * Move the location cursor to the first non-zero cell at or after the current location, or the end location when there is none
+   */
+  private void skipToNonZero() {
+    final double[] contents = getMatrixContent();
+    while (currentLocation < endLocation && contents[currentLocation] == 0) {
+      ++currentLocation;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void updateCurrentLocation() {
+    super.updateCurrentLocation();
+    if (skipZeros) {
+      skipToNonZero();
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param matrixContents in preferred container format for doubles
+   * @param zones          zones
+   */
+  public OdDoubleMatrixIterator(double[] matrixContents, OdZones zones) {
+    this(matrixContents, zones, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param matrixContents in preferred container format for doubles
+   * @param zones          zones
+   * @param skipZeros      when true, only cells with a non-zero value are visited
+   */
+  public OdDoubleMatrixIterator(double[] matrixContents, OdZones zones, boolean skipZeros) {
+    super(matrixContents, zones);
+    this.skipZeros = skipZeros;
+    if (skipZeros) {
+      skipToNonZero();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void restrictToOrigins(int fromOriginIndex, int toOriginIndex) {
+    super.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    if (skipZeros) {
+      skipToNonZero();
+    }
+  }
+
+  /**
+   * Unboxed value at the current cell
+   *
+   * @return the value at the current cell
+   */
+  public double getCurrentDoubleValue() {
+    return getMatrixContent()[originId * zones.size() + destinationId];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getCurrentValue() {
+    return getCurrentDoubleValue();
+  }
+
+}
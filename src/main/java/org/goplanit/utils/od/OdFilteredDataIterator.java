@@ -0,0 +1,146 @@
+package org.goplanit.utils.od;
+
+import java.util.NoSuchElementException;
+
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Iterator that wraps any other od data iterator and only visits the cells of origins within a range of origin indices (zone ids) and,
+ * optionally, only the non-empty cells, i.e., cells that are neither null nor numerically zero. Used as generic fallback by
+ * {@link OdData#iterator(int, int)} and {@link OdData#nonEmptyIterator(int, int)}, implementations that can restrict or skip cells more
+ * efficiently are expected to override those.
+ *
+ * @author markr
+ *
+ * @param <T> type of values
+ */
+public class OdFilteredDataIterator<T> implements OdDataIterator<T> {
+
+  /** the wrapped iterator */
+  private final OdDataIterator<T> iterator;
+
+  /** first origin index (inclusive) */
+  private final int fromOriginIndex;
+
+  /** last origin index (exclusive) */
+  private final int toOriginIndex;
+
+  /** when true, empty cells are skipped */
+  private final boolean skipEmpty;
+
+  /** origin of the current cell */
+  private Zone currentOrigin;
+
+  /** destination of the current cell */
+  private Zone currentDestination;
+
+  /** value of the current cell */
+  private T currentValue;
+
+  /** flag indicating a next cell is available in the look ahead */
+  private boolean hasLookAhead;
+
+  /** origin of the next cell */
+  private Zone nextOrigin;
+
+  /** destination of the next cell */
+  private Zone nextDestination;
+
+  /** value of the next cell */
+  private T nextValue;
+
+  /**
+   * Move the look ahead to the next accepted cell of the wrapped iterator, if any
+   */
+  private void advance() {
+    hasLookAhead = false;
+    while (iterator.hasNext()) {
+      T value = iterator.next();
+      if (skipEmpty && isEmpty(value)) {
+        continue;
+      }
+      Zone origin = iterator.getCurrentOrigin();
+      if (origin.getId() < fromOriginIndex || origin.getId() >= toOriginIndex) {
+        continue;
+      }
+      nextOrigin = origin;
+      nextDestination = iterator.getCurrentDestination();
+      nextValue = value;
+      hasLookAhead = true;
+      return;
+    }
+  }
+
+  /**
+   * Verify if a cell value is considered empty
+   *
+   * @param value to verify
+   * @return true when null or numerically zero
+   */
+  public static boolean isEmpty(Object value) {
+    return value == null || (value instanceof Number && ((Number) value).doubleValue() == 0);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param iterator        to wrap
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @param skipEmpty       when true, cells that are null or numerically zero are skipped
+   */
+  public OdFilteredDataIterator(final OdDataIterator<T> iterator, int fromOriginIndex, int toOriginIndex, boolean skipEmpty) {
+    this.iterator = iterator;
+    this.fromOriginIndex = fromOriginIndex;
+    this.toOriginIndex = toOriginIndex;
+    this.skipEmpty = skipEmpty;
+    advance();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasNext() {
+    return hasLookAhead;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T next() {
+    if (!hasLookAhead) {
+      throw new NoSuchElementException("No more origin-destination cells available");
+    }
+    currentOrigin = nextOrigin;
+    currentDestination = nextDestination;
+    currentValue = nextValue;
+    advance();
+    return currentValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Zone getCurrentOrigin() {
+    return currentOrigin;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Zone getCurrentDestination() {
+    return currentDestination;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T getCurrentValue() {
+    return currentValue;
+  }
+}
@@ -22,6 +22,38 @@ public interface OdHashed<T> extends OdData<T> {
     return HashUtils.createCombinedHashCode(originZoneId, destinationZoneId);
   }
 
+  /**
+   * generate a collision free key based on origin and destination zone id by packing both ids into a single long. Zone ids are
+   * contiguous and zero based, so each is assumed to fit in 32 bits
+   * 
+   * @param originZoneId      to use
+   * @param destinationZoneId to use
+   * @return packed key, origin in the high bits, destination in the low bits
+   */
+  public static long generatePackedKey(long originZoneId, long destinationZoneId) {
+    return (originZoneId << 32) | (destinationZoneId & 0xFFFFFFFFL);
+  }
+
+  /**
+   * extract the origin zone id from a key created via {@link #generatePackedKey(long, long)}
+   * 
+   * @param packedKey to unpack
+   * @return origin zone id
+   */
+  public static int unpackOriginId(long packedKey) {
+    return (int) (packedKey >>> 32);
+  }
+
+  /**
+   * extract the destination zone id from a key created via {@link #generatePackedKey(long, long)}
+   * 
+   * @param packedKey to unpack
+   * @return destination zone id
+   */
+  public static int unpackDestinationId(long packedKey) {
+    return (int) packedKey;
+  }
+
   /**
    * Returns an iterator which can iterate through all the origin-destination entries
    * 
@@ -76,6 +76,16 @@ public abstract class OdHashedImpl<T> extends OdDataImpl<T> implements OdHashed<
   @Override
   public abstract OdHashedIterator<T> iterator();
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdHashedIterator<T> iterator(int fromOriginIndex, int toOriginIndex) {
+    OdHashedIterator<T> iterator = iterator();
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -31,6 +31,11 @@ public abstract class OdHashedIterator<T> implements OdDataIterator<T> {
    */
   protected int currentLocation;
 
+  /**
+   * Location (exclusive) at which the iteration ends
+   */
+  protected int endLocation;
+
   /**
    * Zones object to store travel analysis zones (from Zoning object)
    */
@@ -58,6 +63,7 @@ public abstract class OdHashedIterator<T> implements OdDataIterator<T> {
     currentLocation = 0;
     this.container = container;
     this.zones = zones;
+    this.endLocation = zones.size() * zones.size();
   }
 
   /**
@@ -67,7 +73,19 @@ public abstract class OdHashedIterator<T> implements OdDataIterator<T> {
    */
   @Override
   public boolean hasNext() {
-    return currentLocation < (container.getNumberOfOdZones() * container.getNumberOfOdZones());
+    return currentLocation < endLocation;
+  }
+
+  /**
+   * Restrict the iteration to the cells of the origins within the given range of origin indices (zone ids). To be invoked before
+   * the first call to next
+   * 
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   */
+  public void restrictToOrigins(int fromOriginIndex, int toOriginIndex) {
+    currentLocation = fromOriginIndex * zones.size();
+    endLocation = toOriginIndex * zones.size();
   }
 
   /**
@@ -0,0 +1,437 @@
+package org.goplanit.utils.od;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdAble;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.zoning.OdZones;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Origin-destination data for double values stored outside of the Java heap in a memory-mapped file. Cells are laid out as fixed-width
+ * little endian doubles in origin-destination order after a small header, so the operating system pages the data in and out of its file
+ * cache as required. This allows for demand that does not fit in heap, e.g., many periods and modes, at the cost of slower access for
+ * cells that are not resident.
+ * <p>
+ * Since a single mapping is limited to 2GB the file is mapped in segments of whole rows. The file doubles as a binary format to reuse
+ * data between runs, see {@link #saveTo(Path)} and {@link #loadFrom(Path)}, or open an existing file directly via the constructor. Changes
+ * are persisted by the operating system at its discretion, call {@link #force()} to persist them immediately and {@link #close()} to
+ * release the file once done.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public abstract class OdMappedDouble extends OdDataImpl<Double> implements AutoCloseable {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(OdMappedDouble.class.getCanonicalName());
+
+  /** marker at the start of each file to recognise the format */
+  private static final long FILE_MAGIC = 0x504c414e49544f44L;
+
+  /** version of the file format */
+  private static final int FILE_VERSION = 1;
+
+  /** number of bytes of the header: magic, version, number of zones */
+  private static final int HEADER_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+  /** byte order of the file, fixed so files can be exchanged between platforms */
+  private static final ByteOrder FILE_BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** maximum number of bytes mapped in a single segment */
+  private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+  /** file backing the data */
+  protected final Path file;
+
+  /** number of od zones (rows and columns) */
+  protected final int numberOfZones;
+
+  /** number of rows in each segment */
+  protected final int rowsPerSegment;
+
+  /** channel to the file, null once closed */
+  private FileChannel channel;
+
+  /** mapped segments of whole rows, each viewed as doubles */
+  private DoubleBuffer[] segments;
+
+  /** mapped segments as bytes, required to force changes to the file */
+  private MappedByteBuffer[] mappedSegments;
+
+  /**
+   * Number of bytes of the file for the given number of zones
+   *
+   * @param numberOfZones to use
+   * @return file size in bytes
+   */
+  private static long computeFileSize(int numberOfZones) {
+    return HEADER_BYTES + (long) numberOfZones * numberOfZones * Double.BYTES;
+  }
+
+  /**
+   * Read and validate the header of an existing file
+   *
+   * @param channel       to read from
+   * @param fileName      for logging
+   * @param numberOfZones the expected number of zones
+   * @throws IOException when reading fails
+   */
+  private static void validateHeader(FileChannel channel, Path fileName, int numberOfZones) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(FILE_BYTE_ORDER);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) {
+        throw new PlanItRunTimeException("File %s too small to contain od data", fileName);
+      }
+    }
+    header.flip();
+    if (header.getLong() != FILE_MAGIC) {
+      throw new PlanItRunTimeException("File %s does not contain memory-mapped od data", fileName);
+    }
+    int version = header.getInt();
+    if (version != FILE_VERSION) {
+      throw new PlanItRunTimeException("Unsupported version %d of memory-mapped od data file %s", version, fileName);
+    }
+    int fileZones = header.getInt();
+    if (fileZones != numberOfZones || channel.size() != computeFileSize(numberOfZones)) {
+      throw new PlanItRunTimeException("Od data file %s holds %d zones, expected %d", fileName, fileZones, numberOfZones);
+    }
+  }
+
+  /**
+   * Write the header to a new file
+   *
+   * @param channel       to write to
+   * @param numberOfZones to record
+   * @throws IOException when writing fails
+   */
+  private static void writeHeader(FileChannel channel, int numberOfZones) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(FILE_BYTE_ORDER);
+    header.putLong(FILE_MAGIC).putInt(FILE_VERSION).putInt(numberOfZones).flip();
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+  }
+
+  /**
+   * Map the cells of the file in segments of whole rows
+   *
+   * @throws IOException when mapping fails
+   */
+  private void mapSegments() throws IOException {
+    final long rowBytes = (long) numberOfZones * Double.BYTES;
+    final int numberOfSegments = numberOfZones == 0 ? 0 : (numberOfZones + rowsPerSegment - 1) / rowsPerSegment;
+    this.segments = new DoubleBuffer[numberOfSegments];
+    this.mappedSegments = new MappedByteBuffer[numberOfSegments];
+    for (int segment = 0; segment < numberOfSegments; ++segment) {
+      int rows = Math.min(rowsPerSegment, numberOfZones - segment * rowsPerSegment);
+      long position = HEADER_BYTES + segment * rowsPerSegment * rowBytes;
+      mappedSegments[segment] = channel.map(MapMode.READ_WRITE, position, rows * rowBytes);
+      segments[segment] = mappedSegments[segment].order(FILE_BYTE_ORDER).asDoubleBuffer();
+    }
+  }
+
+  /**
+   * Verify the data has not been closed
+   */
+  private void validateOpen() {
+    if (isClosed()) {
+      throw new PlanItRunTimeException("Memory-mapped od data on file %s has been closed", file);
+    }
+  }
+
+  /**
+   * Index of the cell within its segment
+   *
+   * @param originId      of cell
+   * @param destinationId of cell
+   * @return index within segment
+   */
+  protected int indexInSegment(long originId, long destinationId) {
+    return (int) (originId % rowsPerSegment) * numberOfZones + (int) destinationId;
+  }
+
+  /**
+   * Segment holding the row of the origin
+   *
+   * @param originId of row
+   * @return segment
+   */
+  protected DoubleBuffer segmentOf(long originId) {
+    int segment = (int) (originId / rowsPerSegment);
+    if (segment >= segments.length) {
+      /* closing releases the segments, report that rather than an invalid index */
+      validateOpen();
+    }
+    return segments[segment];
+  }
+
+  /**
+   * Constructor creating a new file in which all cells are initialised to zero, an existing file is overwritten
+   *
+   * @param idTokenClass to use for id generation
+   * @param idToken      to use for id generation
+   * @param zones        zones considered
+   * @param file         to store the data in
+   */
+  public OdMappedDouble(final Class<? extends IdAble> idTokenClass, IdGroupingToken idToken, final OdZones zones, final Path file) {
+    this(idTokenClass, idToken, zones, file, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param idTokenClass to use for id generation
+   * @param idToken      to use for id generation
+   * @param zones        zones considered
+   * @param file         to store the data in
+   * @param openExisting when true the existing file and its contents are used, it must match the zones, otherwise a new file is created
+   */
+  public OdMappedDouble(final Class<? extends IdAble> idTokenClass, IdGroupingToken idToken, final OdZones zones, final Path file,
+      boolean openExisting) {
+    super(idTokenClass, idToken, zones);
+    this.file = file;
+    this.numberOfZones = zones.size();
+    this.rowsPerSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE, MAX_SEGMENT_BYTES / Math.max(1L, (long) numberOfZones * Double.BYTES)));
+    try {
+      if (openExisting) {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        validateHeader(channel, file, numberOfZones);
+      } else {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader(channel, numberOfZones);
+        if (numberOfZones > 0) {
+          /* extend to full size, the file system provides the zero initialised cells */
+          channel.write(ByteBuffer.allocate(1), computeFileSize(numberOfZones) - 1);
+        }
+      }
+      mapSegments();
+    } catch (IOException e) {
+      close();
+      throw new PlanItRunTimeException("Unable to map od data file %s", e, file);
+    } catch (PlanItRunTimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Copy constructor, the copy shares the file and its mapping with the original, see {@link #isClosed()}
+   *
+   * @param other to copy
+   */
+  public OdMappedDouble(final OdMappedDouble other) {
+    super(other);
+    this.file = other.file;
+    this.numberOfZones = other.numberOfZones;
+    this.rowsPerSegment = other.rowsPerSegment;
+    this.channel = other.channel;
+    this.mappedSegments = other.mappedSegments;
+    this.segments = new DoubleBuffer[other.segments.length];
+    for (int segment = 0; segment < segments.length; ++segment) {
+      /* buffers carry a position, so each instance uses its own view on the shared mapping */
+      segments[segment] = other.segments[segment].duplicate();
+    }
+  }
+
+  /**
+   * Unboxed value for a specified origin and destination by their internal id
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @return value at the specified cell
+   */
+  public double getDouble(long originId, long destinationId) {
+    return segmentOf(originId).get(indexInSegment(originId, destinationId));
+  }
+
+  /**
+   * Set unboxed value for a specified origin and destination by their internal id
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @param value         value at the specified cell
+   */
+  public void setDouble(long originId, long destinationId, double value) {
+    segmentOf(originId).put(indexInSegment(originId, destinationId), value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(Zone origin, Zone destination) {
+    return getDouble(origin.getId(), destination.getId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(long originId, long destinationId) {
+    return getDouble(originId, destinationId);
+  }
+
+  /**
+   * Sets the value for a specified origin and destination, null is treated as zero
+   *
+   * @param origin      specified origin
+   * @param destination specified destination
+   * @param value       value at the specified cell
+   */
+  @Override
+  public void setValue(Zone origin, Zone destination, Double value) {
+    setDouble(origin.getId(), destination.getId(), value == null ? 0 : value);
+  }
+
+  /**
+   * Set all cells to the given value
+   *
+   * @param value to use
+   */
+  public void fill(double value) {
+    validateOpen();
+    for (DoubleBuffer segment : segments) {
+      for (int index = 0; index < segment.capacity(); ++index) {
+        segment.put(index, value);
+      }
+    }
+  }
+
+  /**
+   * Persist all changes to the file now rather than at the discretion of the operating system
+   */
+  public void force() {
+    validateOpen();
+    for (MappedByteBuffer mappedSegment : mappedSegments) {
+      mappedSegment.force();
+    }
+  }
+
+  /**
+   * Save the data to another file, which can be opened or loaded later on
+   *
+   * @param target file to save to, overwritten when it exists
+   */
+  public void saveTo(Path target) {
+    force();
+    try {
+      Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new PlanItRunTimeException("Unable to save od data file %s to %s", e, file, target);
+    }
+  }
+
+  /**
+   * Replace all cells with those of a previously saved file for the same zones
+   *
+   * @param source file to load from
+   */
+  public void loadFrom(Path source) {
+    validateOpen();
+    try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+      validateHeader(sourceChannel, source, numberOfZones);
+      long position = HEADER_BYTES;
+      for (MappedByteBuffer mappedSegment : mappedSegments) {
+        /* read straight into the mapping, using a duplicate so the position of the mapping itself is untouched */
+        ByteBuffer target = mappedSegment.duplicate();
+        target.clear();
+        while (target.hasRemaining()) {
+          int read = sourceChannel.read(target, position);
+          if (read < 0) {
+            throw new PlanItRunTimeException("Unexpected end of od data file %s", source);
+          }
+          position += read;
+        }
+      }
+    } catch (IOException e) {
+      throw new PlanItRunTimeException("Unable to load od data file %s", e, source);
+    }
+  }
+
+  /**
+   * File backing the data
+   *
+   * @return file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Verify if the data is closed. Copies share the file, so they report closed once any instance sharing it has been closed
+   *
+   * @return true when closed
+   */
+  public boolean isClosed() {
+    return channel == null || !channel.isOpen();
+  }
+
+  /**
+   * Close the file. Mappings are released once no longer referenced, any copies sharing the mapping should no longer be used afterwards
+   */
+  @Override
+  public void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.warning(String.format("Unable to close od data file %s: %s", file, e.getMessage()));
+    }
+    channel = null;
+    segments = new DoubleBuffer[0];
+    mappedSegments = new MappedByteBuffer[0];
+  }
+
+  /**
+   * Returns an iterator through all origin-destination cells in origin-destination order
+   *
+   * @return iterator through all the origin-destination cells
+   */
+  @Override
+  public OdMappedDoubleIterator iterator() {
+    return new OdMappedDoubleIterator(this, getOdZones());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdMappedDoubleIterator iterator(int fromOriginIndex, int toOriginIndex) {
+    OdMappedDoubleIterator iterator = iterator();
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
+  /**
+   * Shallow copy sharing the file and its mapping
+   *
+   * @return shallow copy
+   */
+  @Override
+  public abstract OdMappedDouble shallowClone();
+
+  /**
+   * Deep copy, implementations decide on the file to hold the copied contents
+   *
+   * @return deep copy
+   */
+  @Override
+  public abstract OdMappedDouble deepClone();
+}
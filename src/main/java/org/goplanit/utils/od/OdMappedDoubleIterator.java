@@ -0,0 +1,85 @@
+package org.goplanit.utils.od;
+
+import org.goplanit.utils.zoning.OdZones;
+
+/**
+ * Iterator of memory-mapped od data with doubles, visiting the cells in origin-destination order, i.e., in file order. Since memory-mapped
+ * data is intended for large numbers of zones, the position is tracked as an origin and destination cursor rather than a single cell index
+ * which would overflow beyond 46,340 zones
+ *
+ * @author markr
+ *
+ */
+public class OdMappedDoubleIterator extends OdMatrixIterator<Double, OdMappedDouble> {
+
+  /** origin of the next cell */
+  private int nextOriginId;
+
+  /** destination of the next cell */
+  private int nextDestinationId;
+
+  /** origin (exclusive) at which the iteration ends */
+  private int endOriginId;
+
+  /**
+   * Constructor
+   *
+   * @param container memory-mapped od data to iterate through
+   * @param zones     zones
+   */
+  public OdMappedDoubleIterator(OdMappedDouble container, OdZones zones) {
+    super(container, zones);
+    this.nextOriginId = 0;
+    this.nextDestinationId = 0;
+    this.endOriginId = zones.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void updateCurrentLocation() {
+    originId = nextOriginId;
+    destinationId = nextDestinationId;
+    if (++nextDestinationId == zones.size()) {
+      nextDestinationId = 0;
+      ++nextOriginId;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasNext() {
+    return nextOriginId < endOriginId && nextDestinationId < zones.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void restrictToOrigins(int fromOriginIndex, int toOriginIndex) {
+    nextOriginId = fromOriginIndex;
+    nextDestinationId = 0;
+    endOriginId = toOriginIndex;
+  }
+
+  /**
+   * Unboxed value at the current cell
+   *
+   * @return the value at the current cell
+   */
+  public double getCurrentDoubleValue() {
+    return getMatrixContent().getDouble(originId, destinationId);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getCurrentValue() {
+    return getCurrentDoubleValue();
+  }
+
+}
@@ -52,6 +52,16 @@ public abstract class OdMatrixImpl<T, U> extends OdDataImpl<T> implements OdMatr
   @Override
   public abstract OdMatrixIterator<T, U> iterator();
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdMatrixIterator<T, U> iterator(int fromOriginIndex, int toOriginIndex) {
+    OdMatrixIterator<T, U> iterator = iterator();
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -33,6 +33,11 @@ public abstract class OdMatrixIterator<T, U> implements OdDataIterator<T> {
    */
   protected int currentLocation;
 
+  /**
+   * Location (exclusive) at which the iteration ends
+   */
+  protected int endLocation;
+
   /**
    * Zones object to store travel analysis zones (from Zoning object)
    */
@@ -67,6 +72,7 @@ public abstract class OdMatrixIterator<T, U> implements OdDataIterator<T> {
     this.zones = zones;
     currentLocation = 0;
     this.matrixContents = matrixContents;
+    this.endLocation = zones.size() * zones.size();
   }
 
   /**
@@ -76,7 +82,19 @@ public abstract class OdMatrixIterator<T, U> implements OdDataIterator<T> {
    */
   @Override
   public boolean hasNext() {
-    return currentLocation < (zones.size() * zones.size());
+    return currentLocation < endLocation;
+  }
+
+  /**
+   * Restrict the iteration to the cells of the origins within the given range of origin indices (zone ids). To be invoked before
+   * the first call to next
+   * 
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   */
+  public void restrictToOrigins(int fromOriginIndex, int toOriginIndex) {
+    currentLocation = fromOriginIndex * zones.size();
+    endLocation = toOriginIndex * zones.size();
   }
 
   /**
@@ -0,0 +1,125 @@
+package org.goplanit.utils.od;
+
+import org.goplanit.utils.containers.LongKeyHashMap;
+import org.goplanit.utils.id.IdAble;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.zoning.OdZones;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * This class stores values by their origin and destination by packing the ids of the od zones into a single long key. Contrary to
+ * {@link OdHashedImpl} the key is collision free and values are stored in an open addressing primitive map, so lookups and updates do not
+ * allocate any objects. Like {@link OdHashedImpl} only a single container is used and only non-empty od combinations take up space.
+ *
+ * @author markr
+ *
+ */
+public abstract class OdPackedHashedImpl<T> extends OdDataImpl<T> implements OdHashed<T> {
+
+  /** the OD values where the key is the packed combination of the origin and destination id */
+  protected final LongKeyHashMap<T> odPackedHashed;
+
+  /**
+   * Constructor
+   *
+   * @param idClass concrete class to use for id generation
+   * @param groupId contiguous id generation within this group for instances of this class
+   * @param zones   the zones being used
+   */
+  public OdPackedHashedImpl(Class<? extends IdAble> idClass, final IdGroupingToken groupId, final OdZones zones) {
+    super(idClass, groupId, zones);
+    this.odPackedHashed = new LongKeyHashMap<>();
+  }
+
+  /**
+   * Copy constructor, only shallow copy implemented, deep copy is to be implemented by parent because we do not
+   * want to enforce more type information on values
+   *
+   * @param other to copy from
+   */
+  public OdPackedHashedImpl(final OdPackedHashedImpl<T> other) {
+    super(other);
+    this.odPackedHashed = new LongKeyHashMap<>(other.odPackedHashed);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T getValue(Zone origin, Zone destination) {
+    return odPackedHashed.get(OdHashed.generatePackedKey(origin.getId(), destination.getId()));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T getValue(long originId, long destinationId) {
+    return odPackedHashed.get(OdHashed.generatePackedKey(originId, destinationId));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setValue(Zone origin, Zone destination, T value) {
+    setValue(origin.getId(), destination.getId(), value);
+  }
+
+  /**
+   * Sets the value for a specified origin and destination by their internal id, a null value removes the entry
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @param value         value at the specified cell
+   */
+  public void setValue(long originId, long destinationId, T value) {
+    odPackedHashed.put(OdHashed.generatePackedKey(originId, destinationId), value);
+  }
+
+  /**
+   * Number of non-empty od combinations
+   *
+   * @return number of registered values
+   */
+  public int getNumberOfNonEmptyOds() {
+    return odPackedHashed.size();
+  }
+
+  /**
+   * Iterates over non-empty entries only in storage order rather than origin-destination order.
+   *
+   * @return iterator through all available non-empty origin-destination entries
+   */
+  @Override
+  public OdHashedIterator<T> iterator() {
+    return new OdPackedHashedIterator<>(this, odPackedHashed, getOdZones());
+  }
+
+  /**
+   * Iterates over non-empty entries of the origin range only, in storage order rather than origin-destination order.
+   *
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @return iterator through the available non-empty origin-destination entries of the origin range
+   */
+  @Override
+  public OdHashedIterator<T> iterator(int fromOriginIndex, int toOriginIndex) {
+    OdHashedIterator<T> iterator = iterator();
+    iterator.restrictToOrigins(fromOriginIndex, toOriginIndex);
+    return iterator;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public abstract OdPackedHashedImpl<T> shallowClone();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public abstract OdPackedHashedImpl<T> deepClone();
+
+}
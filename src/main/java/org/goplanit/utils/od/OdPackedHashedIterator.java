@@ -0,0 +1,116 @@
+package org.goplanit.utils.od;
+
+import java.util.NoSuchElementException;
+
+import org.goplanit.utils.containers.LongKeyHashMap;
+import org.goplanit.utils.zoning.OdZones;
+
+/**
+ * Iterator over a packed key hash container which only visits the occupied entries rather than scanning all possible
+ * origin-destination combinations. Entries are visited in storage order which is deterministic for a given sequence of updates but
+ * does not follow the origin-destination order.
+ *
+ * @param <T> type of values
+ *
+ * @author markr
+ *
+ */
+public class OdPackedHashedIterator<T> extends OdHashedIterator<T> {
+
+  /** the packed key container */
+  private final LongKeyHashMap<T> odPackedHashed;
+
+  /** slot of the current entry, -1 before the first call to next */
+  private int currentSlot;
+
+  /** slot of the next entry, -1 when exhausted */
+  private int nextSlot;
+
+  /** first origin index (inclusive) of entries to visit */
+  private int fromOriginIndex;
+
+  /** last origin index (exclusive) of entries to visit */
+  private int toOriginIndex;
+
+  /**
+   * Find the first occupied slot at or after the given slot with an origin within the origin range
+   *
+   * @param fromSlot to start from
+   * @return found slot, -1 if none
+   */
+  private int findNextSlot(int fromSlot) {
+    int slot = odPackedHashed.nextOccupiedSlot(fromSlot);
+    while (slot >= 0) {
+      int origin = OdHashed.unpackOriginId(odPackedHashed.getKeyAt(slot));
+      if (origin >= fromOriginIndex && origin < toOriginIndex) {
+        break;
+      }
+      slot = odPackedHashed.nextOccupiedSlot(slot + 1);
+    }
+    return slot;
+  }
+
+  /**
+   * Move the cursor to the next occupied slot
+   */
+  @Override
+  protected void updateCurrentLocation() {
+    if (nextSlot < 0) {
+      throw new NoSuchElementException("No more non-empty origin-destination entries available");
+    }
+    currentSlot = nextSlot;
+    long packedKey = odPackedHashed.getKeyAt(currentSlot);
+    originId = OdHashed.unpackOriginId(packedKey);
+    destinationId = OdHashed.unpackDestinationId(packedKey);
+    currentLocation = currentSlot + 1;
+    nextSlot = findNextSlot(currentLocation);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param container      object containing the data to be iterated through
+   * @param odPackedHashed the packed key storage of the container
+   * @param zones          to use
+   */
+  public OdPackedHashedIterator(final OdHashed<T> container, final LongKeyHashMap<T> odPackedHashed, OdZones zones) {
+    super(container, zones);
+    this.odPackedHashed = odPackedHashed;
+    this.currentSlot = -1;
+    this.fromOriginIndex = 0;
+    this.toOriginIndex = zones.size();
+    this.nextSlot = findNextSlot(0);
+  }
+
+  /**
+   * Restrict the iteration to the entries of the origins within the given range of origin indices (zone ids). To be invoked before the
+   * first call to next. Since entries are not stored by origin, all occupied slots are still visited but only matching entries are
+   * returned
+   *
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   */
+  @Override
+  public void restrictToOrigins(int fromOriginIndex, int toOriginIndex) {
+    this.fromOriginIndex = fromOriginIndex;
+    this.toOriginIndex = toOriginIndex;
+    this.nextSlot = findNextSlot(0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasNext() {
+    return nextSlot >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T getCurrentValue() {
+    return currentSlot < 0 ? null : odPackedHashed.getValueAt(currentSlot);
+  }
+
+}
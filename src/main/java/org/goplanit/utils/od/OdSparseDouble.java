@@ -0,0 +1,355 @@
+package org.goplanit.utils.od;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.id.IdAble;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.zoning.OdZones;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Sparse origin-destination data for double values where only non-zero cells take up space. Cells are stored per origin (row) in a
+ * compressed row, i.e., a sorted array of destination indices with a parallel array of values, so memory scales with the number of non-zero
+ * cells rather than the number of zones squared. Rows without any non-zero cells are not allocated at all.
+ * <p>
+ * Lookups are a binary search within a single row, the iterator only visits non-zero cells in origin-destination order. Absent cells have a
+ * value of zero, setting a cell to zero removes it. For dense data consider {@link OdDoubleMatrix} instead; conversions between both are
+ * available via {@link #copyFrom(OdData)} and {@link #copyTo(OdData)}.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public abstract class OdSparseDouble extends OdDataImpl<Double> {
+
+  /** the logger */
+  @SuppressWarnings("unused")
+  private static final Logger LOGGER = Logger.getLogger(OdSparseDouble.class.getCanonicalName());
+
+  /** initial capacity of a row upon its first non-zero cell */
+  private static final int INITIAL_ROW_CAPACITY = 4;
+
+  /** sorted destination indices of non-zero cells per origin, null for empty rows */
+  protected int[][] rowDestinations;
+
+  /** values of non-zero cells per origin, parallel to destination indices, null for empty rows */
+  protected double[][] rowValues;
+
+  /** number of non-zero cells per origin */
+  protected int[] rowSizes;
+
+  /** number of non-zero cells */
+  protected long numberOfNonZeroCells;
+
+  /**
+   * Find position of destination within row
+   *
+   * @param origin      row
+   * @param destination to find
+   * @return position when found, otherwise (-(insertion point) - 1)
+   */
+  private int findInRow(int origin, int destination) {
+    final int[] destinations = rowDestinations[origin];
+    if (destinations == null) {
+      return -1;
+    }
+    return Arrays.binarySearch(destinations, 0, rowSizes[origin], destination);
+  }
+
+  /**
+   * Insert a new non-zero cell in a row at the given position
+   *
+   * @param origin      row
+   * @param position    to insert at
+   * @param destination of the cell
+   * @param value       of the cell
+   */
+  private void insertInRow(int origin, int position, int destination, double value) {
+    int size = rowSizes[origin];
+    if (rowDestinations[origin] == null) {
+      rowDestinations[origin] = new int[INITIAL_ROW_CAPACITY];
+      rowValues[origin] = new double[INITIAL_ROW_CAPACITY];
+    } else if (size == rowDestinations[origin].length) {
+      int newCapacity = size << 1;
+      rowDestinations[origin] = Arrays.copyOf(rowDestinations[origin], newCapacity);
+      rowValues[origin] = Arrays.copyOf(rowValues[origin], newCapacity);
+    }
+    System.arraycopy(rowDestinations[origin], position, rowDestinations[origin], position + 1, size - position);
+    System.arraycopy(rowValues[origin], position, rowValues[origin], position + 1, size - position);
+    rowDestinations[origin][position] = destination;
+    rowValues[origin][position] = value;
+    ++rowSizes[origin];
+    ++numberOfNonZeroCells;
+  }
+
+  /**
+   * Remove a non-zero cell from a row at the given position
+   *
+   * @param origin   row
+   * @param position to remove
+   */
+  private void removeFromRow(int origin, int position) {
+    int size = rowSizes[origin];
+    System.arraycopy(rowDestinations[origin], position + 1, rowDestinations[origin], position, size - position - 1);
+    System.arraycopy(rowValues[origin], position + 1, rowValues[origin], position, size - position - 1);
+    --rowSizes[origin];
+    --numberOfNonZeroCells;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param idTokenClass to use for id generation
+   * @param idToken      to use for id generation
+   * @param zones        zones considered
+   */
+  public OdSparseDouble(final Class<? extends IdAble> idTokenClass, IdGroupingToken idToken, final OdZones zones) {
+    super(idTokenClass, idToken, zones);
+    int numberOfZones = zones.size();
+    this.rowDestinations = new int[numberOfZones][];
+    this.rowValues = new double[numberOfZones][];
+    this.rowSizes = new int[numberOfZones];
+    this.numberOfNonZeroCells = 0;
+  }
+
+  /**
+   * Copy constructor, the contents are copied
+   *
+   * @param other to copy
+   */
+  public OdSparseDouble(final OdSparseDouble other) {
+    super(other);
+    int numberOfZones = other.rowSizes.length;
+    this.rowDestinations = new int[numberOfZones][];
+    this.rowValues = new double[numberOfZones][];
+    this.rowSizes = Arrays.copyOf(other.rowSizes, numberOfZones);
+    this.numberOfNonZeroCells = other.numberOfNonZeroCells;
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      if (other.rowSizes[origin] > 0) {
+        this.rowDestinations[origin] = Arrays.copyOf(other.rowDestinations[origin], other.rowSizes[origin]);
+        this.rowValues[origin] = Arrays.copyOf(other.rowValues[origin], other.rowSizes[origin]);
+      }
+    }
+  }
+
+  /**
+   * Unboxed value for a specified origin and destination by their internal id
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @return value at the specified cell, zero when absent
+   */
+  public double getDouble(long originId, long destinationId) {
+    int origin = (int) originId;
+    int position = findInRow(origin, (int) destinationId);
+    return position >= 0 ? rowValues[origin][position] : 0;
+  }
+
+  /**
+   * Set unboxed value for a specified origin and destination by their internal id, a value of zero removes the cell
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @param value         value at the specified cell
+   */
+  public void setDouble(long originId, long destinationId, double value) {
+    int origin = (int) originId;
+    int destination = (int) destinationId;
+    int position = findInRow(origin, destination);
+    if (position >= 0) {
+      if (value == 0) {
+        removeFromRow(origin, position);
+      } else {
+        rowValues[origin][position] = value;
+      }
+    } else if (value != 0) {
+      insertInRow(origin, -position - 1, destination, value);
+    }
+  }
+
+  /**
+   * Add to the unboxed value for a specified origin and destination by their internal id, when the result is zero the cell is removed
+   *
+   * @param originId      specified origin
+   * @param destinationId specified destination
+   * @param increment     to add to the value at the specified cell
+   */
+  public void addToDouble(long originId, long destinationId, double increment) {
+    setDouble(originId, destinationId, getDouble(originId, destinationId) + increment);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(Zone origin, Zone destination) {
+    return getDouble(origin.getId(), destination.getId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getValue(long originId, long destinationId) {
+    return getDouble(originId, destinationId);
+  }
+
+  /**
+   * Sets the value for a specified origin and destination, null or zero removes the cell
+   *
+   * @param origin      specified origin
+   * @param destination specified destination
+   * @param value       value at the specified cell
+   */
+  @Override
+  public void setValue(Zone origin, Zone destination, Double value) {
+    setDouble(origin.getId(), destination.getId(), value == null ? 0 : value);
+  }
+
+  /**
+   * Number of non-zero cells
+   *
+   * @return number of non-zero cells
+   */
+  public long getNumberOfNonZeroCells() {
+    return numberOfNonZeroCells;
+  }
+
+  /**
+   * Number of non-zero cells of an origin
+   *
+   * @param originId to collect for
+   * @return number of non-zero cells in the row of the origin
+   */
+  public int getNumberOfNonZeroCells(long originId) {
+    return rowSizes[(int) originId];
+  }
+
+  /**
+   * Remove all cells, releasing all rows
+   */
+  public void clear() {
+    Arrays.fill(rowDestinations, null);
+    Arrays.fill(rowValues, null);
+    Arrays.fill(rowSizes, 0);
+    numberOfNonZeroCells = 0;
+  }
+
+  /**
+   * Reduce the capacity of each row to its number of non-zero cells
+   */
+  public void trimToSize() {
+    for (int origin = 0; origin < rowSizes.length; ++origin) {
+      int size = rowSizes[origin];
+      if (size == 0) {
+        rowDestinations[origin] = null;
+        rowValues[origin] = null;
+      } else if (rowDestinations[origin].length > size) {
+        rowDestinations[origin] = Arrays.copyOf(rowDestinations[origin], size);
+        rowValues[origin] = Arrays.copyOf(rowValues[origin], size);
+      }
+    }
+  }
+
+  /**
+   * Replace the contents with the non-zero cells of the source, e.g., a dense matrix
+   *
+   * @param source to copy non-zero cells from
+   */
+  public void copyFrom(OdData<? extends Number> source) {
+    clear();
+    if (source instanceof OdDoubleMatrix) {
+      /* direct access without boxing, cells arrive in origin-destination order so each insert appends to its row */
+      final OdDoubleMatrix dense = (OdDoubleMatrix) source;
+      final int numberOfZones = rowSizes.length;
+      for (int origin = 0; origin < numberOfZones; ++origin) {
+        for (int destination = 0; destination < numberOfZones; ++destination) {
+          double value = dense.getDouble(origin, destination);
+          if (value != 0) {
+            insertInRow(origin, rowSizes[origin], destination, value);
+          }
+        }
+      }
+    } else {
+      final OdDataIterator<? extends Number> iterator = source.iterator();
+      while (iterator.hasNext()) {
+        Number value = iterator.next();
+        if (value != null && value.doubleValue() != 0) {
+          setDouble(iterator.getCurrentOrigin().getId(), iterator.getCurrentDestination().getId(), value.doubleValue());
+        }
+      }
+    }
+    trimToSize();
+  }
+
+  /**
+   * Set the non-zero cells of this sparse data on the target, e.g., a dense matrix. Cells of the target that are zero here are not
+   * touched, so the target is expected to be empty when an exact copy is required
+   *
+   * @param target to copy non-zero cells to
+   */
+  public void copyTo(OdData<Double> target) {
+    final boolean isDoubleMatrix = target instanceof OdDoubleMatrix;
+    for (int origin = 0; origin < rowSizes.length; ++origin) {
+      final int size = rowSizes[origin];
+      if (size == 0) {
+        continue;
+      }
+      final Zone originZone = isDoubleMatrix ? null : getOdZones().get(origin);
+      for (int position = 0; position < size; ++position) {
+        if (isDoubleMatrix) {
+          ((OdDoubleMatrix) target).setDouble(origin, rowDestinations[origin][position], rowValues[origin][position]);
+        } else {
+          target.setValue(originZone, getOdZones().get(rowDestinations[origin][position]), rowValues[origin][position]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator which only visits the non-zero cells in origin-destination order
+   *
+   * @return iterator through all non-zero origin-destination cells
+   */
+  @Override
+  public OdSparseDoubleIterator iterator() {
+    return new OdSparseDoubleIterator(this, getOdZones());
+  }
+
+  /**
+   * Returns an iterator which only visits the non-zero cells of the origin range in origin-destination order
+   *
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   * @return iterator through the non-zero origin-destination cells of the origin range
+   */
+  @Override
+  public OdSparseDoubleIterator iterator(int fromOriginIndex, int toOriginIndex) {
+    return new OdSparseDoubleIterator(this, getOdZones(), fromOriginIndex, toOriginIndex);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdSparseDoubleIterator nonEmptyIterator(int fromOriginIndex, int toOriginIndex) {
+    /* only non-zero cells are stored */
+    return iterator(fromOriginIndex, toOriginIndex);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public abstract OdSparseDouble shallowClone();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OdSparseDouble deepClone() {
+    /* values are primitives, so the deep clone is the same as a shallow copy, since the copy constructor copies the contents */
+    return shallowClone();
+  }
+}
@@ -0,0 +1,152 @@
+package org.goplanit.utils.od;
+
+import java.util.NoSuchElementException;
+
+import org.goplanit.utils.zoning.OdZones;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Iterator over sparse double od data which only visits the non-zero cells, in origin-destination order
+ *
+ * @author markr
+ *
+ */
+public class OdSparseDoubleIterator implements OdDataIterator<Double> {
+
+  /** the container */
+  private final OdSparseDouble container;
+
+  /** zones to use */
+  private final OdZones zones;
+
+  /** origin of the current cell, -1 before the first call to next */
+  private int currentOrigin;
+
+  /** position of the current cell within its row */
+  private int currentPosition;
+
+  /** origin of the next cell, end of origin range when exhausted */
+  private int nextOrigin;
+
+  /** position of the next cell within its row */
+  private int nextPosition;
+
+  /** last origin (exclusive) to visit */
+  private final int toOriginIndex;
+
+  /**
+   * Move the next cursor to the first non-zero cell at or after the given row and position
+   *
+   * @param origin   row to start from
+   * @param position position to start from within row
+   */
+  private void advance(int origin, int position) {
+    final int[] rowSizes = container.rowSizes;
+    while (origin < toOriginIndex && position >= rowSizes[origin]) {
+      ++origin;
+      position = 0;
+    }
+    nextOrigin = origin;
+    nextPosition = position;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param container sparse data to iterate through
+   * @param zones     to use
+   */
+  public OdSparseDoubleIterator(final OdSparseDouble container, final OdZones zones) {
+    this(container, zones, 0, container.rowSizes.length);
+  }
+
+  /**
+   * Constructor restricting the iteration to the origins within the given range of origin indices
+   *
+   * @param container       sparse data to iterate through
+   * @param zones           to use
+   * @param fromOriginIndex first origin index (inclusive)
+   * @param toOriginIndex   last origin index (exclusive)
+   */
+  public OdSparseDoubleIterator(final OdSparseDouble container, final OdZones zones, int fromOriginIndex, int toOriginIndex) {
+    this.container = container;
+    this.zones = zones;
+    this.toOriginIndex = Math.min(toOriginIndex, container.rowSizes.length);
+    this.currentOrigin = -1;
+    this.currentPosition = -1;
+    advance(fromOriginIndex, 0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasNext() {
+    return nextOrigin < toOriginIndex;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more non-zero origin-destination cells available");
+    }
+    currentOrigin = nextOrigin;
+    currentPosition = nextPosition;
+    advance(currentOrigin, currentPosition + 1);
+    return getCurrentValue();
+  }
+
+  /**
+   * Internal id of the origin of the current cell
+   *
+   * @return origin id
+   */
+  public int getCurrentOriginId() {
+    return currentOrigin;
+  }
+
+  /**
+   * Internal id of the destination of the current cell
+   *
+   * @return destination id
+   */
+  public int getCurrentDestinationId() {
+    return container.rowDestinations[currentOrigin][currentPosition];
+  }
+
+  /**
+   * Unboxed value at the current cell
+   *
+   * @return the value at the current cell
+   */
+  public double getCurrentDoubleValue() {
+    return container.rowValues[currentOrigin][currentPosition];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Zone getCurrentOrigin() {
+    return zones.get(getCurrentOriginId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Zone getCurrentDestination() {
+    return zones.get(getCurrentDestinationId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getCurrentValue() {
+    return getCurrentDoubleValue();
+  }
+}
@@ -3,6 +3,8 @@ package org.goplanit.utils.wrapper;
 import java.util.Map;
 import java.util.function.Function;
 
+import org.goplanit.utils.containers.DenseLongKeyMap;
+
 /**
  * Wrapper class for a map instance with Long keys
  * 
@@ -11,7 +13,26 @@ import java.util.function.Function;
  * @param <V> map value
  */
 public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> implements LongMapWrapper<V>{
- 
+
+  /** the wrapped map when it is array based, allowing for unboxed access by key, null otherwise */
+  private DenseLongKeyMap<V> denseMap;
+
+  /** Sync the dense map reference with the currently wrapped map
+   */
+  @SuppressWarnings("unchecked")
+  private void updateDenseMap() {
+    this.denseMap = (getMap() instanceof DenseLongKeyMap) ? (DenseLongKeyMap<V>) getMap() : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setMap(final Map<Long, V> replacement) {
+    super.setMap(replacement);
+    updateDenseMap();
+  }
+
   /** Constructor 
    * 
    * @param mapToWrap the map to wrap
@@ -19,6 +40,7 @@ public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> impl
    */
   public LongMapWrapperImpl(final Map<Long, V> mapToWrap, final Function<V, Long> valueToKey) {
     super(mapToWrap, valueToKey);
+    updateDenseMap();
   }
   
   /** Copy constructor 
@@ -27,6 +49,7 @@ public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> impl
    */
   public LongMapWrapperImpl(final LongMapWrapperImpl<V> other) {
     super(other);
+    updateDenseMap();
   }  
   
   /**
@@ -34,7 +57,7 @@ public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> impl
    */  
   @Override
   public V remove(final long key) {
-    return getMap().remove(key);
+    return denseMap != null ? denseMap.remove(key) : getMap().remove(key);
   }  
 
   /**
@@ -42,7 +65,7 @@ public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> impl
    */
   @Override  
   public V get(final long key) {
-    return getMap().get(key);
+    return denseMap != null ? denseMap.get(key) : getMap().get(key);
   }
   
   /**
@@ -50,7 +73,7 @@ public abstract class LongMapWrapperImpl<V> extends MapWrapperImpl<Long, V> impl
    */
   @Override  
   public boolean containsKey(final long key) {
-    return getMap().containsKey(key);
+    return denseMap != null ? denseMap.containsKey(key) : getMap().containsKey(key);
   }  
   
   /**
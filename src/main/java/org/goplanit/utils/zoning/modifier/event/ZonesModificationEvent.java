@@ -0,0 +1,39 @@
+package org.goplanit.utils.zoning.modifier.event;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.goplanit.utils.zoning.Zone;
+
+/** Zoning modification event that exposes the zones it added, removed or whose geometry it changed. Allows listeners that mirror the
+ * zoning, such as a spatial index, to update incrementally regardless of the concrete modification
+ *
+ * @author markr
+ *
+ */
+public interface ZonesModificationEvent extends ZoningModificationEvent {
+
+  /** Zones added by the modification
+   *
+   * @return added zones
+   */
+  public default Collection<? extends Zone> getAddedZones(){
+    return Collections.emptyList();
+  }
+
+  /** Zones removed by the modification
+   *
+   * @return removed zones
+   */
+  public default Collection<? extends Zone> getRemovedZones(){
+    return Collections.emptyList();
+  }
+
+  /** Zones that remain but whose geometry or centroid position was changed by the modification
+   *
+   * @return zones with changed geometry
+   */
+  public default Collection<? extends Zone> getGeometryChangedZones(){
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,108 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.BitSetDirectedSubGraph;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class BitSetDirectedSubGraphTest {
+
+  @Test
+  public void matchesReferenceTest() {
+    var random = new Random(47);
+    int numberOfVertices = 30;
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < numberOfVertices; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    /* spans several words of bits */
+    for (int index = 0; index < 200; ++index) {
+      builder.addEdgeSegment(vertices.get(random.nextInt(numberOfVertices)), vertices.get(random.nextInt(numberOfVertices)));
+    }
+    var edgeSegments = builder.getEdgeSegments();
+    var parentIndex = new DirectedGraphStar(vertices, edgeSegments);
+    var subGraph = new BitSetDirectedSubGraph<DirectedVertex, EdgeSegment>(IdGroupingToken.create("BitSetDirectedSubGraphTest"), parentIndex);
+    assertTrue(subGraph.isEmpty());
+
+    var expected = new TreeSet<Integer>();
+    for (int operation = 0; operation < 2000; ++operation) {
+      int edgeSegmentId = random.nextInt(edgeSegments.size());
+      if (random.nextBoolean()) {
+        assertEquals(expected.add(edgeSegmentId), subGraph.addEdgeSegment(edgeSegmentId));
+      } else if (random.nextBoolean()) {
+        assertEquals(expected.remove(edgeSegmentId), subGraph.removeEdgeSegment(edgeSegmentId));
+      } else {
+        subGraph.removeEdgeSegment(edgeSegments.get(edgeSegmentId));
+        expected.remove(edgeSegmentId);
+      }
+    }
+    assertEquals(expected.size(), subGraph.getNumberOfEdgeSegments());
+
+    var outDegrees = new int[numberOfVertices];
+    var inDegrees = new int[numberOfVertices];
+    for (int edgeSegmentId : expected) {
+      ++outDegrees[parentIndex.getUpstreamVertexId(edgeSegmentId)];
+      ++inDegrees[parentIndex.getDownstreamVertexId(edgeSegmentId)];
+    }
+    long activeVertices = 0;
+    for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+      assertEquals(outDegrees[vertex], subGraph.getNumberOfEdgeSegments(vertex, true));
+      assertEquals(inDegrees[vertex], subGraph.getNumberOfEdgeSegments(vertices.get(vertex), false));
+      boolean active = outDegrees[vertex] + inDegrees[vertex] > 0;
+      assertEquals(active, subGraph.containsVertex(vertex));
+      activeVertices += active ? 1 : 0;
+    }
+    assertEquals(activeVertices, subGraph.getNumberOfVertices());
+
+    /* iteration in ascending id order, both via the consumer and via next set bit */
+    List<Integer> visited = new ArrayList<>();
+    subGraph.forEachEdgeSegmentId(visited::add);
+    assertEquals(new ArrayList<>(expected), visited);
+    visited.clear();
+    for (int edgeSegmentId = subGraph.nextEdgeSegmentId(0); edgeSegmentId >= 0; edgeSegmentId = subGraph.nextEdgeSegmentId(edgeSegmentId + 1)) {
+      visited.add(edgeSegmentId);
+    }
+    assertEquals(new ArrayList<>(expected), visited);
+    for (int edgeSegmentId = 0; edgeSegmentId < edgeSegments.size(); ++edgeSegmentId) {
+      assertEquals(expected.contains(edgeSegmentId), subGraph.containsEdgeSegment(edgeSegments.get(edgeSegmentId)));
+    }
+
+    /* copies are independent */
+    var copy = subGraph.deepClone();
+    subGraph.clear();
+    assertTrue(subGraph.isEmpty());
+    assertEquals(0, subGraph.getNumberOfVertices());
+    assertEquals(-1, subGraph.nextEdgeSegmentId(0));
+    assertEquals(expected.size(), copy.getNumberOfEdgeSegments());
+    assertSame(parentIndex, copy.getParentIndex());
+  }
+
+  @Test
+  public void invalidIdTest() {
+    var builder = new TestEntities.GraphBuilder();
+    var vertexA = builder.addVertex(0, 0);
+    var vertexB = builder.addVertex(1, 0);
+    builder.addEdgeSegment(vertexA, vertexB);
+    var unknown = builder.addEdgeSegment(vertexB, vertexA);
+    var parentIndex = new DirectedGraphStar(List.of(builder.getEdgeSegments().get(0)));
+    var subGraph = new BitSetDirectedSubGraph<DirectedVertex, EdgeSegment>(IdGroupingToken.create("BitSetDirectedSubGraphTest"), parentIndex);
+
+    assertThrows(PlanItRunTimeException.class, () -> subGraph.addEdgeSegment(1));
+    assertThrows(PlanItRunTimeException.class, () -> subGraph.addEdgeSegment(-1));
+    assertThrows(PlanItRunTimeException.class, () -> subGraph.addEdgeSegment(unknown));
+    assertFalse(subGraph.containsEdgeSegment(unknown));
+    assertFalse(subGraph.removeEdgeSegment(1));
+    assertEquals(0, subGraph.getNumberOfEdgeSegments(5, true));
+  }
+}
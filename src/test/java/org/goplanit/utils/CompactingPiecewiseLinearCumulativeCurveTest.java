@@ -0,0 +1,92 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.cumulatives.CompactingPiecewiseLinearCumulativeCurve;
+import org.goplanit.utils.cumulatives.PiecewiseLinearCumulativeCurve;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class CompactingPiecewiseLinearCumulativeCurveTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** noisy cumulative curve with varying rates, strictly increasing when required */
+  private static PiecewiseLinearCumulativeCurve createOriginal(Random random, int numberOfPoints, boolean strictlyIncreasing) throws PlanItException {
+    var original = new PiecewiseLinearCumulativeCurve();
+    double time = 0;
+    double count = 0;
+    for (int index = 0; index < numberOfPoints; ++index) {
+      double rate = 1 + Math.sin(index / 50.0);
+      original.add(time, count, EPSILON);
+      time += 1 + random.nextDouble();
+      count += rate * (0.5 + random.nextDouble()) + (strictlyIncreasing ? 0.01 : 0);
+    }
+    return original;
+  }
+
+  @Test
+  public void countToleranceTest() throws PlanItException {
+    var original = createOriginal(new Random(5), 2000, false);
+    double tolerance = 2;
+    var compacted = new CompactingPiecewiseLinearCumulativeCurve(tolerance);
+    for (int index = 0; index < original.getNumberOfPoints(); ++index) {
+      compacted.add(original.getReferenceTimeInSeconds(index), original.getCumulativeCount(index), EPSILON);
+    }
+    assertTrue(compacted.getNumberOfPoints() < original.getNumberOfPoints() / 4);
+    assertEquals(original.getNumberOfPoints(), compacted.getNumberOfPoints() + compacted.getNumberOfDroppedPoints());
+    assertTrue(compacted.getMaxCountErrorBound() <= tolerance);
+
+    /* every appended point lies within the tracked bound, which itself does not exceed the tolerance */
+    double maxError = 0;
+    for (int index = 0; index < original.getNumberOfPoints(); ++index) {
+      double error = Math.abs(compacted.getCumulativeAt(original.getReferenceTimeInSeconds(index)) - original.getCumulativeCount(index));
+      maxError = Math.max(maxError, error);
+    }
+    assertTrue(maxError <= compacted.getMaxCountErrorBound() + EPSILON);
+
+    /* the latest point is always retained */
+    int last = original.getNumberOfPoints() - 1;
+    assertEquals(original.getCumulativeCount(last), compacted.getCumulativeAt(original.getReferenceTimeInSeconds(last)), EPSILON);
+
+    double surfaceError = Math.abs(compacted.computeSurfaceUnderCurve() - original.computeSurfaceUnderCurve());
+    assertTrue(surfaceError <= compacted.getMaxSurfaceErrorBound() + EPSILON);
+  }
+
+  @Test
+  public void timeToleranceTest() throws PlanItException {
+    var original = createOriginal(new Random(6), 2000, true);
+    double timeTolerance = 1.5;
+    var compacted = new CompactingPiecewiseLinearCumulativeCurve(10, timeTolerance);
+    for (int index = 0; index < original.getNumberOfPoints(); ++index) {
+      compacted.add(original.getReferenceTimeInSeconds(index), original.getCumulativeCount(index), EPSILON);
+    }
+    assertTrue(compacted.getNumberOfPoints() < original.getNumberOfPoints());
+
+    for (int index = 0; index < original.getNumberOfPoints(); ++index) {
+      double time = original.getReferenceTimeInSeconds(index);
+      assertEquals(time, compacted.getTimeAt(original.getCumulativeCount(index)), timeTolerance + EPSILON);
+      assertEquals(original.getCumulativeCount(index), compacted.getCumulativeAt(time), 10 + EPSILON);
+    }
+  }
+
+  @Test
+  public void collinearTest() throws PlanItException {
+    /* without tolerance only collinear points are dropped */
+    var compacted = new CompactingPiecewiseLinearCumulativeCurve(0);
+    for (int index = 0; index <= 100; ++index) {
+      compacted.add(index, index < 50 ? 2 * index : 100 + (index - 50), EPSILON);
+    }
+    assertEquals(3, compacted.getNumberOfPoints());
+    assertEquals(0, compacted.getMaxCountErrorBound(), EPSILON);
+    assertEquals(100, compacted.getCumulativeAt(50), EPSILON);
+    assertEquals(150, compacted.getCumulativeAt(100), EPSILON);
+
+    compacted.clear();
+    assertEquals(0, compacted.getNumberOfDroppedPoints());
+    assertThrows(PlanItRunTimeException.class, () -> new CompactingPiecewiseLinearCumulativeCurve(-1));
+  }
+}
@@ -0,0 +1,116 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.graph.component.ConnectedComponentsAnalysis;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class ConnectedComponentsAnalysisTest {
+
+  /** cycle 0 -> 1 -> 2 -> 0, then 2 -> 3, 3 <-> 4, separately 5 -> 6 and isolated vertex 7 */
+  private static DirectedGraphStar createGraph() {
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 8; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    builder.addEdgeSegment(vertices.get(1), vertices.get(2));
+    builder.addEdgeSegment(vertices.get(2), vertices.get(0));
+    builder.addEdgeSegment(vertices.get(2), vertices.get(3));
+    builder.addEdge(vertices.get(3), vertices.get(4));
+    builder.addEdgeSegment(vertices.get(5), vertices.get(6));
+    return new DirectedGraphStar(vertices, builder.getEdgeSegments());
+  }
+
+  @Test
+  public void weakTest() {
+    var graphStar = createGraph();
+    for (boolean parallel : new boolean[] { false, true }) {
+      var components = ConnectedComponentsAnalysis.computeWeak(graphStar, parallel);
+      assertEquals(3, components.getNumberOfComponents());
+      int largest = components.getLargestComponent();
+      assertEquals(largest, components.getComponent(0));
+      assertEquals(5, components.getSize(largest));
+      assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, components.getVertexIds(largest));
+      assertTrue(components.isConnected(5, 6));
+      assertFalse(components.isConnected(4, 5));
+      assertFalse(components.isConnected(6, 7));
+      assertEquals(1, components.getSize(components.getComponent(7)));
+      assertEquals(-1, components.getComponent(8));
+
+      assertArrayEquals(new int[] { 5, 6, 7 }, components.collectDanglingVertexIds(3, Integer.MAX_VALUE, true));
+      assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 7 }, components.collectDanglingVertexIds(2, 4, false));
+      assertArrayEquals(new int[] { 7 }, components.collectDanglingVertexIds(2, 4, true));
+    }
+  }
+
+  @Test
+  public void strongTest() {
+    var graphStar = createGraph();
+    var components = ConnectedComponentsAnalysis.computeStrong(graphStar);
+    assertEquals(5, components.getNumberOfComponents());
+    assertArrayEquals(new int[] { 0, 1, 2 }, components.getVertexIds(components.getComponent(1)));
+    assertTrue(components.isConnected(3, 4));
+    assertFalse(components.isConnected(2, 3));
+    assertFalse(components.isConnected(5, 6));
+    /* labelled in reverse topological order of the condensed graph */
+    assertTrue(components.getComponent(3) < components.getComponent(0));
+    assertTrue(components.getComponent(6) < components.getComponent(5));
+    assertEquals(components.getComponent(0), components.getLargestComponent());
+  }
+
+  @Test
+  public void longCycleTest() {
+    /* a cycle far longer than a recursive search could handle on the call stack */
+    int numberOfVertices = 50000;
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < numberOfVertices; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    for (int index = 0; index < numberOfVertices; ++index) {
+      builder.addEdgeSegment(vertices.get(index), vertices.get((index + 1) % numberOfVertices));
+    }
+    var graphStar = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    var components = ConnectedComponentsAnalysis.computeStrong(graphStar);
+    assertEquals(1, components.getNumberOfComponents());
+    assertEquals(numberOfVertices, components.getSize(0));
+  }
+
+  @Test
+  public void parallelMatchesSequentialTest() {
+    var random = new Random(53);
+    int numberOfVertices = 5000;
+    var presentVertices = new boolean[numberOfVertices];
+    for (int vertexId = 0; vertexId < numberOfVertices; ++vertexId) {
+      presentVertices[vertexId] = random.nextInt(10) != 0;
+    }
+    int numberOfEndpoints = 3000;
+    var endpointsA = new int[numberOfEndpoints];
+    var endpointsB = new int[numberOfEndpoints];
+    for (int index = 0; index < numberOfEndpoints; ++index) {
+      do {
+        endpointsA[index] = random.nextInt(numberOfVertices);
+        endpointsB[index] = random.nextInt(numberOfVertices);
+      } while (!presentVertices[endpointsA[index]] || !presentVertices[endpointsB[index]]);
+    }
+    /* ignored connection */
+    endpointsA[0] = -1;
+
+    var sequential = ConnectedComponentsAnalysis.computeWeak(presentVertices, endpointsA, endpointsB, numberOfEndpoints, false);
+    var parallel = ConnectedComponentsAnalysis.computeWeak(presentVertices, endpointsA, endpointsB, numberOfEndpoints, true);
+    assertEquals(sequential.getNumberOfComponents(), parallel.getNumberOfComponents());
+    assertArrayEquals(sequential.getComponentSizes(), parallel.getComponentSizes());
+    for (int vertexId = 0; vertexId < numberOfVertices; ++vertexId) {
+      assertEquals(sequential.getComponent(vertexId), parallel.getComponent(vertexId));
+      assertEquals(presentVertices[vertexId], sequential.getComponent(vertexId) >= 0);
+    }
+    for (int index = 1; index < numberOfEndpoints; ++index) {
+      assertTrue(sequential.isConnected(endpointsA[index], endpointsB[index]));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.shortestpath.ContractionHierarchy;
+import org.goplanit.utils.graph.directed.shortestpath.ContractionHierarchyQuery;
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathSearch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ContractionHierarchyTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** compare query costs and paths with Dijkstra for a sample of origin-destination pairs */
+  private static void assertMatchesDijkstra(DirectedGraphStar graphStar, double[] costs, ContractionHierarchy hierarchy) {
+    var query = new ContractionHierarchyQuery(hierarchy, graphStar);
+    var search = new ShortestPathSearch(graphStar);
+    int numberOfVertices = graphStar.getNumberOfVertexIds();
+    for (int origin = 0; origin < numberOfVertices; origin += 7) {
+      search.executeOneToAll(origin, costs);
+      for (int destination = 0; destination < numberOfVertices; destination += 3) {
+        double expected = search.getCost(destination);
+        assertEquals(expected, query.computeCost(origin, destination), EPSILON);
+        assertEquals(expected, query.getCost(), EPSILON);
+        var path = query.createEdgeSegmentIdPath();
+        if (Double.isFinite(expected)) {
+          assertEquals(expected, ShortestPathSearchTest.computePathCost(graphStar, path, origin, destination, costs), EPSILON);
+        } else {
+          assertNull(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void matchesDijkstraTest() {
+    var random = new Random(37);
+    var costs = new double[600];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, 150, costs.length, costs);
+    var hierarchy = ContractionHierarchy.create(graphStar, costs);
+    assertEquals(150, hierarchy.getNumberOfVertexIds());
+    /* self loops and dominated parallel edge segments are not retained as arcs */
+    assertTrue(hierarchy.getNumberOfArcs() - hierarchy.getNumberOfShortcuts() <= costs.length);
+    assertMatchesDijkstra(graphStar, costs, hierarchy);
+
+    /* a tight witness limit adds shortcuts but remains correct */
+    var limited = ContractionHierarchy.create(graphStar, costs, 1);
+    assertTrue(limited.getNumberOfShortcuts() >= hierarchy.getNumberOfShortcuts());
+    assertMatchesDijkstra(graphStar, costs, limited);
+  }
+
+  @Test
+  public void excludedEdgeSegmentTest() {
+    /* 0 -> 1 -> 2 and a direct 0 -> 2 that is excluded by an infinite cost */
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 4; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    builder.addEdgeSegment(vertices.get(1), vertices.get(2));
+    builder.addEdgeSegment(vertices.get(0), vertices.get(2));
+    var graphStar = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    var costs = new double[] { 1, 1, Double.POSITIVE_INFINITY };
+    var query = new ContractionHierarchyQuery(ContractionHierarchy.create(graphStar, costs), graphStar);
+    assertEquals(2, query.computeCost(0, 2), EPSILON);
+    assertArrayEquals(new int[] { 0, 1 }, query.createEdgeSegmentIdPath());
+    assertEquals(0, query.computeCost(1, 1));
+    assertArrayEquals(new int[0], query.createEdgeSegmentIdPath());
+    /* vertex 3 is isolated */
+    assertEquals(Double.POSITIVE_INFINITY, query.computeCost(0, 3));
+    assertNull(query.createEdgeSegmentIdPath());
+  }
+
+  @Test
+  public void saveLoadTest() throws IOException {
+    var random = new Random(41);
+    var costs = new double[300];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, 80, costs.length, costs);
+    var hierarchy = ContractionHierarchy.create(graphStar, costs);
+    Path file = Files.createTempFile("ContractionHierarchyTest", ".ch");
+    try {
+      hierarchy.save(file);
+      var loaded = ContractionHierarchy.load(file, graphStar);
+      assertEquals(hierarchy.getNumberOfArcs(), loaded.getNumberOfArcs());
+      for (int vertex = 0; vertex < graphStar.getNumberOfVertexIds(); ++vertex) {
+        assertEquals(hierarchy.getRank(vertex), loaded.getRank(vertex));
+      }
+      assertMatchesDijkstra(graphStar, costs, loaded);
+
+      /* another graph is rejected */
+      var otherGraph = ShortestPathSearchTest.createRandomGraph(random, 81, costs.length, new double[costs.length]);
+      assertThrows(PlanItRunTimeException.class, () -> ContractionHierarchy.load(file, otherGraph));
+
+      var bytes = Files.readAllBytes(file);
+
+      /* a rank out of bounds is rejected, ranks follow the magic, version and dimensions */
+      try (var corrupt = new RandomAccessFile(file.toFile(), "rw")) {
+        corrupt.seek(4 * Integer.BYTES);
+        corrupt.writeInt(Integer.MAX_VALUE);
+      }
+      assertThrows(PlanItRunTimeException.class, () -> ContractionHierarchy.load(file, graphStar));
+
+      /* a truncated file is rejected */
+      Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+      assertThrows(PlanItRunTimeException.class, () -> ContractionHierarchy.load(file, graphStar));
+
+      Files.write(file, new byte[64]);
+      assertThrows(PlanItRunTimeException.class, () -> ContractionHierarchy.load(file, graphStar));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.cumulatives.CumulativeCurveSet;
+import org.goplanit.utils.cumulatives.PiecewiseLinearCumulativeCurve;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class CumulativeCurveSetTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** more curves than fit in a single block of parallel processing */
+  private static final int NUMBER_OF_CURVES = 5000;
+
+  private static final int NUMBER_OF_TIME_STEPS = 30;
+
+  /** lag in time steps of the outflow compared to the inflow */
+  private static final int LAG = 3;
+
+  @Test
+  public void matchesIndividualCurvesTest() throws PlanItException {
+    var random = new Random(9);
+    var inflowSet = new CumulativeCurveSet(NUMBER_OF_CURVES, 4);
+    var outflowSet = new CumulativeCurveSet(NUMBER_OF_CURVES);
+    var inflowCurves = new PiecewiseLinearCumulativeCurve[NUMBER_OF_CURVES];
+    var outflowCurves = new PiecewiseLinearCumulativeCurve[NUMBER_OF_CURVES];
+    for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+      inflowCurves[curve] = new PiecewiseLinearCumulativeCurve();
+      outflowCurves[curve] = new PiecewiseLinearCumulativeCurve();
+    }
+
+    var inflowCounts = new double[NUMBER_OF_TIME_STEPS][NUMBER_OF_CURVES];
+    var increments = new double[NUMBER_OF_CURVES];
+    for (int timeStep = 0; timeStep < NUMBER_OF_TIME_STEPS; ++timeStep) {
+      double time = timeStep * 60;
+      for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+        increments[curve] = timeStep == 0 ? 0 : random.nextDouble() * 10;
+        inflowCounts[timeStep][curve] = (timeStep == 0 ? 0 : inflowCounts[timeStep - 1][curve]) + increments[curve];
+        inflowCurves[curve].add(time, inflowCounts[timeStep][curve], EPSILON);
+      }
+      inflowSet.appendTimeStepIncrements(time, increments, EPSILON);
+
+      var outflowCounts = inflowCounts[Math.max(0, timeStep - LAG)];
+      for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+        outflowCurves[curve].add(time, outflowCounts[curve], EPSILON);
+      }
+      outflowSet.appendTimeStep(time, outflowCounts, EPSILON);
+    }
+    assertEquals(NUMBER_OF_TIME_STEPS, inflowSet.getNumberOfTimeSteps());
+    assertEquals(NUMBER_OF_CURVES, inflowSet.getNumberOfCurves());
+
+    var result = new double[NUMBER_OF_CURVES];
+    var parallelResult = new double[NUMBER_OF_CURVES];
+    for (double time : new double[] { -10, 0, 95, 600.5, 1739, 5000 }) {
+      inflowSet.getCumulativesAt(time, result, false);
+      inflowSet.getCumulativesAt(time, parallelResult, true);
+      for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+        double expected = inflowCurves[curve].getCumulativeAt(time);
+        assertEquals(expected, inflowSet.getCumulativeAt(curve, time), EPSILON);
+        assertEquals(expected, result[curve], EPSILON);
+        assertEquals(expected, parallelResult[curve], EPSILON);
+      }
+
+      CumulativeCurveSet.computeTravelTimesByEntryTime(inflowSet, outflowSet, time, parallelResult, true);
+      for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+        double expected = PiecewiseLinearCumulativeCurve.computeTravelTimeByEntryTime(inflowCurves[curve], outflowCurves[curve], time);
+        assertEquals(expected, parallelResult[curve], 1e-6);
+      }
+    }
+
+    for (int curve = 0; curve < NUMBER_OF_CURVES; curve += 7) {
+      double count = random.nextDouble() * inflowCounts[NUMBER_OF_TIME_STEPS - 1][curve];
+      assertEquals(inflowCurves[curve].getTimeAt(count), inflowSet.getTimeAt(curve, count), 1e-6);
+    }
+
+    inflowSet.computeSurfacesUnderCurves(result, false);
+    outflowSet.computeSurfacesUnderCurves(parallelResult, true);
+    for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+      assertEquals(inflowCurves[curve].computeSurfaceUnderCurve(), result[curve], 1e-6);
+      assertEquals(outflowCurves[curve].computeSurfaceUnderCurve(), parallelResult[curve], 1e-6);
+    }
+
+    CumulativeCurveSet.computeTotalTravelTimes(inflowSet, outflowSet, result, true);
+    for (int curve = 0; curve < NUMBER_OF_CURVES; ++curve) {
+      double expected = inflowCurves[curve].computeSurfaceUnderCurve() - outflowCurves[curve].computeSurfaceUnderCurve();
+      assertEquals(expected, result[curve], 1e-6);
+    }
+
+    var extracted = outflowSet.extractCurve(42);
+    assertEquals(NUMBER_OF_TIME_STEPS, extracted.getNumberOfPoints());
+    for (int timeStep = 0; timeStep < NUMBER_OF_TIME_STEPS; ++timeStep) {
+      assertEquals(outflowCurves[42].getCumulativeCount(timeStep), extracted.getCumulativeCount(timeStep), EPSILON);
+    }
+
+    var copy = new CumulativeCurveSet(inflowSet);
+    inflowSet.trimToSize();
+    inflowSet.clear();
+    assertEquals(0, inflowSet.getNumberOfTimeSteps());
+    assertEquals(inflowCounts[10][3], copy.getCumulativeCount(3, 10), EPSILON);
+
+    /* appending after clearing reuses the retained count arrays without affecting the copy */
+    var unitIncrements = new double[NUMBER_OF_CURVES];
+    Arrays.fill(unitIncrements, 1);
+    for (int timeStep = 0; timeStep < NUMBER_OF_TIME_STEPS; ++timeStep) {
+      inflowSet.appendTimeStepIncrements(timeStep * 60, unitIncrements, EPSILON);
+    }
+    assertEquals(NUMBER_OF_TIME_STEPS, inflowSet.getCumulativeCount(3, NUMBER_OF_TIME_STEPS - 1), EPSILON);
+    assertEquals(inflowCounts[10][3], copy.getCumulativeCount(3, 10), EPSILON);
+  }
+
+  @Test
+  public void invalidTimeStepTest() throws PlanItException {
+    var curveSet = new CumulativeCurveSet(2);
+    curveSet.appendTimeStep(0, new double[] { 1, 1 }, EPSILON);
+    assertThrows(PlanItException.class, () -> curveSet.appendTimeStep(0, new double[] { 2, 2 }, EPSILON));
+    assertThrows(PlanItException.class, () -> curveSet.appendTimeStep(10, new double[] { 2, 0 }, EPSILON));
+    assertThrows(PlanItException.class, () -> curveSet.appendTimeStep(10, new double[] { 2 }, EPSILON));
+    assertThrows(PlanItException.class, () -> curveSet.appendTimeStepIncrements(10, new double[] { 2, -1 }, EPSILON));
+    assertEquals(1, curveSet.getNumberOfTimeSteps());
+
+    /* counts are stored per time step, so many curves times many time steps do not exceed the maximum array size */
+    var large = new CumulativeCurveSet(2_000_000, 2000);
+    assertEquals(2_000_000, large.getNumberOfCurves());
+    assertEquals(0, large.getNumberOfTimeSteps());
+    assertThrows(PlanItRunTimeException.class, () -> new CumulativeCurveSet(-1));
+  }
+}
@@ -0,0 +1,159 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.containers.DenseLongKeyMap;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdAble;
+import org.goplanit.utils.id.IdAbleImpl;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.id.ManagedId;
+import org.goplanit.utils.id.ManagedIdEntitiesImpl;
+import org.goplanit.utils.id.ManagedIdEntityFactory;
+import org.goplanit.utils.id.ManagedIdEntityFactoryImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+public class DenseLongKeyMapTest {
+
+  /** managed id entity for testing */
+  private static class TestEntity extends IdAbleImpl implements ManagedId {
+
+    TestEntity(IdGroupingToken token) {
+      super(generateId(token, TestEntity.class));
+    }
+
+    @Override
+    public long recreateManagedIds(IdGroupingToken token) {
+      setId(generateId(token, TestEntity.class));
+      return getId();
+    }
+
+    @Override
+    public Class<? extends IdAble> getIdClass() {
+      return TestEntity.class;
+    }
+
+    @Override
+    public TestEntity shallowClone() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TestEntity deepClone() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** container of managed id entities with dense storage for testing */
+  private static class TestEntityContainer extends ManagedIdEntitiesImpl<TestEntity> {
+
+    private final ManagedIdEntityFactory<TestEntity> factory;
+
+    TestEntityContainer(IdGroupingToken token) {
+      super(TestEntity::getId, TestEntity.class, true);
+      this.factory = new ManagedIdEntityFactoryImpl<TestEntity>(token) {};
+    }
+
+    @Override
+    public ManagedIdEntityFactory<TestEntity> getFactory() {
+      return factory;
+    }
+
+    @Override
+    public TestEntityContainer shallowClone() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TestEntityContainer deepClone() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TestEntityContainer deepCloneWithMapping(BiConsumer<TestEntity, TestEntity> mapper) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void denseLongKeyMapTest() {
+    var random = new Random(11);
+    var map = new DenseLongKeyMap<Integer>();
+    var expected = new TreeMap<Long, Integer>();
+    for (int operation = 0; operation < 5000; ++operation) {
+      long key = random.nextInt(200);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        Integer value = random.nextInt();
+        assertEquals(expected.put(key, value), map.put(key, value));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+
+    /* iteration in ascending key order, like the tree map it replaces */
+    assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+    assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+    assertEquals(expected, map);
+
+    var copy = new DenseLongKeyMap<>(map);
+    for (var iterator = map.values().iterator(); iterator.hasNext();) {
+      if (iterator.next() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    expected.values().removeIf(value -> value % 2 == 0);
+    assertEquals(expected, map);
+    map.trimToSize();
+    assertEquals(expected, map);
+    assertNotEquals(copy, map);
+
+    assertThrows(PlanItRunTimeException.class, () -> map.put(-1L, Integer.valueOf(1)));
+    assertThrows(PlanItRunTimeException.class, () -> map.put(1L, null));
+    assertNull(map.get(-1L));
+    assertNull(map.get(Long.MAX_VALUE));
+    assertFalse(map.containsKey("1"));
+  }
+
+  @Test
+  public void denseManagedIdEntitiesTest() {
+    var token = IdGroupingToken.create("DenseLongKeyMapTest");
+    var entities = new TestEntityContainer(token);
+    var created = new ArrayList<TestEntity>();
+    for (int index = 0; index < 10; ++index) {
+      var entity = new TestEntity(token);
+      assertNull(entities.register(entity));
+      created.add(entity);
+    }
+    assertEquals(10, entities.size());
+    for (var entity : created) {
+      assertSame(entity, entities.get(entity.getId()));
+    }
+
+    /* holes are tolerated, iteration remains in id order */
+    entities.remove(created.get(2));
+    entities.remove(created.get(7).getId());
+    assertNull(entities.get(2));
+    assertFalse(entities.containsKey(7));
+    long previousId = -1;
+    for (var entity : entities) {
+      assertTrue(entity.getId() > previousId);
+      previousId = entity.getId();
+    }
+
+    /* recreating ids removes the holes, keeping the relative order */
+    entities.recreateIds(true);
+    assertEquals(8, entities.size());
+    created.remove(7);
+    created.remove(2);
+    for (int index = 0; index < created.size(); ++index) {
+      assertEquals(index, created.get(index).getId());
+      assertSame(created.get(index), entities.get(index));
+    }
+  }
+}
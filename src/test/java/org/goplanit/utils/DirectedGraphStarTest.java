@@ -0,0 +1,76 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DirectedGraphStarTest {
+
+  @Test
+  public void starTest() {
+    /* 0 -> 1, 0 -> 2, 2 -> 1, 1 <-> 3, vertex 4 isolated */
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 5; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    builder.addEdgeSegment(vertices.get(0), vertices.get(2));
+    builder.addEdgeSegment(vertices.get(2), vertices.get(1));
+    builder.addEdge(vertices.get(1), vertices.get(3));
+
+    var star = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    assertEquals(5, star.getNumberOfVertexIds());
+    assertEquals(5, star.getNumberOfEdgeSegments());
+    assertArrayEquals(new int[] { 0, 2, 3, 4, 5, 5 }, star.getForwardOffsets());
+    assertArrayEquals(new int[] { 0, 1, 3, 2, 4 }, star.getForwardEdgeSegments());
+    assertArrayEquals(new int[] { 1, 2, 3, 1, 1 }, star.getForwardHeads());
+    assertArrayEquals(new int[] { 0, 0, 3, 4, 5, 5 }, star.getBackwardOffsets());
+    assertArrayEquals(new int[] { 0, 2, 4, 1, 3 }, star.getBackwardEdgeSegments());
+    assertArrayEquals(new int[] { 0, 2, 3, 0, 1 }, star.getBackwardTails());
+
+    assertEquals(2, star.getOutDegree(0));
+    assertEquals(3, star.getInDegree(1));
+    assertEquals(0, star.getOutDegree(4));
+    assertTrue(star.hasVertex(4));
+    assertSame(vertices.get(3), star.getVertex(3));
+    assertSame(builder.getEdgeSegments().get(2), star.getEdgeSegment(2));
+    assertEquals(2, star.getUpstreamVertexId(2));
+    assertEquals(1, star.getDownstreamVertexId(2));
+  }
+
+  @Test
+  public void sparseIdsTest() {
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 4; ++index) {
+      builder.addVertex(index, index);
+    }
+    var vertices = builder.getVertices();
+    builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    builder.addEdgeSegment(vertices.get(1), vertices.get(3));
+    builder.addEdgeSegment(vertices.get(3), vertices.get(0));
+
+    /* without the middle edge segment and without vertices, vertex 2 and edge segment 1 leave gaps */
+    var edgeSegments = List.of(builder.getEdgeSegments().get(2), builder.getEdgeSegments().get(0));
+    var star = new DirectedGraphStar(edgeSegments);
+    assertEquals(3, star.getNumberOfEdgeSegmentIds());
+    assertEquals(2, star.getNumberOfEdgeSegments());
+    assertEquals(4, star.getNumberOfVertexIds());
+    assertFalse(star.hasEdgeSegment(1));
+    assertFalse(star.hasVertex(2));
+    assertEquals(-1, star.getUpstreamVertexId(1));
+    assertEquals(0, star.getOutDegree(2) + star.getInDegree(2) + star.getOutDegree(1));
+    assertArrayEquals(new int[] { 0, 1, 1, 1, 2 }, star.getForwardOffsets());
+    assertArrayEquals(new int[] { 0, 2 }, star.getForwardEdgeSegments());
+
+    var duplicates = new ArrayList<EdgeSegment>(edgeSegments);
+    duplicates.add(builder.getEdgeSegments().get(0));
+    assertThrows(PlanItRunTimeException.class, () -> new DirectedGraphStar(duplicates));
+  }
+}
@@ -0,0 +1,120 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.graph.directed.partition.GeometricGraphPartitioner;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+public class GeometricGraphPartitionerTest {
+
+  private static final int GRID_SIZE = 20;
+
+  /** grid of bidirectional edges, plus one vertex without position attached to the first grid vertex */
+  private static DirectedGraphStar createGrid() {
+    var builder = new TestEntities.GraphBuilder();
+    for (int x = 0; x < GRID_SIZE; ++x) {
+      for (int y = 0; y < GRID_SIZE; ++y) {
+        builder.addVertex(x, y);
+      }
+    }
+    var vertices = builder.getVertices();
+    for (int x = 0; x < GRID_SIZE; ++x) {
+      for (int y = 0; y < GRID_SIZE; ++y) {
+        var vertex = vertices.get(x * GRID_SIZE + y);
+        if (x + 1 < GRID_SIZE) {
+          builder.addEdge(vertex, vertices.get((x + 1) * GRID_SIZE + y));
+        }
+        if (y + 1 < GRID_SIZE) {
+          builder.addEdge(vertex, vertices.get(x * GRID_SIZE + y + 1));
+        }
+      }
+    }
+    long withoutPositionId = vertices.size();
+    var withoutPosition = TestEntities.createStub(DirectedVertex.class, Map.of("getId", args -> withoutPositionId, "getPosition", args -> null));
+    builder.addEdgeSegment(withoutPosition, vertices.get(0));
+    builder.addEdgeSegment(vertices.get(0), withoutPosition);
+    return new DirectedGraphStar(vertices, builder.getEdgeSegments());
+  }
+
+  @Test
+  public void partitionTest() {
+    var graphStar = createGrid();
+    int numberOfVertices = graphStar.getNumberOfVertexIds();
+    var partitioner = new GeometricGraphPartitioner(graphStar);
+    var partitioning = partitioner.partition(4);
+    assertEquals(4, partitioning.getNumberOfPartitions());
+
+    int assigned = 0;
+    int edgeSegments = 0;
+    for (int partition = 0; partition < 4; ++partition) {
+      int vertices = partitioning.getNumberOfVertices(partition);
+      /* balanced within a margin of the ideal quarter */
+      assertTrue(vertices > numberOfVertices / 4 * 0.8 && vertices < numberOfVertices / 4 * 1.2);
+      assertEquals(vertices, partitioning.getVertexIds(partition).length);
+      assigned += vertices;
+      edgeSegments += partitioning.getNumberOfEdgeSegments(partition);
+    }
+    assertEquals(numberOfVertices, assigned);
+    assertEquals(graphStar.getNumberOfEdgeSegments(), edgeSegments);
+
+    /* the vertex without position joins the partition of its only neighbour */
+    assertEquals(partitioning.getPartition(0), partitioning.getPartition(numberOfVertices - 1));
+
+    /* geometric bisection of a grid cuts along lines rather than scattering vertices */
+    int cut = 0;
+    for (int edgeSegmentId = 0; edgeSegmentId < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegmentId) {
+      boolean isCut = partitioning.getPartition(graphStar.getUpstreamVertexId(edgeSegmentId)) != partitioning
+          .getPartition(graphStar.getDownstreamVertexId(edgeSegmentId));
+      assertEquals(isCut, partitioning.isCut(edgeSegmentId));
+      cut += isCut ? 1 : 0;
+      if (isCut) {
+        assertTrue(partitioning.isBoundaryVertex(graphStar.getUpstreamVertexId(edgeSegmentId)));
+        assertTrue(partitioning.isBoundaryVertex(graphStar.getDownstreamVertexId(edgeSegmentId)));
+      }
+    }
+    assertEquals(cut, partitioning.getNumberOfCutEdgeSegments());
+    assertTrue(cut <= 8 * GRID_SIZE);
+
+    /* the sub graphs hold each edge segment exactly once */
+    var token = IdGroupingToken.create("GeometricGraphPartitionerTest");
+    var covered = new int[graphStar.getNumberOfEdgeSegmentIds()];
+    for (int partition = 0; partition < 4; ++partition) {
+      var subGraph = partitioning.<DirectedVertex, EdgeSegment> createSubGraph(token, partition);
+      assertEquals(partitioning.getNumberOfEdgeSegments(partition), subGraph.getNumberOfEdgeSegments());
+      subGraph.forEachEdgeSegmentId(edgeSegmentId -> ++covered[edgeSegmentId]);
+      var boundary = partitioning.getBoundaryVertexIds(partition);
+      assertTrue(boundary.length > 0);
+      for (int vertexId : boundary) {
+        assertEquals(partition, partitioning.getPartition(vertexId));
+      }
+    }
+    for (int count : covered) {
+      assertEquals(1, count);
+    }
+  }
+
+  @Test
+  public void singlePartitionTest() {
+    var graphStar = createGrid();
+    var partitioning = new GeometricGraphPartitioner(graphStar).partition(1);
+    assertEquals(0, partitioning.getNumberOfCutEdgeSegments());
+    assertEquals(graphStar.getNumberOfVertexIds(), partitioning.getNumberOfVertices(0));
+    assertEquals(0, partitioning.getBoundaryVertexIds(0).length);
+  }
+
+  @Test
+  public void invalidSettingsTest() {
+    var partitioner = new GeometricGraphPartitioner(createGrid());
+    assertThrows(PlanItRunTimeException.class, () -> partitioner.partition(0));
+    assertThrows(PlanItRunTimeException.class, () -> partitioner.setImbalanceTolerance(-0.1));
+    partitioner.setRefinementPasses(-3);
+    assertEquals(0, partitioner.getRefinementPasses());
+  }
+}
@@ -0,0 +1,129 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.graph.Edge;
+import org.goplanit.utils.graph.GraphLocalityOrdering;
+import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class GraphLocalityOrderingTest {
+
+  @Test
+  public void curveIndexTest() {
+    assertEquals(39, GraphLocalityOrdering.computeMortonIndex(3, 5));
+    assertEquals(0, GraphLocalityOrdering.computeMortonIndex(0, 0));
+
+    /* an aligned block of cells covers a contiguous range of the Hilbert curve, visited by steps between adjacent cells */
+    var cellsByIndex = new int[16][];
+    long minIndex = Long.MAX_VALUE;
+    var indices = new long[4][4];
+    for (int x = 0; x < 4; ++x) {
+      for (int y = 0; y < 4; ++y) {
+        indices[x][y] = GraphLocalityOrdering.computeHilbertIndex(x, y);
+        minIndex = Math.min(minIndex, indices[x][y]);
+      }
+    }
+    for (int x = 0; x < 4; ++x) {
+      for (int y = 0; y < 4; ++y) {
+        int offset = (int) (indices[x][y] - minIndex);
+        assertTrue(offset >= 0 && offset < 16);
+        assertNull(cellsByIndex[offset]);
+        cellsByIndex[offset] = new int[] { x, y };
+      }
+    }
+    for (int offset = 1; offset < 16; ++offset) {
+      int distance = Math.abs(cellsByIndex[offset][0] - cellsByIndex[offset - 1][0]) + Math.abs(cellsByIndex[offset][1] - cellsByIndex[offset - 1][1]);
+      assertEquals(1, distance);
+    }
+  }
+
+  @Test
+  public void curveOrderTest() {
+    /* 8 by 8 grid with vertex ids in random order, plus one vertex without position */
+    var positions = new ArrayList<int[]>();
+    for (int x = 0; x < 8; ++x) {
+      for (int y = 0; y < 8; ++y) {
+        positions.add(new int[] { x, y });
+      }
+    }
+    Collections.shuffle(positions, new Random(67));
+    var builder = new TestEntities.GraphBuilder();
+    for (var position : positions) {
+      builder.addVertex(position[0], position[1]);
+    }
+    var vertices = new ArrayList<Vertex>(builder.getVertices());
+    long withoutPositionId = vertices.size();
+    vertices.add(TestEntities.createStub(DirectedVertex.class, Map.of("getId", args -> withoutPositionId, "getPosition", args -> null)));
+
+    for (boolean hilbert : new boolean[] { true, false }) {
+      var order = hilbert ? GraphLocalityOrdering.createHilbertOrder(vertices) : GraphLocalityOrdering.createZOrder(vertices);
+      var sorted = new ArrayList<>(vertices);
+      sorted.sort(order);
+      assertEquals(withoutPositionId, sorted.get(sorted.size() - 1).getId());
+
+      /* each quadrant of the grid is visited in one go */
+      var visitedQuadrants = new HashSet<Integer>();
+      for (int block = 0; block < 4; ++block) {
+        var quadrants = new HashSet<Integer>();
+        for (int index = block * 16; index < (block + 1) * 16; ++index) {
+          var position = sorted.get(index).getPosition();
+          quadrants.add((position.getX() < 4 ? 0 : 1) + (position.getY() < 4 ? 0 : 2));
+        }
+        assertEquals(1, quadrants.size());
+        assertTrue(visitedQuadrants.addAll(quadrants));
+      }
+    }
+  }
+
+  @Test
+  public void cuthillMcKeeOrderTest() {
+    /* tree 3 - 0 - 5 - 1 with 5 - 2 - 4, and isolated vertex 6 */
+    var edgesByVertex = new ArrayList<List<Edge>>();
+    var vertices = new ArrayList<Vertex>();
+    for (int index = 0; index < 7; ++index) {
+      long id = index;
+      var edges = new ArrayList<Edge>();
+      edgesByVertex.add(edges);
+      vertices.add(TestEntities.createStub(Vertex.class, Map.of("getId", args -> id, "getEdges", args -> edges)));
+    }
+    for (int[] pair : new int[][] { { 3, 0 }, { 0, 5 }, { 5, 1 }, { 5, 2 }, { 2, 4 } }) {
+      var vertexA = vertices.get(pair[0]);
+      var vertexB = vertices.get(pair[1]);
+      var edge = TestEntities.createStub(Edge.class, Map.of("getVertexA", args -> vertexA, "getVertexB", args -> vertexB));
+      edgesByVertex.get(pair[0]).add(edge);
+      edgesByVertex.get(pair[1]).add(edge);
+    }
+
+    var sorted = new ArrayList<>(vertices);
+    sorted.sort(GraphLocalityOrdering.createCuthillMcKeeOrder(vertices));
+    var sortedIds = sorted.stream().mapToLong(Vertex::getId).toArray();
+    /* lowest degree first, then breadth first visiting neighbours by increasing degree and id */
+    assertArrayEquals(new long[] { 6, 1, 5, 0, 2, 3, 4 }, sortedIds);
+  }
+
+  @Test
+  public void edgeSegmentOrderTest() {
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 3; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    var segmentA = builder.addEdgeSegment(vertices.get(2), vertices.get(0));
+    var segmentB = builder.addEdgeSegment(vertices.get(0), vertices.get(2));
+    var segmentC = builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    var segmentD = builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    var sorted = new ArrayList<EdgeSegment>(builder.getEdgeSegments());
+    sorted.sort(GraphLocalityOrdering.EDGE_SEGMENT_ORDER);
+    assertEquals(List.of(segmentC, segmentD, segmentB, segmentA), sorted);
+  }
+}
@@ -0,0 +1,84 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdGenerator;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+public class IdGeneratorTest {
+
+  @Test
+  public void generateAndResetTest() {
+    var token = IdGroupingToken.create("generateAndResetTest");
+    assertEquals(-1, IdGenerator.getLatestIdForToken(token, String.class));
+    assertEquals(0, IdGenerator.generateId(token, String.class));
+    assertEquals(1, IdGenerator.generateId(token, String.class));
+    assertEquals(0, IdGenerator.generateId(token, Integer.class));
+    assertEquals(1, IdGenerator.getLatestIdForToken(token, String.class));
+
+    /* block of ids is skipped by subsequent generation */
+    assertEquals(2, IdGenerator.reserveIds(token, String.class, 10));
+    assertEquals(12, IdGenerator.generateId(token, String.class));
+    assertThrows(PlanItRunTimeException.class, () -> IdGenerator.reserveIds(token, String.class, 0));
+
+    var counter = IdGenerator.getIdCounter(token, String.class);
+    assertEquals(13, counter.generateId());
+    assertEquals(14, IdGenerator.generateId(token, String.class));
+
+    /* offset is the latest generated id */
+    IdGenerator.resetTo(token, String.class, 100);
+    assertEquals(101, IdGenerator.generateId(token, String.class));
+
+    /* reset per class leaves other classes untouched, a retained counter must be collected again */
+    IdGenerator.reset(token, String.class);
+    assertEquals(0, IdGenerator.generateId(token, String.class));
+    assertNotSame(counter, IdGenerator.getIdCounter(token, String.class));
+    assertEquals(1, IdGenerator.generateId(token, Integer.class));
+
+    IdGenerator.reset(token);
+    assertEquals(-1, IdGenerator.getLatestIdForToken(token, Integer.class));
+    assertEquals(0, IdGenerator.generateId(token, Integer.class));
+  }
+
+  @Test
+  public void concurrentGenerationTest() throws Exception {
+    var token = IdGroupingToken.create("concurrentGenerationTest");
+    int numberOfThreads = 8;
+    int idsPerThread = 10000;
+    var executor = Executors.newFixedThreadPool(numberOfThreads);
+    try {
+      var tasks = new ArrayList<Callable<long[]>>();
+      for (int thread = 0; thread < numberOfThreads; ++thread) {
+        tasks.add(() -> {
+          var ids = new long[idsPerThread];
+          for (int index = 0; index < idsPerThread; index += 2) {
+            ids[index] = IdGenerator.generateId(token, String.class);
+            ids[index + 1] = IdGenerator.reserveIds(token, String.class, 1);
+          }
+          return ids;
+        });
+      }
+
+      /* all ids are unique and together they are contiguous */
+      var allIds = new long[numberOfThreads * idsPerThread];
+      int offset = 0;
+      for (var result : executor.invokeAll(tasks)) {
+        System.arraycopy(result.get(), 0, allIds, offset, idsPerThread);
+        offset += idsPerThread;
+      }
+      Arrays.sort(allIds);
+      for (int index = 0; index < allIds.length; ++index) {
+        assertEquals(index, allIds[index]);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
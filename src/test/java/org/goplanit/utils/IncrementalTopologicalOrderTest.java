@@ -0,0 +1,125 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.graph.directed.acyclic.IncrementalTopologicalOrder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalTopologicalOrderTest {
+
+  /** brute force verification whether the target is reachable from the source via the accepted edge segments */
+  private static boolean isReachable(List<EdgeSegment> accepted, DirectedVertex source, DirectedVertex target) {
+    var visited = new ArrayList<DirectedVertex>();
+    var queue = new ArrayDeque<DirectedVertex>();
+    queue.add(source);
+    while (!queue.isEmpty()) {
+      var vertex = queue.poll();
+      if (vertex == target) {
+        return true;
+      }
+      for (var edgeSegment : accepted) {
+        if (edgeSegment.getUpstreamVertex() == vertex && !visited.contains(edgeSegment.getDownstreamVertex())) {
+          visited.add(edgeSegment.getDownstreamVertex());
+          queue.add(edgeSegment.getDownstreamVertex());
+        }
+      }
+    }
+    return false;
+  }
+
+  /** every accepted edge segment points forward in the order */
+  private static void assertValidOrder(IncrementalTopologicalOrder<DirectedVertex, EdgeSegment> order, List<EdgeSegment> accepted) {
+    for (var edgeSegment : accepted) {
+      assertTrue(order.getPosition(edgeSegment.getUpstreamVertex()) < order.getPosition(edgeSegment.getDownstreamVertex()));
+    }
+    int position = 0;
+    for (var vertex : order) {
+      assertEquals(position++, order.getPosition(vertex));
+    }
+    assertEquals(order.getNumberOfVertices(), position);
+  }
+
+  @Test
+  public void randomInsertionTest() {
+    var random = new Random(43);
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 40; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    var order = new IncrementalTopologicalOrder<DirectedVertex, EdgeSegment>();
+    var accepted = new ArrayList<EdgeSegment>();
+    int rejected = 0;
+    for (int index = 0; index < 300; ++index) {
+      var upstream = vertices.get(random.nextInt(vertices.size()));
+      var downstream = vertices.get(random.nextInt(vertices.size()));
+      var edgeSegment = builder.addEdgeSegment(upstream, downstream);
+      boolean createsCycle = isReachable(accepted, downstream, upstream);
+      assertEquals(!createsCycle, order.addEdgeSegment(edgeSegment));
+      if (createsCycle) {
+        ++rejected;
+        assertFalse(order.containsEdgeSegment(edgeSegment));
+      } else {
+        accepted.add(edgeSegment);
+        /* adding it again is a no-op */
+        assertTrue(order.addEdgeSegment(edgeSegment));
+      }
+      assertEquals(accepted.size(), order.getNumberOfEdgeSegments());
+      assertValidOrder(order, accepted);
+
+      /* occasionally remove an edge segment, which may allow a previously rejected one */
+      if (random.nextInt(10) == 0 && !accepted.isEmpty()) {
+        assertTrue(order.removeEdgeSegment(accepted.remove(random.nextInt(accepted.size()))));
+      }
+    }
+    assertTrue(rejected > 0);
+
+    var deque = order.toDeque();
+    assertEquals(order.getNumberOfVertices(), deque.size());
+    assertSame(order.getVertexAt(0), deque.getFirst());
+    assertSame(order.getVertexAt(order.getNumberOfVertices() - 1), order.iterator(true).next());
+  }
+
+  @Test
+  public void cycleRejectedTest() {
+    /* chain 0 -> 1 -> 2, closing it with 2 -> 0 is rejected */
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 4; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    var order = new IncrementalTopologicalOrder<DirectedVertex, EdgeSegment>();
+    var accepted = List.of(builder.addEdgeSegment(vertices.get(1), vertices.get(2)), builder.addEdgeSegment(vertices.get(0), vertices.get(1)));
+    for (var edgeSegment : accepted) {
+      assertTrue(order.addEdgeSegment(edgeSegment));
+    }
+    var before = new ArrayList<>(order.toDeque());
+    assertFalse(order.addEdgeSegment(builder.addEdgeSegment(vertices.get(2), vertices.get(0))));
+    assertEquals(before, new ArrayList<>(order.toDeque()));
+    assertValidOrder(order, accepted);
+
+    /* a self loop is rejected without adding its vertex */
+    assertFalse(order.addEdgeSegment(builder.addEdgeSegment(vertices.get(3), vertices.get(3))));
+    assertFalse(order.containsVertex(vertices.get(3)));
+    order.addVertex(vertices.get(3));
+    assertEquals(3, order.getPosition(vertices.get(3)));
+
+    /* a connected vertex cannot be removed, an isolated one can */
+    assertFalse(order.removeVertex(vertices.get(1)));
+    assertTrue(order.removeVertex(vertices.get(3)));
+    assertEquals(-1, order.getPosition(vertices.get(3)));
+    assertThrows(IndexOutOfBoundsException.class, () -> order.getVertexAt(3));
+
+    order.clear();
+    assertEquals(0, order.getNumberOfVertices());
+    assertEquals(0, order.getNumberOfEdgeSegments());
+    assertFalse(order.iterator().hasNext());
+  }
+}
@@ -0,0 +1,210 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdDataIterator;
+import org.goplanit.utils.od.OdDoubleMatrix;
+import org.goplanit.utils.od.OdPackedHashedImpl;
+import org.goplanit.utils.od.OdSparseDouble;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+public class OdDataIteratorTest {
+
+  private static final IdGroupingToken token = IdGroupingToken.create("OdDataIteratorTest");
+
+  private static final int NUMBER_OF_ZONES = 40;
+
+  /** concrete dense od matrix for testing */
+  private static class TestOdDoubleMatrix extends OdDoubleMatrix {
+
+    TestOdDoubleMatrix(OdZones zones) {
+      super(OdData.class, token, zones);
+    }
+
+    TestOdDoubleMatrix(TestOdDoubleMatrix other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdDoubleMatrix shallowClone() {
+      return new TestOdDoubleMatrix(this);
+    }
+  }
+
+  /** concrete sparse od data for testing */
+  private static class TestOdSparseDouble extends OdSparseDouble {
+
+    TestOdSparseDouble(OdZones zones) {
+      super(OdData.class, token, zones);
+    }
+
+    TestOdSparseDouble(TestOdSparseDouble other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdSparseDouble shallowClone() {
+      return new TestOdSparseDouble(this);
+    }
+  }
+
+  /** concrete packed hashed od data for testing */
+  private static class TestOdPackedHashed extends OdPackedHashedImpl<Double> {
+
+    TestOdPackedHashed(OdZones zones) {
+      super(OdData.class, token, zones);
+    }
+
+    TestOdPackedHashed(TestOdPackedHashed other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdPackedHashed shallowClone() {
+      return new TestOdPackedHashed(this);
+    }
+
+    @Override
+    public TestOdPackedHashed deepClone() {
+      return new TestOdPackedHashed(this);
+    }
+  }
+
+  /** random contents where most cells are zero, some origins have no non-zero cells at all */
+  private static double[][] createContents() {
+    var random = new Random(19);
+    var contents = new double[NUMBER_OF_ZONES][NUMBER_OF_ZONES];
+    for (int origin = 0; origin < NUMBER_OF_ZONES; ++origin) {
+      if (origin % 5 == 0) {
+        continue;
+      }
+      for (int destination = 0; destination < NUMBER_OF_ZONES; ++destination) {
+        if (random.nextInt(6) == 0) {
+          contents[origin][destination] = 1 + random.nextInt(10);
+        }
+      }
+    }
+    return contents;
+  }
+
+  /** verify cells visited by the iterator are within the origin range and match the contents, return the number of visited cells */
+  private static int visit(OdDataIterator<? extends Number> iterator, double[][] contents, int fromOriginIndex, int toOriginIndex, boolean nonEmptyOnly) {
+    int visited = 0;
+    while (iterator.hasNext()) {
+      Number value = iterator.next();
+      int origin = (int) iterator.getCurrentOrigin().getId();
+      int destination = (int) iterator.getCurrentDestination().getId();
+      assertTrue(origin >= fromOriginIndex && origin < toOriginIndex);
+      assertEquals(contents[origin][destination], value == null ? 0 : value.doubleValue());
+      if (nonEmptyOnly) {
+        assertNotEquals(0.0, value.doubleValue());
+      }
+      ++visited;
+    }
+    return visited;
+  }
+
+  /** compare range, non-empty and block iteration against the contents */
+  private static void assertIteratorsMatch(OdData<? extends Number> odData, double[][] contents, boolean storesAllCells) {
+    for (int[] range : new int[][] { { 0, NUMBER_OF_ZONES }, { 3, 17 }, { 5, 6 }, { 39, 40 }, { 10, 10 } }) {
+      int nonEmptyCells = 0;
+      for (int origin = range[0]; origin < range[1]; ++origin) {
+        for (int destination = 0; destination < NUMBER_OF_ZONES; ++destination) {
+          nonEmptyCells += contents[origin][destination] != 0 ? 1 : 0;
+        }
+      }
+
+      int rangeCells = storesAllCells ? (range[1] - range[0]) * NUMBER_OF_ZONES : nonEmptyCells;
+      assertEquals(rangeCells, visit(odData.iterator(range[0], range[1]), contents, range[0], range[1], false));
+      assertEquals(nonEmptyCells, visit(odData.nonEmptyIterator(range[0], range[1]), contents, range[0], range[1], true));
+    }
+
+    double expectedTotal = 0;
+    long expectedNonEmpty = 0;
+    for (var row : contents) {
+      for (double value : row) {
+        expectedTotal += value;
+        expectedNonEmpty += value != 0 ? 1 : 0;
+      }
+    }
+    var total = new DoubleAdder();
+    var nonEmpty = new AtomicLong();
+    odData.streamByOriginBlock(7, true).parallel().forEach(iterator -> {
+      while (iterator.hasNext()) {
+        total.add(iterator.next().doubleValue());
+        nonEmpty.incrementAndGet();
+      }
+    });
+    assertEquals(expectedTotal, total.sum(), 1e-9);
+    assertEquals(expectedNonEmpty, nonEmpty.get());
+    assertEquals((NUMBER_OF_ZONES + 6) / 7, odData.streamByOriginBlock(7, false).count());
+    assertThrows(PlanItRunTimeException.class, () -> odData.streamByOriginBlock(0, false));
+  }
+
+  @Test
+  public void doubleMatrixIteratorTest() {
+    var contents = createContents();
+    var matrix = new TestOdDoubleMatrix(TestEntities.createOdZones(NUMBER_OF_ZONES));
+    for (int origin = 0; origin < NUMBER_OF_ZONES; ++origin) {
+      for (int destination = 0; destination < NUMBER_OF_ZONES; ++destination) {
+        matrix.setDouble(origin, destination, contents[origin][destination]);
+      }
+    }
+    assertIteratorsMatch(matrix, contents, true);
+  }
+
+  @Test
+  public void sparseDoubleIteratorTest() {
+    var contents = createContents();
+    var sparse = new TestOdSparseDouble(TestEntities.createOdZones(NUMBER_OF_ZONES));
+    for (int origin = 0; origin < NUMBER_OF_ZONES; ++origin) {
+      for (int destination = 0; destination < NUMBER_OF_ZONES; ++destination) {
+        sparse.setDouble(origin, destination, contents[origin][destination]);
+      }
+    }
+    assertIteratorsMatch(sparse, contents, false);
+  }
+
+  @Test
+  public void packedHashedIteratorTest() {
+    var contents = createContents();
+    var packedHashed = new TestOdPackedHashed(TestEntities.createOdZones(NUMBER_OF_ZONES));
+    for (int origin = 0; origin < NUMBER_OF_ZONES; ++origin) {
+      for (int destination = 0; destination < NUMBER_OF_ZONES; ++destination) {
+        if (contents[origin][destination] != 0) {
+          packedHashed.setValue(origin, destination, contents[origin][destination]);
+        }
+      }
+    }
+    /* an explicitly stored zero is not empty for the storage, but is skipped by the non-empty iterator */
+    packedHashed.setValue(0, 0, 0.0);
+    assertEquals(1 + countNonZero(contents), visit(packedHashed.iterator(), contents, 0, NUMBER_OF_ZONES, false));
+    assertIteratorsMatchIgnoringStoredZero(packedHashed, contents);
+  }
+
+  /** number of non-zero cells */
+  private static int countNonZero(double[][] contents) {
+    int count = 0;
+    for (var row : contents) {
+      for (double value : row) {
+        count += value != 0 ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  /** non-empty iteration of hashed storage with a stored zero in the first cell */
+  private static void assertIteratorsMatchIgnoringStoredZero(OdData<Double> odData, double[][] contents) {
+    assertEquals(countNonZero(contents), visit(odData.nonEmptyIterator(), contents, 0, NUMBER_OF_ZONES, true));
+    assertEquals(1, visit(odData.iterator(0, 1), contents, 0, 1, false));
+    assertEquals(0, visit(odData.nonEmptyIterator(0, 1), contents, 0, 1, true));
+  }
+}
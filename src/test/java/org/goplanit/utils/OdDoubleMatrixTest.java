@@ -0,0 +1,114 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdDoubleMatrix;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class OdDoubleMatrixTest {
+
+  /** concrete double od matrix for testing */
+  private static class TestOdDoubleMatrix extends OdDoubleMatrix {
+
+    TestOdDoubleMatrix(OdZones zones) {
+      super(OdData.class, IdGroupingToken.create("OdDoubleMatrixTest"), zones);
+    }
+
+    TestOdDoubleMatrix(TestOdDoubleMatrix other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdDoubleMatrix shallowClone() {
+      return new TestOdDoubleMatrix(this);
+    }
+  }
+
+  /** matrix with random values and its contents as a plain two dimensional array */
+  private static TestOdDoubleMatrix createRandomMatrix(OdZones zones, Random random, double[][] contents) {
+    var matrix = new TestOdDoubleMatrix(zones);
+    for (int origin = 0; origin < zones.size(); ++origin) {
+      for (int destination = 0; destination < zones.size(); ++destination) {
+        contents[origin][destination] = random.nextInt(5) == 0 ? 0 : Math.round(random.nextDouble() * 100) / 4.0;
+        matrix.setDouble(origin, destination, contents[origin][destination]);
+      }
+    }
+    return matrix;
+  }
+
+  /** apply all kernels and compare against plain loops */
+  private static void assertKernelsMatchLoops(int numberOfZones) {
+    var random = new Random(numberOfZones);
+    var zones = TestEntities.createOdZones(numberOfZones);
+    var contents = new double[numberOfZones][numberOfZones];
+    var otherContents = new double[numberOfZones][numberOfZones];
+    var matrix = createRandomMatrix(zones, random, contents);
+    var other = createRandomMatrix(zones, random, otherContents);
+
+    matrix.add(other);
+    matrix.addScaled(other, 0.5);
+    matrix.scale(2);
+    matrix.multiplyElementWise(other);
+    double total = 0;
+    var rowSums = new double[numberOfZones];
+    var columnSums = new double[numberOfZones];
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        double expected = (contents[origin][destination] + 1.5 * otherContents[origin][destination]) * 2 * otherContents[origin][destination];
+        assertEquals(expected, matrix.getDouble(origin, destination), 1e-9);
+        rowSums[origin] += expected;
+        columnSums[destination] += expected;
+        total += expected;
+      }
+    }
+    assertArrayEquals(rowSums, matrix.computeRowSums(), 1e-6);
+    assertArrayEquals(columnSums, matrix.computeColumnSums(), 1e-6);
+    assertEquals(total, matrix.computeTotal(), 1e-6 * total);
+
+    /* deterministic regardless of parallel execution */
+    assertArrayEquals(matrix.computeColumnSums(), matrix.computeColumnSums());
+
+    matrix.fill(3);
+    assertEquals(3 * numberOfZones * (double) numberOfZones, matrix.computeTotal(), 1e-6);
+  }
+
+  @Test
+  public void sequentialKernelsTest() {
+    assertKernelsMatchLoops(70);
+  }
+
+  @Test
+  public void parallelKernelsTest() {
+    /* exceeds the number of cells from which kernels run in parallel */
+    assertKernelsMatchLoops(600);
+  }
+
+  @Test
+  public void accessTest() {
+    var zones = TestEntities.createOdZones(4);
+    var matrix = new TestOdDoubleMatrix(zones);
+    matrix.setDouble(1, 2, 12);
+    matrix.setValue(zones.get(2), zones.get(1), 21.0);
+    assertEquals(12.0, matrix.getValue(zones.get(1), zones.get(2)));
+    assertEquals(21, matrix.getDouble(zones.get(2), zones.get(1)));
+    assertEquals(0, matrix.getDouble(0, 0));
+
+    /* null is stored as zero */
+    matrix.setValue(zones.get(1), zones.get(2), null);
+    assertEquals(0, matrix.getDouble(1, 2));
+
+    var copy = matrix.deepClone();
+    copy.setDouble(0, 0, 1);
+    assertEquals(0, matrix.getDouble(0, 0));
+    assertEquals(1, copy.getDouble(0, 0));
+
+    var otherSize = new TestOdDoubleMatrix(TestEntities.createOdZones(5));
+    assertThrows(PlanItRunTimeException.class, () -> matrix.add(otherSize));
+  }
+}
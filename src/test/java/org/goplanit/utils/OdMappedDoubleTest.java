@@ -0,0 +1,112 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdMappedDouble;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class OdMappedDoubleTest {
+
+  private static final IdGroupingToken token = IdGroupingToken.create("OdMappedDoubleTest");
+
+  /** concrete memory-mapped od data for testing */
+  private static class TestOdMappedDouble extends OdMappedDouble {
+
+    TestOdMappedDouble(OdZones zones, Path file, boolean openExisting) {
+      super(OdData.class, token, zones, file, openExisting);
+    }
+
+    TestOdMappedDouble(TestOdMappedDouble other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdMappedDouble shallowClone() {
+      return new TestOdMappedDouble(this);
+    }
+
+    @Override
+    public TestOdMappedDouble deepClone() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void saveLoadTest() throws IOException {
+    var directory = Files.createTempDirectory("OdMappedDoubleTest");
+    var random = new Random(21);
+    int numberOfZones = 25;
+    var zones = TestEntities.createOdZones(numberOfZones);
+    var contents = new double[numberOfZones][numberOfZones];
+    try (var mapped = new TestOdMappedDouble(zones, directory.resolve("od.bin"), false)) {
+      /* a new file is zero initialised */
+      assertEquals(0, mapped.getDouble(numberOfZones - 1, numberOfZones - 1));
+      for (int origin = 0; origin < numberOfZones; ++origin) {
+        for (int destination = 0; destination < numberOfZones; ++destination) {
+          contents[origin][destination] = random.nextInt(100);
+          mapped.setDouble(origin, destination, contents[origin][destination]);
+        }
+      }
+      mapped.setValue(zones.get(3), zones.get(4), null);
+      contents[3][4] = 0;
+      mapped.saveTo(directory.resolve("saved.bin"));
+
+      /* the iterator restricted to origins only visits those rows, in origin-destination order */
+      int visited = 0;
+      for (var iterator = mapped.iterator(5, 8); iterator.hasNext(); ++visited) {
+        double value = iterator.next();
+        int origin = 5 + visited / numberOfZones;
+        assertEquals(origin, iterator.getCurrentOrigin().getId());
+        assertEquals(visited % numberOfZones, iterator.getCurrentDestination().getId());
+        assertEquals(contents[origin][visited % numberOfZones], value);
+      }
+      assertEquals(3 * numberOfZones, visited);
+
+      /* loading replaces all cells */
+      mapped.fill(7);
+      assertEquals(7, mapped.getDouble(3, 4));
+      mapped.loadFrom(directory.resolve("saved.bin"));
+      for (int origin = 0; origin < numberOfZones; ++origin) {
+        for (int destination = 0; destination < numberOfZones; ++destination) {
+          assertEquals(contents[origin][destination], mapped.getValue(zones.get(origin), zones.get(destination)));
+        }
+      }
+      /* copies share the file, and with it its closed state */
+      var copy = mapped.shallowClone();
+      assertEquals(contents[12][20], copy.getDouble(12, 20));
+      mapped.close();
+      assertTrue(mapped.isClosed());
+      assertTrue(copy.isClosed());
+      assertThrows(PlanItRunTimeException.class, () -> mapped.loadFrom(directory.resolve("saved.bin")));
+      assertThrows(PlanItRunTimeException.class, () -> mapped.getDouble(0, 0));
+      assertThrows(PlanItRunTimeException.class, () -> mapped.setDouble(0, 0, 1));
+      assertThrows(PlanItRunTimeException.class, () -> copy.force());
+      copy.close();
+      assertThrows(PlanItRunTimeException.class, () -> copy.getDouble(0, 0));
+    }
+
+    /* a saved file can be opened directly, but only for the same zones */
+    try (var reopened = new TestOdMappedDouble(zones, directory.resolve("saved.bin"), true)) {
+      assertEquals(contents[12][20], reopened.getDouble(12, 20));
+    }
+    assertThrows(PlanItRunTimeException.class,
+        () -> new TestOdMappedDouble(TestEntities.createOdZones(numberOfZones + 1), directory.resolve("saved.bin"), true));
+
+    Files.write(directory.resolve("corrupt.bin"), new byte[64]);
+    assertThrows(PlanItRunTimeException.class, () -> new TestOdMappedDouble(zones, directory.resolve("corrupt.bin"), true));
+
+    try (var files = Files.list(directory)) {
+      files.forEach(file -> file.toFile().delete());
+    }
+    Files.delete(directory);
+  }
+}
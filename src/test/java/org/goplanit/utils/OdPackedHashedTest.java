@@ -0,0 +1,125 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.containers.LongKeyHashMap;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdHashed;
+import org.goplanit.utils.od.OdPackedHashedImpl;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+public class OdPackedHashedTest {
+
+  /** concrete packed od container for testing */
+  private static class OdPackedHashedInteger extends OdPackedHashedImpl<Integer> {
+
+    OdPackedHashedInteger(OdZones zones) {
+      super(OdData.class, IdGroupingToken.create("OdPackedHashedTest"), zones);
+    }
+
+    OdPackedHashedInteger(OdPackedHashedInteger other) {
+      super(other);
+    }
+
+    @Override
+    public OdPackedHashedInteger shallowClone() {
+      return new OdPackedHashedInteger(this);
+    }
+
+    @Override
+    public OdPackedHashedInteger deepClone() {
+      return new OdPackedHashedInteger(this);
+    }
+  }
+
+  @Test
+  public void longKeyHashMapTest() {
+    var random = new Random(7);
+    var map = new LongKeyHashMap<Long>();
+    var expected = new HashMap<Long, Long>();
+    for (int operation = 0; operation < 20000; ++operation) {
+      /* small key range so keys collide, are overwritten and removed often, which exercises probing and backward shifting */
+      long key = OdHashed.generatePackedKey(random.nextInt(40), random.nextInt(40));
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else if (random.nextInt(10) == 0) {
+        assertEquals(expected.remove(key), map.put(key, null));
+      } else {
+        long value = random.nextLong();
+        assertEquals(expected.put(key, value), map.put(key, value));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+
+    for (var entry : expected.entrySet()) {
+      assertTrue(map.containsKey(entry.getKey()));
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+
+    int visited = 0;
+    for (int slot = map.nextOccupiedSlot(0); slot >= 0; slot = map.nextOccupiedSlot(slot + 1)) {
+      assertEquals(expected.get(map.getKeyAt(slot)), map.getValueAt(slot));
+      ++visited;
+    }
+    assertEquals(expected.size(), visited);
+
+    var copy = new LongKeyHashMap<>(map);
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals(expected.size(), copy.size());
+  }
+
+  @Test
+  public void odPackedHashedTest() {
+    var zones = TestEntities.createOdZones(5);
+    var odData = new OdPackedHashedInteger(zones);
+    assertEquals(0, odData.getNumberOfNonEmptyOds());
+
+    odData.setValue(0, 4, 4);
+    odData.setValue(3, 1, 31);
+    odData.setValue(4, 0, 40);
+    odData.setValue(2, 2, 22);
+    odData.setValue(zones.get(1), zones.get(3), 13);
+    assertEquals(5, odData.getNumberOfNonEmptyOds());
+    assertEquals(31, odData.getValue(3, 1));
+    assertEquals(13, odData.getValue(zones.get(1), zones.get(3)));
+    assertNull(odData.getValue(3, 3));
+
+    /* null removes the entry */
+    odData.setValue(2, 2, null);
+    assertEquals(4, odData.getNumberOfNonEmptyOds());
+    assertNull(odData.getValue(2, 2));
+
+    var visited = new HashMap<Long, Integer>();
+    for (var iterator = odData.iterator(); iterator.hasNext();) {
+      var value = iterator.next();
+      assertEquals(value, iterator.getCurrentValue());
+      visited.put(OdHashed.generatePackedKey(iterator.getCurrentOrigin().getId(), iterator.getCurrentDestination().getId()), value);
+    }
+    assertEquals(4, visited.size());
+    assertEquals(4, visited.get(OdHashed.generatePackedKey(0, 4)));
+    assertEquals(31, visited.get(OdHashed.generatePackedKey(3, 1)));
+    assertEquals(40, visited.get(OdHashed.generatePackedKey(4, 0)));
+    assertEquals(13, visited.get(OdHashed.generatePackedKey(1, 3)));
+
+    int restrictedCount = 0;
+    for (var iterator = odData.iterator(1, 4); iterator.hasNext();) {
+      iterator.next();
+      long originId = iterator.getCurrentOrigin().getId();
+      assertTrue(originId >= 1 && originId < 4);
+      ++restrictedCount;
+    }
+    assertEquals(2, restrictedCount);
+
+    /* copies do not share storage */
+    var copy = odData.shallowClone();
+    copy.setValue(0, 0, 1);
+    assertNull(odData.getValue(0, 0));
+    assertEquals(5, copy.getNumberOfNonEmptyOds());
+  }
+}
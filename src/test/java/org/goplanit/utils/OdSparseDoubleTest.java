@@ -0,0 +1,144 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdDoubleMatrix;
+import org.goplanit.utils.od.OdHashed;
+import org.goplanit.utils.od.OdSparseDouble;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+public class OdSparseDoubleTest {
+
+  private static final IdGroupingToken token = IdGroupingToken.create("OdSparseDoubleTest");
+
+  /** concrete sparse od data for testing */
+  private static class TestOdSparseDouble extends OdSparseDouble {
+
+    TestOdSparseDouble(OdZones zones) {
+      super(OdData.class, token, zones);
+    }
+
+    TestOdSparseDouble(TestOdSparseDouble other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdSparseDouble shallowClone() {
+      return new TestOdSparseDouble(this);
+    }
+  }
+
+  /** concrete dense od matrix for testing */
+  private static class TestOdDoubleMatrix extends OdDoubleMatrix {
+
+    TestOdDoubleMatrix(OdZones zones) {
+      super(OdData.class, token, zones);
+    }
+
+    TestOdDoubleMatrix(TestOdDoubleMatrix other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdDoubleMatrix shallowClone() {
+      return new TestOdDoubleMatrix(this);
+    }
+  }
+
+  @Test
+  public void matchesReferenceTest() {
+    var random = new Random(13);
+    int numberOfZones = 50;
+    var zones = TestEntities.createOdZones(numberOfZones);
+    var sparse = new TestOdSparseDouble(zones);
+    /* ordered by packed key, i.e., in origin-destination order */
+    var expected = new TreeMap<Long, Double>();
+    for (int operation = 0; operation < 5000; ++operation) {
+      int origin = random.nextInt(numberOfZones);
+      int destination = random.nextInt(numberOfZones);
+      long key = OdHashed.generatePackedKey(origin, destination);
+      double value = random.nextInt(4) == 0 ? 0 : random.nextInt(100) - 50;
+      if (random.nextBoolean()) {
+        sparse.setDouble(origin, destination, value);
+        expected.put(key, value);
+      } else {
+        sparse.addToDouble(origin, destination, value);
+        expected.merge(key, value, Double::sum);
+      }
+      expected.remove(key, 0.0);
+    }
+    assertEquals(expected.size(), sparse.getNumberOfNonZeroCells());
+    assertEquals(expected.subMap(OdHashed.generatePackedKey(7, 0), OdHashed.generatePackedKey(8, 0)).size(), sparse.getNumberOfNonZeroCells(7));
+
+    /* iterator visits exactly the non-zero cells in origin-destination order */
+    var expectedIterator = expected.entrySet().iterator();
+    for (var iterator = sparse.iterator(); iterator.hasNext();) {
+      double value = iterator.next();
+      var entry = expectedIterator.next();
+      assertEquals(OdHashed.unpackOriginId(entry.getKey()), iterator.getCurrentOrigin().getId());
+      assertEquals(OdHashed.unpackDestinationId(entry.getKey()), iterator.getCurrentDestination().getId());
+      assertEquals(entry.getValue(), value);
+    }
+    assertFalse(expectedIterator.hasNext());
+
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        assertEquals(expected.getOrDefault(OdHashed.generatePackedKey(origin, destination), 0.0), sparse.getValue(origin, destination));
+      }
+    }
+
+    sparse.trimToSize();
+    assertEquals(expected.size(), sparse.getNumberOfNonZeroCells());
+    var copy = sparse.deepClone();
+    sparse.clear();
+    assertEquals(0, sparse.getNumberOfNonZeroCells());
+    assertFalse(sparse.iterator().hasNext());
+    assertEquals(expected.size(), copy.getNumberOfNonZeroCells());
+  }
+
+  @Test
+  public void roundTripTest() {
+    var random = new Random(17);
+    int numberOfZones = 30;
+    var zones = TestEntities.createOdZones(numberOfZones);
+    var dense = new TestOdDoubleMatrix(zones);
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        if (random.nextInt(10) == 0) {
+          dense.setDouble(origin, destination, 1 + random.nextInt(100));
+        }
+      }
+    }
+
+    /* dense to sparse and back via the unboxed path */
+    var sparse = new TestOdSparseDouble(zones);
+    sparse.copyFrom(dense);
+    var denseCopy = new TestOdDoubleMatrix(zones);
+    sparse.copyTo(denseCopy);
+
+    /* sparse to sparse via the boxed path */
+    var sparseCopy = new TestOdSparseDouble(zones);
+    sparseCopy.copyFrom(sparse);
+    var sparseTarget = new TestOdSparseDouble(zones);
+    sparseCopy.copyTo(sparseTarget);
+
+    long nonZero = 0;
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        double value = dense.getDouble(origin, destination);
+        nonZero += value != 0 ? 1 : 0;
+        assertEquals(value, sparse.getDouble(origin, destination));
+        assertEquals(value, denseCopy.getDouble(origin, destination));
+        assertEquals(value, sparseTarget.getDouble(zones.get(origin).getId(), zones.get(destination).getId()));
+      }
+    }
+    assertEquals(nonZero, sparse.getNumberOfNonZeroCells());
+    assertEquals(nonZero, sparseTarget.getNumberOfNonZeroCells());
+  }
+}
@@ -0,0 +1,111 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.cumulatives.PiecewiseLinearCumulativeCurve;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class PiecewiseLinearCumulativeCurveTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** curve through (0,0), (10,5), (20,5), (30,15) */
+  private static PiecewiseLinearCumulativeCurve createCurve() throws PlanItException {
+    var curve = new PiecewiseLinearCumulativeCurve(2);
+    curve.add(0, 0, EPSILON);
+    curve.add(10, 5, EPSILON);
+    curve.add(20, 5, EPSILON);
+    curve.add(30, 15, EPSILON);
+    return curve;
+  }
+
+  @Test
+  public void queryTest() throws PlanItException {
+    var curve = createCurve();
+    assertEquals(4, curve.getNumberOfPoints());
+
+    assertEquals(0, curve.getCumulativeAt(-5), EPSILON);
+    assertEquals(2.5, curve.getCumulativeAt(5), EPSILON);
+    assertEquals(5, curve.getCumulativeAt(15), EPSILON);
+    assertEquals(10, curve.getCumulativeAt(25), EPSILON);
+    assertEquals(15, curve.getCumulativeAt(40), EPSILON);
+
+    assertEquals(0, curve.getTimeAt(0), EPSILON);
+    assertEquals(5, curve.getTimeAt(2.5), EPSILON);
+    /* earliest time the count is reached */
+    assertEquals(10, curve.getTimeAt(5), EPSILON);
+    assertEquals(25, curve.getTimeAt(10), EPSILON);
+    assertTrue(Double.isNaN(curve.getTimeAt(16)));
+
+    assertEquals(175, curve.computeSurfaceUnderCurve(), EPSILON);
+    assertEquals(18.75 + 50 + 37.5, curve.computeSurfaceUnderCurve(5, 25), EPSILON);
+    assertEquals(14, curve.computeSurfaceUnderCurve(21, 23), EPSILON);
+    assertEquals(175, curve.computeSurfaceUnderCurve(-10, 50), EPSILON);
+    assertEquals(0, curve.computeSurfaceUnderCurve(40, 50), EPSILON);
+
+    var empty = new PiecewiseLinearCumulativeCurve();
+    assertTrue(Double.isNaN(empty.getCumulativeAt(0)));
+    assertTrue(Double.isNaN(empty.getTimeAt(0)));
+    assertEquals(0, empty.computeSurfaceUnderCurve(), EPSILON);
+  }
+
+  @Test
+  public void appendTest() throws PlanItException {
+    var curve = createCurve();
+    assertThrows(PlanItException.class, () -> curve.add(30, 20, EPSILON));
+    assertThrows(PlanItException.class, () -> curve.add(40, 14, EPSILON));
+    assertEquals(4, curve.getNumberOfPoints());
+
+    var copy = new PiecewiseLinearCumulativeCurve(curve);
+    curve.clear();
+    assertTrue(curve.isEmpty());
+    curve.trimToSize();
+    curve.add(0, 1, EPSILON);
+    assertEquals(1, curve.getCumulativeAt(100), EPSILON);
+    assertEquals(15, copy.getCumulativeAt(100), EPSILON);
+  }
+
+  @Test
+  public void bruteForceTest() throws PlanItException {
+    var random = new Random(3);
+    var curve = new PiecewiseLinearCumulativeCurve();
+    int numberOfPoints = 500;
+    var times = new double[numberOfPoints];
+    var counts = new double[numberOfPoints];
+    for (int index = 0; index < numberOfPoints; ++index) {
+      times[index] = index == 0 ? 0 : times[index - 1] + 0.1 + random.nextDouble() * 10;
+      counts[index] = index == 0 ? 0 : counts[index - 1] + (random.nextInt(4) == 0 ? 0 : random.nextDouble() * 5);
+      curve.add(times[index], counts[index], EPSILON);
+    }
+
+    for (int query = 0; query < 1000; ++query) {
+      double time = random.nextDouble() * times[numberOfPoints - 1];
+      int segment = 0;
+      while (times[segment + 1] < time) {
+        ++segment;
+      }
+      double expected = counts[segment] + (counts[segment + 1] - counts[segment]) * (time - times[segment]) / (times[segment + 1] - times[segment]);
+      assertEquals(expected, curve.getCumulativeAt(time), 1e-6);
+
+      /* inverse query reaches the same count */
+      double count = random.nextDouble() * counts[numberOfPoints - 1];
+      assertEquals(count, curve.getCumulativeAt(curve.getTimeAt(count)), 1e-6);
+    }
+  }
+
+  @Test
+  public void travelTimeTest() throws PlanItException {
+    var inflow = new PiecewiseLinearCumulativeCurve();
+    inflow.add(0, 0, EPSILON);
+    inflow.add(10, 10, EPSILON);
+    var outflow = new PiecewiseLinearCumulativeCurve();
+    outflow.add(5, 0, EPSILON);
+    outflow.add(15, 10, EPSILON);
+
+    assertEquals(5, PiecewiseLinearCumulativeCurve.computeTravelTimeByEntryTime(inflow, outflow, 4), EPSILON);
+    assertEquals(5, PiecewiseLinearCumulativeCurve.computeTravelTimeByExitTime(inflow, outflow, 12), EPSILON);
+  }
+}
@@ -0,0 +1,84 @@
+package org.goplanit.utils;
+
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.util.factory.Hints;
+import org.goplanit.utils.epsg.EpsgCodesByCountry;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitCrsUtils;
+import org.goplanit.utils.geo.PlanitJtsUtils;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanitCrsUtilsTest {
+
+  /** transform a coordinate given in WGS84 (latitude first) to the crs and back via both the bundled and decoded definitions */
+  private static void assertSameTransform(CoordinateReferenceSystem bundled, CoordinateReferenceSystem decoded, Coordinate wgs84) throws Exception {
+    var bundledWgs84 = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84);
+    var decodedWgs84 = CRS.decode(EpsgCodesByCountry.WORLD_WG84);
+
+    var bundledResult = JTS.transform(wgs84, null, CRS.findMathTransform(bundledWgs84, bundled, true));
+    var decodedResult = JTS.transform(wgs84, null, CRS.findMathTransform(decodedWgs84, decoded, true));
+    assertEquals(decodedResult.x, bundledResult.x, 1e-6);
+    assertEquals(decodedResult.y, bundledResult.y, 1e-6);
+
+    var bundledBack = JTS.transform(bundledResult, null, CRS.findMathTransform(bundled, bundledWgs84, true));
+    assertEquals(wgs84.x, bundledBack.x, 1e-6);
+    assertEquals(wgs84.y, bundledBack.y, 1e-6);
+  }
+
+  @Test
+  public void bundledCrsMatchesDecodedTest() throws Exception {
+    PlanitCrsUtils.clearCaches();
+
+    var world = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84);
+    assertTrue(CRS.equalsIgnoreMetadata(CRS.decode(EpsgCodesByCountry.WORLD_WG84), world));
+    assertSame(world, PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84));
+
+    var germany = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.GERMANY_DHDN);
+    var decodedGermany = CRS.decode(EpsgCodesByCountry.GERMANY_DHDN);
+    assertTrue(CRS.equalsIgnoreMetadata(decodedGermany, germany));
+    assertSameTransform(germany, decodedGermany, new Coordinate(48.137, 11.575));
+    assertSameTransform(germany, decodedGermany, new Coordinate(52.520, 13.405));
+
+    var australia = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.AUSTRALIA_LAMBERT);
+    var decodedAustralia = CRS.decode(EpsgCodesByCountry.AUSTRALIA_LAMBERT);
+    assertTrue(CRS.equalsIgnoreMetadata(decodedAustralia, australia));
+    assertSameTransform(australia, decodedAustralia, new Coordinate(-33.868, 151.209));
+    assertSameTransform(australia, decodedAustralia, new Coordinate(-31.952, 115.861));
+  }
+
+  @Test
+  public void cachingTest() throws Exception {
+    PlanitCrsUtils.clearCaches();
+    var world = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84);
+    var germany = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.GERMANY_DHDN);
+    var transform = PlanitJtsUtils.findMathTransform(world, germany);
+    assertSame(transform, PlanitJtsUtils.findMathTransform(world, germany));
+    assertNotSame(transform, PlanitJtsUtils.findMathTransform(germany, world));
+    assertThrows(PlanItRunTimeException.class, () -> PlanitJtsUtils.findMathTransform(world, null));
+
+    /* after clearing, definitions are created anew */
+    PlanitCrsUtils.clearCaches();
+    assertNotSame(world, PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84));
+    assertTrue(CRS.equalsIgnoreMetadata(world, PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84)));
+  }
+
+  @Test
+  public void forcedLongitudeFirstHintTest() throws Exception {
+    PlanitCrsUtils.clearCaches();
+    Hints.putSystemDefault(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.TRUE);
+    try {
+      /* bundled definitions follow the EPSG axis order, so they must not be used when longitude first is forced programmatically */
+      var world = PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84);
+      assertEquals(CRS.AxisOrder.EAST_NORTH, CRS.getAxisOrder(world));
+    } finally {
+      Hints.removeSystemDefault(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER);
+      PlanitCrsUtils.clearCaches();
+    }
+    assertEquals(CRS.AxisOrder.NORTH_EAST, CRS.getAxisOrder(PlanitCrsUtils.createCoordinateReferenceSystem(EpsgCodesByCountry.WORLD_WG84)));
+  }
+}
@@ -0,0 +1,140 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitDistanceStrategy;
+import org.goplanit.utils.geo.PlanitGeodesicDistance;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class PlanitGeodesicDistanceTest {
+
+  /** length of one degree along a great circle of the mean earth sphere */
+  private static final double HAVERSINE_DEGREE = Math.toRadians(PlanitGeodesicDistance.MEAN_EARTH_RADIUS);
+
+  @Test
+  public void haversineTest(){
+    assertEquals(0, PlanitGeodesicDistance.haversineInMetres(4.9, 52.4, 4.9, 52.4));
+    assertEquals(HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineInMetres(10, 30, 10, 31), 1e-6);
+    assertEquals(HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineInMetres(0, 0, 1, 0), 1e-6);
+    /* half the circumference between antipodes */
+    assertEquals(180 * HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineInMetres(0, 0, 180, 0), 1e-6);
+
+    /* pairs across the anti-meridian take the short way round */
+    assertEquals(HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineInMetres(179.5, 0, -179.5, 0), 1e-6);
+    assertEquals(
+        PlanitGeodesicDistance.haversineInMetres(-0.5, 60, 0.5, 61), PlanitGeodesicDistance.haversineInMetres(179.5, 60, -179.5, 61), 1e-6);
+
+    var random = new Random(83);
+    for(int trial = 0; trial < 100; ++trial){
+      double longitude1 = random.nextDouble() * 360 - 180;
+      double latitude1 = random.nextDouble() * 160 - 80;
+      double longitude2 = random.nextDouble() * 360 - 180;
+      double latitude2 = random.nextDouble() * 160 - 80;
+      double distance = PlanitGeodesicDistance.haversineInMetres(longitude1, latitude1, longitude2, latitude2);
+      assertEquals(distance, PlanitGeodesicDistance.haversineInMetres(longitude2, latitude2, longitude1, latitude1), 1e-6);
+      assertTrue(distance >= 0 && distance <= 180 * HAVERSINE_DEGREE + 1e-6);
+    }
+  }
+
+  @Test
+  public void flatEarthTest(){
+    /* along the equator the ellipsoid distance is exact */
+    double equatorDegree = Math.toRadians(PlanitGeodesicDistance.WGS84_SEMI_MAJOR_AXIS);
+    assertEquals(equatorDegree, PlanitGeodesicDistance.equirectangularInMetres(0, 0, 1, 0), 1e-6);
+    var metresPerDegree = PlanitGeodesicDistance.createMetresPerDegree(0);
+    assertEquals(equatorDegree, metresPerDegree[0], 1e-6);
+    assertTrue(metresPerDegree[1] < metresPerDegree[0]);
+    assertEquals(equatorDegree, PlanitGeodesicDistance.locallyProjectedInMetres(-179.5, 0, 179.5, 0, metresPerDegree), 1e-6);
+
+    /* the meridional radius grows towards the poles while a degree of longitude shrinks */
+    var metresPerDegreeAt60 = PlanitGeodesicDistance.createMetresPerDegree(60);
+    assertTrue(metresPerDegreeAt60[1] > metresPerDegree[1]);
+    assertEquals(metresPerDegree[0] / 2, metresPerDegreeAt60[0], 0.01 * metresPerDegree[0]);
+
+    var random = new Random(89);
+    for(int trial = 0; trial < 100; ++trial){
+      double referenceLatitude = random.nextDouble() * 140 - 70;
+      double longitude = random.nextDouble() * 360 - 180;
+      double deltaLongitude = random.nextDouble() * 0.1 - 0.05;
+      double deltaLatitude = random.nextDouble() * 0.1 - 0.05;
+      double latitude1 = referenceLatitude - deltaLatitude / 2;
+      double latitude2 = referenceLatitude + deltaLatitude / 2;
+
+      /* with the reference latitude at the mean latitude both flat earth strategies coincide */
+      double equirectangular = PlanitGeodesicDistance.equirectangularInMetres(longitude, latitude1, longitude + deltaLongitude, latitude2);
+      double locallyProjected = PlanitGeodesicDistance.locallyProjectedInMetres(
+          longitude, latitude1, longitude + deltaLongitude, latitude2, PlanitGeodesicDistance.createMetresPerDegree(referenceLatitude));
+      assertEquals(equirectangular, locallyProjected, 1e-9 * equirectangular + 1e-9);
+
+      /* and stay within the error of the sphere for short distances */
+      double haversine = PlanitGeodesicDistance.haversineInMetres(longitude, latitude1, longitude + deltaLongitude, latitude2);
+      assertEquals(haversine, equirectangular, 0.0056 * haversine + 1e-6);
+    }
+  }
+
+  @Test
+  public void toBoxTest(){
+    assertEquals(0, PlanitGeodesicDistance.haversineToBoxInMetres(5, 5, 0, 0, 10, 10));
+    assertEquals(HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineToBoxInMetres(5, -1, 0, 0, 10, 10), 1e-6);
+    assertEquals(HAVERSINE_DEGREE, PlanitGeodesicDistance.haversineToBoxInMetres(179.5, 0, -179.5, -10, -170, 10), 1e-6);
+
+    /* compare against the closest point on a densely sampled boundary, the distance must never exceed it */
+    var random = new Random(97);
+    int samples = 2000;
+    for(int trial = 0; trial < 50; ++trial){
+      double minLongitude = random.nextDouble() * 300 - 150;
+      double minLatitude = random.nextDouble() * 120 - 70;
+      double maxLongitude = minLongitude + random.nextDouble() * 30;
+      double maxLatitude = minLatitude + random.nextDouble() * 20;
+      double longitude = random.nextDouble() * 360 - 180;
+      double latitude = random.nextDouble() * 170 - 85;
+      double toBox = PlanitGeodesicDistance.haversineToBoxInMetres(longitude, latitude, minLongitude, minLatitude, maxLongitude, maxLatitude);
+      if(longitude >= minLongitude && longitude <= maxLongitude && latitude >= minLatitude && latitude <= maxLatitude){
+        assertEquals(0, toBox);
+        continue;
+      }
+
+      double sampled = Double.POSITIVE_INFINITY;
+      for(int sample = 0; sample <= samples; ++sample){
+        double sampleLongitude = minLongitude + (maxLongitude - minLongitude) * sample / samples;
+        double sampleLatitude = minLatitude + (maxLatitude - minLatitude) * sample / samples;
+        sampled = Math.min(sampled, PlanitGeodesicDistance.haversineInMetres(longitude, latitude, sampleLongitude, minLatitude));
+        sampled = Math.min(sampled, PlanitGeodesicDistance.haversineInMetres(longitude, latitude, sampleLongitude, maxLatitude));
+        sampled = Math.min(sampled, PlanitGeodesicDistance.haversineInMetres(longitude, latitude, minLongitude, sampleLatitude));
+        sampled = Math.min(sampled, PlanitGeodesicDistance.haversineInMetres(longitude, latitude, maxLongitude, sampleLatitude));
+      }
+      double spacing = HAVERSINE_DEGREE * Math.max(maxLongitude - minLongitude, maxLatitude - minLatitude) / samples;
+      assertTrue(toBox <= sampled + 1e-6);
+      assertTrue(toBox >= sampled - spacing);
+    }
+  }
+
+  @Test
+  public void strategyTest(){
+    var metresPerDegree = PlanitGeodesicDistance.createMetresPerDegree(52);
+    assertEquals(PlanitGeodesicDistance.haversineInMetres(4, 52, 5, 53),
+        PlanitGeodesicDistance.distanceInMetres(PlanitDistanceStrategy.HAVERSINE, 4, 52, 5, 53, null));
+    assertEquals(PlanitGeodesicDistance.equirectangularInMetres(4, 52, 5, 53),
+        PlanitGeodesicDistance.distanceInMetres(PlanitDistanceStrategy.EQUIRECTANGULAR, 4, 52, 5, 53, null));
+    assertEquals(PlanitGeodesicDistance.locallyProjectedInMetres(4, 52, 5, 53, metresPerDegree),
+        PlanitGeodesicDistance.distanceInMetres(PlanitDistanceStrategy.LOCAL_PROJECTION, 4, 52, 5, 53, metresPerDegree));
+    assertThrows(PlanItRunTimeException.class,
+        () -> PlanitGeodesicDistance.distanceInMetres(PlanitDistanceStrategy.ORTHODROMIC, 4, 52, 5, 53, null));
+    assertFalse(PlanitDistanceStrategy.ORTHODROMIC.isApproximate());
+    assertTrue(PlanitDistanceStrategy.LOCAL_PROJECTION.isApproximate());
+
+    /* polyline length is the sum of its segments */
+    var polyline = new double[] { 4, 52, 4.01, 52, 4.01, 52.02, 4.03, 52.03 };
+    for(var strategy : new PlanitDistanceStrategy[] { PlanitDistanceStrategy.HAVERSINE, PlanitDistanceStrategy.EQUIRECTANGULAR, PlanitDistanceStrategy.LOCAL_PROJECTION }){
+      double expected = 0;
+      for(int index = 2; index < polyline.length; index += 2){
+        expected += PlanitGeodesicDistance.distanceInMetres(strategy, polyline[index - 2], polyline[index - 1], polyline[index], polyline[index + 1], metresPerDegree);
+      }
+      assertEquals(expected, PlanitGeodesicDistance.lengthInMetres(strategy, polyline, metresPerDegree), 1e-9);
+    }
+    assertEquals(0, PlanitGeodesicDistance.lengthInMetres(PlanitDistanceStrategy.HAVERSINE, new double[] { 4, 52 }, null));
+  }
+}
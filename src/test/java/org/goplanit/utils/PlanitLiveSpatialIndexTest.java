@@ -0,0 +1,141 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitLiveSpatialIndex;
+import org.goplanit.utils.graph.Edge;
+import org.goplanit.utils.graph.GraphEntity;
+import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.graph.modifier.event.GraphEntitiesModificationEvent;
+import org.goplanit.utils.graph.modifier.event.GraphModifierEventProducer;
+import org.goplanit.utils.graph.modifier.event.GraphModifierEventType;
+import org.goplanit.utils.zoning.Zone;
+import org.goplanit.utils.zoning.modifier.event.ZoningModifierEventProducer;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class PlanitLiveSpatialIndexTest {
+
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+  /** edge whose geometry can be changed through the holder */
+  private static Edge createEdge(long id, LineString[] geometry){
+    return TestEntities.createStub(Edge.class, Map.of("getId", args -> id, "getGeometry", args -> geometry[0]));
+  }
+
+  /** straight line string between two coordinates */
+  private static LineString createLine(double x1, double y1, double x2, double y2){
+    return geometryFactory.createLineString(new Coordinate[] { new Coordinate(x1, y1), new Coordinate(x2, y2) });
+  }
+
+  /** graph modification event with the given entity changes */
+  private static GraphEntitiesModificationEvent createEvent(Collection<? extends GraphEntity> added, Collection<? extends GraphEntity> removed,
+      Collection<? extends GraphEntity> geometryChanged){
+    return TestEntities.createStub(GraphEntitiesModificationEvent.class,
+        Map.of("getAddedEntities", args -> added, "getRemovedEntities", args -> removed, "getGeometryChangedEntities", args -> geometryChanged));
+  }
+
+  @Test
+  public void insertRemoveUpdateTest(){
+    var index = new PlanitLiveSpatialIndex();
+    var geometryA = new LineString[] { createLine(0, 0, 10, 0) };
+    var edgeA = createEdge(0, geometryA);
+    var edgeB = createEdge(1, new LineString[] { createLine(50, 50, 60, 60) });
+    var withoutGeometry = createEdge(2, new LineString[] { null });
+    index.addEdges(List.of(edgeA, edgeB, withoutGeometry));
+    assertEquals(2, index.getNumberOfEdges());
+    assertFalse(index.contains(withoutGeometry));
+    assertFalse(index.insert(edgeA));
+
+    assertEquals(List.of(edgeA), new ArrayList<>(index.queryEdges(new Envelope(-1, 11, -1, 1))));
+    /* envelope overlaps the diagonal edge's envelope but not its geometry */
+    assertTrue(index.queryEdges(new Envelope(58, 60, 50, 52)).isEmpty());
+
+    /* geometry moved after indexing, re-indexing removes it under the original envelope */
+    geometryA[0] = createLine(100, 100, 110, 100);
+    assertTrue(index.update(edgeA));
+    assertTrue(index.queryEdges(new Envelope(-1, 11, -1, 1)).isEmpty());
+    assertEquals(List.of(edgeA), new ArrayList<>(index.queryEdges(new Envelope(99, 111, 99, 101))));
+    assertEquals(2, index.getNumberOfEdges());
+
+    /* removal also succeeds after a geometry change that was not re-indexed */
+    geometryA[0] = createLine(200, 200, 210, 200);
+    assertTrue(index.remove(edgeA));
+    assertFalse(index.remove(edgeA));
+    assertFalse(index.contains(edgeA));
+    assertEquals(1, index.getNumberOfEdges());
+    assertTrue(index.queryEdges(new Envelope(99, 111, 99, 101)).isEmpty());
+
+    /* vertices and zones */
+    Point position = geometryFactory.createPoint(new Coordinate(5, 5));
+    var vertex = TestEntities.createStub(Vertex.class, Map.of("getId", args -> 0L, "getPosition", args -> position));
+    index.addVertices(List.of(vertex));
+    assertEquals(List.of(vertex), new ArrayList<>(index.queryVertices(new Envelope(4, 6, 4, 6))));
+    assertTrue(index.queryVertices(new Envelope(6, 7, 6, 7)).isEmpty());
+
+    Geometry zoneGeometry = geometryFactory.createPolygon(new Coordinate[] {
+        new Coordinate(20, 20), new Coordinate(30, 20), new Coordinate(30, 30), new Coordinate(20, 30), new Coordinate(20, 20) });
+    var zone = TestEntities.createStub(Zone.class, Map.of("getId", args -> 0L, "getGeometry", args -> zoneGeometry));
+    index.addZones(List.of(zone));
+    assertEquals(1, index.getNumberOfZones());
+    assertEquals(List.of(zone), new ArrayList<>(index.queryZones(new Envelope(25, 26, 25, 26))));
+    assertTrue(index.queryZones(new Envelope(0, 1, 0, 1)).isEmpty());
+
+    index.clear();
+    assertEquals(0, index.getNumberOfEdges());
+    assertEquals(0, index.getNumberOfVertices());
+    assertEquals(0, index.getNumberOfZones());
+    assertFalse(index.contains(edgeB));
+  }
+
+  @Test
+  public void modificationEventTest(){
+    var index = new PlanitLiveSpatialIndex();
+    var geometryA = new LineString[] { createLine(0, 0, 10, 0) };
+    var edgeA = createEdge(0, geometryA);
+    var edgeB = createEdge(1, new LineString[] { createLine(0, 5, 10, 5) });
+    Point position = geometryFactory.createPoint(new Coordinate(5, 5));
+    var vertex = TestEntities.createStub(Vertex.class, Map.of("getId", args -> 0L, "getPosition", args -> position));
+
+    index.onGraphModificationEvent(createEvent(List.of(edgeA, vertex), List.of(), List.of()));
+    assertTrue(index.contains(edgeA));
+    assertTrue(index.contains(vertex));
+
+    geometryA[0] = createLine(100, 0, 110, 0);
+    index.onGraphModificationEvent(createEvent(List.of(edgeB), List.of(vertex), List.of(edgeA)));
+    assertFalse(index.contains(vertex));
+    assertEquals(2, index.getNumberOfEdges());
+    assertEquals(List.of(edgeA), new ArrayList<>(index.queryEdges(new Envelope(99, 111, -1, 1))));
+    assertEquals(List.of(edgeB), new ArrayList<>(index.queryEdges(new Envelope(-1, 11, -1, 6))));
+  }
+
+  @Test
+  public void listenToTest(){
+    var index = new PlanitLiveSpatialIndex();
+    var registered = new ArrayList<Object[]>();
+    var graphProducer = TestEntities.createStub(GraphModifierEventProducer.class, Map.of("addListener", args -> registered.add(args)));
+    var zoningProducer = TestEntities.createStub(ZoningModifierEventProducer.class, Map.of("addListener", args -> registered.add(args)));
+
+    /* the index cannot know the event types of a modifier, so it refuses to register for all of them */
+    assertThrows(PlanItRunTimeException.class, () -> index.listenTo(graphProducer));
+    assertThrows(PlanItRunTimeException.class, () -> index.listenTo(zoningProducer));
+    assertTrue(registered.isEmpty());
+
+    var eventType = new GraphModifierEventType("PlanitLiveSpatialIndexTest");
+    index.listenTo(graphProducer, eventType);
+    assertEquals(1, registered.size());
+    assertSame(index, registered.get(0)[0]);
+    assertSame(eventType, registered.get(0)[1]);
+  }
+}
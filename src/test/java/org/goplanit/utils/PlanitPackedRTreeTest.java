@@ -0,0 +1,94 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.geo.PlanitJtsCrsUtils;
+import org.goplanit.utils.geo.PlanitPackedRTree;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleBiFunction;
+
+public class PlanitPackedRTreeTest {
+
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+  /** distance to the closest coordinate of a geometry, exact for multi points */
+  private static ToDoubleBiFunction<Coordinate, Geometry> closestCoordinateDistance(PlanitJtsCrsUtils geoUtils){
+    return (reference, geometry) -> Arrays.stream(geometry.getCoordinates()).mapToDouble(c -> geoUtils.getDistanceInMetres(reference, c)).min().getAsDouble();
+  }
+
+  /** random multi points of one or two coordinates, the latter spanning wide envelopes */
+  private static List<Geometry> createMultiPoints(Random random, int count, double minX, double minY, double width, double height){
+    var geometries = new ArrayList<Geometry>();
+    for(int index = 0; index < count; ++index){
+      var coordinates = new Coordinate[1 + random.nextInt(2)];
+      for(int coordinateIndex = 0; coordinateIndex < coordinates.length; ++coordinateIndex){
+        coordinates[coordinateIndex] = new Coordinate(minX + random.nextDouble() * width, minY + random.nextDouble() * height);
+      }
+      geometries.add(geometryFactory.createMultiPointFromCoords(coordinates));
+    }
+    return geometries;
+  }
+
+  /** compare nearest and within distance queries against a brute force scan */
+  private static void assertMatchesBruteForce(PlanitJtsCrsUtils geoUtils, double minX, double minY, double width, double height){
+    var random = new Random(42);
+    var distanceFunction = closestCoordinateDistance(geoUtils);
+    for(int trial = 0; trial < 10; ++trial){
+      var geometries = createMultiPoints(random, 20 + random.nextInt(300), minX, minY, width, height);
+      var tree = new PlanitPackedRTree<Geometry>(geometries, g -> g, distanceFunction, geoUtils);
+      assertEquals(geometries.size(), tree.size());
+
+      for(int query = 0; query < 20; ++query){
+        var reference = new Coordinate(minX - 0.25 * width + random.nextDouble() * 1.5 * width, minY - 0.25 * height + random.nextDouble() * 1.5 * height);
+        double[] bruteForce = geometries.stream().mapToDouble(g -> distanceFunction.applyAsDouble(reference, g)).sorted().toArray();
+
+        var nearest = tree.findNearest(reference, 5, Double.POSITIVE_INFINITY);
+        assertEquals(5, nearest.size());
+        for(int index = 0; index < nearest.size(); ++index){
+          assertEquals(bruteForce[index], nearest.get(index).second(), 1e-6);
+        }
+
+        double maxDistance = bruteForce[random.nextInt(20)];
+        long withinCount = Arrays.stream(bruteForce).filter(distance -> distance <= maxDistance).count();
+        assertEquals(withinCount, tree.findWithinDistance(reference, maxDistance).size());
+      }
+    }
+  }
+
+  @Test
+  public void cartesianBruteForceTest(){
+    assertMatchesBruteForce(new PlanitJtsCrsUtils(PlanitJtsCrsUtils.CARTESIANCRS), 0, 0, 10000, 10000);
+  }
+
+  @Test
+  public void geographicBruteForceTest(){
+    /* high latitudes and wide envelopes, where the envelope corner closest in degrees is not the closest point on the ellipsoid */
+    assertMatchesBruteForce(new PlanitJtsCrsUtils(PlanitJtsCrsUtils.DEFAULT_GEOGRAPHIC_CRS), -10, 40, 60, 35);
+  }
+
+  @Test
+  public void geographicWideEnvelopeTest(){
+    var geoUtils = new PlanitJtsCrsUtils(PlanitJtsCrsUtils.DEFAULT_GEOGRAPHIC_CRS);
+    var reference = new Coordinate(0, 60);
+
+    /* envelope spans 40 degrees of longitude, its closest point lies north of the clamped corner (20,60) */
+    var wide = geometryFactory.createMultiPointFromCoords(new Coordinate[] {new Coordinate(20, 61.5), new Coordinate(60, 40)});
+    /* slightly further away than the wide geometry, but closer than 99% of the distance to the clamped corner */
+    var narrow = geometryFactory.createMultiPointFromCoords(new Coordinate[] {new Coordinate(0, 50.12)});
+    var distanceFunction = closestCoordinateDistance(geoUtils);
+    assertTrue(distanceFunction.applyAsDouble(reference, wide) < distanceFunction.applyAsDouble(reference, narrow));
+
+    var tree = new PlanitPackedRTree<Geometry>(List.of(narrow, wide), g -> g, distanceFunction, geoUtils);
+    var nearest = tree.findNearest(reference);
+    assertSame(wide, nearest.first());
+    assertEquals(distanceFunction.applyAsDouble(reference, wide), nearest.second(), 1e-6);
+  }
+}
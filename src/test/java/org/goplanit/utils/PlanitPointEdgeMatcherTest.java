@@ -0,0 +1,150 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitJtsCrsUtils;
+import org.goplanit.utils.geo.PlanitPackedRTree;
+import org.goplanit.utils.geo.PlanitPointEdgeMatcher;
+import org.goplanit.utils.geo.PlanitPointEdgeMatches;
+import org.goplanit.utils.graph.Edge;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PlanitPointEdgeMatcherTest {
+
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+  private static final double EPSILON = 1e-6;
+
+  /** random edges of two or three coordinates */
+  private static List<Edge> createEdges(Random random, int count){
+    var edges = new ArrayList<Edge>();
+    for(int index = 0; index < count; ++index){
+      long id = index;
+      var coordinates = new Coordinate[2 + random.nextInt(2)];
+      coordinates[0] = new Coordinate(random.nextDouble() * 10000, random.nextDouble() * 10000);
+      for(int coordinateIndex = 1; coordinateIndex < coordinates.length; ++coordinateIndex){
+        var previous = coordinates[coordinateIndex - 1];
+        coordinates[coordinateIndex] = new Coordinate(previous.x + random.nextDouble() * 600 - 300, previous.y + random.nextDouble() * 600 - 300);
+      }
+      var geometry = geometryFactory.createLineString(coordinates);
+      edges.add(TestEntities.createStub(Edge.class, Map.of("getId", args -> id, "getGeometry", args -> geometry)));
+    }
+    return edges;
+  }
+
+  /** random points, spanning several blocks of the matcher */
+  private static Coordinate[] createPoints(Random random, int count){
+    var points = new Coordinate[count];
+    for(int index = 0; index < count; ++index){
+      points[index] = new Coordinate(random.nextDouble() * 10000, random.nextDouble() * 10000);
+    }
+    return points;
+  }
+
+  /** same matches, point by point */
+  private static void assertSameMatches(PlanitPointEdgeMatches<Edge> expected, PlanitPointEdgeMatches<Edge> actual){
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getNumberOfMatched(), actual.getNumberOfMatched());
+    for(int index = 0; index < expected.size(); ++index){
+      assertSame(expected.getEdge(index), actual.getEdge(index));
+      assertEquals(expected.getDistance(index), actual.getDistance(index));
+      if(expected.isMatched(index)){
+        assertEquals(0, expected.getLinearLocation(index).compareTo(actual.getLinearLocation(index)));
+      }else{
+        assertNull(actual.getLinearLocation(index));
+      }
+    }
+  }
+
+  @Test
+  public void bruteForceTest(){
+    var random = new Random(71);
+    var geoUtils = new PlanitJtsCrsUtils(PlanitJtsCrsUtils.CARTESIANCRS);
+    var edges = createEdges(random, 300);
+    var points = createPoints(random, 1000);
+    var matcher = new PlanitPointEdgeMatcher<Edge>(PlanitPackedRTree.ofEdges(edges, geoUtils));
+
+    var matches = matcher.match(points);
+    assertEquals(points.length, matches.size());
+    assertEquals(points.length, matches.getNumberOfMatched());
+    for(int index = 0; index < points.length; ++index){
+      var point = points[index];
+      double bruteForce = edges.stream().mapToDouble(e -> geoUtils.getClosestProjectedDistanceInMetersToLineString(point, e.getGeometry())).min().getAsDouble();
+      assertTrue(matches.isMatched(index));
+      assertEquals(bruteForce, matches.getDistance(index), EPSILON);
+      /* projection lies on the matched edge at the reported distance */
+      var projected = matches.getProjectedCoordinate(index);
+      assertEquals(matches.getDistance(index), geoUtils.getDistanceInMetres(point, projected), EPSILON);
+      assertEquals(0, matches.getEdge(index).getGeometry().distance(geometryFactory.createPoint(projected)), EPSILON);
+    }
+  }
+
+  @Test
+  public void maxDistanceTest(){
+    var random = new Random(73);
+    var geoUtils = new PlanitJtsCrsUtils(PlanitJtsCrsUtils.CARTESIANCRS);
+    var edges = createEdges(random, 50);
+    var points = createPoints(random, 600);
+    var matcher = new PlanitPointEdgeMatcher<Edge>(PlanitPackedRTree.ofEdges(edges, geoUtils));
+
+    var unrestricted = matcher.match(points);
+    double maxDistance = 250;
+    var matches = matcher.match(points, maxDistance);
+    int matched = 0;
+    for(int index = 0; index < points.length; ++index){
+      if(unrestricted.getDistance(index) <= maxDistance){
+        assertSame(unrestricted.getEdge(index), matches.getEdge(index));
+        assertEquals(unrestricted.getDistance(index), matches.getDistance(index), EPSILON);
+        ++matched;
+      }else{
+        /* beyond the maximum distance, points remain unmatched */
+        assertFalse(matches.isMatched(index));
+        assertNull(matches.getEdge(index));
+        assertNull(matches.getLinearLocation(index));
+        assertNull(matches.getProjectedCoordinate(index));
+        assertEquals(Double.POSITIVE_INFINITY, matches.getDistance(index));
+      }
+    }
+    assertTrue(matched > 0 && matched < points.length);
+    assertEquals(matched, matches.getNumberOfMatched());
+  }
+
+  @Test
+  public void interleavedAndParallelTest(){
+    var random = new Random(79);
+    var geoUtils = new PlanitJtsCrsUtils(PlanitJtsCrsUtils.CARTESIANCRS);
+    var edgeIndex = PlanitPackedRTree.<Edge>ofEdges(createEdges(random, 200), geoUtils);
+    var points = createPoints(random, 2000);
+    var xy = new double[2 * points.length];
+    for(int index = 0; index < points.length; ++index){
+      xy[2 * index] = points[index].x;
+      xy[2 * index + 1] = points[index].y;
+    }
+
+    var matcher = new PlanitPointEdgeMatcher<Edge>(edgeIndex);
+    assertSame(edgeIndex, matcher.getEdgeIndex());
+    var expected = matcher.match(points, 400);
+    assertSameMatches(expected, matcher.match(xy, 400));
+
+    var pool = new ForkJoinPool(3);
+    try{
+      var parallelMatcher = new PlanitPointEdgeMatcher<Edge>(edgeIndex, pool);
+      assertSameMatches(expected, parallelMatcher.match(points, 400));
+      assertSameMatches(expected, parallelMatcher.match(xy, 400));
+    }finally{
+      pool.shutdown();
+    }
+
+    assertEquals(0, matcher.match(new Coordinate[0]).size());
+    assertThrows(PlanItRunTimeException.class, () -> matcher.match(new double[] { 1, 2, 3 }, 10));
+  }
+}
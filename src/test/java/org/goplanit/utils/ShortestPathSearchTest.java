@@ -0,0 +1,174 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitJtsCrsUtils;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathHeuristic;
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathSearch;
+import org.goplanit.utils.graph.directed.shortestpath.StraightLineHeuristic;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+public class ShortestPathSearchTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** random graph on a grid of vertices with costs of at least the straight line distance */
+  static DirectedGraphStar createRandomGraph(Random random, int numberOfVertices, int numberOfEdgeSegments, double[] costs) {
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < numberOfVertices; ++index) {
+      builder.addVertex(random.nextInt(100), random.nextInt(100));
+    }
+    var vertices = builder.getVertices();
+    for (int index = 0; index < numberOfEdgeSegments; ++index) {
+      var upstream = vertices.get(random.nextInt(numberOfVertices));
+      var downstream = vertices.get(random.nextInt(numberOfVertices));
+      builder.addEdgeSegment(upstream, downstream);
+      double distance = upstream.getPosition().getCoordinate().distance(downstream.getPosition().getCoordinate());
+      costs[index] = distance * (1 + random.nextDouble());
+    }
+    return new DirectedGraphStar(vertices, builder.getEdgeSegments());
+  }
+
+  /** brute force shortest path costs from the origin */
+  static double[] bellmanFord(DirectedGraphStar graphStar, int originVertexId, double[] costs) {
+    var vertexCosts = new double[graphStar.getNumberOfVertexIds()];
+    Arrays.fill(vertexCosts, Double.POSITIVE_INFINITY);
+    vertexCosts[originVertexId] = 0;
+    for (boolean updated = true; updated;) {
+      updated = false;
+      for (int edgeSegment = 0; edgeSegment < graphStar.getNumberOfEdgeSegmentIds(); ++edgeSegment) {
+        double cost = vertexCosts[graphStar.getUpstreamVertexId(edgeSegment)] + costs[edgeSegment];
+        if (cost < vertexCosts[graphStar.getDownstreamVertexId(edgeSegment)] - EPSILON) {
+          vertexCosts[graphStar.getDownstreamVertexId(edgeSegment)] = cost;
+          updated = true;
+        }
+      }
+    }
+    return vertexCosts;
+  }
+
+  /** cost of a path of edge segments, verifying it is connected from the origin to the destination */
+  static double computePathCost(DirectedGraphStar graphStar, int[] path, int originVertexId, int destinationVertexId, double[] costs) {
+    double cost = 0;
+    int vertex = originVertexId;
+    for (int edgeSegment : path) {
+      assertEquals(vertex, graphStar.getUpstreamVertexId(edgeSegment));
+      vertex = graphStar.getDownstreamVertexId(edgeSegment);
+      cost += costs[edgeSegment];
+    }
+    assertEquals(destinationVertexId, vertex);
+    return cost;
+  }
+
+  @Test
+  public void matchesBellmanFordTest() {
+    var random = new Random(23);
+    int numberOfVertices = 200;
+    var costs = new double[800];
+    var graphStar = createRandomGraph(random, numberOfVertices, costs.length, costs);
+    /* straight line distance is admissible since costs are at least the distance */
+    ShortestPathHeuristic euclidean = (vertexId, destinationVertexId) -> graphStar.getVertex(vertexId).getPosition().getCoordinate()
+        .distance(graphStar.getVertex(destinationVertexId).getPosition().getCoordinate());
+
+    var search = new ShortestPathSearch(graphStar);
+    for (int origin = 0; origin < numberOfVertices; origin += 17) {
+      var expected = bellmanFord(graphStar, origin, costs);
+      search.executeOneToAll(origin, costs);
+      assertEquals(origin, search.getOriginVertexId());
+      var predecessors = search.createIncomingEdgeSegmentIds();
+      for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+        assertEquals(expected[vertex], search.getCost(vertex), EPSILON);
+        assertEquals(Double.isFinite(expected[vertex]), search.isReached(vertex));
+        if (search.isReached(vertex)) {
+          assertEquals(expected[vertex], computePathCost(graphStar, search.createEdgeSegmentIdPath(vertex), origin, vertex, costs), EPSILON);
+        } else {
+          assertEquals(-1, predecessors[vertex]);
+          assertNull(search.createEdgeSegmentIdPath(vertex));
+        }
+      }
+      assertEquals(-1, predecessors[origin]);
+
+      for (int destination = 3; destination < numberOfVertices; destination += 31) {
+        assertEquals(expected[destination], search.executeOneToOne(origin, destination, costs), EPSILON);
+        int dijkstraPolled = search.getNumberOfPolledVertices();
+        assertEquals(expected[destination], search.executeOneToOne(origin, destination, costs, euclidean), EPSILON);
+        assertTrue(search.getNumberOfPolledVertices() <= dijkstraPolled);
+        if (Double.isFinite(expected[destination])) {
+          assertEquals(expected[destination], computePathCost(graphStar, search.createEdgeSegmentIdPath(destination), origin, destination, costs), EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void maxCostTest() {
+    /* chain 0 -> 1 -> 2 -> 3 with unit costs */
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 4; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    for (int index = 0; index < 3; ++index) {
+      builder.addEdgeSegment(vertices.get(index), vertices.get(index + 1));
+    }
+    var graphStar = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    var search = new ShortestPathSearch(graphStar);
+    search.executeOneToAll(0, new double[] { 1, 1, 1 }, 2);
+    assertEquals(2, search.getCost(2), EPSILON);
+    assertFalse(search.isReached(3));
+    assertEquals(Double.POSITIVE_INFINITY, search.getCost(3));
+    assertArrayEquals(new int[] { 0, 1 }, search.createEdgeSegmentIdPath(2));
+    assertArrayEquals(new int[0], search.createEdgeSegmentIdPath(0));
+
+    /* searching in reverse direction does not reach anything */
+    assertEquals(Double.POSITIVE_INFINITY, search.executeOneToOne(3, 0, new double[] { 1, 1, 1 }));
+    assertThrows(PlanItRunTimeException.class, () -> search.executeOneToOne(0, 7, new double[] { 1, 1, 1 }));
+  }
+
+  @Test
+  public void straightLineHeuristicTest() {
+    /* direct 0 -> 1 over 100 metres at cost 100, or a detour at cost 2 via vertex 2 without position */
+    var builder = new TestEntities.GraphBuilder();
+    var origin = builder.addVertex(0, 0);
+    var destination = builder.addVertex(100, 0);
+    var vertices = new ArrayList<DirectedVertex>(builder.getVertices());
+    var withoutPosition = TestEntities.createStub(DirectedVertex.class, Map.of("getId", args -> 2L, "getPosition", args -> null));
+    vertices.add(withoutPosition);
+    builder.addEdgeSegment(origin, destination);
+    builder.addEdgeSegment(origin, withoutPosition);
+    builder.addEdgeSegment(withoutPosition, destination);
+    var graphStar = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    var costs = new double[] { 100, 1, 1 };
+    var geoUtils = new PlanitJtsCrsUtils(PlanitJtsCrsUtils.CARTESIANCRS);
+
+    /* the positioned segment alone suggests one per metre, which would overestimate the detour */
+    assertEquals(0, StraightLineHeuristic.computeMinimumCostPerMetre(graphStar, costs, geoUtils));
+    var heuristic = new StraightLineHeuristic(graphStar, geoUtils, StraightLineHeuristic.computeMinimumCostPerMetre(graphStar, costs, geoUtils));
+    var search = new ShortestPathSearch(graphStar);
+    double dijkstra = search.executeOneToOne(0, 1, costs);
+    assertEquals(2, dijkstra, EPSILON);
+    assertEquals(dijkstra, search.executeOneToOne(0, 1, costs, heuristic), EPSILON);
+    assertArrayEquals(new int[] { 1, 2 }, search.createEdgeSegmentIdPath(1));
+
+    /* with all end points positioned the bound is established */
+    var random = new Random(101);
+    var randomCosts = new double[300];
+    var randomGraph = createRandomGraph(random, 80, randomCosts.length, randomCosts);
+    double costPerMetre = StraightLineHeuristic.computeMinimumCostPerMetre(randomGraph, randomCosts, geoUtils);
+    assertTrue(costPerMetre >= 1);
+    var randomHeuristic = new StraightLineHeuristic(randomGraph, geoUtils, costPerMetre);
+    var randomSearch = new ShortestPathSearch(randomGraph);
+    for (int destinationId = 1; destinationId < 80; destinationId += 7) {
+      double expected = randomSearch.executeOneToOne(0, destinationId, randomCosts);
+      assertEquals(expected, randomSearch.executeOneToOne(0, destinationId, randomCosts, randomHeuristic), EPSILON);
+    }
+  }
+}
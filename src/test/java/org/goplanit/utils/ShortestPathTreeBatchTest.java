@@ -0,0 +1,111 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathSearch;
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathTreeBatch;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.network.virtual.CentroidVertex;
+import org.goplanit.utils.od.OdData;
+import org.goplanit.utils.od.OdDoubleMatrix;
+import org.goplanit.utils.zoning.Centroid;
+import org.goplanit.utils.zoning.OdZones;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ShortestPathTreeBatchTest {
+
+  /** concrete double od matrix for testing */
+  private static class TestOdDoubleMatrix extends OdDoubleMatrix {
+
+    TestOdDoubleMatrix(OdZones zones) {
+      super(OdData.class, IdGroupingToken.create("ShortestPathTreeBatchTest"), zones);
+    }
+
+    TestOdDoubleMatrix(TestOdDoubleMatrix other) {
+      super(other);
+    }
+
+    @Override
+    public TestOdDoubleMatrix shallowClone() {
+      return new TestOdDoubleMatrix(this);
+    }
+  }
+
+  @Test
+  public void matchesIndividualTreesTest() {
+    var random = new Random(29);
+    int numberOfVertices = 300;
+    var costs = new double[1200];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, numberOfVertices, costs.length, costs);
+    var origins = new int[60];
+    for (int index = 0; index < origins.length; ++index) {
+      origins[index] = random.nextInt(numberOfVertices);
+    }
+
+    var pool = new ForkJoinPool(3);
+    try {
+      var batch = new ShortestPathTreeBatch(graphStar, pool);
+      var predecessors = batch.computeIncomingEdgeSegmentIds(origins, costs);
+      /* search states are reused rather than created per origin */
+      assertTrue(batch.getNumberOfSearchStates() <= pool.getParallelism() + 1);
+
+      var costsByOrigin = new double[origins.length][];
+      batch.execute(origins, costs, 150, (originIndex, tree) -> {
+        costsByOrigin[originIndex] = new double[numberOfVertices];
+        for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+          costsByOrigin[originIndex][vertex] = tree.getCost(vertex);
+        }
+      });
+
+      var search = new ShortestPathSearch(graphStar);
+      for (int originIndex = 0; originIndex < origins.length; ++originIndex) {
+        search.executeOneToAll(origins[originIndex], costs);
+        assertArrayEquals(search.createIncomingEdgeSegmentIds(), predecessors[originIndex]);
+        search.executeOneToAll(origins[originIndex], costs, 150);
+        for (int vertex = 0; vertex < numberOfVertices; ++vertex) {
+          assertEquals(search.getCost(vertex), costsByOrigin[originIndex][vertex]);
+        }
+      }
+
+      batch.releaseSearchStates();
+      assertEquals(0, batch.getNumberOfSearchStates());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void skimsTest() {
+    var random = new Random(31);
+    int numberOfVertices = 100;
+    var costs = new double[400];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, numberOfVertices, costs.length, costs);
+
+    /* every tenth vertex is a centroid of its own zone */
+    int numberOfZones = 10;
+    var zones = TestEntities.createOdZones(numberOfZones);
+    var centroidVertices = new ArrayList<CentroidVertex>();
+    for (int zone = 0; zone < numberOfZones; ++zone) {
+      long vertexId = zone * 10L;
+      var parentZone = zones.get(zone);
+      var centroid = TestEntities.createStub(Centroid.class, Map.of("getParentZone", args -> parentZone));
+      centroidVertices.add(TestEntities.createStub(CentroidVertex.class, Map.of("getId", args -> vertexId, "getParent", args -> centroid)));
+    }
+
+    var skims = new TestOdDoubleMatrix(zones);
+    new ShortestPathTreeBatch(graphStar).computeSkims(centroidVertices, List.copyOf(centroidVertices), costs, skims);
+    var search = new ShortestPathSearch(graphStar);
+    for (int origin = 0; origin < numberOfZones; ++origin) {
+      search.executeOneToAll(origin * 10, costs);
+      for (int destination = 0; destination < numberOfZones; ++destination) {
+        assertEquals(search.getCost(destination * 10), skims.getDouble(origin, destination));
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package org.goplanit.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.goplanit.utils.graph.directed.DirectedEdge;
+import org.goplanit.utils.graph.directed.DirectedVertex;
+import org.goplanit.utils.graph.directed.EdgeSegment;
+import org.goplanit.utils.zoning.OdZone;
+import org.goplanit.utils.zoning.OdZones;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+/**
+ * Minimal stand-ins for entities whose implementations are not part of this library. Each stub only answers the methods it is given,
+ * default methods of the interface run as implemented and any other method throws, so tests fail when the code under test relies on more
+ * than these entities provide
+ *
+ * @author markr
+ *
+ */
+final class TestEntities {
+
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+  /** Create a stub of an interface
+   *
+   * @param <T> type of the interface
+   * @param type of the interface
+   * @param answers by method name
+   * @return stub
+   */
+  static <T> T createStub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      var answer = answers.get(method.getName());
+      if (answer != null) {
+        return answer.apply(args);
+      }
+      switch (method.getName()) {
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return type.getSimpleName() + (answers.containsKey("getId") ? " " + answers.get("getId").apply(null) : "");
+      default:
+        if (method.isDefault()) {
+          return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not available on the stub");
+      }
+    };
+    return type.cast(Proxy.newProxyInstance(TestEntities.class.getClassLoader(), new Class<?>[] { type }, handler));
+  }
+
+  /** Create od zones with ids 0 to count - 1
+   *
+   * @param count number of zones
+   * @return od zones
+   */
+  static OdZones createOdZones(int count) {
+    var zones = new ArrayList<OdZone>();
+    for (int index = 0; index < count; ++index) {
+      long id = index;
+      zones.add(createStub(OdZone.class, Map.of("getId", args -> id)));
+    }
+    return createStub(OdZones.class, Map.of(
+        "size", args -> zones.size(),
+        "get", args -> zones.get(((Number) args[0]).intValue()),
+        "iterator", args -> zones.iterator()));
+  }
+
+  /**
+   * Builder of small directed graphs of stubbed vertices and edge segments with contiguous ids, vertices and edge segments only provide
+   * their ids, position and end points
+   */
+  static final class GraphBuilder {
+
+    private final List<DirectedVertex> vertices = new ArrayList<>();
+
+    private final List<EdgeSegment> edgeSegments = new ArrayList<>();
+
+    /** Add a vertex
+     *
+     * @param x coordinate of the position
+     * @param y coordinate of the position
+     * @return created vertex
+     */
+    DirectedVertex addVertex(double x, double y) {
+      long id = vertices.size();
+      var position = geometryFactory.createPoint(new Coordinate(x, y));
+      var vertex = createStub(DirectedVertex.class, Map.of("getId", args -> id, "getPosition", args -> position));
+      vertices.add(vertex);
+      return vertex;
+    }
+
+    /** Add an edge segment without a parent edge
+     *
+     * @param upstream vertex
+     * @param downstream vertex
+     * @return created edge segment
+     */
+    EdgeSegment addEdgeSegment(DirectedVertex upstream, DirectedVertex downstream) {
+      return addEdgeSegment(upstream, downstream, null);
+    }
+
+    /** Add an edge segment
+     *
+     * @param upstream vertex
+     * @param downstream vertex
+     * @param parent edge, may be null
+     * @return created edge segment
+     */
+    EdgeSegment addEdgeSegment(DirectedVertex upstream, DirectedVertex downstream, DirectedEdge parent) {
+      long id = edgeSegments.size();
+      var answers = new HashMap<String, Function<Object[], Object>>();
+      answers.put("getId", args -> id);
+      answers.put("getUpstreamVertex", args -> upstream);
+      answers.put("getDownstreamVertex", args -> downstream);
+      answers.put("getParent", args -> parent);
+      var edgeSegment = createStub(EdgeSegment.class, answers);
+      edgeSegments.add(edgeSegment);
+      return edgeSegment;
+    }
+
+    /** Add an edge with a segment in both directions, i.e., a bidirectional link
+     *
+     * @param vertexA of the edge
+     * @param vertexB of the edge
+     * @return created segments, ab first
+     */
+    EdgeSegment[] addEdge(DirectedVertex vertexA, DirectedVertex vertexB) {
+      var edge = createStub(DirectedEdge.class, Map.of("getVertexA", args -> vertexA, "getVertexB", args -> vertexB));
+      return new EdgeSegment[] { addEdgeSegment(vertexA, vertexB, edge), addEdgeSegment(vertexB, vertexA, edge) };
+    }
+
+    /** Collect the vertices
+     *
+     * @return vertices in id order
+     */
+    List<DirectedVertex> getVertices() {
+      return vertices;
+    }
+
+    /** Collect the edge segments
+     *
+     * @return edge segments in id order
+     */
+    List<EdgeSegment> getEdgeSegments() {
+      return edgeSegments;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.goplanit.utils;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.directed.ConjugateGraphView;
+import org.goplanit.utils.graph.directed.DirectedGraphStar;
+import org.goplanit.utils.graph.directed.shortestpath.ShortestPathSearch;
+import org.goplanit.utils.graph.directed.shortestpath.TurnAwareShortestPathSearch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TurnAwareShortestPathSearchTest {
+
+  private static final double EPSILON = 1e-9;
+
+  /** brute force cost of arriving at the end of each edge segment, respecting turn costs and bans */
+  private static double[] bellmanFord(ConjugateGraphView view, int originVertexId, double[] costs) {
+    var graphStar = view.getGraphStar();
+    var labels = new double[graphStar.getNumberOfEdgeSegmentIds()];
+    Arrays.fill(labels, Double.POSITIVE_INFINITY);
+    for (int edgeSegment = 0; edgeSegment < labels.length; ++edgeSegment) {
+      if (graphStar.getUpstreamVertexId(edgeSegment) == originVertexId) {
+        labels[edgeSegment] = costs[edgeSegment];
+      }
+    }
+    for (boolean updated = true; updated;) {
+      updated = false;
+      for (int entry = 0; entry < labels.length; ++entry) {
+        for (int turn = view.getFirstTurn(entry); turn < view.getEndTurn(entry); ++turn) {
+          if (!view.isAvailable(turn)) {
+            continue;
+          }
+          int exit = view.getExitEdgeSegmentId(entry, turn);
+          double label = labels[entry] + view.getTurnCost(turn) + costs[exit];
+          if (label < labels[exit] - EPSILON) {
+            labels[exit] = label;
+            updated = true;
+          }
+        }
+      }
+    }
+    return labels;
+  }
+
+  @Test
+  public void withoutTurnCostsMatchesDijkstraTest() {
+    var random = new Random(59);
+    var costs = new double[500];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, 120, costs.length, costs);
+    var turnAware = new TurnAwareShortestPathSearch(new ConjugateGraphView(graphStar));
+    var search = new ShortestPathSearch(graphStar);
+    for (int origin = 0; origin < graphStar.getNumberOfVertexIds(); origin += 11) {
+      search.executeOneToAll(origin, costs);
+      turnAware.executeOneToAll(origin, costs);
+      for (int vertex = 0; vertex < graphStar.getNumberOfVertexIds(); ++vertex) {
+        assertEquals(search.getCost(vertex), turnAware.getCost(vertex), EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void turnCostsMatchBruteForceTest() {
+    var random = new Random(61);
+    var costs = new double[400];
+    var graphStar = ShortestPathSearchTest.createRandomGraph(random, 100, costs.length, costs);
+    var view = new ConjugateGraphView(graphStar);
+    for (int turn = 0; turn < view.getNumberOfTurns(); ++turn) {
+      int draw = random.nextInt(10);
+      if (draw == 0) {
+        view.banTurn(turn);
+      } else if (draw == 1) {
+        view.setTurnCost(turn, Double.POSITIVE_INFINITY);
+      } else {
+        view.setTurnCost(turn, random.nextDouble() * 20);
+      }
+    }
+
+    var turnAware = new TurnAwareShortestPathSearch(view);
+    for (int origin = 0; origin < graphStar.getNumberOfVertexIds(); origin += 9) {
+      var expected = bellmanFord(view, origin, costs);
+      turnAware.executeOneToAll(origin, costs);
+      for (int edgeSegment = 0; edgeSegment < expected.length; ++edgeSegment) {
+        assertEquals(expected[edgeSegment], turnAware.getEdgeSegmentCost(edgeSegment), EPSILON);
+      }
+      for (int destination = 1; destination < graphStar.getNumberOfVertexIds(); destination += 13) {
+        double cost = turnAware.executeOneToOne(origin, destination, costs);
+        if (destination == origin) {
+          continue;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int edgeSegment = 0; edgeSegment < expected.length; ++edgeSegment) {
+          if (graphStar.getDownstreamVertexId(edgeSegment) == destination) {
+            best = Math.min(best, expected[edgeSegment]);
+          }
+        }
+        assertEquals(best, cost, EPSILON);
+        var path = turnAware.createEdgeSegmentIdPath(destination);
+        if (Double.isFinite(best)) {
+          /* path respects the turns and their costs */
+          double pathCost = costs[path[0]];
+          for (int index = 1; index < path.length; ++index) {
+            int turn = view.getTurnId(path[index - 1], path[index]);
+            assertTrue(view.isAvailable(turn));
+            pathCost += view.getTurnCost(turn) + costs[path[index]];
+          }
+          assertEquals(best, pathCost, EPSILON);
+        } else {
+          assertNull(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void bannedTurnTest() {
+    /* 0 -> 1 -> 2 directly, or via a detour 1 -> 3 -> 2, plus a bidirectional edge 0 <-> 4 */
+    var builder = new TestEntities.GraphBuilder();
+    for (int index = 0; index < 5; ++index) {
+      builder.addVertex(index, 0);
+    }
+    var vertices = builder.getVertices();
+    builder.addEdgeSegment(vertices.get(0), vertices.get(1));
+    builder.addEdgeSegment(vertices.get(1), vertices.get(2));
+    builder.addEdgeSegment(vertices.get(1), vertices.get(3));
+    builder.addEdgeSegment(vertices.get(3), vertices.get(2));
+    builder.addEdge(vertices.get(0), vertices.get(4));
+    var graphStar = new DirectedGraphStar(vertices, builder.getEdgeSegments());
+    var costs = new double[] { 1, 1, 1, 1, 1, 1 };
+    var view = new ConjugateGraphView(graphStar);
+    assertEquals(6, view.getNumberOfConjugateVertexIds());
+    /* 0 -> 1 has two turns, 1 -> 2 none, 1 -> 3 one, 3 -> 2 none, 0 -> 4 one (u-turn), 4 -> 0 two */
+    assertArrayEquals(new int[] { 0, 2, 2, 3, 3, 4, 6 }, view.getTurnOffsets());
+    assertEquals(1, view.getExitEdgeSegmentId(0, 0));
+    assertEquals(2, view.getExitEdgeSegmentId(0, 1));
+    assertEquals(-1, view.getTurnId(0, 3));
+
+    var search = new TurnAwareShortestPathSearch(view);
+    assertEquals(2, search.executeOneToOne(0, 2, costs), EPSILON);
+    view.banTurn(view.getTurnId(0, 1));
+    assertEquals(3, search.executeOneToOne(0, 2, costs), EPSILON);
+    assertArrayEquals(new int[] { 0, 2, 3 }, search.createEdgeSegmentIdPath(2));
+    view.allowTurn(view.getTurnId(0, 1));
+    view.setTurnCost(view.getTurnId(0, 1), 5);
+    assertEquals(3, search.executeOneToOne(0, 2, costs), EPSILON);
+    view.reset();
+    assertEquals(2, search.executeOneToOne(0, 2, costs), EPSILON);
+    assertEquals(0, search.executeOneToOne(0, 0, costs));
+
+    /* only the u-turns at either end of the bidirectional edge share their parent edge */
+    assertEquals(2, view.banUTurns());
+    assertTrue(view.isBanned(view.getTurnId(4, 5)));
+    assertTrue(view.isBanned(view.getTurnId(5, 4)));
+    assertFalse(view.isBanned(view.getTurnId(5, 0)));
+    assertEquals(0, view.banUTurns());
+
+    assertThrows(PlanItRunTimeException.class, () -> view.banTurn(view.getNumberOfTurns()));
+    assertThrows(PlanItRunTimeException.class, () -> view.setTurnCosts(new double[1]));
+    view.setTurnCosts(new double[view.getNumberOfTurns()]);
+    assertArrayEquals(new double[view.getNumberOfTurns()], view.createTurnCosts());
+  }
+}